@@ -0,0 +1,76 @@
+#!/usr/bin/env bash
+# Cluster invalidation check: two backend nodes against one local database.
+#
+#   mvn -DskipTests package
+#   PGUSER=... PGPASSWORD=... EMAIL=manager@example.com PASSWORD=secret \
+#       SPRING_DATASOURCE_URL=jdbc:postgresql://localhost:5432/ems benchmarks/invalidation-two-nodes.sh [rounds]
+#
+# Starts node A on port 8000 and node B on port 8001, both with ems.invalidation.enabled=true.
+# Each round reads the department list on B to get its ETag, creates a department on A, then polls
+# B with If-None-Match until B stops answering 304, and reports how long that took.
+# Created departments are named invalidation-check-*; delete them afterwards.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+ROUNDS=${1:-10}
+: "${EMAIL:?set EMAIL to an existing manager}"
+: "${PASSWORD:?set PASSWORD for that manager}"
+: "${SPRING_DATASOURCE_URL:?set SPRING_DATASOURCE_URL to the shared local database}"
+JAR=$(ls target/*.jar 2>/dev/null | head -n 1 || true)
+[[ -f "$JAR" ]] || { echo "Build the jar first: mvn -DskipTests package" >&2; exit 1; }
+
+# The server context path is /api and the controllers map /api/...
+NODE_A=http://localhost:8000/api/api
+NODE_B=http://localhost:8001/api/api
+
+PIDS=()
+trap 'kill "${PIDS[@]}" 2>/dev/null || true' EXIT
+
+start_node() {
+    local port=$1 management_port=$2 log=$3
+    java -jar "$JAR" --server.port="$port" --management.server.port="$management_port" \
+        --ems.invalidation.enabled=true > "$log" 2>&1 &
+    PIDS+=($!)
+}
+
+wait_for() {
+    until [[ "$(curl -s -o /dev/null -w '%{http_code}' "$1/auth/login" || true)" != "000" ]]; do
+        sleep 0.2
+    done
+}
+
+start_node 8000 8081 /tmp/ems-node-a.log
+start_node 8001 8091 /tmp/ems-node-b.log
+wait_for "$NODE_A"
+wait_for "$NODE_B"
+# The listener thread starts once the application is ready
+sleep 1
+
+TOKEN=$(curl -s -H 'Content-Type: application/json' \
+    -d "$(printf '{"email":"%s","password":"%s"}' "$EMAIL" "$PASSWORD")" "$NODE_A/auth/login" \
+    | sed -n 's/.*"token":"\([^"]*\)".*/\1/p')
+[[ -n "$TOKEN" ]] || { echo "Login failed" >&2; exit 1; }
+
+now_ms() {
+    date +%s%3N
+}
+
+for ((round = 1; round <= ROUNDS; round++)); do
+    etag=$(curl -s -D - -o /dev/null -H "Authorization: Bearer $TOKEN" "$NODE_B/departments" \
+        | tr -d '\r' | sed -n 's/^[Ee][Tt]ag: //p')
+
+    start=$(now_ms)
+    curl -s -o /dev/null -H "Authorization: Bearer $TOKEN" -H 'Content-Type: application/json' \
+        -d "{\"name\":\"invalidation-check-$start\",\"budget\":1000,\"budgetType\":\"MONTHLY\"}" "$NODE_A/departments"
+
+    until [[ "$(curl -s -o /dev/null -w '%{http_code}' -H "Authorization: Bearer $TOKEN" \
+            -H "If-None-Match: $etag" "$NODE_B/departments")" != "304" ]]; do
+        if (( $(now_ms) - start > 10000 )); then
+            echo "round $round: node B still served the old ETag after 10 s" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    echo "round $round: node B invalidated after $(( $(now_ms) - start )) ms"
+done
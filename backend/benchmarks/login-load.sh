@@ -0,0 +1,37 @@
+#!/usr/bin/env bash
+# Login load test: logins per second against a running backend.
+#
+#   EMAIL=manager@example.com PASSWORD=secret benchmarks/login-load.sh [logins] [concurrency]
+#
+# Sends the given number of login requests with the given concurrency and reports
+# throughput and the status codes seen. 503 means the password check pool was saturated
+# (ems.login.password-check.*); compare runs with different pool sizes and core counts.
+# Use an account whose password hash has the production BCrypt cost. Runs with an unknown
+# EMAIL or a wrong PASSWORD fail with 401 and should show the same latency as each other.
+set -euo pipefail
+
+LOGINS=${1:-2000}
+CONCURRENCY=${2:-32}
+# The server context path is /api and the controllers map /api/..., hence the double prefix
+BASE_URL=${BASE_URL:-http://localhost:8000/api}
+: "${EMAIL:?set EMAIL to an existing account}"
+: "${PASSWORD:?set PASSWORD for that account}"
+
+BODY=$(printf '{"email":"%s","password":"%s"}' "$EMAIL" "$PASSWORD")
+RESULTS=$(mktemp)
+trap 'rm -f "$RESULTS"' EXIT
+
+# One warm-up login so connection pools and JIT are not part of the measurement
+curl -s -o /dev/null -H 'Content-Type: application/json' -d "$BODY" "$BASE_URL/api/auth/login"
+
+start=$(date +%s%3N)
+seq "$LOGINS" | xargs -P "$CONCURRENCY" -I{} \
+    curl -s -o /dev/null -w '%{http_code} %{time_total}\n' \
+        -H 'Content-Type: application/json' -d "$BODY" "$BASE_URL/api/auth/login" >> "$RESULTS"
+elapsed=$(( $(date +%s%3N) - start ))
+
+ok=$(awk '$1 == 200' "$RESULTS" | wc -l)
+echo "logins:       $LOGINS with concurrency $CONCURRENCY in ${elapsed} ms"
+echo "successful:   $ok ($(( ok * 1000 / (elapsed > 0 ? elapsed : 1) )) logins/s)"
+echo "status codes: $(awk '{ print $1 }' "$RESULTS" | sort | uniq -c | awk '{ printf "%s x%s  ", $2, $1 }')"
+echo "latency (s):  $(awk '{ print $2 }' "$RESULTS" | sort -n | awk '{ v[NR] = $1 } END { printf "p50 %s  p95 %s  p99 %s", v[int(NR * 0.5) + 1], v[int(NR * 0.95) + 1], v[int(NR * 0.99) + 1] }')"
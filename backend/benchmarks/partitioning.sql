@@ -0,0 +1,147 @@
+-- Yearly partitioning benchmark: ten years of salaries and messages, plain vs partitioned.
+--
+--   psql "$DATABASE_URL" -v tenants=50 -v employees=200 -v messages_per_month=400 -f benchmarks/partitioning.sql
+--
+-- Builds two throwaway schemas, bench_plain and bench_partitioned, with the same rows and
+-- the same indexes, then runs EXPLAIN (ANALYZE, BUFFERS) of the current-month payroll queries
+-- (SalaryRepository.getTotalGrossSalaryByMonthAndStatus / findByUserAndMonthYear) and of
+-- MessageRepository.getMessageStatsByMonth. Compare execution time, buffers read, and the
+-- partitions listed in the partitioned plans. Drop both schemas afterwards.
+
+\set ON_ERROR_STOP on
+\if :{?tenants} \else \set tenants 50 \endif
+\if :{?employees} \else \set employees 200 \endif
+\if :{?messages_per_month} \else \set messages_per_month 400 \endif
+
+DROP SCHEMA IF EXISTS bench_plain CASCADE;
+DROP SCHEMA IF EXISTS bench_partitioned CASCADE;
+CREATE SCHEMA bench_plain;
+CREATE SCHEMA bench_partitioned;
+
+-- Shared shape of employees, salaries and messages, as Hibernate creates them
+CREATE TABLE bench_plain.employees (
+    id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL
+);
+CREATE INDEX ON bench_plain.employees (user_id);
+
+CREATE TABLE bench_plain.salaries (
+    id BIGINT PRIMARY KEY,
+    employee_id BIGINT NOT NULL,
+    gross_salary NUMERIC(19, 2) NOT NULL,
+    net_salary NUMERIC(19, 2) NOT NULL,
+    salary_month INTEGER NOT NULL,
+    salary_year INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE bench_plain.messages (
+    id BIGINT PRIMARY KEY,
+    sender_id BIGINT NOT NULL,
+    recipient_id BIGINT NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    sent_at TIMESTAMP NOT NULL,
+    is_read BOOLEAN NOT NULL
+);
+
+CREATE TABLE bench_partitioned.employees (LIKE bench_plain.employees INCLUDING ALL);
+
+CREATE TABLE bench_partitioned.salaries (LIKE bench_plain.salaries INCLUDING DEFAULTS)
+    PARTITION BY RANGE (salary_year);
+ALTER TABLE bench_partitioned.salaries ADD PRIMARY KEY (id, salary_year);
+
+CREATE TABLE bench_partitioned.messages (LIKE bench_plain.messages INCLUDING DEFAULTS)
+    PARTITION BY RANGE (sent_at);
+ALTER TABLE bench_partitioned.messages ADD PRIMARY KEY (id, sent_at);
+
+DO $$
+DECLARE
+    y INTEGER;
+    current_year INTEGER := EXTRACT(YEAR FROM CURRENT_DATE)::INTEGER;
+BEGIN
+    FOR y IN current_year - 9..current_year + 1 LOOP
+        EXECUTE format('CREATE TABLE bench_partitioned.salaries_%s PARTITION OF bench_partitioned.salaries FOR VALUES FROM (%s) TO (%s)',
+                       y, y, y + 1);
+        EXECUTE format('CREATE TABLE bench_partitioned.messages_%s PARTITION OF bench_partitioned.messages FOR VALUES FROM (%L) TO (%L)',
+                       y, make_date(y, 1, 1), make_date(y + 1, 1, 1));
+    END LOOP;
+END $$;
+
+-- Ten years of data ending in the current month
+INSERT INTO bench_plain.employees (id, user_id, status)
+SELECT t * 100000 + e, t, CASE WHEN e % 10 = 0 THEN 'INACTIVE' ELSE 'ACTIVE' END
+FROM generate_series(1, :tenants) t, generate_series(1, :employees) e;
+
+INSERT INTO bench_plain.salaries (id, employee_id, gross_salary, net_salary, salary_month, salary_year, created_at)
+SELECT row_number() OVER (), e.id, 3000 + (e.id % 4000), (3000 + (e.id % 4000)) * 0.7,
+       EXTRACT(MONTH FROM m)::INTEGER, EXTRACT(YEAR FROM m)::INTEGER, m
+FROM bench_plain.employees e,
+     generate_series(date_trunc('month', CURRENT_DATE) - INTERVAL '119 months', date_trunc('month', CURRENT_DATE), INTERVAL '1 month') m;
+
+INSERT INTO bench_plain.messages (id, sender_id, recipient_id, subject, sent_at, is_read)
+SELECT row_number() OVER (), t, t * 100000 + 1 + (n % :employees), 'Notice',
+       m + (n * INTERVAL '1 minute'), n % 3 = 0
+FROM generate_series(1, :tenants) t,
+     generate_series(date_trunc('month', CURRENT_DATE) - INTERVAL '119 months', date_trunc('month', CURRENT_DATE), INTERVAL '1 month') m,
+     generate_series(1, :messages_per_month) n;
+
+INSERT INTO bench_partitioned.employees SELECT * FROM bench_plain.employees;
+INSERT INTO bench_partitioned.salaries SELECT * FROM bench_plain.salaries;
+INSERT INTO bench_partitioned.messages SELECT * FROM bench_plain.messages;
+
+-- Same indexes on both sides
+CREATE INDEX ON bench_plain.salaries (employee_id, salary_year, salary_month);
+CREATE INDEX ON bench_plain.messages (sender_id, sent_at);
+CREATE INDEX ON bench_partitioned.salaries (employee_id, salary_year, salary_month);
+CREATE INDEX ON bench_partitioned.messages (sender_id, sent_at);
+
+VACUUM ANALYZE bench_plain.employees, bench_plain.salaries, bench_plain.messages;
+VACUUM ANALYZE bench_partitioned.employees, bench_partitioned.salaries, bench_partitioned.messages;
+
+SELECT EXTRACT(YEAR FROM CURRENT_DATE)::INTEGER AS year, EXTRACT(MONTH FROM CURRENT_DATE)::INTEGER AS month,
+       date_trunc('year', CURRENT_DATE)::TIMESTAMP - INTERVAL '1 year' AS since \gset
+
+\echo '== Current-month payroll total'
+\echo '-- plain'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT SUM(s.gross_salary) FROM bench_plain.salaries s JOIN bench_plain.employees e ON e.id = s.employee_id
+WHERE e.user_id = 7 AND e.status = 'ACTIVE' AND s.salary_year = :year AND s.salary_month = :month;
+\echo '-- partitioned'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT SUM(s.gross_salary) FROM bench_partitioned.salaries s JOIN bench_partitioned.employees e ON e.id = s.employee_id
+WHERE e.user_id = 7 AND e.status = 'ACTIVE' AND s.salary_year = :year AND s.salary_month = :month;
+
+\echo '== Current-month payroll rows'
+\echo '-- plain'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT s.* FROM bench_plain.salaries s JOIN bench_plain.employees e ON e.id = s.employee_id
+WHERE e.user_id = 7 AND s.salary_year = :year AND s.salary_month = :month;
+\echo '-- partitioned'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT s.* FROM bench_partitioned.salaries s JOIN bench_partitioned.employees e ON e.id = s.employee_id
+WHERE e.user_id = 7 AND s.salary_year = :year AND s.salary_month = :month;
+
+\echo '== Message stats by month since last year'
+\echo '-- plain'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT EXTRACT(YEAR FROM m.sent_at), EXTRACT(MONTH FROM m.sent_at), COUNT(*)
+FROM bench_plain.messages m WHERE m.sender_id = 7 AND m.sent_at >= :'since'
+GROUP BY 1, 2 ORDER BY 1 DESC, 2 DESC;
+\echo '-- partitioned'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT EXTRACT(YEAR FROM m.sent_at), EXTRACT(MONTH FROM m.sent_at), COUNT(*)
+FROM bench_partitioned.messages m WHERE m.sender_id = 7 AND m.sent_at >= :'since'
+GROUP BY 1, 2 ORDER BY 1 DESC, 2 DESC;
+
+\echo '== Message stats by month, all history (no pruning possible; partition-wise scans only)'
+\echo '-- plain'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT EXTRACT(YEAR FROM m.sent_at), EXTRACT(MONTH FROM m.sent_at), COUNT(*)
+FROM bench_plain.messages m WHERE m.sender_id = 7
+GROUP BY 1, 2 ORDER BY 1 DESC, 2 DESC;
+\echo '-- partitioned'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT EXTRACT(YEAR FROM m.sent_at), EXTRACT(MONTH FROM m.sent_at), COUNT(*)
+FROM bench_partitioned.messages m WHERE m.sender_id = 7
+GROUP BY 1, 2 ORDER BY 1 DESC, 2 DESC;
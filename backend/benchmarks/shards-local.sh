@@ -0,0 +1,108 @@
+#!/usr/bin/env bash
+# Sharding check against two local databases: registers a manager on the primary, creates a
+# department, moves the tenant to the second shard with the tenantshards actuator endpoint and
+# checks that login and reads now come from the second shard and the primary holds nothing.
+#
+#   mvn -DskipTests package
+#   PGUSER=... PGPASSWORD=... benchmarks/shards-local.sh
+#
+# PGHOST/PGPORT default to localhost:5432; PRIMARY_DB and SHARD_DB (default ems_primary and
+# ems_shard_two) are created when missing. The second shard's schema is created by starting the
+# application against it once, as for any new shard.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+: "${PGUSER:?set PGUSER}"
+: "${PGPASSWORD:?set PGPASSWORD}"
+export PGHOST=${PGHOST:-localhost}
+export PGPORT=${PGPORT:-5432}
+PRIMARY_DB=${PRIMARY_DB:-ems_primary}
+SHARD_DB=${SHARD_DB:-ems_shard_two}
+JAR=$(ls target/*.jar 2>/dev/null | head -n 1 || true)
+[[ -f "$JAR" ]] || { echo "Build the jar first: mvn -DskipTests package" >&2; exit 1; }
+
+# The server context path is /api and the controllers map /api/...
+API=http://localhost:8000/api/api
+MANAGEMENT=http://localhost:8081/actuator
+# Actuator endpoints other than health need the operator account
+OPERATOR_PASSWORD=shard-check-operator
+
+PID=
+trap '[[ -n "$PID" ]] && kill "$PID" 2>/dev/null || true' EXIT
+
+for db in "$PRIMARY_DB" "$SHARD_DB"; do
+    if [[ -z "$(psql -d postgres -Atc "SELECT 1 FROM pg_database WHERE datname = '$db'")" ]]; then
+        createdb "$db"
+    fi
+done
+
+jdbc_url() {
+    echo "jdbc:postgresql://$PGHOST:$PGPORT/$1"
+}
+
+wait_for_start() {
+    until [[ "$(curl -s -o /dev/null -w '%{http_code}' "$API/auth/login" || true)" != "000" ]]; do
+        kill -0 "$PID" 2>/dev/null || { echo "The application did not start, see $1" >&2; exit 1; }
+        sleep 0.5
+    done
+}
+
+echo "Creating the schema of $SHARD_DB"
+java -jar "$JAR" --spring.datasource.url="$(jdbc_url "$SHARD_DB")" > /tmp/ems-shard-init.log 2>&1 &
+PID=$!
+wait_for_start /tmp/ems-shard-init.log
+kill "$PID"
+wait "$PID" 2>/dev/null || true
+
+echo "Starting with shards primary=$PRIMARY_DB and two=$SHARD_DB"
+java -jar "$JAR" --spring.datasource.url="$(jdbc_url "$PRIMARY_DB")" \
+    --ems.sharding.shards.two.url="$(jdbc_url "$SHARD_DB")" \
+    --ems.sharding.shards.two.username="$PGUSER" \
+    --ems.sharding.shards.two.password="$PGPASSWORD" \
+    --ems.sharding.shards.two.id-offset=1000000000000 \
+    --ems.sharding.directory-ttl-ms=500 \
+    --ems.sharding.move.drain-ms=500 \
+    --ems.management.password="$OPERATOR_PASSWORD" > /tmp/ems-shards.log 2>&1 &
+PID=$!
+wait_for_start /tmp/ems-shards.log
+
+EMAIL="shard-check-$(date +%s)@example.com"
+PASSWORD=shard-check-password
+TENANT_ID=$(curl -s -H 'Content-Type: application/json' \
+    -d "{\"fullName\":\"Shard Check\",\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\",\"phoneNumber\":\"0700000000\",\"companyName\":\"Shard Check\"}" \
+    "$API/auth/register" | sed -n 's/.*"id":\([0-9]*\).*/\1/p')
+[[ -n "$TENANT_ID" ]] || { echo "Registration failed" >&2; exit 1; }
+
+login() {
+    curl -s -H 'Content-Type: application/json' \
+        -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}" "$API/auth/login" \
+        | sed -n 's/.*"token":"\([^"]*\)".*/\1/p'
+}
+
+TOKEN=$(login)
+curl -s -o /dev/null -H "Authorization: Bearer $TOKEN" -H 'Content-Type: application/json' \
+    -d '{"name":"shard-check","budget":1000,"budgetType":"MONTHLY"}' "$API/departments"
+
+echo "Moving tenant $TENANT_ID to shard two"
+curl -s -u "operator:$OPERATOR_PASSWORD" -H 'Content-Type: application/json' -d "{\"tenantId\":$TENANT_ID,\"target\":\"two\"}" "$MANAGEMENT/tenantshards"
+echo
+# The move runs in the background; wait for its outcome
+for _ in $(seq 1 120); do
+    STATUS=$(curl -s -u "operator:$OPERATOR_PASSWORD" "$MANAGEMENT/tenantshards/$TENANT_ID")
+    grep -q '"moving":false' <<< "$STATUS" && break
+    sleep 0.5
+done
+echo "$STATUS"
+grep -q '"outcome":"MOVED"' <<< "$STATUS" || { echo "The move did not finish" >&2; exit 1; }
+
+TOKEN=$(login)
+[[ -n "$TOKEN" ]] || { echo "Login after the move failed" >&2; exit 1; }
+curl -s -H "Authorization: Bearer $TOKEN" "$API/departments" | grep -q shard-check \
+    || { echo "The department is not readable after the move" >&2; exit 1; }
+
+on_primary=$(psql -d "$PRIMARY_DB" -Atc "SELECT COUNT(*) FROM departments WHERE user_id = $TENANT_ID")
+on_shard=$(psql -d "$SHARD_DB" -Atc "SELECT COUNT(*) FROM departments WHERE user_id = $TENANT_ID")
+echo "departments of tenant $TENANT_ID: $on_primary on $PRIMARY_DB, $on_shard on $SHARD_DB"
+[[ "$on_primary" == 0 && "$on_shard" == 1 ]] || exit 1
+echo "OK"
@@ -0,0 +1,66 @@
+#!/usr/bin/env bash
+# Startup benchmark: time from launching the JVM to the first answered HTTP request,
+# for the regular executable jar and for the fast-startup build (prod profile, AOT, AppCDS).
+#
+#   mvn -DskipTests package                      # baseline jar
+#   mvn -Pfast-startup -DskipTests package       # target/fast-startup/app.jar + app.jsa
+#   PGUSER=... PGPASSWORD=... benchmarks/startup.sh [runs]
+#
+# Both variants connect to the configured database (set SPRING_DATASOURCE_URL to use another one),
+# so run it against a database whose schema is already migrated. Any HTTP status counts as the
+# first request being served; the endpoint needs no authentication to answer.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RUNS=${1:-5}
+PORT=${PORT:-8000}
+URL="http://localhost:${PORT}/api/api/auth/login"
+BASELINE_JAR=$(ls target/*.jar 2>/dev/null | head -n 1 || true)
+FAST_DIR=target/fast-startup
+
+if [[ ! -f "$BASELINE_JAR" || ! -f "$FAST_DIR/app.jar" || ! -f "$FAST_DIR/app.jsa" ]]; then
+    echo "Build both variants first (see the header of this script)" >&2
+    exit 1
+fi
+
+now_ms() {
+    date +%s%3N
+}
+
+# Start the command, poll until the server answers, print the elapsed milliseconds and stop it
+time_to_first_request() {
+    local start pid elapsed
+    start=$(now_ms)
+    "$@" --server.port="$PORT" > /tmp/ems-startup.log 2>&1 &
+    pid=$!
+    until [[ "$(curl -s -o /dev/null -w '%{http_code}' "$URL" || true)" != "000" ]]; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "Application exited before serving a request, see /tmp/ems-startup.log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    elapsed=$(( $(now_ms) - start ))
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo "$elapsed"
+}
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+run() {
+    local name=$1
+    shift
+    local times=()
+    for ((i = 1; i <= RUNS; i++)); do
+        times+=("$(time_to_first_request "$@")")
+    done
+    printf '%-10s median %6d ms   runs: %s\n' "$name" "$(printf '%s\n' "${times[@]}" | median)" "${times[*]}"
+}
+
+run baseline java -jar "$BASELINE_JAR"
+(cd "$FAST_DIR" && run fast java -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true \
+    -Dspring.profiles.active=prod -jar app.jar)
@@ -0,0 +1,72 @@
+package com.ems.config;
+
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Enables @Async with a small bounded executor for background work such as employee notifications.
+ *
+ * The executor is handed to Spring through AsyncConfigurer rather than declared as a bean,
+ * so Spring Boot still creates its applicationTaskExecutor for MVC async and streaming responses.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig implements AsyncConfigurer, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
+
+    @Value("${ems.async.threads:2}")
+    private int threads;
+
+    @Value("${ems.async.queue-capacity:1000}")
+    private int queueCapacity;
+
+    // Looked up when a task is dropped: the registry is not needed to configure async support
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private ThreadPoolTaskExecutor executor;
+
+    /**
+     * When the queue is full the task is dropped, counted in ems.async.rejected and logged. Running it
+     * on the calling thread would make a request wait for mail delivery. The tasks are notifications,
+     * which @Async methods return nothing for, so no caller waits on a dropped one.
+     */
+    @Override
+    public synchronized Executor getAsyncExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(threads);
+            executor.setMaxPoolSize(threads);
+            executor.setQueueCapacity(queueCapacity);
+            executor.setThreadNamePrefix("ems-async-");
+            executor.setRejectedExecutionHandler((task, pool) -> {
+                meterRegistry.ifAvailable(registry -> registry.counter("ems.async.rejected").increment());
+                logger.warn("Background task dropped: {} tasks are already queued", pool.getQueue().size());
+            });
+            executor.setWaitForTasksToCompleteOnShutdown(true);
+            executor.setAwaitTerminationSeconds(30);
+            executor.initialize();
+        }
+        return executor;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
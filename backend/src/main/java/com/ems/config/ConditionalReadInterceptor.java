@@ -0,0 +1,49 @@
+package com.ems.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.ems.security.TenantContext;
+import com.ems.service.AggregateVersionService;
+import com.ems.service.AggregateVersionService.Aggregate;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Answers conditional GETs from the tenant's aggregate versions, returning 304
+ * before the controller runs when the client's copy is still current
+ */
+public class ConditionalReadInterceptor implements HandlerInterceptor {
+
+    private final AggregateVersionService aggregateVersionService;
+    private final Aggregate[] dependencies;
+
+    public ConditionalReadInterceptor(AggregateVersionService aggregateVersionService, Aggregate... dependencies) {
+        this.aggregateVersionService = aggregateVersionService;
+        this.dependencies = dependencies;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return true;
+        }
+
+        Long tenantId = TenantContext.getTenantId();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (tenantId == null || authentication == null) {
+            return true;
+        }
+
+        String etag = aggregateVersionService.buildETag(tenantId, authentication.getName(), dependencies);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+
+        // Sets the ETag header, and a 304 status when If-None-Match matches
+        return !new ServletWebRequest(request, response).checkNotModified(etag);
+    }
+}
@@ -0,0 +1,19 @@
+package com.ems.config;
+
+import org.hibernate.Interceptor;
+import org.hibernate.type.Type;
+
+/**
+ * Counts every entity Hibernate hydrates against the current request
+ */
+public class EntityLoadCountingInterceptor implements Interceptor {
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        RequestSqlStatistics statistics = RequestSqlStatistics.current();
+        if (statistics != null) {
+            statistics.recordEntityLoad();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,75 @@
+package com.ems.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.ems.security.TenantContext;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Micrometer instrumentation for requests, SQL usage and service transactions
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String TENANT_TAG = "tenant";
+
+    static final String NO_TENANT = "none";
+
+    @Value("${ems.sql.inspection.repeat-threshold:10}")
+    private int repeatThreshold;
+
+    @Value("${ems.sql.inspection.fail-on-repeat:false}")
+    private boolean failOnRepeat;
+
+    @Value("${ems.metrics.max-tenant-tags:50}")
+    private int maxTenantTags;
+
+    /**
+     * Hook the per-request SQL inspector and entity-load counter into Hibernate
+     */
+    @Bean
+    public HibernatePropertiesCustomizer requestSqlStatisticsCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                    new RequestStatementInspector(repeatThreshold, failOnRepeat));
+            properties.put(AvailableSettings.INTERCEPTOR, new EntityLoadCountingInterceptor());
+        };
+    }
+
+    /**
+     * Add the tenant tag to the standard http.server.requests timer
+     */
+    @Bean
+    public TenantServerRequestObservationConvention tenantServerRequestObservationConvention() {
+        return new TenantServerRequestObservationConvention();
+    }
+
+    /**
+     * Keep the tenant tag from multiplying request series and their histogram buckets by the number of tenants
+     */
+    @Bean
+    public TenantTagLimitFilter tenantTagLimitFilter() {
+        return new TenantTagLimitFilter(maxTenantTags);
+    }
+
+    /**
+     * Tenant tag value for a request, resolved from the authenticated JWT
+     */
+    public static String tenantTag(HttpServletRequest request) {
+        Object tenantId = request != null ? request.getAttribute(TenantContext.REQUEST_ATTRIBUTE) : null;
+        return tenantId != null ? tenantId.toString() : NO_TENANT;
+    }
+
+    /**
+     * Tenant tag value for the current thread
+     */
+    public static String currentTenantTag() {
+        Long tenantId = TenantContext.getTenantId();
+        return tenantId != null ? tenantId.toString() : NO_TENANT;
+    }
+}
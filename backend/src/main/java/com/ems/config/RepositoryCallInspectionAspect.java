@@ -0,0 +1,68 @@
+package com.ems.config;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks which repository method issues each statement and records slow repository calls
+ */
+@Aspect
+@Component
+public class RepositoryCallInspectionAspect {
+
+    private static final String BACKGROUND = "background";
+
+    private final SqlInspectionRecorder recorder;
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    @Value("${ems.sql.inspection.slow-threshold-ms:200}")
+    private long slowThresholdMs;
+
+    public RepositoryCallInspectionAspect(SqlInspectionRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object inspectRepositoryCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        // Calls outside an HTTP request (scheduled jobs) are tracked for their own duration
+        boolean ownsStatistics = RequestSqlStatistics.current() == null;
+        RequestSqlStatistics statistics = ownsStatistics
+                ? RequestSqlStatistics.begin(BACKGROUND)
+                : RequestSqlStatistics.current();
+
+        String repositoryMethod = repositoryName(joinPoint.getTarget()) + "." + joinPoint.getSignature().getName();
+        statistics.enterRepositoryCall(repositoryMethod);
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            long durationMs = (System.nanoTime() - start) / 1_000_000;
+            List<String> statements = statistics.exitRepositoryCall();
+            if (durationMs >= slowThresholdMs && !statements.isEmpty()) {
+                recorder.recordSlowStatement(statistics.getDescription(), repositoryMethod, durationMs, statements);
+            }
+            if (ownsStatistics) {
+                RequestSqlStatistics.end();
+            }
+        }
+    }
+
+    private String repositoryName(Object repository) {
+        return repositoryNames.computeIfAbsent(repository.getClass(), type -> {
+            for (Class<?> candidate : AopProxyUtils.proxiedUserInterfaces(repository)) {
+                if (candidate.getName().startsWith("com.ems.repository")) {
+                    return candidate.getSimpleName();
+                }
+            }
+            return type.getSimpleName();
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package com.ems.config;
+
+import java.io.IOException;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records the number of SQL statements and loaded entities for every request and
+ * reports statement shapes that repeated past the N+1 threshold
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+    private final SqlInspectionRecorder sqlInspectionRecorder;
+
+    public RequestMetricsFilter(MeterRegistry meterRegistry, SqlInspectionRecorder sqlInspectionRecorder) {
+        this.meterRegistry = meterRegistry;
+        this.sqlInspectionRecorder = sqlInspectionRecorder;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestSqlStatistics statistics = RequestSqlStatistics.begin(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestSqlStatistics.end();
+            record(request, statistics);
+            statistics.getFlaggedShapes().forEach((shape, repositoryMethod) ->
+                    sqlInspectionRecorder.recordRepeatedStatement(statistics.getDescription(), repositoryMethod,
+                            shape, statistics.getShapeCount(shape)));
+        }
+    }
+
+    private void record(HttpServletRequest request, RequestSqlStatistics statistics) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of(
+                "method", request.getMethod(),
+                "uri", pattern != null ? pattern.toString() : UNKNOWN_URI,
+                MetricsConfig.TENANT_TAG, MetricsConfig.tenantTag(request));
+
+        DistributionSummary.builder("ems.http.sql.statements")
+                .description("SQL statements executed per request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(statistics.getStatementCount());
+
+        DistributionSummary.builder("ems.http.entities.loaded")
+                .description("Entities loaded by Hibernate per request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(statistics.getEntityLoadCount());
+    }
+}
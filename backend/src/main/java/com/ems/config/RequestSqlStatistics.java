@@ -0,0 +1,125 @@
+package com.ems.config;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-request counters for SQL statements and entities loaded by Hibernate
+ */
+public class RequestSqlStatistics {
+
+    private static final ThreadLocal<RequestSqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private final String description;
+    private int statementCount;
+    private int entityLoadCount;
+
+    // Executions per normalized statement shape
+    private final Map<String, Integer> shapeCounts = new HashMap<>();
+
+    // Shapes that crossed the repeat threshold, with the repository method active at that point
+    private final Map<String, String> flaggedShapes = new LinkedHashMap<>();
+
+    // Repository calls currently on the stack and the statements issued by the outermost one
+    private final Deque<String> repositoryCalls = new ArrayDeque<>();
+    private List<String> callStatements;
+
+    private RequestSqlStatistics(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Start collecting statistics for the current thread
+     */
+    public static RequestSqlStatistics begin(String description) {
+        RequestSqlStatistics statistics = new RequestSqlStatistics(description);
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    /**
+     * Statistics of the current request, or null outside of a tracked request
+     */
+    public static RequestSqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Stop collecting statistics for the current thread
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Record an executed statement and return how often its shape has run in this request
+     */
+    int recordStatement(String sql, String shape) {
+        statementCount++;
+        if (callStatements != null) {
+            callStatements.add(sql);
+        }
+        return shapeCounts.merge(shape, 1, Integer::sum);
+    }
+
+    void recordEntityLoad() {
+        entityLoadCount++;
+    }
+
+    void flagShape(String shape) {
+        flaggedShapes.putIfAbsent(shape, currentRepositoryMethod());
+    }
+
+    void enterRepositoryCall(String repositoryMethod) {
+        if (repositoryCalls.isEmpty()) {
+            callStatements = new ArrayList<>();
+        }
+        repositoryCalls.push(repositoryMethod);
+    }
+
+    /**
+     * Leave a repository call, returning its statements once the outermost call completes
+     */
+    List<String> exitRepositoryCall() {
+        repositoryCalls.pop();
+        if (!repositoryCalls.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> statements = callStatements;
+        callStatements = null;
+        return statements;
+    }
+
+    /**
+     * Repository method that issued the current statement, or null for lazy loads and flushes
+     */
+    String currentRepositoryMethod() {
+        return repositoryCalls.peek();
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public int getEntityLoadCount() {
+        return entityLoadCount;
+    }
+
+    public int getShapeCount(String shape) {
+        return shapeCounts.getOrDefault(shape, 0);
+    }
+
+    public Map<String, String> getFlaggedShapes() {
+        return flaggedShapes;
+    }
+}
@@ -0,0 +1,41 @@
+package com.ems.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import com.ems.exception.RepeatedQueryException;
+
+/**
+ * Counts every SQL statement Hibernate prepares against the current request and
+ * flags statement shapes that repeat often enough to indicate an N+1 pattern
+ */
+public class RequestStatementInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int repeatThreshold;
+    private final boolean failOnRepeat;
+
+    public RequestStatementInspector(int repeatThreshold, boolean failOnRepeat) {
+        this.repeatThreshold = repeatThreshold;
+        this.failOnRepeat = failOnRepeat;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        RequestSqlStatistics statistics = RequestSqlStatistics.current();
+        if (statistics == null) {
+            return sql;
+        }
+
+        String shape = SqlShapeNormalizer.normalize(sql);
+        int executions = statistics.recordStatement(sql, shape);
+        if (executions == repeatThreshold + 1) {
+            statistics.flagShape(shape);
+            if (failOnRepeat) {
+                throw new RepeatedQueryException("Statement executed more than " + repeatThreshold
+                        + " times in " + statistics.getDescription() + ": " + shape);
+            }
+        }
+        return sql;
+    }
+}
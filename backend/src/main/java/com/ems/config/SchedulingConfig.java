@@ -0,0 +1,12 @@
+package com.ems.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the background maintenance jobs (@Scheduled service methods)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,48 @@
+package com.ems.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every transactional service method, including commit, per service and method
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ServiceTransactionMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    public ServiceTransactionMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("@within(org.springframework.stereotype.Service) && "
+            + "(@annotation(org.springframework.transaction.annotation.Transactional) || "
+            + "@within(org.springframework.transaction.annotation.Transactional))")
+    public Object timeTransaction(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable ex) {
+            outcome = "error";
+            throw ex;
+        } finally {
+            sample.stop(Timer.builder("ems.service.transaction")
+                    .description("Duration of transactional service methods")
+                    .tag("service", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("outcome", outcome)
+                    .tag(MetricsConfig.TENANT_TAG, MetricsConfig.currentTenantTag())
+                    .register(meterRegistry));
+        }
+    }
+}
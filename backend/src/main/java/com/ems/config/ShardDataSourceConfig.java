@@ -0,0 +1,111 @@
+package com.ems.config;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import com.ems.service.ShardDirectory;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Builds one connection pool per database shard and routes the application's DataSource
+ * to the current tenant's shard (see TenantRoutingDataSource).
+ *
+ * With no ems.sharding.shards configured there is only the primary and nothing changes for a
+ * single-database deployment. Flyway migrates every shard; the schema of a new shard is created
+ * the same way as the primary's, by starting the application against it once.
+ */
+@Configuration
+public class ShardDataSourceConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardDataSourceConfig.class);
+
+    @Bean(destroyMethod = "close")
+    public ShardDataSources shardDataSources(DataSourceProperties primaryProperties, Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry) throws Exception {
+        Binder binder = Binder.get(environment);
+        ShardDataSources shards = new ShardDataSources();
+        shards.add(new ShardDataSources.Shard(ShardDataSources.PRIMARY,
+                createPool(ShardDataSources.PRIMARY, primaryProperties, "spring.datasource.hikari", binder, meterRegistry),
+                primaryProperties, 0L));
+
+        Map<String, DataSourceProperties> configured = binder.bind("ems.sharding.shards",
+                Bindable.mapOf(String.class, DataSourceProperties.class)).orElse(Map.of());
+        for (Map.Entry<String, DataSourceProperties> entry : configured.entrySet()) {
+            String name = entry.getKey();
+            if (ShardDataSources.PRIMARY.equals(name)) {
+                throw new IllegalStateException("The primary shard is configured with spring.datasource");
+            }
+            DataSourceProperties properties = entry.getValue();
+            properties.afterPropertiesSet();
+            String prefix = "ems.sharding.shards." + name;
+            long idOffset = binder.bind(prefix + ".id-offset", Long.class).orElse(0L);
+            if (idOffset <= 0) {
+                throw new IllegalStateException("Shard " + name + " needs a positive id-offset");
+            }
+            shards.add(new ShardDataSources.Shard(name,
+                    createPool(name, properties, prefix + ".hikari", binder, meterRegistry), properties, idOffset));
+        }
+
+        if (shards.isSharded()) {
+            logger.info("Routing tenants over shards {}", shards.names());
+        }
+        return shards;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shardDataSources, ShardDirectory shardDirectory) {
+        return new TenantRoutingDataSource(shardDataSources, shardDirectory);
+    }
+
+    /**
+     * Migrate the primary as usual, then every other shard with the same configuration
+     */
+    @Bean
+    public FlywayMigrationStrategy shardMigrationStrategy(ShardDataSources shardDataSources) {
+        return flyway -> {
+            flyway.migrate();
+            for (String shard : shardDataSources.names()) {
+                if (!ShardDataSources.PRIMARY.equals(shard)) {
+                    Flyway.configure()
+                            .configuration(flyway.getConfiguration())
+                            .dataSource(shardDataSources.dataSource(shard))
+                            .load()
+                            .migrate();
+                }
+            }
+        };
+    }
+
+    private HikariDataSource createPool(String name, DataSourceProperties properties, String hikariPrefix,
+            Binder binder, ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind(hikariPrefix, Bindable.ofInstance(dataSource));
+        if (dataSource.getPoolName() == null) {
+            dataSource.setPoolName("ems-" + name);
+        }
+        // The pools are not beans, so Spring Boot does not bind their metrics
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        }
+        return dataSource;
+    }
+}
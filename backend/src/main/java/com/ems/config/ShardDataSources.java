@@ -0,0 +1,117 @@
+package com.ems.config;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.ems.security.TenantContext;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * The connection pools of all database shards, the primary (spring.datasource) first.
+ *
+ * The primary also holds the tenant directory; tenants not listed there live on it.
+ * Other shards are configured as ems.sharding.shards.&lt;name&gt;.url/username/password,
+ * with optional .hikari.* pool settings and an .id-offset that keeps their generated ids
+ * apart from those of other shards, so a tenant can move without renumbering.
+ */
+public class ShardDataSources {
+
+    public static final String PRIMARY = "primary";
+
+    /**
+     * One shard: its pool, the settings it was built from and where its ids start
+     */
+    record Shard(String name, HikariDataSource dataSource, DataSourceProperties properties, long idOffset) {
+    }
+
+    private final Map<String, Shard> shards = new LinkedHashMap<>();
+
+    private final Map<String, NamedParameterJdbcTemplate> templates = new LinkedHashMap<>();
+
+    void add(Shard shard) {
+        shards.put(shard.name(), shard);
+        templates.put(shard.name(), new NamedParameterJdbcTemplate(shard.dataSource()));
+    }
+
+    /**
+     * Shard names, the primary first
+     */
+    public List<String> names() {
+        return Collections.unmodifiableList(new ArrayList<>(shards.keySet()));
+    }
+
+    public boolean isSharded() {
+        return shards.size() > 1;
+    }
+
+    public boolean contains(String shard) {
+        return shards.containsKey(shard);
+    }
+
+    public DataSource dataSource(String shard) {
+        return get(shard).dataSource();
+    }
+
+    public long idOffset(String shard) {
+        return get(shard).idOffset();
+    }
+
+    /**
+     * JDBC access to one shard directly, bypassing the tenant routing and any running transaction
+     */
+    public NamedParameterJdbcTemplate jdbc(String shard) {
+        get(shard);
+        return templates.get(shard);
+    }
+
+    /**
+     * Open a connection outside the pool, e.g. for LISTEN, which needs one held indefinitely
+     */
+    public Connection openDirectConnection(String shard) throws SQLException {
+        DataSourceProperties properties = get(shard).properties();
+        return DriverManager.getConnection(properties.determineUrl(),
+                properties.determineUsername(), properties.determinePassword());
+    }
+
+    /**
+     * Run work once per shard, with the tenant routing pointed at that shard
+     */
+    public void forEach(Consumer<String> work) {
+        for (String shard : shards.keySet()) {
+            TenantContext.onShard(shard, () -> {
+                work.accept(shard);
+                return null;
+            });
+        }
+    }
+
+    Map<Object, Object> targets() {
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        shards.forEach((name, shard) -> targets.put(name, shard.dataSource()));
+        return targets;
+    }
+
+    void close() {
+        shards.values().forEach(shard -> shard.dataSource().close());
+    }
+
+    private Shard get(String shard) {
+        Shard found = shards.get(shard);
+        if (found == null) {
+            throw new IllegalArgumentException("Unknown shard: " + shard);
+        }
+        return found;
+    }
+}
@@ -0,0 +1,39 @@
+package com.ems.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint listing recent slow repository calls and N+1 suspects
+ */
+@Component
+@Endpoint(id = "sqlinspection")
+public class SqlInspectionEndpoint {
+
+    private final SqlInspectionRecorder recorder;
+
+    @Value("${ems.sql.inspection.repeat-threshold:10}")
+    private int repeatThreshold;
+
+    @Value("${ems.sql.inspection.slow-threshold-ms:200}")
+    private long slowThresholdMs;
+
+    public SqlInspectionEndpoint(SqlInspectionRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @ReadOperation
+    public Map<String, Object> inspection() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("repeatThreshold", repeatThreshold);
+        result.put("slowThresholdMs", slowThresholdMs);
+        result.put("repeatedStatements", recorder.getRepeatedStatements());
+        result.put("slowStatements", recorder.getSlowStatements());
+        return result;
+    }
+}
@@ -0,0 +1,85 @@
+package com.ems.config;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Keeps the most recent slow repository calls and repeated statement shapes
+ */
+@Component
+public class SqlInspectionRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlInspectionRecorder.class);
+
+    private static final int MAX_ENTRIES = 100;
+    private static final String LAZY_LOAD = "lazy-load";
+
+    private final MeterRegistry meterRegistry;
+    private final Deque<SlowStatement> slowStatements = new ArrayDeque<>();
+    private final Deque<RepeatedStatement> repeatedStatements = new ArrayDeque<>();
+
+    public SqlInspectionRecorder(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * A repository call that exceeded the slow query threshold
+     */
+    public record SlowStatement(LocalDateTime recordedAt, String request, String repositoryMethod,
+            long durationMs, List<String> statements) {
+    }
+
+    /**
+     * A statement shape executed more often than the threshold within one request
+     */
+    public record RepeatedStatement(LocalDateTime recordedAt, String request, String repositoryMethod,
+            String shape, int executions) {
+    }
+
+    public void recordSlowStatement(String request, String repositoryMethod, long durationMs, List<String> statements) {
+        logger.warn("Slow repository call {} took {} ms in {}: {}", repositoryMethod, durationMs, request, statements);
+        meterRegistry.counter("ems.sql.slow", "repository", repositoryMethod).increment();
+
+        synchronized (slowStatements) {
+            slowStatements.addFirst(new SlowStatement(LocalDateTime.now(), request, repositoryMethod,
+                    durationMs, List.copyOf(statements)));
+            if (slowStatements.size() > MAX_ENTRIES) {
+                slowStatements.removeLast();
+            }
+        }
+    }
+
+    public void recordRepeatedStatement(String request, String repositoryMethod, String shape, int executions) {
+        String caller = repositoryMethod != null ? repositoryMethod : LAZY_LOAD;
+        logger.warn("Possible N+1: statement executed {} times in {} (caller {}): {}", executions, request, caller, shape);
+        meterRegistry.counter("ems.sql.repeated", "repository", caller).increment();
+
+        synchronized (repeatedStatements) {
+            repeatedStatements.addFirst(new RepeatedStatement(LocalDateTime.now(), request, caller, shape, executions));
+            if (repeatedStatements.size() > MAX_ENTRIES) {
+                repeatedStatements.removeLast();
+            }
+        }
+    }
+
+    public List<SlowStatement> getSlowStatements() {
+        synchronized (slowStatements) {
+            return new ArrayList<>(slowStatements);
+        }
+    }
+
+    public List<RepeatedStatement> getRepeatedStatements() {
+        synchronized (repeatedStatements) {
+            return new ArrayList<>(repeatedStatements);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.ems.config;
+
+import java.util.regex.Pattern;
+
+/**
+ * Reduces SQL text to a shape that is identical for every execution of the same query
+ */
+public final class SqlShapeNormalizer {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SqlShapeNormalizer() {
+    }
+
+    public static String normalize(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMERIC_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("in (?)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim().toLowerCase();
+    }
+}
@@ -0,0 +1,40 @@
+package com.ems.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.ems.security.TenantContext;
+import com.ems.service.ShardDirectory;
+
+/**
+ * The application's DataSource: hands out connections of the current tenant's shard.
+ *
+ * The shard is normally resolved once per request by the JWT filter; work that only knows
+ * its tenant (batch parts, jobs) has it looked up here on first use. Without a tenant the
+ * primary is used. A transaction keeps the connection it started with, so the shard has to
+ * be known before the transaction begins.
+ */
+public class TenantRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ShardDirectory shardDirectory;
+
+    public TenantRoutingDataSource(ShardDataSources shards, ShardDirectory shardDirectory) {
+        this.shardDirectory = shardDirectory;
+        setTargetDataSources(shards.targets());
+        setDefaultTargetDataSource(shards.dataSource(ShardDataSources.PRIMARY));
+        // An unknown shard is a configuration error, never a reason to write to the primary
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String shard = TenantContext.getShard();
+        if (shard == null) {
+            Long tenantId = TenantContext.getTenantId();
+            if (tenantId != null) {
+                shard = shardDirectory.shardFor(tenantId);
+                TenantContext.setShard(shard);
+            }
+        }
+        return shard;
+    }
+}
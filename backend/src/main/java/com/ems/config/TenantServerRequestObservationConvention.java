@@ -0,0 +1,18 @@
+package com.ems.config;
+
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+
+import io.micrometer.common.KeyValues;
+
+/**
+ * Server request observation convention that tags every request with its tenant
+ */
+public class TenantServerRequestObservationConvention extends DefaultServerRequestObservationConvention {
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+        return super.getLowCardinalityKeyValues(context)
+                .and(MetricsConfig.TENANT_TAG, MetricsConfig.tenantTag(context.getCarrier()));
+    }
+}
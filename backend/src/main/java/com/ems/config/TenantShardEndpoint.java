@@ -0,0 +1,54 @@
+package com.ems.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import com.ems.service.ShardDirectory;
+import com.ems.service.TenantShardService;
+
+/**
+ * Actuator endpoint showing the shards and moving a tenant to another shard
+ * (POST {"tenantId": 42, "target": "shard2"} starts the move; GET /tenantshards/42 shows how it goes)
+ */
+@Component
+@Endpoint(id = "tenantshards")
+public class TenantShardEndpoint {
+
+    private final ShardDataSources shardDataSources;
+
+    private final ShardDirectory shardDirectory;
+
+    private final TenantShardService tenantShardService;
+
+    public TenantShardEndpoint(ShardDataSources shardDataSources, ShardDirectory shardDirectory,
+            TenantShardService tenantShardService) {
+        this.shardDataSources = shardDataSources;
+        this.shardDirectory = shardDirectory;
+        this.tenantShardService = tenantShardService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> shards() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("shards", shardDataSources.names());
+        result.put("tenantsMovedOffPrimary", shardDirectory.countTenantsByShard());
+        result.put("movingTenants", shardDirectory.findMovingTenants());
+        return result;
+    }
+
+    @ReadOperation
+    public ShardDirectory.MoveStatus status(@Selector Long tenantId) {
+        return shardDirectory.moveStatus(tenantId);
+    }
+
+    @WriteOperation
+    public ShardDirectory.MoveStatus move(Long tenantId, String target) {
+        return tenantShardService.move(tenantId, target);
+    }
+}
@@ -0,0 +1,53 @@
+package com.ems.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.config.MeterFilter;
+
+/**
+ * Bounds the series the tenant tag creates: the first tenants seen keep their own tag value,
+ * later ones are reported together as "other". Requests without a tenant are not counted.
+ */
+public class TenantTagLimitFilter implements MeterFilter {
+
+    public static final String OTHER_TENANTS = "other";
+
+    private final int maxTenants;
+
+    private final Set<String> tenants = ConcurrentHashMap.newKeySet();
+
+    public TenantTagLimitFilter(int maxTenants) {
+        this.maxTenants = maxTenants;
+    }
+
+    @Override
+    public Meter.Id map(Meter.Id id) {
+        String tenant = id.getTag(MetricsConfig.TENANT_TAG);
+        if (tenant == null || MetricsConfig.NO_TENANT.equals(tenant) || admit(tenant)) {
+            return id;
+        }
+        List<Tag> tags = new ArrayList<>();
+        for (Tag tag : id.getTagsAsIterable()) {
+            tags.add(MetricsConfig.TENANT_TAG.equals(tag.getKey()) ? Tag.of(MetricsConfig.TENANT_TAG, OTHER_TENANTS) : tag);
+        }
+        return id.replaceTags(tags);
+    }
+
+    private boolean admit(String tenant) {
+        if (tenants.contains(tenant)) {
+            return true;
+        }
+        synchronized (tenants) {
+            if (tenants.size() < maxTenants) {
+                tenants.add(tenant);
+                return true;
+            }
+            return tenants.contains(tenant);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.ems.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.ems.service.AggregateVersionService;
+import com.ems.service.AggregateVersionService.Aggregate;
+
+/**
+ * Spring MVC configuration for conditional reads
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Each resource lists every aggregate its DTOs are built from
+        registry.addInterceptor(new ConditionalReadInterceptor(aggregateVersionService,
+                Aggregate.EMPLOYEE, Aggregate.DEPARTMENT, Aggregate.SALARY, Aggregate.LEAVE,
+                Aggregate.MESSAGE, Aggregate.INACTIVITY))
+                .addPathPatterns("/api/employees", "/api/employees/**");
+
+        registry.addInterceptor(new ConditionalReadInterceptor(aggregateVersionService,
+                Aggregate.DEPARTMENT, Aggregate.EMPLOYEE, Aggregate.SALARY, Aggregate.LEAVE,
+                Aggregate.INACTIVITY))
+                .addPathPatterns("/api/departments", "/api/departments/**");
+
+        registry.addInterceptor(new ConditionalReadInterceptor(aggregateVersionService,
+                Aggregate.LEAVE, Aggregate.EMPLOYEE, Aggregate.DEPARTMENT))
+                .addPathPatterns("/api/leaves", "/api/leaves/**");
+
+        registry.addInterceptor(new ConditionalReadInterceptor(aggregateVersionService,
+                Aggregate.SALARY, Aggregate.EMPLOYEE, Aggregate.DEPARTMENT, Aggregate.INACTIVITY))
+                .addPathPatterns("/api/salaries", "/api/salaries/**");
+    }
+}
@@ -1,15 +1,21 @@
 package com.ems.controller;
 
+import java.time.LocalDate;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.ems.dto.AnalyticsDto;
 import com.ems.dto.DepartmentBudgetAnalytics;
+import com.ems.dto.EmployeeTimelineAnalytics;
 import com.ems.dto.SalaryAnalytics;
 import com.ems.service.AnalyticsServiceImpl;
+import com.ems.service.HeadcountTimelineService.Granularity;
 
 /**
  * Controller for analytics-related endpoints
@@ -30,6 +36,22 @@ public class AnalyticsController {
         return ResponseEntity.ok(analytics);
     }
 
+    /**
+     * Get active and inactive headcount over time
+     */
+    @GetMapping("/headcount-timeline")
+    public ResponseEntity<EmployeeTimelineAnalytics> getHeadcountTimeline(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "MONTH") Granularity granularity,
+            @RequestParam(required = false) Long departmentId) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusMonths(11).withDayOfMonth(1);
+        EmployeeTimelineAnalytics timeline =
+                analyticsService.getHeadcountTimelineForCurrentUser(start, end, granularity, departmentId);
+        return ResponseEntity.ok(timeline);
+    }
+
     /**
      * Get department budget analytics
      */
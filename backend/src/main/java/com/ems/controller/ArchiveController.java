@@ -0,0 +1,58 @@
+package com.ems.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ems.service.HistoryArchiveService;
+import com.ems.service.HistoryArchiveService.Result;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * REST Controller for archiving old history
+ */
+@RestController
+@RequestMapping("/api/archive")
+@Tag(name = "History Archive", description = "APIs for moving old payroll, leave and message history to the archive")
+public class ArchiveController {
+
+    @Autowired
+    private HistoryArchiveService historyArchiveService;
+
+    /**
+     * Set how many months of history stay in the hot tables
+     */
+    @Operation(summary = "Set archive horizon",
+            description = "History older than this many months is archived nightly; 0 stops archiving. History endpoints still return archived records.")
+    @PutMapping("/horizon")
+    public ResponseEntity<Map<String, Object>> setHorizon(
+            @Parameter(description = "Months of history to keep in the hot tables, or 0") @RequestParam int months) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("horizonMonths", historyArchiveService.setHorizonForCurrentUser(months));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Archive history older than the horizon now
+     */
+    @Operation(summary = "Archive now", description = "Move history older than the archive horizon to the archive immediately")
+    @PostMapping("/run")
+    public ResponseEntity<Map<String, Object>> archiveNow() {
+        Result result = historyArchiveService.archiveForCurrentUser();
+        Map<String, Object> response = new HashMap<>();
+        response.put("salaries", result.salaries());
+        response.put("leaves", result.leaves());
+        response.put("messages", result.messages());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,38 @@
+package com.ems.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ems.dto.DashboardBatchRequestDto;
+import com.ems.dto.DashboardBatchResponseDto;
+import com.ems.service.DashboardBatchService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+
+/**
+ * REST Controller for dashboard reads
+ */
+@RestController
+@RequestMapping("/api/dashboard")
+@Tag(name = "Dashboard", description = "APIs for loading dashboard data")
+public class DashboardController {
+
+    @Autowired
+    private DashboardBatchService dashboardBatchService;
+
+    /**
+     * Run several dashboard reads in one round trip
+     */
+    @Operation(summary = "Batch dashboard reads",
+            description = "Run several named dashboard reads concurrently and return each result keyed by its request id")
+    @PostMapping("/batch")
+    public ResponseEntity<DashboardBatchResponseDto> batch(@Valid @RequestBody DashboardBatchRequestDto request) {
+        return ResponseEntity.ok(dashboardBatchService.execute(request));
+    }
+}
@@ -16,16 +16,21 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.ems.dto.ApiResponse;
 import com.ems.dto.EmployeeDto;
 import com.ems.dto.EmployeeInactivityDto;
+import com.ems.model.User;
 import com.ems.model.Employee.ContractType;
+import com.ems.service.AuthService;
 import com.ems.service.EmployeeService;
+import com.ems.util.ApiResponseStreamer;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 /**
@@ -38,6 +43,12 @@ public class EmployeeController {
 
     @Autowired
     private EmployeeService employeeService;
+    
+    @Autowired
+    private AuthService authService;
+    
+    @Autowired
+    private ApiResponseStreamer apiResponseStreamer;
 
     /**
      * Get all employees
@@ -49,6 +60,17 @@ public class EmployeeController {
         return ResponseEntity.ok(employees);
     }
     
+    /**
+     * Stream all employees
+     */
+    @Operation(summary = "Stream all employees", description = "Stream all employees in an ApiResponse envelope without buffering the full list")
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllEmployees(HttpServletRequest request) {
+        User currentUser = authService.getCurrentUser();
+        return apiResponseStreamer.stream(request, "Employees retrieved successfully",
+                consumer -> employeeService.streamEmployees(currentUser, consumer));
+    }
+    
     /**
      * Get active employees
      */
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,11 +14,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.ems.dto.EmployeeInactivityDto;
 import com.ems.model.EmployeeInactivity.InactivityType;
 import com.ems.model.User;
 import com.ems.service.EmployeeInactivityService;
+import com.ems.util.ApiResponseStreamer;
 
 /**
  * Controller for handling employee inactivity periods like leaves, medical absences, etc.
@@ -28,6 +31,9 @@ public class EmployeeInactivityController {
 
     @Autowired
     private EmployeeInactivityService employeeInactivityService;
+    
+    @Autowired
+    private ApiResponseStreamer apiResponseStreamer;
 
     /**
      * Get all inactivity records for the current user's employees
@@ -38,6 +44,17 @@ public class EmployeeInactivityController {
         return ResponseEntity.ok(inactivities);
     }
 
+    /**
+     * Stream all inactivity records for the current user's employees
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllInactivities(
+            HttpServletRequest request,
+            @AuthenticationPrincipal User user) {
+        return apiResponseStreamer.stream(request, "Inactivity records retrieved successfully",
+                consumer -> employeeInactivityService.streamInactivities(user, consumer));
+    }
+
     /**
      * Get a specific inactivity record by ID
      */
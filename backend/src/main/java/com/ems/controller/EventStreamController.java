@@ -0,0 +1,49 @@
+package com.ems.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.ems.exception.AuthenticationException;
+import com.ems.security.TenantContext;
+import com.ems.service.AuthService;
+import com.ems.service.ChangeStreamService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * REST Controller for live change notifications
+ */
+@RestController
+@RequestMapping("/api/events")
+@Tag(name = "Events", description = "Server-sent events announcing changes to the tenant's data")
+public class EventStreamController {
+
+    @Autowired
+    private ChangeStreamService changeStreamService;
+
+    @Autowired
+    private AuthService authService;
+
+    /**
+     * Open the change stream of the current tenant
+     */
+    @Operation(summary = "Stream changes",
+            description = "Server-sent events naming the aggregates that changed and their new versions. "
+                    + "Reconnect with Last-Event-ID to receive missed events; a reset event means reload everything.")
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @Parameter(description = "Id of the last event received") @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Long tenantId = TenantContext.getTenantId();
+        if (tenantId == null) {
+            throw new AuthenticationException("No tenant for the current user");
+        }
+        return changeStreamService.subscribe(tenantId, authService.isManager(), lastEventId);
+    }
+}
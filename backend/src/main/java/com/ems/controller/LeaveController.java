@@ -18,15 +18,22 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.ems.dto.ApiResponse;
+import com.ems.dto.LeaveBatchRequestDto;
+import com.ems.dto.LeaveBatchResultDto;
 import com.ems.dto.LeaveDto;
+import com.ems.model.User;
 import com.ems.model.Leave.Status;
+import com.ems.service.AuthService;
 import com.ems.service.LeaveService;
+import com.ems.util.ApiResponseStreamer;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 /**
@@ -39,6 +46,12 @@ public class LeaveController {
 
     @Autowired
     private LeaveService leaveService;
+    
+    @Autowired
+    private AuthService authService;
+    
+    @Autowired
+    private ApiResponseStreamer apiResponseStreamer;
 
     /**
      * Get all leave requests
@@ -50,6 +63,17 @@ public class LeaveController {
         return ResponseEntity.ok(leaves);
     }
     
+    /**
+     * Stream all leave requests
+     */
+    @Operation(summary = "Stream all leave requests", description = "Stream all leave requests in an ApiResponse envelope without buffering the full list")
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllLeaves(HttpServletRequest request) {
+        User currentUser = authService.getCurrentUser();
+        return apiResponseStreamer.stream(request, "Leave requests retrieved successfully",
+                consumer -> leaveService.streamLeaves(currentUser, consumer));
+    }
+    
     /**
      * Get paginated leave requests
      */
@@ -246,6 +270,32 @@ public class LeaveController {
         return ResponseEntity.ok(deniedLeave);
     }
 
+    /**
+     * Approve several leave requests
+     */
+    @Operation(summary = "Approve leave requests in batch", 
+               description = "Approve several pending leave requests at once; the result reports the outcome for each ID")
+    @PutMapping("/batch/approve")
+    public ResponseEntity<LeaveBatchResultDto> approveLeaves(
+            @Parameter(description = "IDs of the leave requests", required = true) @Valid @RequestBody LeaveBatchRequestDto request) {
+        
+        LeaveBatchResultDto result = leaveService.approveLeaves(request.getLeaveIds());
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * Deny several leave requests
+     */
+    @Operation(summary = "Deny leave requests in batch", 
+               description = "Deny several pending leave requests at once; the result reports the outcome for each ID")
+    @PutMapping("/batch/deny")
+    public ResponseEntity<LeaveBatchResultDto> denyLeaves(
+            @Parameter(description = "IDs of the leave requests", required = true) @Valid @RequestBody LeaveBatchRequestDto request) {
+        
+        LeaveBatchResultDto result = leaveService.denyLeaves(request.getLeaveIds());
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * Cancel a leave request
      */
@@ -16,10 +16,18 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.ems.dto.ApiResponse;
+import com.ems.dto.DeductionRuleDto;
 import com.ems.dto.SalaryDto;
+import com.ems.dto.SimulationRequestDto;
+import com.ems.dto.SimulationResultDto;
+import com.ems.model.User;
+import com.ems.service.AuthService;
+import com.ems.service.CompensationSimulationService;
 import com.ems.service.SalaryService;
+import com.ems.util.ApiResponseStreamer;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -27,6 +35,7 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 /**
@@ -39,6 +48,15 @@ public class SalaryController {
 
     @Autowired
     private SalaryService salaryService;
+    
+    @Autowired
+    private AuthService authService;
+    
+    @Autowired
+    private ApiResponseStreamer apiResponseStreamer;
+    
+    @Autowired
+    private CompensationSimulationService compensationSimulationService;
 
     /**
      * Get all salaries
@@ -49,6 +67,17 @@ public class SalaryController {
         List<SalaryDto> salaries = salaryService.getAllSalariesForCurrentUser();
         return ResponseEntity.ok(salaries);
     }
+    
+    /**
+     * Stream all salaries
+     */
+    @Operation(summary = "Stream all salaries", description = "Stream all salary records in an ApiResponse envelope without buffering the full list")
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllSalaries(HttpServletRequest request) {
+        User currentUser = authService.getCurrentUser();
+        return apiResponseStreamer.stream(request, "Salaries retrieved successfully",
+                consumer -> salaryService.streamSalaries(currentUser, consumer));
+    }
 
     /**
      * Get salaries for a specific month and year
@@ -191,6 +220,35 @@ public class SalaryController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Apply a deduction rule to a salary period
+     */
+    @Operation(summary = "Apply deduction rule to period", 
+               description = "Set the value of every matching deduction (by type, and name if given) in a salary period, e.g. a tax rate change, and recalculate the affected salaries")
+    @PostMapping("/deduction-rule")
+    public ResponseEntity<Map<String, Object>> applyDeductionRule(
+            @Parameter(description = "Period and deduction rule", required = true) @Valid @RequestBody DeductionRuleDto rule) {
+        int updated = salaryService.applyDeductionRule(rule);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Applied deduction rule to " + updated + " salary records");
+        response.put("count", updated);
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Simulate raises over a salary period
+     */
+    @Operation(summary = "Simulate compensation changes", 
+               description = "Apply raise rules by role, contract type and department to a salary period and compare department totals with their budgets, without changing any salary")
+    @PostMapping("/simulate")
+    public ResponseEntity<SimulationResultDto> simulateCompensation(
+            @Parameter(description = "Period and raise rules", required = true) @Valid @RequestBody SimulationRequestDto request) {
+        SimulationResultDto result = compensationSimulationService.simulate(request);
+        return ResponseEntity.ok(result);
+    }
+    
     /**
      * Get salary statistics by department
      */
@@ -0,0 +1,54 @@
+package com.ems.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.ems.dto.SelfServiceInbox;
+import com.ems.dto.SelfServiceLeaveSummary;
+import com.ems.dto.SelfServiceProfile;
+import com.ems.dto.SelfServiceSalary;
+import com.ems.service.SelfServiceService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * REST Controller for the signed-in employee's own profile, salaries, leaves and messages
+ */
+@RestController
+@RequestMapping("/api/employee/me")
+@Tag(name = "Employee Self-Service", description = "APIs for employees to read their own records")
+public class SelfServiceController {
+
+    @Autowired
+    private SelfServiceService selfServiceService;
+
+    @Operation(summary = "Get my profile", description = "Profile, department and company of the signed-in employee")
+    @GetMapping
+    public ResponseEntity<SelfServiceProfile> getProfile() {
+        return ResponseEntity.ok(selfServiceService.getProfile());
+    }
+
+    @Operation(summary = "Get my salaries", description = "Salary history of the signed-in employee, archived periods included, newest first")
+    @GetMapping("/salaries")
+    public ResponseEntity<List<SelfServiceSalary>> getSalaries() {
+        return ResponseEntity.ok(selfServiceService.getSalaries());
+    }
+
+    @Operation(summary = "Get my leaves", description = "Leave balance of the current year and the leave history of the signed-in employee")
+    @GetMapping("/leaves")
+    public ResponseEntity<SelfServiceLeaveSummary> getLeaves() {
+        return ResponseEntity.ok(selfServiceService.getLeaves());
+    }
+
+    @Operation(summary = "Get my unread messages", description = "Unread message count and the latest unread messages of the signed-in employee")
+    @GetMapping("/messages/unread")
+    public ResponseEntity<SelfServiceInbox> getUnreadMessages() {
+        return ResponseEntity.ok(selfServiceService.getUnreadMessages());
+    }
+}
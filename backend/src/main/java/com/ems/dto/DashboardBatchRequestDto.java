@@ -0,0 +1,68 @@
+package com.ems.dto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+/**
+ * DTO for serving several dashboard reads in one request
+ */
+public class DashboardBatchRequestDto {
+
+    @NotEmpty(message = "At least one sub-request is required")
+    @Size(max = 20, message = "At most 20 sub-requests are allowed")
+    @Valid
+    private List<SubRequest> requests = new ArrayList<>();
+
+    /**
+     * One named read; the id is chosen by the client and keys its result in the response
+     */
+    public static class SubRequest {
+
+        @NotBlank(message = "Sub-request id is required")
+        private String id;
+
+        @NotBlank(message = "Sub-request name is required")
+        private String name;
+
+        private Map<String, String> params = new HashMap<>();
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Map<String, String> getParams() {
+            return params;
+        }
+
+        public void setParams(Map<String, String> params) {
+            this.params = params;
+        }
+    }
+
+    public List<SubRequest> getRequests() {
+        return requests;
+    }
+
+    public void setRequests(List<SubRequest> requests) {
+        this.requests = requests;
+    }
+}
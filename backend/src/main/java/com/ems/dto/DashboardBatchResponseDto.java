@@ -0,0 +1,67 @@
+package com.ems.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * DTO for the combined response of a dashboard batch, with one result per sub-request id
+ */
+public class DashboardBatchResponseDto {
+
+    private Map<String, Result> results = new LinkedHashMap<>();
+
+    /**
+     * Outcome of one sub-request: an HTTP-like status with either the body or an error message
+     */
+    @JsonInclude(Include.NON_NULL)
+    public static class Result {
+
+        private int status;
+        private Object body;
+        private String error;
+
+        public Result() {
+        }
+
+        public Result(int status, Object body, String error) {
+            this.status = status;
+            this.body = body;
+            this.error = error;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public void setStatus(int status) {
+            this.status = status;
+        }
+
+        public Object getBody() {
+            return body;
+        }
+
+        public void setBody(Object body) {
+            this.body = body;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+    }
+
+    public Map<String, Result> getResults() {
+        return results;
+    }
+
+    public void setResults(Map<String, Result> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ems.dto;
+
+import com.ems.model.Deduction.DeductionType;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+/**
+ * DTO for applying one deduction value to every matching deduction of a salary period,
+ * e.g. a tax rate change. Deductions match by type, and by name when a name is given.
+ */
+public class DeductionRuleDto {
+
+    @NotNull(message = "Month is required")
+    @Min(value = 1, message = "Month must be between 1 and 12")
+    @Max(value = 12, message = "Month must be between 1 and 12")
+    private Integer month;
+
+    @NotNull(message = "Year is required")
+    @Min(value = 2000, message = "Year must be between 2000 and 2100")
+    @Max(value = 2100, message = "Year must be between 2000 and 2100")
+    private Integer year;
+
+    @NotNull(message = "Deduction type is required")
+    private DeductionType type;
+
+    @Size(max = 100, message = "Deduction name must not exceed 100 characters")
+    private String name;
+
+    @NotNull(message = "Deduction value is required")
+    @Positive(message = "Deduction value must be positive")
+    private Double value;
+
+    private boolean isPercentage;
+
+    // Getters and Setters
+    public Integer getMonth() {
+        return month;
+    }
+
+    public void setMonth(Integer month) {
+        this.month = month;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public DeductionType getType() {
+        return type;
+    }
+
+    public void setType(DeductionType type) {
+        this.type = type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Double getValue() {
+        return value;
+    }
+
+    public void setValue(Double value) {
+        this.value = value;
+    }
+
+    public boolean isPercentage() {
+        return isPercentage;
+    }
+
+    public void setPercentage(boolean isPercentage) {
+        this.isPercentage = isPercentage;
+    }
+}
@@ -0,0 +1,7 @@
+package com.ems.dto;
+
+/**
+ * Count of rows for one department and month; departmentName is null for employees without a department
+ */
+public record DepartmentMonthCount(String departmentName, Integer year, Integer month, Long count) {
+}
@@ -0,0 +1,9 @@
+package com.ems.dto;
+
+import com.ems.model.EmployeeInactivity.InactivityType;
+
+/**
+ * Inactivity counts for one type; averageDuration (in days) only covers periods that have ended
+ */
+public record InactivityTypeTotals(InactivityType type, Long total, Long current, Long ended, Double averageDuration) {
+}
@@ -0,0 +1,26 @@
+package com.ems.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+/**
+ * DTO for approving or denying several leave requests at once
+ */
+public class LeaveBatchRequestDto {
+
+    @NotEmpty(message = "At least one leave ID is required")
+    @Size(max = 500, message = "At most 500 leave requests can be processed at once")
+    private List<@NotNull Long> leaveIds = new ArrayList<>();
+
+    public List<Long> getLeaveIds() {
+        return leaveIds;
+    }
+
+    public void setLeaveIds(List<Long> leaveIds) {
+        this.leaveIds = leaveIds;
+    }
+}
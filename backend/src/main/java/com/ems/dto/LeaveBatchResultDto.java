@@ -0,0 +1,93 @@
+package com.ems.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ems.model.Leave.Status;
+
+/**
+ * DTO for the outcome of a batch approval or denial, with one result per requested leave
+ */
+public class LeaveBatchResultDto {
+
+    private int processed;
+    private int failed;
+    private List<Result> results = new ArrayList<>();
+
+    /**
+     * Outcome for a single leave request; message explains why it was not processed
+     */
+    public static class Result {
+
+        private Long leaveId;
+        private boolean success;
+        private Status status;
+        private String message;
+
+        public Result() {
+        }
+
+        public Result(Long leaveId, boolean success, Status status, String message) {
+            this.leaveId = leaveId;
+            this.success = success;
+            this.status = status;
+            this.message = message;
+        }
+
+        public Long getLeaveId() {
+            return leaveId;
+        }
+
+        public void setLeaveId(Long leaveId) {
+            this.leaveId = leaveId;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public void setSuccess(boolean success) {
+            this.success = success;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public void setStatus(Status status) {
+            this.status = status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+
+    public int getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(int processed) {
+        this.processed = processed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    public void setResults(List<Result> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,7 @@
+package com.ems.dto;
+
+/**
+ * Leave counts of a company computed in a single scan
+ */
+public record LeaveTotals(Long total, Long pending, Long approved, Long denied, Long currentlyOnLeave) {
+}
@@ -0,0 +1,7 @@
+package com.ems.dto;
+
+/**
+ * Message counts of a sender computed in a single scan
+ */
+public record MessageTotals(Long total, Long sent, Long delivered, Long failed, Long read) {
+}
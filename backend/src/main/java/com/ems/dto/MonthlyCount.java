@@ -0,0 +1,7 @@
+package com.ems.dto;
+
+/**
+ * Count of rows for one month
+ */
+public record MonthlyCount(Integer year, Integer month, Long count) {
+}
@@ -0,0 +1,9 @@
+package com.ems.dto;
+
+import java.util.List;
+
+/**
+ * Unread messages of the signed-in employee: the total count and the latest of them
+ */
+public record SelfServiceInbox(long unreadCount, List<SelfServiceMessage> messages) {
+}
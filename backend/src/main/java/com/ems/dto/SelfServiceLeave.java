@@ -0,0 +1,13 @@
+package com.ems.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import com.ems.model.Leave.Status;
+
+/**
+ * One leave request of the signed-in employee
+ */
+public record SelfServiceLeave(Long id, LocalDate requestDate, LocalDate startDate, LocalDate endDate, String reason,
+        Status status, LocalDateTime decisionDate, boolean archived) {
+}
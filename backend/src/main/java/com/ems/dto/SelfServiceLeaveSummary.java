@@ -0,0 +1,10 @@
+package com.ems.dto;
+
+import java.util.List;
+
+/**
+ * Leave balance of the signed-in employee for a calendar year, with the full leave history
+ */
+public record SelfServiceLeaveSummary(int year, int allowanceDays, int usedDays, int pendingDays, int remainingDays,
+        List<SelfServiceLeave> history) {
+}
@@ -0,0 +1,9 @@
+package com.ems.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * An unread message of the signed-in employee
+ */
+public record SelfServiceMessage(Long id, String senderName, String subject, String content, LocalDateTime sentAt) {
+}
@@ -0,0 +1,13 @@
+package com.ems.dto;
+
+import java.time.LocalDate;
+
+import com.ems.model.Employee.ContractType;
+import com.ems.model.Employee.Status;
+
+/**
+ * Profile of the signed-in employee for the self-service pages
+ */
+public record SelfServiceProfile(Long id, String name, String email, String phone, String role, String departmentName,
+        ContractType contractType, LocalDate startDate, LocalDate endDate, Status status, String companyName) {
+}
@@ -0,0 +1,8 @@
+package com.ems.dto;
+
+/**
+ * One pay period of the signed-in employee; archived periods are older than the company's archive horizon
+ */
+public record SelfServiceSalary(Long id, Integer year, Integer month, Double grossSalary, Double taxDeduction,
+        Double insuranceDeduction, Double otherDeductions, Double netSalary, boolean archived) {
+}
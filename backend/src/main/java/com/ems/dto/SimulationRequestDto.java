@@ -0,0 +1,106 @@
+package com.ems.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ems.model.Employee.ContractType;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * DTO for a what-if compensation simulation over one salary period
+ */
+public class SimulationRequestDto {
+
+    @NotNull(message = "Month is required")
+    @Min(value = 1, message = "Month must be between 1 and 12")
+    @Max(value = 12, message = "Month must be between 1 and 12")
+    private Integer month;
+
+    @NotNull(message = "Year is required")
+    @Min(value = 2000, message = "Year must be between 2000 and 2100")
+    @Max(value = 2100, message = "Year must be between 2000 and 2100")
+    private Integer year;
+
+    @NotEmpty(message = "At least one rule is required")
+    @Valid
+    private List<Rule> rules = new ArrayList<>();
+
+    /**
+     * A raise applied to every salary matching all of the given criteria; null criteria match anything.
+     * Rules are applied in order, so a salary matched by several rules gets compounded raises.
+     */
+    public static class Rule {
+
+        private String role;
+
+        private ContractType contractType;
+
+        private Long departmentId;
+
+        @NotNull(message = "Raise percentage is required")
+        @DecimalMin(value = "-100.0", message = "Raise percentage must not be below -100")
+        private Double raisePercentage;
+
+        public String getRole() {
+            return role;
+        }
+
+        public void setRole(String role) {
+            this.role = role;
+        }
+
+        public ContractType getContractType() {
+            return contractType;
+        }
+
+        public void setContractType(ContractType contractType) {
+            this.contractType = contractType;
+        }
+
+        public Long getDepartmentId() {
+            return departmentId;
+        }
+
+        public void setDepartmentId(Long departmentId) {
+            this.departmentId = departmentId;
+        }
+
+        public Double getRaisePercentage() {
+            return raisePercentage;
+        }
+
+        public void setRaisePercentage(Double raisePercentage) {
+            this.raisePercentage = raisePercentage;
+        }
+    }
+
+    public Integer getMonth() {
+        return month;
+    }
+
+    public void setMonth(Integer month) {
+        this.month = month;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+}
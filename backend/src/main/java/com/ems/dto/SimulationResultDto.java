@@ -0,0 +1,201 @@
+package com.ems.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ems.model.Department.BudgetType;
+
+/**
+ * DTO for the outcome of a what-if compensation simulation
+ */
+public class SimulationResultDto {
+
+    private Integer month;
+    private Integer year;
+    private int employeeCount;
+    private int affectedCount;
+    private Double currentGrossTotal;
+    private Double simulatedGrossTotal;
+    private Double simulatedNetTotal;
+    private List<DepartmentResult> departments = new ArrayList<>();
+
+    /**
+     * Per-department totals of the simulated period against the department budget.
+     * Yearly budgets are compared with the period's gross annualized (x12).
+     */
+    public static class DepartmentResult {
+
+        private Long departmentId;
+        private String departmentName;
+        private BudgetType budgetType;
+        private Double budget;
+        private int employeeCount;
+        private int affectedCount;
+        private Double currentGross;
+        private Double simulatedGross;
+        private Double simulatedNet;
+        private Double currentBudgetUsage;
+        private Double simulatedBudgetUsage;
+        private boolean overBudget;
+
+        public Long getDepartmentId() {
+            return departmentId;
+        }
+
+        public void setDepartmentId(Long departmentId) {
+            this.departmentId = departmentId;
+        }
+
+        public String getDepartmentName() {
+            return departmentName;
+        }
+
+        public void setDepartmentName(String departmentName) {
+            this.departmentName = departmentName;
+        }
+
+        public BudgetType getBudgetType() {
+            return budgetType;
+        }
+
+        public void setBudgetType(BudgetType budgetType) {
+            this.budgetType = budgetType;
+        }
+
+        public Double getBudget() {
+            return budget;
+        }
+
+        public void setBudget(Double budget) {
+            this.budget = budget;
+        }
+
+        public int getEmployeeCount() {
+            return employeeCount;
+        }
+
+        public void setEmployeeCount(int employeeCount) {
+            this.employeeCount = employeeCount;
+        }
+
+        public int getAffectedCount() {
+            return affectedCount;
+        }
+
+        public void setAffectedCount(int affectedCount) {
+            this.affectedCount = affectedCount;
+        }
+
+        public Double getCurrentGross() {
+            return currentGross;
+        }
+
+        public void setCurrentGross(Double currentGross) {
+            this.currentGross = currentGross;
+        }
+
+        public Double getSimulatedGross() {
+            return simulatedGross;
+        }
+
+        public void setSimulatedGross(Double simulatedGross) {
+            this.simulatedGross = simulatedGross;
+        }
+
+        public Double getSimulatedNet() {
+            return simulatedNet;
+        }
+
+        public void setSimulatedNet(Double simulatedNet) {
+            this.simulatedNet = simulatedNet;
+        }
+
+        public Double getCurrentBudgetUsage() {
+            return currentBudgetUsage;
+        }
+
+        public void setCurrentBudgetUsage(Double currentBudgetUsage) {
+            this.currentBudgetUsage = currentBudgetUsage;
+        }
+
+        public Double getSimulatedBudgetUsage() {
+            return simulatedBudgetUsage;
+        }
+
+        public void setSimulatedBudgetUsage(Double simulatedBudgetUsage) {
+            this.simulatedBudgetUsage = simulatedBudgetUsage;
+        }
+
+        public boolean isOverBudget() {
+            return overBudget;
+        }
+
+        public void setOverBudget(boolean overBudget) {
+            this.overBudget = overBudget;
+        }
+    }
+
+    public Integer getMonth() {
+        return month;
+    }
+
+    public void setMonth(Integer month) {
+        this.month = month;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public int getEmployeeCount() {
+        return employeeCount;
+    }
+
+    public void setEmployeeCount(int employeeCount) {
+        this.employeeCount = employeeCount;
+    }
+
+    public int getAffectedCount() {
+        return affectedCount;
+    }
+
+    public void setAffectedCount(int affectedCount) {
+        this.affectedCount = affectedCount;
+    }
+
+    public Double getCurrentGrossTotal() {
+        return currentGrossTotal;
+    }
+
+    public void setCurrentGrossTotal(Double currentGrossTotal) {
+        this.currentGrossTotal = currentGrossTotal;
+    }
+
+    public Double getSimulatedGrossTotal() {
+        return simulatedGrossTotal;
+    }
+
+    public void setSimulatedGrossTotal(Double simulatedGrossTotal) {
+        this.simulatedGrossTotal = simulatedGrossTotal;
+    }
+
+    public Double getSimulatedNetTotal() {
+        return simulatedNetTotal;
+    }
+
+    public void setSimulatedNetTotal(Double simulatedNetTotal) {
+        this.simulatedNetTotal = simulatedNetTotal;
+    }
+
+    public List<DepartmentResult> getDepartments() {
+        return departments;
+    }
+
+    public void setDepartments(List<DepartmentResult> departments) {
+        this.departments = departments;
+    }
+}
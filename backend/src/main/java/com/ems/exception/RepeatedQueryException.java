@@ -0,0 +1,13 @@
+package com.ems.exception;
+
+/**
+ * Raised in strict mode when a request repeats the same statement shape past the configured threshold
+ */
+public class RepeatedQueryException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RepeatedQueryException(String message) {
+        super(message);
+    }
+}
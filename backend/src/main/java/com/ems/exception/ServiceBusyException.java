@@ -0,0 +1,21 @@
+package com.ems.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a bounded pool is saturated and the caller should retry later
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ServiceBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+
+    public ServiceBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,5 +1,10 @@
 package com.ems.model;
 
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import com.ems.util.PayrollMath;
+
 import jakarta.persistence.*;
 
 @Entity
@@ -17,12 +22,15 @@ public class Deduction {
     @Column(nullable = false)
     private String name;
 
-    @Column(name = "deduction_value", nullable = false)
+    @JdbcTypeCode(SqlTypes.NUMERIC)
+    @Column(name = "deduction_value", nullable = false, precision = 19, scale = 4)
     private Double value;
 
     @Column(name = "is_percentage", nullable = false)
     private boolean isPercentage;
 
+    // Once salaries is partitioned by year, salaries(id) alone is not unique and ems_partition_salaries
+    // drops this foreign key; schema update then logs that it cannot add it back
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "salary_id", nullable = false)
     private Salary salary;
@@ -111,11 +119,13 @@ public class Deduction {
     
     // Calculate actual deduction amount
     public Double calculateAmount(Double grossSalary) {
-        if (isPercentage) {
-            return grossSalary * (value / 100.0);
-        } else {
-            return value;
-        }
+        return PayrollMath.toAmount(calculateAmountCents(PayrollMath.toCents(grossSalary)));
+    }
+    
+    // Calculate actual deduction amount in cents
+    public long calculateAmountCents(long grossCents) {
+        long fixedPoint = isPercentage ? PayrollMath.toRate(value) : PayrollMath.toCents(value);
+        return PayrollMath.deductionCents(grossCents, fixedPoint, isPercentage);
     }
     
     // Create a copy of this deduction
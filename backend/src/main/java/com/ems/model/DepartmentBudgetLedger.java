@@ -0,0 +1,99 @@
+package com.ems.model;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.ColumnDefault;
+
+import jakarta.persistence.*;
+
+/**
+ * Committed payroll per department and budget period, in cents.
+ * Yearly budgets use a single row per year with period_month = 0.
+ */
+@Entity
+@Table(name = "department_budget_ledger",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"department_id", "period_year", "period_month"}))
+public class DepartmentBudgetLedger {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "department_id", nullable = false)
+    private Department department;
+
+    @Column(name = "period_year", nullable = false)
+    private Integer periodYear;
+
+    @Column(name = "period_month", nullable = false)
+    private Integer periodMonth;
+
+    @Column(name = "committed_cents", nullable = false)
+    private Long committedCents = 0L;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Highest budget alert sent for the period (see BudgetMonitorService.AlertLevel)
+    @ColumnDefault("0")
+    @Column(name = "alert_level", nullable = false)
+    private Integer alertLevel = 0;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Department getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(Department department) {
+        this.department = department;
+    }
+
+    public Integer getPeriodYear() {
+        return periodYear;
+    }
+
+    public void setPeriodYear(Integer periodYear) {
+        this.periodYear = periodYear;
+    }
+
+    public Integer getPeriodMonth() {
+        return periodMonth;
+    }
+
+    public void setPeriodMonth(Integer periodMonth) {
+        this.periodMonth = periodMonth;
+    }
+
+    public Long getCommittedCents() {
+        return committedCents;
+    }
+
+    public void setCommittedCents(Long committedCents) {
+        this.committedCents = committedCents;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Integer getAlertLevel() {
+        return alertLevel;
+    }
+
+    public void setAlertLevel(Integer alertLevel) {
+        this.alertLevel = alertLevel;
+    }
+}
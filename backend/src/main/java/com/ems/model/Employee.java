@@ -10,7 +10,7 @@ import java.util.Set;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "employees")
+@Table(name = "employees", indexes = @Index(name = "idx_employees_email", columnList = "email"))
 public class Employee {
 
     @Id
@@ -60,7 +60,8 @@ public class Employee {
     private LocalDateTime lastLogin;
     
     @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "employee_roles", joinColumns = @JoinColumn(name = "employee_id"))
+    @CollectionTable(name = "employee_roles", joinColumns = @JoinColumn(name = "employee_id"),
+            indexes = @Index(name = "idx_employee_roles_employee", columnList = "employee_id"))
     @Column(name = "role")
     private Set<String> authRoles = new HashSet<>();
 
@@ -333,25 +334,22 @@ public class Employee {
         return false;
     }
     
-    // Check if employee is currently inactive based on inactivity records
+    // Check if employee is currently inactive; status follows the inactivity records (see EmployeeStatusReconciliationService)
     public boolean isCurrentlyInactive() {
-        if (status == Status.INACTIVE) {
-            return true;
-        }
-        
-        LocalDate today = LocalDate.now();
-        for (EmployeeInactivity inactivity : inactivityPeriods) {
-            if (!today.isBefore(inactivity.getStartDate()) && 
-                (inactivity.getEndDate() == null || !today.isAfter(inactivity.getEndDate()))) {
-                return true;
-            }
-        }
-        return false;
+        return status == Status.INACTIVE;
     }
     
     // Get employee's most recent inactivity period (if any)
     public EmployeeInactivity getCurrentInactivityPeriod() {
-        if (status == Status.ACTIVE || inactivityPeriods.isEmpty()) {
+        if (status == Status.ACTIVE) {
+            return null;
+        }
+        return currentInactivityPeriod(inactivityPeriods);
+    }
+    
+    // Inactivity period covering today, or else the most recent one, out of an employee's periods
+    public static EmployeeInactivity currentInactivityPeriod(List<EmployeeInactivity> inactivityPeriods) {
+        if (inactivityPeriods.isEmpty()) {
             return null;
         }
         
@@ -6,7 +6,7 @@ import java.time.LocalDateTime;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "leave_requests")
+@Table(name = "leave_requests", indexes = @Index(name = "idx_leave_requests_employee_start", columnList = "employee_id, leave_start"))
 public class Leave {
 
     @Id
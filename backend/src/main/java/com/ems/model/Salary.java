@@ -6,6 +6,11 @@ import java.time.Month;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import com.ems.util.PayrollMath;
+
 import jakarta.persistence.*;
 
 @Entity
@@ -20,20 +25,24 @@ public class Salary {
     @JoinColumn(name = "employee_id", nullable = false)
     private Employee employee;
 
-    @Column(name = "gross_salary", nullable = false)
+    @JdbcTypeCode(SqlTypes.NUMERIC)
+    @Column(name = "gross_salary", nullable = false, precision = 19, scale = 2)
     private Double grossSalary;
 
-    @Column(name = "tax_deduction", nullable = false)
+    @JdbcTypeCode(SqlTypes.NUMERIC)
+    @Column(name = "tax_deduction", nullable = false, precision = 19, scale = 2)
     private Double taxDeduction = 0.0;
 
-    @Column(name = "insurance_deduction", nullable = false)
+    @JdbcTypeCode(SqlTypes.NUMERIC)
+    @Column(name = "insurance_deduction", nullable = false, precision = 19, scale = 2)
     private Double insuranceDeduction = 0.0;
 
-    @Column(name = "other_deductions", nullable = false)
+    @JdbcTypeCode(SqlTypes.NUMERIC)
+    @Column(name = "other_deductions", nullable = false, precision = 19, scale = 2)
     private Double otherDeductions = 0.0;
 
-    // Net salary will be calculated by the database as a stored generated column
-    @Column(name = "net_salary", nullable = false)
+    @JdbcTypeCode(SqlTypes.NUMERIC)
+    @Column(name = "net_salary", nullable = false, precision = 19, scale = 2)
     private Double netSalary;
 
     @Column(name = "salary_month", nullable = false)
@@ -65,36 +74,28 @@ public class Salary {
         calculateNetSalary();
     }
 
-    // Calculate net salary
+    // Calculate deductions and net salary in cents so results match exact decimal math
     public void calculateNetSalary() {
-        // Calculate other deductions from custom deductions
-        this.otherDeductions = 0.0;
+        long grossCents = PayrollMath.toCents(grossSalary);
+        long taxCents = 0L;
+        long insuranceCents = 0L;
+        long otherCents = 0L;
+
         for (Deduction deduction : deductions) {
+            long amount = deduction.calculateAmountCents(grossCents);
             if (deduction.getType() == Deduction.DeductionType.TAX) {
-                if (deduction.isPercentage()) {
-                    this.taxDeduction = grossSalary * (deduction.getValue() / 100.0);
-                } else {
-                    this.taxDeduction = deduction.getValue();
-                }
+                taxCents += amount;
             } else if (deduction.getType() == Deduction.DeductionType.INSURANCE) {
-                if (deduction.isPercentage()) {
-                    this.insuranceDeduction = grossSalary * (deduction.getValue() / 100.0);
-                } else {
-                    this.insuranceDeduction = deduction.getValue();
-                }
-            } else if (deduction.getType() == Deduction.DeductionType.CUSTOM) {
-                if (deduction.isPercentage()) {
-                    this.otherDeductions += grossSalary * (deduction.getValue() / 100.0);
-                } else {
-                    this.otherDeductions += deduction.getValue();
-                }
+                insuranceCents += amount;
+            } else {
+                otherCents += amount;
             }
         }
-        
-        this.netSalary = grossSalary - taxDeduction - insuranceDeduction - otherDeductions;
-        if (this.netSalary < 0) {
-            this.netSalary = 0.0;
-        }
+
+        this.taxDeduction = PayrollMath.toAmount(taxCents);
+        this.insuranceDeduction = PayrollMath.toAmount(insuranceCents);
+        this.otherDeductions = PayrollMath.toAmount(otherCents);
+        this.netSalary = PayrollMath.toAmount(PayrollMath.netCents(grossCents, taxCents, insuranceCents, otherCents));
     }
 
     // Getters and Setters
@@ -0,0 +1,147 @@
+package com.ems.model;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.*;
+
+/**
+ * Totals of one salary period (year and month) of a company, kept current by salary writes
+ */
+@Entity
+@Table(name = "salary_period_summaries",
+       uniqueConstraints = @UniqueConstraint(name = "uk_salary_period_summaries_period",
+                                             columnNames = {"user_id", "period_year", "period_month"}))
+public class SalaryPeriodSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "period_year", nullable = false)
+    private Integer periodYear;
+
+    @Column(name = "period_month", nullable = false)
+    private Integer periodMonth;
+
+    @Column(nullable = false)
+    private Integer headcount = 0;
+
+    @JdbcTypeCode(SqlTypes.NUMERIC)
+    @Column(name = "gross_total", nullable = false, precision = 19, scale = 2)
+    private Double grossTotal = 0.0;
+
+    @JdbcTypeCode(SqlTypes.NUMERIC)
+    @Column(name = "net_total", nullable = false, precision = 19, scale = 2)
+    private Double netTotal = 0.0;
+
+    @JdbcTypeCode(SqlTypes.NUMERIC)
+    @Column(name = "tax_total", nullable = false, precision = 19, scale = 2)
+    private Double taxTotal = 0.0;
+
+    @JdbcTypeCode(SqlTypes.NUMERIC)
+    @Column(name = "insurance_total", nullable = false, precision = 19, scale = 2)
+    private Double insuranceTotal = 0.0;
+
+    @JdbcTypeCode(SqlTypes.NUMERIC)
+    @Column(name = "other_deductions_total", nullable = false, precision = 19, scale = 2)
+    private Double otherDeductionsTotal = 0.0;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public Integer getPeriodYear() {
+        return periodYear;
+    }
+
+    public void setPeriodYear(Integer periodYear) {
+        this.periodYear = periodYear;
+    }
+
+    public Integer getPeriodMonth() {
+        return periodMonth;
+    }
+
+    public void setPeriodMonth(Integer periodMonth) {
+        this.periodMonth = periodMonth;
+    }
+
+    public Integer getHeadcount() {
+        return headcount;
+    }
+
+    public void setHeadcount(Integer headcount) {
+        this.headcount = headcount;
+    }
+
+    public Double getGrossTotal() {
+        return grossTotal;
+    }
+
+    public void setGrossTotal(Double grossTotal) {
+        this.grossTotal = grossTotal;
+    }
+
+    public Double getNetTotal() {
+        return netTotal;
+    }
+
+    public void setNetTotal(Double netTotal) {
+        this.netTotal = netTotal;
+    }
+
+    public Double getTaxTotal() {
+        return taxTotal;
+    }
+
+    public void setTaxTotal(Double taxTotal) {
+        this.taxTotal = taxTotal;
+    }
+
+    public Double getInsuranceTotal() {
+        return insuranceTotal;
+    }
+
+    public void setInsuranceTotal(Double insuranceTotal) {
+        this.insuranceTotal = insuranceTotal;
+    }
+
+    public Double getOtherDeductionsTotal() {
+        return otherDeductionsTotal;
+    }
+
+    public void setOtherDeductionsTotal(Double otherDeductionsTotal) {
+        this.otherDeductionsTotal = otherDeductionsTotal;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -45,8 +45,13 @@ public class User {
     @Column(name = "last_login")
     private LocalDateTime lastLogin;
     
+    // Months of payroll, leave and message history kept in the hot tables; null or 0 keeps everything
+    @Column(name = "archive_horizon_months")
+    private Integer archiveHorizonMonths;
+    
     @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
+    @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"),
+            indexes = @Index(name = "idx_user_roles_user", columnList = "user_id"))
     @Column(name = "role")
     private Set<String> roles = new HashSet<>();
 
@@ -156,6 +161,14 @@ public class User {
         this.lastLogin = lastLogin;
     }
     
+    public Integer getArchiveHorizonMonths() {
+        return archiveHorizonMonths;
+    }
+    
+    public void setArchiveHorizonMonths(Integer archiveHorizonMonths) {
+        this.archiveHorizonMonths = archiveHorizonMonths;
+    }
+    
     public Set<String> getRoles() {
         return roles;
     }
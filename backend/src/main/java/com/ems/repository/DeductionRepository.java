@@ -6,6 +6,7 @@ import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,6 +16,8 @@ import com.ems.model.Deduction.DeductionType;
 import com.ems.model.Salary;
 import com.ems.model.User;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface DeductionRepository extends JpaRepository<Deduction, Long> {
     // Basic queries
@@ -35,6 +38,10 @@ public interface DeductionRepository extends JpaRepository<Deduction, Long> {
     @Query("SELECT d FROM Deduction d WHERE d.salary.id = :salaryId ORDER BY d.type, d.name")
     List<Deduction> findBySalaryId(@Param("salaryId") Long salaryId);
     
+    // Deductions of several salaries at once, with the salary id in the first column
+    @Query("SELECT d.salary.id, d FROM Deduction d WHERE d.salary.id IN :salaryIds")
+    List<Object[]> findBySalaryIds(@Param("salaryIds") List<Long> salaryIds);
+    
     // Employee-based queries
     @Query("SELECT d FROM Deduction d WHERE d.salary.employee.id = :employeeId ORDER BY d.salary.salaryYear DESC, d.salary.salaryMonth DESC, d.type")
     List<Deduction> findByEmployeeId(@Param("employeeId") Long employeeId);
@@ -43,6 +50,12 @@ public interface DeductionRepository extends JpaRepository<Deduction, Long> {
            "(SELECT MAX(s.id) FROM Salary s WHERE s.employee.id = :employeeId)")
     List<Deduction> findByEmployeeIdForCurrentSalary(@Param("employeeId") Long employeeId);
     
+    // Scalar deduction columns of a period for what-if simulations, in salary id order
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT s.id, d.type, d.value, d.isPercentage FROM Deduction d JOIN d.salary s " +
+           "WHERE s.employee.user = :user AND s.salaryYear = :year AND s.salaryMonth = :month ORDER BY s.id")
+    List<Object[]> findSimulationRowsByUserAndYearAndMonth(@Param("user") User user, @Param("year") Integer year, @Param("month") Integer month);
+    
     // Analytics queries
     @Query("SELECT COUNT(d) FROM Deduction d WHERE d.type = :type AND d.salary.employee.user = :user")
     List<Long> countByTypeAndUser(@Param("type") DeductionType type, @Param("user") User user);
@@ -83,6 +96,17 @@ public interface DeductionRepository extends JpaRepository<Deduction, Long> {
     @Query("SELECT d.isPercentage, COUNT(d) FROM Deduction d WHERE d.salary.employee.user = :user GROUP BY d.isPercentage")
     List<Object[]> countDeductionsByPercentageType(@Param("user") User user);
     
+    // Set one value on every matching deduction of a period; salary totals must be recalculated afterwards
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE salary_deductions d SET deduction_value = :value, is_percentage = :percentage " +
+                   "FROM salaries s JOIN employees e ON e.id = s.employee_id " +
+                   "WHERE d.salary_id = s.id AND e.user_id = :userId AND s.salary_year = :year AND s.salary_month = :month " +
+                   "AND d.deduction_type = :type AND (CAST(:name AS text) IS NULL OR LOWER(d.name) = LOWER(CAST(:name AS text)))",
+           nativeQuery = true)
+    int applyRuleToPeriod(@Param("userId") Long userId, @Param("year") Integer year, @Param("month") Integer month,
+                          @Param("type") String type, @Param("name") String name,
+                          @Param("value") Double value, @Param("percentage") boolean percentage);
+    
     // Delete operations
     @Transactional
     void deleteBySalary(Salary salary);
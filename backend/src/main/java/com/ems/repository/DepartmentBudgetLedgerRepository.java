@@ -0,0 +1,63 @@
+package com.ems.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ems.model.DepartmentBudgetLedger;
+
+/**
+ * Repository for department budget ledger rows.
+ * Writes join the caller's transaction, so a ledger change commits or rolls back together
+ * with the salary write it accounts for.
+ */
+@Repository
+public interface DepartmentBudgetLedgerRepository extends JpaRepository<DepartmentBudgetLedger, Long> {
+
+    @Query("SELECT l.committedCents FROM DepartmentBudgetLedger l WHERE l.department.id = :departmentId " +
+           "AND l.periodYear = :year AND l.periodMonth = :month")
+    List<Long> findCommittedCents(@Param("departmentId") Long departmentId,
+                                  @Param("year") Integer year, @Param("month") Integer month);
+
+    // Create the ledger row from the salaries already recorded in the period (month 0 = whole year).
+    // The period is the only unique key besides the id, so no conflict target is needed.
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO department_budget_ledger (department_id, period_year, period_month, committed_cents, updated_at) " +
+                   "SELECT :departmentId, :year, :month, COALESCE(ROUND(SUM(s.gross_salary) * 100), 0), now() " +
+                   "FROM salaries s JOIN employees e ON e.id = s.employee_id " +
+                   "WHERE e.department_id = :departmentId AND s.salary_year = :year " +
+                   "AND (:month = 0 OR s.salary_month = :month) " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int initialize(@Param("departmentId") Long departmentId, @Param("year") Integer year, @Param("month") Integer month);
+
+    // Add to the committed amount only if it stays within the budget; returns 0 when it would not
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE department_budget_ledger SET committed_cents = committed_cents + :amount, updated_at = now() " +
+                   "WHERE department_id = :departmentId AND period_year = :year AND period_month = :month " +
+                   "AND committed_cents + :amount <= :budget", nativeQuery = true)
+    int reserve(@Param("departmentId") Long departmentId, @Param("year") Integer year, @Param("month") Integer month,
+                @Param("amount") long amountCents, @Param("budget") long budgetCents);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE department_budget_ledger SET committed_cents = GREATEST(committed_cents - :amount, 0), updated_at = now() " +
+                   "WHERE department_id = :departmentId AND period_year = :year AND period_month = :month", nativeQuery = true)
+    int release(@Param("departmentId") Long departmentId, @Param("year") Integer year, @Param("month") Integer month,
+                @Param("amount") long amountCents);
+
+    // Raise the budget alert level of a period; returns 0 when that level or a higher one was already alerted
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE department_budget_ledger SET alert_level = :level, updated_at = now() " +
+                   "WHERE department_id = :departmentId AND period_year = :year AND period_month = :month " +
+                   "AND alert_level < :level", nativeQuery = true)
+    int raiseAlertLevel(@Param("departmentId") Long departmentId, @Param("year") Integer year, @Param("month") Integer month,
+                        @Param("level") int level);
+}
@@ -34,6 +34,10 @@ public interface DepartmentRepository extends JpaRepository<Department, Long> {
     @Query("SELECT d FROM Department d WHERE d.user = :user ORDER BY d.name ASC")
     List<Department> findByUserOrderByNameAsc(@Param("user") User user);
     
+    // Budget columns only, for simulations that must not load entities
+    @Query("SELECT d.id, d.name, d.budget, d.budgetType FROM Department d WHERE d.user = :user ORDER BY d.name ASC")
+    List<Object[]> findBudgetRowsByUser(@Param("user") User user);
+    
     @Query("SELECT d FROM Department d WHERE d.user = :user ORDER BY d.budget DESC")
     List<Department> findByUserOrderByBudgetDesc(@Param("user") User user);
     
@@ -73,13 +77,29 @@ public interface DepartmentRepository extends JpaRepository<Department, Long> {
     List<Object[]> sumBudgetByTypeAndUser(@Param("user") User user);
     
     // Budget analysis
-    @Query("SELECT d FROM Department d JOIN d.employees e JOIN e.salaries s WHERE d.user = :user " +
-           "GROUP BY d HAVING SUM(s.grossSalary) > d.budget")
-    List<Department> findOverBudgetDepartments(@Param("user") User user);
-    
-    @Query("SELECT d FROM Department d JOIN d.employees e JOIN e.salaries s WHERE d.user = :user " +
-           "GROUP BY d HAVING SUM(s.grossSalary) / d.budget > 0.9")
-    List<Department> findNearBudgetLimitDepartments(@Param("user") User user);
+    /**
+     * Budget status of all departments of a tenant for one period, in one round trip: id, name, budget,
+     * budget type, created at, employee count, active employee count and gross payroll of the period,
+     * which is the month for MONTHLY budgets and the whole year for YEARLY ones. Only salaries of
+     * that year are read.
+     */
+    @Query(value = "WITH staff AS (" +
+           "    SELECT e.department_id, COUNT(*) AS employees, COUNT(*) FILTER (WHERE e.status = 'ACTIVE') AS active " +
+           "    FROM employees e WHERE e.user_id = :userId AND e.department_id IS NOT NULL GROUP BY e.department_id), " +
+           "payroll AS (" +
+           "    SELECT e.department_id, s.salary_month, SUM(s.gross_salary) AS gross " +
+           "    FROM salaries s JOIN employees e ON e.id = s.employee_id " +
+           "    WHERE e.user_id = :userId AND s.salary_year = :year GROUP BY e.department_id, s.salary_month) " +
+           "SELECT d.id, d.name, d.budget_amount, d.budget_type, d.created_at, " +
+           "COALESCE(st.employees, 0), COALESCE(st.active, 0), " +
+           "COALESCE((SELECT SUM(p.gross) FROM payroll p WHERE p.department_id = d.id " +
+           "          AND (d.budget_type = 'YEARLY' OR p.salary_month = :month)), 0) " +
+           "FROM departments d LEFT JOIN staff st ON st.department_id = d.id " +
+           "WHERE d.user_id = :userId ORDER BY d.id", nativeQuery = true)
+    List<Object[]> findBudgetStatusByUser(@Param("userId") Long userId, @Param("year") int year, @Param("month") int month);
+    
+    @Query("SELECT DISTINCT d.user.id FROM Department d WHERE d.budget > 0")
+    List<Long> findTenantIdsWithBudgets();
     
     @Query("SELECT d, SUM(s.grossSalary) AS totalSalary " +
            "FROM Department d JOIN d.employees e JOIN e.salaries s WHERE d.user = :user " +
@@ -92,11 +112,6 @@ public interface DepartmentRepository extends JpaRepository<Department, Long> {
            "WHERE d.user = :user GROUP BY d.name")
     List<Object[]> getDepartmentEmployeeAndSalaryStats(@Param("user") User user);
     
-    @Query("SELECT d.name, d.budgetType, d.budget, SUM(s.grossSalary) " +
-           "FROM Department d LEFT JOIN d.employees e LEFT JOIN e.salaries s " +
-           "WHERE d.user = :user GROUP BY d.name, d.budgetType, d.budget")
-    List<Object[]> getDepartmentBudgetReport(@Param("user") User user);
-    
     // Search
     @Query("SELECT d FROM Department d WHERE d.user = :user AND LOWER(d.name) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     List<Department> searchByNameContaining(@Param("user") User user, @Param("keyword") String keyword);
@@ -3,17 +3,23 @@ package com.ems.repository;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.ems.dto.InactivityTypeTotals;
+import com.ems.dto.MonthlyCount;
 import com.ems.model.Employee;
 import com.ems.model.EmployeeInactivity;
 import com.ems.model.User;
 import com.ems.model.EmployeeInactivity.InactivityType;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface EmployeeInactivityRepository extends JpaRepository<EmployeeInactivity, Long> {
     // Basic queries
@@ -23,9 +29,19 @@ public interface EmployeeInactivityRepository extends JpaRepository<EmployeeInac
     @Query("SELECT ei FROM EmployeeInactivity ei JOIN ei.employee e WHERE e.user = :user ORDER BY ei.startDate DESC")
     List<EmployeeInactivity> findByUserOrderByStartDateDesc(@Param("user") User user);
     
+    // Stream inactivities by user with a cursor, with the employee id, name and email and the department name in the same row
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT ei, e.id, e.name, e.email, d.name FROM EmployeeInactivity ei JOIN ei.employee e LEFT JOIN e.department d " +
+           "WHERE e.user = :user ORDER BY ei.startDate DESC")
+    Stream<Object[]> streamListRowsByUser(@Param("user") User user);
+    
     @Query("SELECT ei FROM EmployeeInactivity ei WHERE ei.employee.id = :employeeId ORDER BY ei.startDate DESC")
     List<EmployeeInactivity> findByEmployeeId(@Param("employeeId") Long employeeId);
     
+    // Inactivity periods of several employees at once, with the employee id in the first column
+    @Query("SELECT ei.employee.id, ei FROM EmployeeInactivity ei WHERE ei.employee.id IN :employeeIds")
+    List<Object[]> findByEmployeeIds(@Param("employeeIds") List<Long> employeeIds);
+    
     // Find current inactivity record (no endDate or endDate in the future)
     @Query("SELECT ei FROM EmployeeInactivity ei WHERE ei.employee.id = :employeeId AND " +
            "(ei.endDate IS NULL OR ei.endDate >= :currentDate) " +
@@ -40,6 +56,20 @@ public interface EmployeeInactivityRepository extends JpaRepository<EmployeeInac
            "ORDER BY ei.startDate DESC")
     List<EmployeeInactivity> findByTypeAndUser(@Param("type") InactivityType type, @Param("user") User user);
     
+    // Count, current count and average duration of ended inactivities per type, in one scan
+    @Query("SELECT new com.ems.dto.InactivityTypeTotals(ei.type, COUNT(ei), " +
+           "SUM(CASE WHEN ei.startDate <= :currentDate AND (ei.endDate IS NULL OR ei.endDate >= :currentDate) THEN 1 ELSE 0 END), " +
+           "COUNT(ei.endDate), AVG(((ei.endDate - ei.startDate) BY DAY) + 1.0)) " +
+           "FROM EmployeeInactivity ei JOIN ei.employee e WHERE e.user = :user GROUP BY ei.type")
+    List<InactivityTypeTotals> getInactivityTypeTotals(@Param("user") User user, @Param("currentDate") LocalDate currentDate);
+    
+    // Count inactivities by start month
+    @Query("SELECT new com.ems.dto.MonthlyCount(EXTRACT(YEAR FROM ei.startDate), EXTRACT(MONTH FROM ei.startDate), COUNT(ei)) " +
+           "FROM EmployeeInactivity ei JOIN ei.employee e WHERE e.user = :user " +
+           "GROUP BY EXTRACT(YEAR FROM ei.startDate), EXTRACT(MONTH FROM ei.startDate) " +
+           "ORDER BY EXTRACT(YEAR FROM ei.startDate) DESC, EXTRACT(MONTH FROM ei.startDate) DESC")
+    List<MonthlyCount> countInactivitiesPerMonth(@Param("user") User user);
+    
     // Count inactivities by type
     @Query("SELECT COUNT(ei) FROM EmployeeInactivity ei JOIN ei.employee e WHERE ei.type = :type AND e.user = :user")
     List<Long> countByTypeAndUser(@Param("type") InactivityType type, @Param("user") User user);
@@ -73,7 +103,7 @@ public interface EmployeeInactivityRepository extends JpaRepository<EmployeeInac
            @Param("currentDate") LocalDate currentDate);
     
     // Calculate average duration of completed inactivities (in days)
-    @Query("SELECT AVG(EXTRACT(EPOCH FROM (ei.endDate - ei.startDate)) / 86400.0 + 1) FROM EmployeeInactivity ei " +
+    @Query("SELECT AVG(((ei.endDate - ei.startDate) by day) + 1.0) FROM EmployeeInactivity ei " +
            "JOIN ei.employee e WHERE e.user = :user AND ei.endDate IS NOT NULL")
     List<Double> calculateAverageDuration(@Param("user") User user);
     
@@ -101,7 +131,7 @@ public interface EmployeeInactivityRepository extends JpaRepository<EmployeeInac
     // Find employees that have been inactive for more than X days
     @Query("SELECT ei FROM EmployeeInactivity ei JOIN ei.employee e WHERE e.user = :user " +
            "AND (ei.endDate IS NULL OR ei.endDate >= :currentDate) " +
-           "AND (EXTRACT(EPOCH FROM (:currentDate - ei.startDate)) / 86400.0) > :days")
+           "AND ((:currentDate - ei.startDate) by day) > :days")
     List<EmployeeInactivity> findEmployeesInactiveForMoreThanXDays(
             @Param("user") User user, 
             @Param("days") int days,
@@ -111,7 +141,7 @@ public interface EmployeeInactivityRepository extends JpaRepository<EmployeeInac
     @Query("SELECT ei FROM EmployeeInactivity ei JOIN ei.employee e WHERE e.user = :user " +
            "AND ei.endDate IS NOT NULL " +
            "AND ei.endDate > :currentDate " +
-           "AND (EXTRACT(EPOCH FROM (ei.endDate - :currentDate)) / 86400.0) <= :days")
+           "AND ((ei.endDate - :currentDate) by day) <= :days")
     List<EmployeeInactivity> findEmployeesReturningWithinXDays(
             @Param("user") User user, 
             @Param("days") int days,
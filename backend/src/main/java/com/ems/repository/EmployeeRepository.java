@@ -3,11 +3,14 @@ package com.ems.repository;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -17,11 +20,32 @@ import com.ems.model.User;
 import com.ems.model.Employee.ContractType;
 import com.ems.model.Employee.Status;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     // Basic queries
     List<Employee> findByUser(User user);
     
+    /**
+     * Stream a company's employees with a cursor, as list rows with everything the list shows joined in:
+     * id, name, email, phone, role, department id and name, contract type, start and end date, status,
+     * created at, gross and net of the latest salary, pending leave count, whether on approved leave
+     * today and whether any message was sent to the employee
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT e.id, e.name, e.email, e.phone, e.role, d.id, d.name, e.contractType, e.startDate, e.endDate, " +
+           "e.status, e.createdAt, s.grossSalary, s.netSalary, " +
+           "(SELECT COUNT(l) FROM Leave l WHERE l.employee = e AND l.status = 'PENDING'), " +
+           "CASE WHEN EXISTS (SELECT 1 FROM Leave l WHERE l.employee = e AND l.status = 'APPROVED' " +
+           "    AND l.startDate <= :today AND l.endDate >= :today) THEN true ELSE false END, " +
+           "CASE WHEN EXISTS (SELECT 1 FROM Message m WHERE m.employee = e) THEN true ELSE false END " +
+           "FROM Employee e LEFT JOIN e.department d " +
+           "LEFT JOIN Salary s ON s.employee = e AND s.salaryYear * 100 + s.salaryMonth = " +
+           "    (SELECT MAX(s2.salaryYear * 100 + s2.salaryMonth) FROM Salary s2 WHERE s2.employee = e) " +
+           "WHERE e.user = :user ORDER BY e.name ASC")
+    Stream<Object[]> streamListRowsByUser(@Param("user") User user, @Param("today") LocalDate today);
+    
     Optional<Employee> findByIdAndUser(Long id, User user);
     
     List<Employee> findByDepartment(Department department);
@@ -33,6 +57,9 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     @Query("SELECT e FROM Employee e WHERE e.email = :email")
     List<Employee> findByEmail(@Param("email") String email);
     
+    @Query("SELECT e.id FROM Employee e WHERE e.email = :email AND e.user.id = :userId ORDER BY e.id")
+    List<Long> findIdsByEmailAndUserId(@Param("email") String email, @Param("userId") Long userId);
+    
     List<Boolean> existsByEmail(String email);
     
     List<Employee> findByActivationToken(String activationToken);
@@ -138,12 +165,9 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
            "ORDER BY e.name ASC")
     List<Employee> searchEmployees(@Param("user") User user, @Param("searchTerm") String searchTerm);
     
-    // Currently inactive employees with valid inactivity records
-    @Query("SELECT e FROM Employee e WHERE e.user = :user AND " + 
-          "e.status = 'INACTIVE' AND " +
-          "EXISTS (SELECT i FROM EmployeeInactivity i WHERE i.employee = e AND " +
-          "(i.endDate IS NULL OR i.endDate >= :currentDate) AND i.startDate <= :currentDate)")
-    List<Employee> findCurrentlyInactiveEmployees(@Param("user") User user, @Param("currentDate") LocalDate currentDate);
+    // Currently inactive employees; the status column is kept in line with inactivity periods by EmployeeStatusReconciliationService
+    @Query("SELECT e FROM Employee e WHERE e.user = :user AND e.status = 'INACTIVE'")
+    List<Employee> findCurrentlyInactiveEmployees(@Param("user") User user);
     
     // Employees returning from inactivity in the next X days
     @Query("SELECT e FROM Employee e WHERE e.user = :user AND e.status = 'INACTIVE' " +
@@ -153,4 +177,50 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
             @Param("user") User user, 
             @Param("currentDate") LocalDate currentDate,
             @Param("futureDate") LocalDate futureDate);
+    
+    // Employment intervals (kind 0) and inactivity intervals clipped to employment (kind 1) overlapping a date range,
+    // as scalar rows for the headcount timeline; open-ended intervals have a null end
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT e.startDate, e.endDate, 0 FROM Employee e WHERE e.user = :user " +
+           "AND (:departmentId IS NULL OR e.department.id = :departmentId) " +
+           "AND e.startDate <= :to AND (e.endDate IS NULL OR e.endDate >= :from) " +
+           "UNION ALL " +
+           "SELECT greatest(i.startDate, e.startDate), least(i.endDate, e.endDate), 1 FROM EmployeeInactivity i JOIN i.employee e " +
+           "WHERE e.user = :user AND (:departmentId IS NULL OR e.department.id = :departmentId) " +
+           "AND i.startDate <= :to AND (i.endDate IS NULL OR i.endDate >= :from)")
+    List<Object[]> findHeadcountIntervals(@Param("user") User user, @Param("departmentId") Long departmentId,
+                                          @Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    // Status reconciliation
+    @Query("SELECT DISTINCT i.employee.user.id FROM EmployeeInactivity i")
+    List<Long> findTenantIdsWithInactivities();
+    
+    @Modifying
+    @Query("UPDATE Employee e SET e.status = 'INACTIVE' " +
+           "WHERE e.user.id = :userId AND e.status = 'ACTIVE' " +
+           "AND EXISTS (SELECT i FROM EmployeeInactivity i WHERE i.employee = e " +
+           "AND i.startDate <= :today AND (i.endDate IS NULL OR i.endDate >= :today))")
+    int deactivateEmployeesWithStartedInactivity(@Param("userId") Long userId, @Param("today") LocalDate today);
+    
+    // Only employees with an inactivity history are reactivated, never ones that were created inactive
+    @Modifying
+    @Query("UPDATE Employee e SET e.status = 'ACTIVE' " +
+           "WHERE e.user.id = :userId AND e.status = 'INACTIVE' " +
+           "AND EXISTS (SELECT i FROM EmployeeInactivity i WHERE i.employee = e AND i.endDate < :today) " +
+           "AND NOT EXISTS (SELECT i FROM EmployeeInactivity i WHERE i.employee = e " +
+           "AND i.startDate <= :today AND (i.endDate IS NULL OR i.endDate >= :today))")
+    int reactivateEmployeesWithEndedInactivity(@Param("userId") Long userId, @Param("today") LocalDate today);
+
+    // Whether any salary, leave or message history of an employee has been archived
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM salaries_archive WHERE employee_id = :employeeId) " +
+                   "OR EXISTS (SELECT 1 FROM leave_requests_archive WHERE employee_id = :employeeId) " +
+                   "OR EXISTS (SELECT 1 FROM messages_archive WHERE recipient_id = :employeeId)", nativeQuery = true)
+    List<Boolean> hasArchivedHistory(@Param("employeeId") Long employeeId);
+
+    // Self-service profile of an employee of the tenant: the employee, department and company name
+    @Query(value = "SELECT e.id, e.full_name, e.email, e.phone, e.role, d.name, e.contract_type, e.contract_start, " +
+                   "e.contract_end, e.status, u.company_name FROM employees e JOIN users u ON u.id = e.user_id " +
+                   "LEFT JOIN departments d ON d.id = e.department_id " +
+                   "WHERE e.id = :employeeId AND e.user_id = :userId", nativeQuery = true)
+    List<Object[]> findSelfServiceProfile(@Param("employeeId") Long employeeId, @Param("userId") Long userId);
 }
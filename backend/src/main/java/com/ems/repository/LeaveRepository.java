@@ -1,22 +1,32 @@
 package com.ems.repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.ems.dto.DepartmentMonthCount;
+import com.ems.dto.LeaveTotals;
 import com.ems.model.Department;
 import com.ems.model.Employee;
 import com.ems.model.Leave;
 import com.ems.model.User;
 import com.ems.model.Leave.Status;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
 /**
  * Repository for leave request management
  */
@@ -43,6 +53,16 @@ public interface LeaveRepository extends JpaRepository<Leave, Long> {
     @Query("SELECT l FROM Leave l WHERE l.employee.user = :user ORDER BY l.requestDate DESC")
     List<Leave> findByUser(@Param("user") User user);
     
+    /**
+     * Stream all leaves for a user's company with a cursor, with the employee columns the list shows
+     * in the same row instead of the employee entity: leave, employee id, name, email and status,
+     * department id and name
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT l, e.id, e.name, e.email, e.status, d.id, d.name FROM Leave l JOIN l.employee e LEFT JOIN e.department d " +
+           "WHERE e.user = :user ORDER BY l.requestDate DESC")
+    Stream<Object[]> streamListRowsByUser(@Param("user") User user);
+    
     /**
      * Find a specific leave by ID and user
      */
@@ -61,6 +81,28 @@ public interface LeaveRepository extends JpaRepository<Leave, Long> {
     @Query("SELECT l.status AS status, COUNT(l) AS count FROM Leave l WHERE l.employee.user = :user GROUP BY l.status")
     List<Object[]> countLeavesByStatus(@Param("user") User user);
     
+    /**
+     * Count leaves by status, and approved leaves in progress on a date, in one scan
+     */
+    @Query("SELECT new com.ems.dto.LeaveTotals(COUNT(l), " +
+           "SUM(CASE WHEN l.status = :pending THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN l.status = :approved THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN l.status = :denied THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN l.status = :approved AND :currentDate BETWEEN l.startDate AND l.endDate THEN 1 ELSE 0 END)) " +
+           "FROM Leave l WHERE l.employee.user = :user")
+    LeaveTotals getLeaveTotals(@Param("user") User user, @Param("pending") Status pending,
+                               @Param("approved") Status approved, @Param("denied") Status denied,
+                               @Param("currentDate") LocalDate currentDate);
+    
+    /**
+     * Count leaves with a status per department and start month, in one scan
+     */
+    @Query("SELECT new com.ems.dto.DepartmentMonthCount(d.name, EXTRACT(YEAR FROM l.startDate), EXTRACT(MONTH FROM l.startDate), COUNT(l)) " +
+           "FROM Leave l JOIN l.employee e LEFT JOIN e.department d " +
+           "WHERE e.user = :user AND l.status = :status " +
+           "GROUP BY d.name, EXTRACT(YEAR FROM l.startDate), EXTRACT(MONTH FROM l.startDate)")
+    List<DepartmentMonthCount> countLeavesByDepartmentAndMonth(@Param("user") User user, @Param("status") Status status);
+    
     /**
      * Count leaves by user and status
      */
@@ -93,6 +135,33 @@ public interface LeaveRepository extends JpaRepository<Leave, Long> {
             @Param("startDate") LocalDate startDate, 
             @Param("endDate") LocalDate endDate);
     
+    /**
+     * Lock a batch of leave requests of a company for a decision, with their employees
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM Leave l JOIN FETCH l.employee e WHERE l.id IN :ids AND e.user = :user ORDER BY l.startDate, l.id")
+    List<Leave> findByIdsAndUserForUpdate(@Param("ids") List<Long> ids, @Param("user") User user);
+    
+    /**
+     * Approved leave intervals of several employees within a date range, for batch overlap checks
+     */
+    @Query("SELECT l.employee.id, l.startDate, l.endDate FROM Leave l WHERE l.employee.id IN :employeeIds " +
+           "AND l.status = 'APPROVED' AND l.startDate <= :endDate AND l.endDate >= :startDate")
+    List<Object[]> findApprovedIntervalsForEmployees(
+            @Param("employeeIds") List<Long> employeeIds, 
+            @Param("startDate") LocalDate startDate, 
+            @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Record the same decision on a batch of pending leave requests
+     */
+    @Modifying
+    @Query("UPDATE Leave l SET l.status = :status, l.decisionDate = :decisionDate WHERE l.id IN :ids AND l.status = 'PENDING'")
+    int updateStatusForPendingLeaves(
+            @Param("ids") List<Long> ids, 
+            @Param("status") Status status, 
+            @Param("decisionDate") LocalDateTime decisionDate);
+    
     /**
      * Find current active leave for an employee
      */
@@ -189,4 +258,53 @@ public interface LeaveRepository extends JpaRepository<Leave, Long> {
            "AND LOWER(l.employee.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
            "ORDER BY l.requestDate DESC")
     List<Leave> searchLeavesByEmployeeName(@Param("user") User user, @Param("searchTerm") String searchTerm);
+    
+    /**
+     * Lock one batch of a tenant's decided leave requests that ended before a date, to be moved to the archive table
+     */
+    @Query(value = "SELECT l.id FROM leave_requests l " +
+                   "WHERE l.employee_id IN (SELECT e.id FROM employees e WHERE e.user_id = :userId) " +
+                   "AND l.leave_end < :before AND l.status IN ('APPROVED', 'DENIED') " +
+                   "ORDER BY l.id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<Long> lockArchivableIds(@Param("userId") Long userId, @Param("before") LocalDate before, @Param("limit") int limit);
+    
+    /**
+     * Copy locked leave requests to the archive table
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO leave_requests_archive (id, employee_id, request_date, leave_start, leave_end, reason, status, decision_date) " +
+                   "SELECT id, employee_id, request_date, leave_start, leave_end, reason, status, decision_date " +
+                   "FROM leave_requests WHERE id IN (:ids)", nativeQuery = true)
+    int copyToArchive(@Param("ids") List<Long> ids);
+    
+    /**
+     * How many of the given leave requests are in the archive table
+     */
+    @Query(value = "SELECT COUNT(*) FROM leave_requests_archive WHERE id IN (:ids)", nativeQuery = true)
+    long countArchivedByIds(@Param("ids") List<Long> ids);
+    
+    /**
+     * Delete leave requests that were copied to the archive
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM leave_requests WHERE id IN (:ids)", nativeQuery = true)
+    int deleteArchived(@Param("ids") List<Long> ids);
+    
+    /**
+     * Archived leave requests of an employee, newest request first
+     */
+    @Query(value = "SELECT id, request_date, leave_start, leave_end, reason, status, decision_date " +
+                   "FROM leave_requests_archive WHERE employee_id = :employeeId " +
+                   "ORDER BY request_date DESC, id DESC", nativeQuery = true)
+    List<Object[]> findArchivedByEmployeeId(@Param("employeeId") Long employeeId);
+    
+    // Self-service leave history of an employee of the tenant, hot and archived, latest start first
+    @Query(value = "WITH me AS (SELECT id FROM employees WHERE id = :employeeId AND user_id = :userId) " +
+                   "SELECT l.id, l.request_date, l.leave_start, l.leave_end, l.reason, l.status, l.decision_date, false AS archived " +
+                   "FROM leave_requests l JOIN me ON me.id = l.employee_id " +
+                   "UNION ALL " +
+                   "SELECT a.id, a.request_date, a.leave_start, a.leave_end, a.reason, a.status, a.decision_date, true " +
+                   "FROM leave_requests_archive a JOIN me ON me.id = a.employee_id " +
+                   "ORDER BY 3 DESC, 1 DESC", nativeQuery = true)
+    List<Object[]> findSelfServiceHistory(@Param("employeeId") Long employeeId, @Param("userId") Long userId);
 }
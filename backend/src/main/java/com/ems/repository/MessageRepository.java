@@ -7,10 +7,13 @@ import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.ems.dto.DepartmentMonthCount;
+import com.ems.dto.MessageTotals;
 import com.ems.model.Employee;
 import com.ems.model.Message;
 import com.ems.model.User;
@@ -68,6 +71,26 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     @Query("SELECT m FROM Message m WHERE m.sender = :user AND m.status = :status ORDER BY m.sentAt DESC")
     List<Message> findBySenderAndStatus(@Param("user") User user, @Param("status") Status status);
     
+    /**
+     * Count messages by status and read flag in one scan
+     */
+    @Query("SELECT new com.ems.dto.MessageTotals(COUNT(m), " +
+           "SUM(CASE WHEN m.status = :sent THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN m.status = :delivered THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN m.status = :failed THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN m.isRead = true THEN 1 ELSE 0 END)) " +
+           "FROM Message m WHERE m.sender = :user")
+    MessageTotals getMessageTotals(@Param("user") User user, @Param("sent") Status sent,
+                                   @Param("delivered") Status delivered, @Param("failed") Status failed);
+    
+    /**
+     * Count messages per recipient department and month sent, in one scan
+     */
+    @Query("SELECT new com.ems.dto.DepartmentMonthCount(d.name, EXTRACT(YEAR FROM m.sentAt), EXTRACT(MONTH FROM m.sentAt), COUNT(m)) " +
+           "FROM Message m LEFT JOIN m.employee e LEFT JOIN e.department d WHERE m.sender = :user " +
+           "GROUP BY d.name, EXTRACT(YEAR FROM m.sentAt), EXTRACT(MONTH FROM m.sentAt)")
+    List<DepartmentMonthCount> countMessagesByDepartmentAndMonth(@Param("user") User user);
+    
     /**
      * Count messages by status
      */
@@ -110,13 +133,13 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findByDepartment(@Param("user") User user, @Param("departmentId") Long departmentId);
     
     /**
-     * Get message statistics by month
+     * Get message statistics by month, for messages sent since a date
      */
     @Query("SELECT EXTRACT(YEAR FROM m.sentAt) as year, EXTRACT(MONTH FROM m.sentAt) as month, COUNT(m) as count " +
-           "FROM Message m WHERE m.sender = :user " +
+           "FROM Message m WHERE m.sender = :user AND m.sentAt >= :since " +
            "GROUP BY EXTRACT(YEAR FROM m.sentAt), EXTRACT(MONTH FROM m.sentAt) " +
            "ORDER BY EXTRACT(YEAR FROM m.sentAt) DESC, EXTRACT(MONTH FROM m.sentAt) DESC")
-    List<Object[]> getMessageStatsByMonth(@Param("user") User user);
+    List<Object[]> getMessageStatsByMonth(@Param("user") User user, @Param("since") LocalDateTime since);
     
     /**
      * Get message counts by recipient department
@@ -141,4 +164,49 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     @Query("SELECT m FROM Message m WHERE m.sender = :user " +
            "ORDER BY m.sentAt DESC")
     List<Message> findRecentMessages(@Param("user") User user, Pageable pageable);
-}
\ No newline at end of file
+    
+    /**
+     * Lock one batch of a tenant's messages sent before a time, to be moved to the archive table
+     */
+    @Query(value = "SELECT m.id FROM messages m WHERE m.sender_id = :userId AND m.sent_at < :before " +
+                   "ORDER BY m.id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<Long> lockArchivableIds(@Param("userId") Long userId, @Param("before") LocalDateTime before, @Param("limit") int limit);
+    
+    /**
+     * Copy locked messages to the archive table
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO messages_archive (id, sender_id, recipient_id, subject, content, sent_at, is_read, read_at, status) " +
+                   "SELECT id, sender_id, recipient_id, subject, content, sent_at, is_read, read_at, status " +
+                   "FROM messages WHERE id IN (:ids)", nativeQuery = true)
+    int copyToArchive(@Param("ids") List<Long> ids);
+    
+    /**
+     * How many of the given messages are in the archive table
+     */
+    @Query(value = "SELECT COUNT(*) FROM messages_archive WHERE id IN (:ids)", nativeQuery = true)
+    long countArchivedByIds(@Param("ids") List<Long> ids);
+    
+    /**
+     * Delete messages that were copied to the archive
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM messages WHERE id IN (:ids)", nativeQuery = true)
+    int deleteArchived(@Param("ids") List<Long> ids);
+    
+    /**
+     * Archived messages of an employee, newest first
+     */
+    @Query(value = "SELECT id, subject, content, sent_at, is_read, read_at, status " +
+                   "FROM messages_archive WHERE recipient_id = :employeeId ORDER BY sent_at DESC", nativeQuery = true)
+    List<Object[]> findArchivedByEmployeeId(@Param("employeeId") Long employeeId);
+    
+    // Latest unread messages of an employee of the tenant, each row with the total unread count.
+    // Archived messages are older than the archive horizon and not listed.
+    @Query(value = "SELECT m.id, u.full_name, m.subject, m.content, m.sent_at, COUNT(*) OVER () AS unread " +
+                   "FROM messages m JOIN employees e ON e.id = m.recipient_id JOIN users u ON u.id = m.sender_id " +
+                   "WHERE m.recipient_id = :employeeId AND e.user_id = :userId AND m.is_read = false " +
+                   "ORDER BY m.sent_at DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findSelfServiceUnread(@Param("employeeId") Long employeeId, @Param("userId") Long userId,
+            @Param("limit") int limit);
+}
@@ -0,0 +1,48 @@
+package com.ems.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.ems.model.SalaryPeriodSummary;
+import com.ems.model.User;
+
+/**
+ * Repository for the salary period catalog
+ */
+@Repository
+public interface SalaryPeriodSummaryRepository extends JpaRepository<SalaryPeriodSummary, Long> {
+
+    // Periods that still have salaries, newest first
+    @Query("SELECT p FROM SalaryPeriodSummary p WHERE p.user = :user AND p.headcount > 0 " +
+           "ORDER BY p.periodYear DESC, p.periodMonth DESC")
+    List<SalaryPeriodSummary> findActivePeriodsByUser(@Param("user") User user);
+
+    // Periods that still have salaries, oldest first (for trend charts)
+    @Query("SELECT p FROM SalaryPeriodSummary p WHERE p.user = :user AND p.headcount > 0 " +
+           "ORDER BY p.periodYear ASC, p.periodMonth ASC")
+    List<SalaryPeriodSummary> findActivePeriodsByUserChronological(@Param("user") User user);
+
+    // Add deltas to a period's totals, creating the row on the first salary of the period.
+    // Deltas commute, so concurrent writers of the same period never overwrite each other.
+    @Modifying
+    @Query(value = "INSERT INTO salary_period_summaries (user_id, period_year, period_month, headcount, gross_total, " +
+                   "net_total, tax_total, insurance_total, other_deductions_total, updated_at) " +
+                   "VALUES (:userId, :year, :month, :headcount, :gross, :net, :tax, :insurance, :other, now()) " +
+                   "ON CONFLICT (user_id, period_year, period_month) DO UPDATE SET " +
+                   "headcount = salary_period_summaries.headcount + EXCLUDED.headcount, " +
+                   "gross_total = salary_period_summaries.gross_total + EXCLUDED.gross_total, " +
+                   "net_total = salary_period_summaries.net_total + EXCLUDED.net_total, " +
+                   "tax_total = salary_period_summaries.tax_total + EXCLUDED.tax_total, " +
+                   "insurance_total = salary_period_summaries.insurance_total + EXCLUDED.insurance_total, " +
+                   "other_deductions_total = salary_period_summaries.other_deductions_total + EXCLUDED.other_deductions_total, " +
+                   "updated_at = now()", nativeQuery = true)
+    int applyDelta(@Param("userId") Long userId, @Param("year") Integer year, @Param("month") Integer month,
+                   @Param("headcount") int headcount, @Param("gross") BigDecimal gross, @Param("net") BigDecimal net,
+                   @Param("tax") BigDecimal tax, @Param("insurance") BigDecimal insurance, @Param("other") BigDecimal other);
+}
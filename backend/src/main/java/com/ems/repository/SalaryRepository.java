@@ -2,11 +2,14 @@ package com.ems.repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -17,6 +20,8 @@ import com.ems.model.User;
 import com.ems.model.Employee.ContractType;
 import com.ems.model.Employee.Status;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface SalaryRepository extends JpaRepository<Salary, Long> {
     // Basic queries
@@ -33,6 +38,17 @@ public interface SalaryRepository extends JpaRepository<Salary, Long> {
     @Query("SELECT s FROM Salary s WHERE s.employee.user = :user ORDER BY s.salaryYear DESC, s.salaryMonth DESC")
     List<Salary> findByUser(@Param("user") User user);
     
+    /**
+     * Stream a company's salaries with a cursor, as list rows: id, employee id, name, email and role,
+     * department name, gross, net, tax, insurance and other deductions, month, year and created at
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("SELECT s.id, e.id, e.name, e.email, e.role, d.name, s.grossSalary, s.netSalary, s.taxDeduction, " +
+           "s.insuranceDeduction, s.otherDeductions, s.salaryMonth, s.salaryYear, s.createdAt " +
+           "FROM Salary s JOIN s.employee e LEFT JOIN e.department d WHERE e.user = :user " +
+           "ORDER BY s.salaryYear DESC, s.salaryMonth DESC")
+    Stream<Object[]> streamListRowsByUser(@Param("user") User user);
+    
     @Query("SELECT s FROM Salary s WHERE s.employee.user = :user ORDER BY s.salaryYear DESC, s.salaryMonth DESC")
     Page<Salary> findByUserPaginated(@Param("user") User user, Pageable pageable);
     
@@ -110,6 +126,58 @@ public interface SalaryRepository extends JpaRepository<Salary, Long> {
     @Query("SELECT s FROM Salary s WHERE s.employee.user = :user AND s.salaryYear = :year AND s.salaryMonth = :month")
     List<Salary> findByUserAndYearAndMonth(@Param("user") User user, @Param("year") Integer year, @Param("month") Integer month);
     
+    // Scalar columns of a period for what-if simulations; no entity is loaded into the persistence context
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT s.id, s.grossSalary, e.role, e.contractType, d.id FROM Salary s JOIN s.employee e LEFT JOIN e.department d " +
+           "WHERE e.user = :user AND s.salaryYear = :year AND s.salaryMonth = :month ORDER BY s.id")
+    List<Object[]> findSimulationRowsByUserAndYearAndMonth(@Param("user") User user, @Param("year") Integer year, @Param("month") Integer month);
+    
+    // Lock the salaries of a period that have a deduction matching a rule, before the rule is applied
+    @Query(value = "SELECT s.id FROM salaries s JOIN employees e ON e.id = s.employee_id " +
+                   "WHERE e.user_id = :userId AND s.salary_year = :year AND s.salary_month = :month " +
+                   "AND EXISTS (SELECT 1 FROM salary_deductions d WHERE d.salary_id = s.id AND d.deduction_type = :type " +
+                   "AND (CAST(:name AS text) IS NULL OR LOWER(d.name) = LOWER(CAST(:name AS text)))) " +
+                   "ORDER BY s.id FOR UPDATE OF s", nativeQuery = true)
+    List<Long> lockSalaryIdsForDeductionRule(@Param("userId") Long userId, @Param("year") Integer year, @Param("month") Integer month,
+                                             @Param("type") String type, @Param("name") String name);
+    
+    // Recalculate deduction totals and net of the salaries of a period that have a deduction matching a rule,
+    // rounding each deduction to cents like Salary.calculateNetSalary, and add the change to the period catalog row
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "WITH affected AS (" +
+                   "  SELECT s.id, s.gross_salary, s.net_salary, s.tax_deduction, s.insurance_deduction, s.other_deductions " +
+                   "  FROM salaries s JOIN employees e ON e.id = s.employee_id " +
+                   "  WHERE e.user_id = :userId AND s.salary_year = :year AND s.salary_month = :month " +
+                   "  AND EXISTS (SELECT 1 FROM salary_deductions d WHERE d.salary_id = s.id AND d.deduction_type = :type " +
+                   "  AND (CAST(:name AS text) IS NULL OR LOWER(d.name) = LOWER(CAST(:name AS text))))), " +
+                   "totals AS (" +
+                   "  SELECT a.id, " +
+                   "  SUM(CASE WHEN d.deduction_type = 'TAX' THEN x.amount ELSE 0 END) AS tax, " +
+                   "  SUM(CASE WHEN d.deduction_type = 'INSURANCE' THEN x.amount ELSE 0 END) AS insurance, " +
+                   "  SUM(CASE WHEN d.deduction_type NOT IN ('TAX', 'INSURANCE') THEN x.amount ELSE 0 END) AS other " +
+                   "  FROM affected a JOIN salary_deductions d ON d.salary_id = a.id " +
+                   "  CROSS JOIN LATERAL (SELECT CASE WHEN d.is_percentage THEN ROUND(a.gross_salary * d.deduction_value / 100, 2) " +
+                   "                      ELSE ROUND(d.deduction_value, 2) END AS amount) x " +
+                   "  GROUP BY a.id), " +
+                   "updated AS (" +
+                   "  UPDATE salaries s SET tax_deduction = t.tax, insurance_deduction = t.insurance, other_deductions = t.other, " +
+                   "  net_salary = GREATEST(s.gross_salary - t.tax - t.insurance - t.other, 0) " +
+                   "  FROM totals t WHERE s.id = t.id AND s.salary_year = :year " +
+                   "  RETURNING s.id, s.net_salary, s.tax_deduction, s.insurance_deduction, s.other_deductions) " +
+                   "INSERT INTO salary_period_summaries (user_id, period_year, period_month, headcount, gross_total, " +
+                   "net_total, tax_total, insurance_total, other_deductions_total, updated_at) " +
+                   "SELECT :userId, :year, :month, 0, 0, SUM(u.net_salary - a.net_salary), SUM(u.tax_deduction - a.tax_deduction), " +
+                   "SUM(u.insurance_deduction - a.insurance_deduction), SUM(u.other_deductions - a.other_deductions), now() " +
+                   "FROM updated u JOIN affected a ON a.id = u.id HAVING COUNT(*) > 0 " +
+                   "ON CONFLICT (user_id, period_year, period_month) DO UPDATE SET " +
+                   "net_total = salary_period_summaries.net_total + EXCLUDED.net_total, " +
+                   "tax_total = salary_period_summaries.tax_total + EXCLUDED.tax_total, " +
+                   "insurance_total = salary_period_summaries.insurance_total + EXCLUDED.insurance_total, " +
+                   "other_deductions_total = salary_period_summaries.other_deductions_total + EXCLUDED.other_deductions_total, " +
+                   "updated_at = now()", nativeQuery = true)
+    int recalculateTotalsForDeductionRule(@Param("userId") Long userId, @Param("year") Integer year, @Param("month") Integer month,
+                                          @Param("type") String type, @Param("name") String name);
+    
     // Historical trend queries
     @Query("SELECT s.salaryYear, s.salaryMonth, SUM(s.grossSalary) FROM Salary s WHERE s.employee.user = :user " +
            "GROUP BY s.salaryYear, s.salaryMonth ORDER BY s.salaryYear, s.salaryMonth")
@@ -148,4 +216,71 @@ public interface SalaryRepository extends JpaRepository<Salary, Long> {
     @Query("SELECT s FROM Salary s WHERE s.employee.id = :employeeId " +
            "ORDER BY s.salaryYear DESC, s.salaryMonth DESC")
     List<Salary> findByEmployeeIdOrderByYearDescMonthDesc(@Param("employeeId") Long employeeId);
+    
+    // Archive: lock one batch of a tenant's salaries from before a period. Periods are compared as year * 12 + month.
+    // HistoryArchiveService copies the batch with its deductions to the archive tables, counts it there and only then deletes it.
+    @Query(value = "SELECT s.id FROM salaries s " +
+                   "WHERE s.employee_id IN (SELECT e.id FROM employees e WHERE e.user_id = :userId) " +
+                   "AND s.salary_year * 12 + s.salary_month < :beforePeriod " +
+                   "ORDER BY s.id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<Long> lockArchivableIds(@Param("userId") Long userId, @Param("beforePeriod") int beforePeriod, @Param("limit") int limit);
+    
+    // Archive: copy locked salaries to the archive table
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO salaries_archive (id, employee_id, gross_salary, tax_deduction, insurance_deduction, " +
+                   "other_deductions, net_salary, salary_month, salary_year, created_at) " +
+                   "SELECT id, employee_id, gross_salary, tax_deduction, insurance_deduction, other_deductions, " +
+                   "net_salary, salary_month, salary_year, created_at FROM salaries WHERE id IN (:ids)", nativeQuery = true)
+    int copyToArchive(@Param("ids") List<Long> ids);
+    
+    // Archive: copy the deductions of locked salaries to the archive table
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO salary_deductions_archive (id, salary_id, deduction_type, name, deduction_value, is_percentage) " +
+                   "SELECT id, salary_id, deduction_type, name, deduction_value, is_percentage " +
+                   "FROM salary_deductions WHERE salary_id IN (:salaryIds)", nativeQuery = true)
+    int copyDeductionsToArchive(@Param("salaryIds") List<Long> salaryIds);
+    
+    // Archive: how many of the given salaries are in the archive table
+    @Query(value = "SELECT COUNT(*) FROM salaries_archive WHERE id IN (:ids)", nativeQuery = true)
+    long countArchivedByIds(@Param("ids") List<Long> ids);
+    
+    // Archive: how many deductions of the given salaries are in the archive table
+    @Query(value = "SELECT COUNT(*) FROM salary_deductions_archive WHERE salary_id IN (:salaryIds)", nativeQuery = true)
+    long countArchivedDeductionsBySalaryIds(@Param("salaryIds") List<Long> salaryIds);
+    
+    // Archive: delete the deductions of salaries that were copied to the archive
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM salary_deductions WHERE salary_id IN (:salaryIds)", nativeQuery = true)
+    int deleteArchivedDeductions(@Param("salaryIds") List<Long> salaryIds);
+    
+    // Archive: delete salaries that were copied to the archive
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM salaries WHERE id IN (:ids)", nativeQuery = true)
+    int deleteArchived(@Param("ids") List<Long> ids);
+    
+    // Archived salaries of an employee, newest period first
+    @Query(value = "SELECT id, gross_salary, tax_deduction, insurance_deduction, other_deductions, net_salary, " +
+                   "salary_month, salary_year, created_at FROM salaries_archive WHERE employee_id = :employeeId " +
+                   "ORDER BY salary_year DESC, salary_month DESC", nativeQuery = true)
+    List<Object[]> findArchivedByEmployeeId(@Param("employeeId") Long employeeId);
+    
+    // Archived deductions of the given archived salaries
+    @Query(value = "SELECT salary_id, id, deduction_type, name, deduction_value, is_percentage " +
+                   "FROM salary_deductions_archive WHERE salary_id IN (:salaryIds) ORDER BY id", nativeQuery = true)
+    List<Object[]> findArchivedDeductionsBySalaryIds(@Param("salaryIds") List<Long> salaryIds);
+    
+    // Self-service salary history of an employee of the tenant, hot and archived, newest period first
+    @Query(value = "WITH me AS (SELECT id FROM employees WHERE id = :employeeId AND user_id = :userId) " +
+                   "SELECT s.id, s.salary_year, s.salary_month, s.gross_salary, s.tax_deduction, s.insurance_deduction, " +
+                   "s.other_deductions, s.net_salary, false AS archived FROM salaries s JOIN me ON me.id = s.employee_id " +
+                   "UNION ALL " +
+                   "SELECT a.id, a.salary_year, a.salary_month, a.gross_salary, a.tax_deduction, a.insurance_deduction, " +
+                   "a.other_deductions, a.net_salary, true FROM salaries_archive a JOIN me ON me.id = a.employee_id " +
+                   "ORDER BY 2 DESC, 3 DESC", nativeQuery = true)
+    List<Object[]> findSelfServiceHistory(@Param("employeeId") Long employeeId, @Param("userId") Long userId);
+    
+    // Gross payroll of an employee per month of a year, for moving it between department budgets
+    @Query("SELECT s.salaryMonth, SUM(s.grossSalary) FROM Salary s WHERE s.employee.id = :employeeId " +
+           "AND s.salaryYear = :year GROUP BY s.salaryMonth")
+    List<Object[]> sumGrossByMonth(@Param("employeeId") Long employeeId, @Param("year") Integer year);
 }
@@ -16,6 +16,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     List<Boolean> existsByEmail(String email);
     
+    /**
+     * Login accounts with this email, managers first, in one round trip:
+     * kind ('M' or 'E'), id, tenant id, password hash, active, activated, comma separated roles.
+     * Also run per shard over JDBC when tenants are sharded.
+     */
+    String LOGIN_ACCOUNTS_SQL = "SELECT 'M' AS kind, u.id, u.id AS tenant_id, u.password_hash, u.is_active AS active, TRUE AS activated, " +
+           "(SELECT string_agg(r.role, ',') FROM user_roles r WHERE r.user_id = u.id) AS roles " +
+           "FROM users u WHERE u.email = :email " +
+           "UNION ALL " +
+           "SELECT 'E', e.id, e.user_id, e.password_hash, e.status = 'ACTIVE', e.is_account_activated, " +
+           "(SELECT string_agg(r.role, ',') FROM employee_roles r WHERE r.employee_id = e.id) " +
+           "FROM employees e WHERE e.email = :email " +
+           "ORDER BY kind DESC, id";
+    
+    @Query(value = LOGIN_ACCOUNTS_SQL, nativeQuery = true)
+    List<Object[]> findLoginAccounts(@Param("email") String email);
+    
     List<User> findByResetToken(String resetToken);
     
     List<Boolean> existsByResetToken(String resetToken);
@@ -34,4 +51,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     @Query("SELECT COUNT(u) FROM User u WHERE u.roles LIKE %:role%")
     List<Long> countByRole(@Param("role") String role);
+    
+    @Query("SELECT u.id, u.archiveHorizonMonths FROM User u WHERE u.archiveHorizonMonths > 0")
+    List<Object[]> findArchiveHorizons();
 }
@@ -0,0 +1,281 @@
+package com.ems.security;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.ems.dto.ApiResponse;
+import com.ems.security.IdempotencyStore.Claim;
+import com.ems.security.IdempotencyStore.Entry;
+import com.ems.security.IdempotencyStore.StoredResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Makes POST requests carrying an Idempotency-Key header safe to retry.
+ *
+ * The first request with a key runs normally and its response is stored per tenant
+ * and principal; repeats get the stored response without reaching the controller,
+ * and a repeat arriving while the first is still running waits for it. Reusing a
+ * key for a different request is rejected with 422. A response too large to keep is
+ * replayed as its status with a short note instead, so a repeat still never runs twice.
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    // A failed first request frees the key; waiting repeats then try to run it themselves
+    private static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private final IdempotencyStore store;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    public IdempotencyFilter(IdempotencyStore store) {
+        this.store = store;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod()) || request.getHeader(HEADER) == null) {
+            return true;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String pattern : store.getPaths()) {
+            if (pathMatcher.match(pattern.trim(), path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Long tenantId = TenantContext.getTenantId();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (tenantId == null || authentication == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        // The body is held in memory to fingerprint it, so its size is bounded, declared or not
+        int maxRequestBytes = store.getMaxRequestBytes();
+        byte[] body = request.getContentLengthLong() > maxRequestBytes ? null
+                : request.getInputStream().readNBytes(maxRequestBytes + 1);
+        if (body == null || body.length > maxRequestBytes) {
+            writeError(response, HttpStatus.PAYLOAD_TOO_LARGE, "Request body is larger than " + maxRequestBytes + " bytes");
+            return;
+        }
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request, body);
+        String scopedKey = authentication.getName() + ':' + key;
+        String fingerprint = fingerprint(request, body);
+
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            Claim claim = store.claim(tenantId, scopedKey, fingerprint);
+            Entry entry = claim.entry();
+
+            if (!entry.getFingerprint().equals(fingerprint)) {
+                writeError(response, HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used for a different request");
+                return;
+            }
+
+            if (claim.owner()) {
+                execute(cachedRequest, response, filterChain, tenantId, scopedKey, entry);
+                return;
+            }
+
+            StoredResponse stored;
+            try {
+                stored = entry.getResponse().get(store.getWaitTimeoutSeconds(), TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                writeError(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still being processed");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                writeError(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still being processed");
+                return;
+            } catch (ExecutionException e) {
+                stored = null;
+            }
+
+            if (stored != null) {
+                replay(response, stored);
+                return;
+            }
+        }
+
+        writeError(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " could not be completed, please retry");
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+            Long tenantId, String scopedKey, Entry entry) throws ServletException, IOException {
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            filterChain.doFilter(request, responseWrapper);
+
+            // Server errors are not stored, so a retry gets another chance
+            int status = responseWrapper.getStatus();
+            if (status < 500) {
+                String location = responseWrapper.getHeader(HttpHeaders.LOCATION);
+                byte[] body = responseWrapper.getContentAsByteArray();
+                if (body.length <= store.getMaxResponseBytes()) {
+                    store.complete(entry, new StoredResponse(status, responseWrapper.getContentType(), location, body));
+                } else {
+                    // The request took effect, so a repeat must not run it again even though its body is not kept
+                    store.complete(entry, new StoredResponse(status, MediaType.APPLICATION_JSON_VALUE, location,
+                            objectMapper.writeValueAsBytes(new ApiResponse(status < 400,
+                                    "This request was already processed; its response was too large to keep for replay"))));
+                }
+                stored = true;
+            }
+        } finally {
+            if (!stored) {
+                store.abandon(tenantId, scopedKey, entry);
+            }
+            responseWrapper.copyBodyToResponse();
+        }
+    }
+
+    private void replay(HttpServletResponse response, StoredResponse stored) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.location() != null) {
+            response.setHeader(HttpHeaders.LOCATION, stored.location());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse(false, message));
+    }
+
+    private String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(request.getMethod().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(request.getRequestURI().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            if (request.getQueryString() != null) {
+                digest.update(request.getQueryString().getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Request whose body has been read up front so it can be fingerprinted and still reach the controller
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is in memory: it is available, and then fully read, right away
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            listener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int available() {
+                    return input.available();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), Charset.forName(encoding)));
+        }
+    }
+}
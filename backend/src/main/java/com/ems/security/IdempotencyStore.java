@@ -0,0 +1,170 @@
+package com.ems.security;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded, expiring store of responses to requests carrying an Idempotency-Key.
+ * Entries are kept per tenant, so one tenant's traffic never evicts another's.
+ */
+@Component
+public class IdempotencyStore {
+
+    @Value("${ems.idempotency.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Value("${ems.idempotency.max-entries-per-tenant:1000}")
+    private int maxEntriesPerTenant;
+
+    @Value("${ems.idempotency.max-response-bytes:1048576}")
+    private int maxResponseBytes;
+
+    @Value("${ems.idempotency.max-request-bytes:1048576}")
+    private int maxRequestBytes;
+
+    @Value("${ems.idempotency.wait-timeout-seconds:30}")
+    private long waitTimeoutSeconds;
+
+    @Value("${ems.idempotency.paths:/api/salaries,/api/leaves,/api/messages,/api/employees}")
+    private String[] paths;
+
+    private final Map<Long, Map<String, Entry>> tenants = new ConcurrentHashMap<>();
+
+    /**
+     * A response that completed and may be replayed
+     */
+    public record StoredResponse(int status, String contentType, String location, byte[] body) {
+    }
+
+    /**
+     * A key's state: in flight until its future completes with the stored response,
+     * or with null when the first request failed and nothing was stored
+     */
+    public static final class Entry {
+
+        private final String fingerprint;
+        private final long expiresAt;
+        private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+        private Entry(String fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public CompletableFuture<StoredResponse> getResponse() {
+            return response;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    /**
+     * Result of claiming a key: either this request owns it and must run, or an earlier entry exists
+     */
+    public record Claim(Entry entry, boolean owner) {
+    }
+
+    /**
+     * Claim a key for a request, or return the entry of the request that already claimed it
+     */
+    public Claim claim(Long tenantId, String key, String fingerprint) {
+        Map<String, Entry> entries = tenants.computeIfAbsent(tenantId, id -> newTenantMap());
+        long now = System.currentTimeMillis();
+
+        synchronized (entries) {
+            Entry existing = entries.get(key);
+            if (existing != null && !existing.isExpired(now)) {
+                return new Claim(existing, false);
+            }
+
+            // Drop expired keys before the size bound starts evicting live ones
+            if (entries.size() >= maxEntriesPerTenant) {
+                evictExpired(entries, now);
+            }
+            Entry entry = new Entry(fingerprint, now + ttlSeconds * 1000);
+            entries.put(key, entry);
+            return new Claim(entry, true);
+        }
+    }
+
+    /**
+     * Store the completed response of a claimed key and release any waiting requests
+     */
+    public void complete(Entry entry, StoredResponse response) {
+        entry.response.complete(response);
+    }
+
+    /**
+     * Forget a claimed key whose request failed, so a retry runs again
+     */
+    public void abandon(Long tenantId, String key, Entry entry) {
+        Map<String, Entry> entries = tenants.get(tenantId);
+        if (entries != null) {
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+        }
+        entry.response.complete(null);
+    }
+
+    /**
+     * Largest response body that is kept for replay
+     */
+    public int getMaxResponseBytes() {
+        return maxResponseBytes;
+    }
+
+    /**
+     * Largest request body that is read for fingerprinting; larger requests are refused
+     */
+    public int getMaxRequestBytes() {
+        return maxRequestBytes;
+    }
+
+    /**
+     * How long a repeated request waits for the first one to finish
+     */
+    public long getWaitTimeoutSeconds() {
+        return waitTimeoutSeconds;
+    }
+
+    /**
+     * Path patterns, relative to the context path, whose POST requests honour the Idempotency-Key header
+     */
+    public String[] getPaths() {
+        return paths;
+    }
+
+    private void evictExpired(Map<String, Entry> entries, long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isExpired(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // Insertion ordered, so once the tenant is full the oldest key goes first
+    private Map<String, Entry> newTenantMap() {
+        return new LinkedHashMap<>(16, 0.75f, false) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntriesPerTenant;
+            }
+        };
+    }
+}
@@ -1,22 +1,33 @@
 package com.ems.security;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.info.InfoEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
 
 import com.ems.service.AuthService;
+import com.ems.service.ShardDirectory;
 
 @Configuration
 @EnableWebSecurity
@@ -25,6 +36,8 @@ public class JwtSecurityConfig {
     
     private final JwtTokenProvider jwtTokenProvider;
     private final AuthService authService;
+    private final IdempotencyStore idempotencyStore;
+    private final ShardDirectory shardDirectory;
     
     private static final String[] PUBLIC_URLS = {
         "/api/auth/**",
@@ -35,11 +48,57 @@ public class JwtSecurityConfig {
         "/swagger-ui.html"
     };
     
-    public JwtSecurityConfig(JwtTokenProvider jwtTokenProvider, AuthService authService) {
+    private static final String OPERATOR_ROLE = "OPERATOR";
+    
+    @Value("${ems.management.username:operator}")
+    private String operatorUsername;
+    
+    @Value("${ems.management.password:}")
+    private String operatorPassword;
+    
+    public JwtSecurityConfig(JwtTokenProvider jwtTokenProvider, AuthService authService, IdempotencyStore idempotencyStore,
+            ShardDirectory shardDirectory) {
         this.jwtTokenProvider = jwtTokenProvider;
         this.authService = authService;
+        this.idempotencyStore = idempotencyStore;
+        this.shardDirectory = shardDirectory;
+    }
+    
+    /**
+     * Actuator endpoints: health and info are open, everything else (metrics, SQL inspection, tenant moves)
+     * needs HTTP Basic with the operator account. Without a configured password nobody gets in.
+     */
+    @Order(0)
+    @Bean(name = "managementFilterChain")
+    public SecurityFilterChain managementFilterChain(HttpSecurity http) throws Exception {
+        InMemoryUserDetailsManager operators = new InMemoryUserDetailsManager();
+        if (!operatorPassword.isBlank()) {
+            operators.createUser(User.withUsername(operatorUsername)
+                    .password(jwtPasswordEncoder().encode(operatorPassword))
+                    .roles(OPERATOR_ROLE)
+                    .build());
+        }
+        DaoAuthenticationProvider operatorAuthentication = new DaoAuthenticationProvider();
+        operatorAuthentication.setPasswordEncoder(jwtPasswordEncoder());
+        operatorAuthentication.setUserDetailsService(operators);
+        
+        http
+            .securityMatcher(EndpointRequest.toAnyEndpoint())
+            .csrf().disable()
+            .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+            .and()
+            .authenticationManager(new ProviderManager(operatorAuthentication))
+            .authorizeHttpRequests()
+                .requestMatchers(EndpointRequest.to(HealthEndpoint.class, InfoEndpoint.class)).permitAll()
+                .anyRequest().hasRole(OPERATOR_ROLE)
+            .and()
+            .httpBasic();
+        
+        return http.build();
     }
     
+    // After the management chain and ahead of the legacy chain in SecurityConfig, which also matches every request
+    @Order(1)
     @Bean(name = "jwtFilterChain")
     public SecurityFilterChain jwtFilterChain(HttpSecurity http) throws Exception {
         // Configure AuthenticationManagerBuilder
@@ -61,7 +120,9 @@ public class JwtSecurityConfig {
                 .requestMatchers("/api/employee/**").hasRole("EMPLOYEE")
                 .anyRequest().authenticated()
             .and()
-            .addFilterBefore(new JwtTokenFilter(jwtTokenProvider), UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(new JwtTokenFilter(jwtTokenProvider, shardDirectory), UsernamePasswordAuthenticationFilter.class)
+            // Runs after authorization, so only permitted requests are stored or replayed
+            .addFilterAfter(new IdempotencyFilter(idempotencyStore), AuthorizationFilter.class);
         
         return http.build();
     }
@@ -2,10 +2,13 @@ package com.ems.security;
 
 import java.io.IOException;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.ems.service.ShardDirectory;
+
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -18,8 +21,11 @@ public class JwtTokenFilter extends OncePerRequestFilter {
     
     private JwtTokenProvider jwtTokenProvider;
     
-    public JwtTokenFilter(JwtTokenProvider jwtTokenProvider) {
+    private ShardDirectory shardDirectory;
+    
+    public JwtTokenFilter(JwtTokenProvider jwtTokenProvider, ShardDirectory shardDirectory) {
         this.jwtTokenProvider = jwtTokenProvider;
+        this.shardDirectory = shardDirectory;
     }
 
     @Override
@@ -29,16 +35,36 @@ public class JwtTokenFilter extends OncePerRequestFilter {
         
         try {
             if (token != null && jwtTokenProvider.validateToken(token)) {
+                // Expose the tenant to the rest of the request (metrics, routing, caches);
+                // its shard is resolved here once, before the account is loaded from it
+                Long tenantId = jwtTokenProvider.getTenantId(token);
+                TenantContext.setTenantId(tenantId);
+                if (tenantId != null) {
+                    if (shardDirectory.isMoving(tenantId)) {
+                        TenantContext.clear();
+                        response.setHeader(HttpHeaders.RETRY_AFTER, "30");
+                        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Account is being moved, please retry shortly");
+                        return;
+                    }
+                    TenantContext.setShard(shardDirectory.shardFor(tenantId));
+                    request.setAttribute(TenantContext.REQUEST_ATTRIBUTE, tenantId);
+                }
+                
                 Authentication auth = jwtTokenProvider.getAuthentication(token);
                 SecurityContextHolder.getContext().setAuthentication(auth);
             }
         } catch (Exception ex) {
             // Clear security context on invalid token
             SecurityContextHolder.clearContext();
+            TenantContext.clear();
             response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid token");
             return;
         }
         
-        filterChain.doFilter(request, response);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            TenantContext.clear();
+        }
     }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import java.util.stream.Collectors;
 
 import javax.crypto.SecretKey;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -31,15 +32,21 @@ import jakarta.servlet.http.HttpServletRequest;
 @Component
 public class JwtTokenProvider {
 
+    private static final String TENANT_CLAIM = "tid";
+
+    private static final String EMPLOYEE_CLAIM = "eid";
+
     @Value("${security.jwt.token.secret-key:secretKey123456789012345678901234567890}")
     private String secretKey;
     
     @Value("${security.jwt.token.expire-length:86400000}")
     private long validityInMilliseconds = 86400000; // 24h
     
-    private final AuthService authService;
+    // Looked up on use: AuthService issues tokens through this provider. A provider rather than a @Lazy
+    // proxy, whose class-based proxy breaks in the AOT build
+    private final ObjectProvider<AuthService> authService;
     
-    public JwtTokenProvider(AuthService authService) {
+    public JwtTokenProvider(ObjectProvider<AuthService> authService) {
         this.authService = authService;
     }
     
@@ -52,8 +59,25 @@ public class JwtTokenProvider {
     }
     
     public String createToken(String username, String role) {
+        return createToken(username, role, null);
+    }
+    
+    public String createToken(String username, String role, Long tenantId) {
+        return createToken(username, role, tenantId, null);
+    }
+    
+    /**
+     * Create a token; employee tokens also carry the employee id, so self-service reads need no lookup
+     */
+    public String createToken(String username, String role, Long tenantId, Long employeeId) {
         Claims claims = Jwts.claims().setSubject(username);
         claims.put("auth", List.of(new SimpleGrantedAuthority(role)));
+        if (tenantId != null) {
+            claims.put(TENANT_CLAIM, tenantId);
+        }
+        if (employeeId != null) {
+            claims.put(EMPLOYEE_CLAIM, employeeId);
+        }
         
         Date now = new Date();
         Date validity = new Date(now.getTime() + validityInMilliseconds);
@@ -67,8 +91,24 @@ public class JwtTokenProvider {
     }
     
     public Authentication getAuthentication(String token) {
-        UserDetails userDetails = authService.loadUserByUsername(getUsername(token));
-        return new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
+        Claims claims = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        UserDetails userDetails = authService.getObject().loadUserByUsername(claims.getSubject());
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
+        authentication.setDetails(new TokenDetails(longClaim(claims, TENANT_CLAIM), longClaim(claims, EMPLOYEE_CLAIM)));
+        return authentication;
+    }
+    
+    /**
+     * Get the tenant id carried by the token, or null for tokens issued without one
+     */
+    public Long getTenantId(String token) {
+        return longClaim(Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody(), TENANT_CLAIM);
+    }
+    
+    private Long longClaim(Claims claims, String name) {
+        Number value = claims.get(name, Number.class);
+        return value != null ? value.longValue() : null;
     }
     
     public String getUsername(String token) {
@@ -0,0 +1,73 @@
+package com.ems.security;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Holds the tenant (owning manager) id resolved from the JWT for the current request,
+ * and the database shard holding that tenant once it has been looked up
+ */
+public final class TenantContext {
+
+    /**
+     * Request attribute carrying the tenant id after the security chain has completed
+     */
+    public static final String REQUEST_ATTRIBUTE = TenantContext.class.getName() + ".TENANT_ID";
+
+    private static final ThreadLocal<Long> CURRENT_TENANT = new ThreadLocal<>();
+
+    private static final ThreadLocal<String> CURRENT_SHARD = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static Long getTenantId() {
+        return CURRENT_TENANT.get();
+    }
+
+    public static void setTenantId(Long tenantId) {
+        // The shard belongs to the previous tenant
+        if (!Objects.equals(tenantId, CURRENT_TENANT.get())) {
+            CURRENT_SHARD.remove();
+        }
+        if (tenantId == null) {
+            CURRENT_TENANT.remove();
+        } else {
+            CURRENT_TENANT.set(tenantId);
+        }
+    }
+
+    /**
+     * Shard the current work runs on; null until resolved, which means the tenant's shard or the primary
+     */
+    public static String getShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    public static void setShard(String shard) {
+        if (shard == null) {
+            CURRENT_SHARD.remove();
+        } else {
+            CURRENT_SHARD.set(shard);
+        }
+    }
+
+    /**
+     * Run work against one shard regardless of the tenant, e.g. a scheduled job visiting every shard.
+     * Transactions started inside use that shard; one already running keeps its connection.
+     */
+    public static <T> T onShard(String shard, Supplier<T> work) {
+        String previous = CURRENT_SHARD.get();
+        setShard(shard);
+        try {
+            return work.get();
+        } finally {
+            setShard(previous);
+        }
+    }
+
+    public static void clear() {
+        CURRENT_TENANT.remove();
+        CURRENT_SHARD.remove();
+    }
+}
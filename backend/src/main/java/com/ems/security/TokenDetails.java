@@ -0,0 +1,7 @@
+package com.ems.security;
+
+/**
+ * Ids carried by the token of an authenticated request; either may be null for older tokens
+ */
+public record TokenDetails(Long tenantId, Long employeeId) {
+}
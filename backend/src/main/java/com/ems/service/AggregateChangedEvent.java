@@ -0,0 +1,11 @@
+package com.ems.service;
+
+import java.util.List;
+
+import com.ems.service.AggregateVersionService.Aggregate;
+
+/**
+ * Published once committed writes have bumped the versions of a tenant's aggregates
+ */
+public record AggregateChangedEvent(Long tenantId, List<Aggregate> aggregates) {
+}
@@ -0,0 +1,132 @@
+package com.ems.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Per-tenant, per-aggregate version counters used to build strong ETags for read endpoints
+ */
+@Service
+public class AggregateVersionService {
+
+    /**
+     * Aggregates whose changes invalidate cached reads
+     */
+    public enum Aggregate {
+        EMPLOYEE, DEPARTMENT, LEAVE, SALARY, MESSAGE, INACTIVITY
+    }
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ClusterInvalidationBus invalidationBus;
+
+    // Counters restart at zero, so every ETag also carries a per-process epoch
+    private final long epoch = new SecureRandom().nextLong();
+
+    private final Map<Long, AtomicLongArray> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Bump the version of the given aggregates once the current transaction commits
+     */
+    public void bump(Long tenantId, Aggregate... aggregates) {
+        bumpEntity(tenantId, null, aggregates);
+    }
+
+    /**
+     * Bump the version of the given aggregates after a change to one entity, so other nodes can evict just that id
+     */
+    public void bumpEntity(Long tenantId, Long id, Aggregate... aggregates) {
+        if (tenantId == null) {
+            return;
+        }
+
+        invalidationBus.publish(tenantId, id, aggregates);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(tenantId, aggregates);
+                }
+            });
+        } else {
+            increment(tenantId, aggregates);
+        }
+    }
+
+    /**
+     * Apply changes committed on another node, so ETags and memoized reads here stop matching
+     */
+    @EventListener
+    public void onClusterInvalidation(ClusterInvalidationEvent event) {
+        if (event.tenantId() == null) {
+            versions.keySet().forEach(tenantId -> increment(tenantId, Aggregate.values()));
+        } else {
+            increment(event.tenantId(), event.aggregates().toArray(Aggregate[]::new));
+        }
+    }
+
+    /**
+     * Current version of an aggregate for a tenant
+     */
+    public long getVersion(Long tenantId, Aggregate aggregate) {
+        return counters(tenantId).get(aggregate.ordinal());
+    }
+
+    /**
+     * Build a strong ETag from the versions of the aggregates a response depends on.
+     * The principal and the current date are included because some responses are
+     * computed relative to today (current leaves, inactivity, monthly figures).
+     */
+    public String buildETag(Long tenantId, String principal, Aggregate... aggregates) {
+        AtomicLongArray counters = counters(tenantId);
+
+        StringBuilder source = new StringBuilder()
+                .append(epoch).append('|')
+                .append(tenantId).append('|')
+                .append(principal).append('|')
+                .append(LocalDate.now());
+        for (Aggregate aggregate : aggregates) {
+            source.append('|').append(aggregate.name()).append('=').append(counters.get(aggregate.ordinal()));
+        }
+
+        return "\"" + digest(source.toString()) + "\"";
+    }
+
+    private void increment(Long tenantId, Aggregate... aggregates) {
+        AtomicLongArray counters = counters(tenantId);
+        for (Aggregate aggregate : aggregates) {
+            counters.incrementAndGet(aggregate.ordinal());
+        }
+        eventPublisher.publishEvent(new AggregateChangedEvent(tenantId, List.of(aggregates)));
+    }
+
+    private AtomicLongArray counters(Long tenantId) {
+        return versions.computeIfAbsent(tenantId, id -> new AtomicLongArray(Aggregate.values().length));
+    }
+
+    private String digest(String source) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package com.ems.service;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -47,6 +45,9 @@ public class AnalyticsService {
     
     @Autowired
     private AuthService authService;
+    
+    @Autowired
+    private HeadcountTimelineService headcountTimelineService;
 
     @Transactional(readOnly = true)
     public AnalyticsDto getAnalyticsForCurrentUser() {
@@ -250,33 +251,7 @@ public class AnalyticsService {
     }
 
     private EmployeeTimelineAnalytics getEmployeeTimeline(User user) {
-        EmployeeTimelineAnalytics timeline = new EmployeeTimelineAnalytics();
-        
-        // Get data for the last 6 months
-        List<String> months = new ArrayList<>();
-        List<Integer> active = new ArrayList<>();
-        List<Integer> inactive = new ArrayList<>();
-        
-        LocalDate now = LocalDate.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM yyyy");
-        
-        for (int i = 5; i >= 0; i--) {
-            LocalDate date = now.minusMonths(i);
-            months.add(date.format(formatter));
-            
-            // TODO: Implement repository method
-            // For now, use sample data with a slight increase each month
-            long activeCount = 30 + i * 2; // Starts at 30, adds 2 each month
-            long inactiveCount = Math.max(0, 2 - i / 2); // Starts at 2, gradually decreases
-            
-            active.add((int) activeCount);
-            inactive.add((int) inactiveCount);
-        }
-        
-        timeline.setMonths(months);
-        timeline.setActive(active);
-        timeline.setInactive(inactive);
-        
-        return timeline;
+        // Headcount for the last 6 months
+        return headcountTimelineService.getRecentMonths(user, 6);
     }
 }
@@ -1,5 +1,6 @@
 package com.ems.service;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -22,6 +23,7 @@ import com.ems.repository.EmployeeRepository;
 import com.ems.repository.LeaveRepository;
 import com.ems.repository.SalaryRepository;
 import com.ems.repository.UserRepository;
+import com.ems.service.HeadcountTimelineService.Granularity;
 
 /**
  * Service for generating analytics data for the dashboard
@@ -47,6 +49,9 @@ public class AnalyticsServiceImpl {
     @Autowired
     private AuthService authService;
     
+    @Autowired
+    private HeadcountTimelineService headcountTimelineService;
+    
     /**
      * Get comprehensive analytics for the current user
      */
@@ -85,12 +90,8 @@ public class AnalyticsServiceImpl {
             contractDistribution.setCounts(Arrays.asList(25, 8, 12));
             analytics.setContractTypeDistribution(contractDistribution);
             
-            // Create employee timeline
-            EmployeeTimelineAnalytics timeline = new EmployeeTimelineAnalytics();
-            timeline.setMonths(Arrays.asList("Jan", "Feb", "Mar", "Apr", "May", "Jun"));
-            timeline.setActive(Arrays.asList(30, 32, 35, 38, 40, 42));
-            timeline.setInactive(Arrays.asList(2, 1, 0, 2, 1, 0));
-            analytics.setEmployeeTimeline(timeline);
+            // Headcount for the last six months
+            analytics.setEmployeeTimeline(headcountTimelineService.getRecentMonths(authService.getCurrentUser(), 6));
         } catch (Exception e) {
             // Fallback to default analytics if any error occurs
             analytics = createDefaultAnalytics();
@@ -99,6 +100,15 @@ public class AnalyticsServiceImpl {
         return analytics;
     }
 
+    /**
+     * Get active and inactive headcount over a date range for the current user
+     */
+    @Transactional(readOnly = true)
+    public EmployeeTimelineAnalytics getHeadcountTimelineForCurrentUser(LocalDate from, LocalDate to,
+            Granularity granularity, Long departmentId) {
+        return headcountTimelineService.getTimeline(authService.getCurrentUser(), from, to, granularity, departmentId);
+    }
+
     /**
      * Get salary analytics for the current user
      */
@@ -1,15 +1,25 @@
 package com.ems.service;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -20,7 +30,9 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.ems.config.ShardDataSources;
 import com.ems.dto.LoginRequestDto;
 import com.ems.dto.TokenResponseDto;
 import com.ems.dto.UserDto;
@@ -29,11 +41,19 @@ import com.ems.exception.ResourceNotFoundException;
 
 // Use custom authentication exception to avoid ambiguity with Spring Security's version
 import com.ems.exception.AuthenticationException;
+import com.ems.exception.ServiceBusyException;
 import com.ems.model.Employee;
 import com.ems.model.User;
 import com.ems.repository.EmployeeRepository;
 import com.ems.repository.UserRepository;
 import com.ems.security.JwtTokenProvider;
+import com.ems.security.TenantContext;
+import com.ems.security.TokenDetails;
+import com.ems.service.AggregateVersionService.Aggregate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class AuthService implements UserDetailsService {
@@ -41,8 +61,27 @@ public class AuthService implements UserDetailsService {
     private static final String ROLE_MANAGER = "ROLE_MANAGER";
     private static final String ROLE_EMPLOYEE = "ROLE_EMPLOYEE";
     
+    // Manager already loaded for the current unit of work, so getCurrentUser does not query it again
+    private static final ThreadLocal<User> RESOLVED_USER = new ThreadLocal<>();
+    
     @Value("${app.token.expiration.hours:24}")
     private int tokenExpirationHours;
+    
+    // 0 sizes the password check pool to the number of cores
+    @Value("${ems.login.password-check.threads:0}")
+    private int passwordCheckThreads;
+    
+    @Value("${ems.login.password-check.queue-capacity:200}")
+    private int passwordCheckQueueCapacity;
+    
+    @Value("${ems.login.password-check.timeout-seconds:5}")
+    private int passwordCheckTimeoutSeconds;
+    
+    // BCrypt is CPU bound, so password checks run on a pool no larger than the machine
+    private ThreadPoolTaskExecutor passwordCheckExecutor;
+    
+    // Checked against when no account matches, so an unknown email takes as long as a wrong password
+    private String dummyHash;
 
     @Autowired
     private UserRepository userRepository;
@@ -54,13 +93,72 @@ public class AuthService implements UserDetailsService {
     private PasswordEncoder passwordEncoder;
     
     @Autowired
-    private AuthenticationManager authenticationManager;
+    private LastLoginRecorder lastLoginRecorder;
+    
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
     
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
     
     @Autowired
-    private EmailService emailService;
+    private ShardDataSources shardDataSources;
+    
+    @Autowired
+    private ShardDirectory shardDirectory;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    // Shard new managers are registered on
+    @Value("${ems.sharding.new-tenant-shard:primary}")
+    private String newTenantShard;
+    
+    // Looked up when an email is sent: EmailService depends on this service
+    @Autowired
+    private ObjectProvider<EmailService> emailService;
+    
+    /**
+     * A manager or employee account as found by UserRepository.LOGIN_ACCOUNTS_SQL on a shard
+     */
+    private record LoginAccount(String shard, boolean manager, Long id, Long tenantId, String passwordHash,
+                                boolean active, boolean activated, List<String> roles) {
+        
+        static LoginAccount of(String shard, ResultSet rs) throws SQLException {
+            String roles = rs.getString(7);
+            return new LoginAccount(
+                    shard,
+                    "M".equals(rs.getString(1)),
+                    rs.getLong(2),
+                    rs.getLong(3),
+                    rs.getString(4),
+                    rs.getBoolean(5),
+                    rs.getBoolean(6),
+                    roles == null || roles.isEmpty() ? List.of() : List.of(roles.split(",")));
+        }
+    }
+    
+    @PostConstruct
+    void initPasswordCheckExecutor() {
+        int threads = passwordCheckThreads > 0 ? passwordCheckThreads : Runtime.getRuntime().availableProcessors();
+        passwordCheckExecutor = new ThreadPoolTaskExecutor();
+        passwordCheckExecutor.setCorePoolSize(threads);
+        passwordCheckExecutor.setMaxPoolSize(threads);
+        passwordCheckExecutor.setQueueCapacity(passwordCheckQueueCapacity);
+        passwordCheckExecutor.setThreadNamePrefix("password-check-");
+        // A full queue rejects the login with 503 instead of piling up request threads
+        passwordCheckExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        passwordCheckExecutor.initialize();
+        dummyHash = passwordEncoder.encode(UUID.randomUUID().toString());
+    }
+    
+    @PreDestroy
+    void shutdownPasswordCheckExecutor() {
+        passwordCheckExecutor.shutdown();
+    }
     
     /**
      * Utility method to handle List<Boolean> return types from repository methods
@@ -85,71 +183,47 @@ public class AuthService implements UserDetailsService {
         return users.get(0);
     }
     
+    /**
+     * Load a manager ("M_" + email) or employee ("E_" + email) with one query. A plain email
+     * resolves to the manager when both exist, as logins do.
+     */
     @Override
-    public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        // First check if it's a manager (User)
-        if (getBooleanResult(userRepository.existsByEmail(email))) {
-            User user = getUserFromList(userRepository.findByEmail(email), 
-                    "User not found with email: " + email);
-            
-            List<GrantedAuthority> authorities = new ArrayList<>();
-            authorities.add(new SimpleGrantedAuthority(ROLE_MANAGER));
-            
-            for (String role : user.getRoles()) {
-                authorities.add(new SimpleGrantedAuthority(role));
-            }
-            
-            return new org.springframework.security.core.userdetails.User(
-                    "M_" + user.getEmail(), // Prefix with 'M_' to distinguish from employees
-                    user.getPassword(),
-                    user.isActive(),
-                    true, true, true,
-                    authorities
-            );
-        } 
-        // Then check if it's an employee
-        else if (getBooleanResult(employeeRepository.existsByEmail(email))) {
-            Employee employee = getEmployeeFromList(employeeRepository.findByEmail(email), 
-                    "Employee not found with email: " + email);
-            
-            // Check if employee account is activated
-            if (!employee.isAccountActivated()) {
-                throw new AuthenticationException("Employee account not activated");
-            }
-            
-            // Check if employee is active
-            if (!employee.isActive()) {
-                throw new AuthenticationException("Employee account is inactive");
-            }
-            
-            List<GrantedAuthority> authorities = new ArrayList<>();
-            authorities.add(new SimpleGrantedAuthority(ROLE_EMPLOYEE));
-            
-            for (String role : employee.getAuthRoles()) {
-                authorities.add(new SimpleGrantedAuthority(role));
-            }
-            
-            return new org.springframework.security.core.userdetails.User(
-                    "E_" + employee.getEmail(), // Prefix with 'E_' to distinguish from managers
-                    employee.getPasswordHash(),
-                    employee.isActive() && employee.isAccountActivated(),
-                    true, true, true,
-                    authorities
-            );
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        LoginAccount account = findLoginAccount(username);
+        if (account == null) {
+            throw new UsernameNotFoundException("No user or employee found with email: " + username);
+        }
+        
+        if (!account.manager()) {
+            checkEmployeeCanLogin(account);
+        }
+        
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        authorities.add(new SimpleGrantedAuthority(account.manager() ? ROLE_MANAGER : ROLE_EMPLOYEE));
+        for (String role : account.roles()) {
+            authorities.add(new SimpleGrantedAuthority(role));
         }
         
-        throw new UsernameNotFoundException("No user or employee found with email: " + email);
+        // Prefix with 'M_' or 'E_' to distinguish managers from employees
+        return new org.springframework.security.core.userdetails.User(
+                (account.manager() ? "M_" : "E_") + stripPrefix(username),
+                account.passwordHash() != null ? account.passwordHash() : "",
+                account.active() && account.activated(),
+                true, true, true,
+                authorities
+        );
     }
 
-    @Transactional
+    /**
+     * Register a manager, who becomes a new tenant on the configured shard
+     */
     public User registerUser(UserDto userDto) {
-        // Check if email is already used by a manager
-        if (getBooleanResult(userRepository.existsByEmail(userDto.getEmail()))) {
+        // Emails identify accounts across all shards
+        List<LoginAccount> existing = findLoginAccounts(userDto.getEmail(), shardDataSources.names());
+        if (existing.stream().anyMatch(LoginAccount::manager)) {
             throw new BadRequestException("Email is already registered as a manager");
         }
-        
-        // Check if email is already used by an employee
-        if (getBooleanResult(employeeRepository.existsByEmail(userDto.getEmail()))) {
+        if (!existing.isEmpty()) {
             throw new BadRequestException("Email is already registered as an employee");
         }
 
@@ -161,59 +235,146 @@ public class AuthService implements UserDetailsService {
         user.setPassword(passwordEncoder.encode(userDto.getPassword()));
         user.addRole(ROLE_MANAGER); // Add manager role
 
-        return userRepository.save(user);
+        User saved = inTransactionOn(newTenantShard, () -> userRepository.save(user));
+        if (!ShardDataSources.PRIMARY.equals(newTenantShard)) {
+            shardDirectory.record(saved.getId(), newTenantShard, false);
+        }
+        return saved;
     }
     
-    @Transactional
+    /**
+     * Log in a manager or employee: one account lookup, the password check on the bounded
+     * BCrypt pool, and the last-login timestamp buffered for a batched write
+     */
     public TokenResponseDto login(LoginRequestDto loginRequest) throws AuthenticationException {
         String email = loginRequest.getEmail();
-        String password = loginRequest.getPassword();
-        String prefix = null;
-        String role = null;
         
-        try {
-            // Try to authenticate as Manager
-            if (getBooleanResult(userRepository.existsByEmail(email))) {
-                authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken("M_" + email, password, Collections.emptyList())
-                );
-                
-                User user = getUserFromList(userRepository.findByEmail(email), 
-                        "User not found");
-                
-                // Update last login time
-                user.updateLastLogin();
-                userRepository.save(user);
-                
-                prefix = "M_";
-                role = ROLE_MANAGER;
-            } 
-            // Try to authenticate as Employee
-            else if (getBooleanResult(employeeRepository.existsByEmail(email))) {
-                authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken("E_" + email, password, Collections.emptyList())
-                );
-                
-                Employee employee = getEmployeeFromList(employeeRepository.findByEmail(email),
-                        "Employee not found");
-                
-                // Update last login time
-                employee.updateLastLogin();
-                employeeRepository.save(employee);
-                
-                prefix = "E_";
-                role = ROLE_EMPLOYEE;
-            } else {
-                throw new UsernameNotFoundException("No account found with email: " + email);
+        List<LoginAccount> accounts = findLoginAccounts(email, shardDataSources.names());
+        if (accounts.isEmpty()) {
+            passwordMatches(loginRequest.getPassword(), dummyHash);
+            throw new AuthenticationException("Invalid email/password");
+        }
+        LoginAccount account = accounts.get(0);
+        
+        if (!account.manager()) {
+            checkEmployeeCanLogin(account);
+        } else if (!account.active()) {
+            passwordMatches(loginRequest.getPassword(), dummyHash);
+            throw new AuthenticationException("Invalid email/password");
+        }
+        
+        if (!passwordMatches(loginRequest.getPassword(), account.passwordHash())) {
+            throw new AuthenticationException("Invalid email/password");
+        }
+        
+        String role;
+        if (account.manager()) {
+            lastLoginRecorder.recordManagerLogin(account.shard(), account.id());
+            role = ROLE_MANAGER;
+        } else {
+            lastLoginRecorder.recordEmployeeLogin(account.shard(), account.id());
+            role = ROLE_EMPLOYEE;
+        }
+        
+        String token = jwtTokenProvider.createToken((account.manager() ? "M_" : "E_") + email, role, account.tenantId(),
+                account.manager() ? null : account.id());
+        return new TokenResponseDto(token, role);
+    }
+    
+    private LoginAccount findLoginAccount(String username) {
+        boolean managerOnly = username.startsWith("M_");
+        boolean employeeOnly = username.startsWith("E_");
+        
+        // An authenticated request already knows its tenant's shard
+        String shard = TenantContext.getShard();
+        List<String> shards = shard != null ? List.of(shard) : shardDataSources.names();
+        for (LoginAccount account : findLoginAccounts(stripPrefix(username), shards)) {
+            if ((!managerOnly || account.manager()) && (!employeeOnly || !account.manager())) {
+                return account;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Accounts with this email on the given shards, managers first. Reads each shard directly,
+     * so it does not depend on which shard the current request or transaction is bound to.
+     */
+    private List<LoginAccount> findLoginAccounts(String email, List<String> shards) {
+        List<LoginAccount> accounts = new ArrayList<>();
+        for (String shard : shards) {
+            accounts.addAll(shardDataSources.jdbc(shard).query(UserRepository.LOGIN_ACCOUNTS_SQL,
+                    Map.of("email", email), (rs, rowNum) -> LoginAccount.of(shard, rs)));
+        }
+        if (shards.size() > 1) {
+            accounts.sort(Comparator.comparing((LoginAccount account) -> !account.manager())
+                    .thenComparing(LoginAccount::id));
+        }
+        return accounts;
+    }
+    
+    /**
+     * First shard where the query finds a row, for public requests that carry no tenant; the primary when none does
+     */
+    private String findShard(String sql, Object... args) {
+        if (!shardDataSources.isSharded()) {
+            return ShardDataSources.PRIMARY;
+        }
+        for (String shard : shardDataSources.names()) {
+            if (!shardDataSources.jdbc(shard).getJdbcOperations().queryForList(sql, args).isEmpty()) {
+                return shard;
             }
-            
-            // Generate token
-            String token = jwtTokenProvider.createToken(prefix + email, role);
-            
-            return new TokenResponseDto(token, role);
-            
-        } catch (org.springframework.security.core.AuthenticationException e) {
-            throw new com.ems.exception.AuthenticationException("Invalid email/password");
+        }
+        return ShardDataSources.PRIMARY;
+    }
+    
+    /**
+     * Run work in a transaction on the given shard; the shard has to be chosen before the transaction starts
+     */
+    private <T> T inTransactionOn(String shard, Supplier<T> work) {
+        return TenantContext.onShard(shard, () -> transactionTemplate.execute(status -> work.get()));
+    }
+    
+    private String stripPrefix(String username) {
+        return username.startsWith("M_") || username.startsWith("E_") ? username.substring(2) : username;
+    }
+    
+    private void checkEmployeeCanLogin(LoginAccount account) {
+        // Check if employee account is activated
+        if (!account.activated()) {
+            throw new AuthenticationException("Employee account not activated");
+        }
+        
+        // Check if employee is active
+        if (!account.active()) {
+            throw new AuthenticationException("Employee account is inactive");
+        }
+    }
+    
+    private boolean passwordMatches(String password, String passwordHash) {
+        if (password == null || passwordHash == null) {
+            return false;
+        }
+        
+        Future<Boolean> check;
+        try {
+            check = passwordCheckExecutor.submit(() -> passwordEncoder.matches(password, passwordHash));
+        } catch (TaskRejectedException e) {
+            meterRegistry.counter("ems.login.rejected").increment();
+            throw new ServiceBusyException("Too many logins in progress, please retry");
+        }
+        
+        try {
+            return check.get(passwordCheckTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            check.cancel(true);
+            meterRegistry.counter("ems.login.rejected").increment();
+            throw new ServiceBusyException("Too many logins in progress, please retry");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Login was interrupted, please retry");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password check failed", e.getCause());
         }
     }
     
@@ -253,6 +414,11 @@ public class AuthService implements UserDetailsService {
         
         String principal = authentication.getName();
         
+        User resolved = RESOLVED_USER.get();
+        if (resolved != null && principal.equals("M_" + resolved.getEmail())) {
+            return resolved;
+        }
+        
         // Check if this is a manager (User)
         if (principal.startsWith("M_")) {
             String email = principal.substring(2); // Remove the "M_" prefix
@@ -262,6 +428,23 @@ public class AuthService implements UserDetailsService {
         throw new AuthenticationException("Current authentication is not for a manager");
     }
     
+    /**
+     * Run work with an already loaded manager as the current user, e.g. the parts of a batch request
+     */
+    public <T> T withResolvedUser(User user, Supplier<T> work) {
+        User previous = RESOLVED_USER.get();
+        RESOLVED_USER.set(user);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                RESOLVED_USER.remove();
+            } else {
+                RESOLVED_USER.set(previous);
+            }
+        }
+    }
+    
     @Transactional(readOnly = true)
     public Employee getCurrentEmployee() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -281,6 +464,28 @@ public class AuthService implements UserDetailsService {
         throw new AuthenticationException("Current authentication is not for an employee");
     }
     
+    /**
+     * Id of the current employee, taken from the token; tokens issued without it resolve it by email
+     * within the current tenant
+     */
+    public Long getCurrentEmployeeId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        
+        if (authentication == null || !authentication.isAuthenticated() || !authentication.getName().startsWith("E_")) {
+            throw new AuthenticationException("Current authentication is not for an employee");
+        }
+        
+        if (authentication.getDetails() instanceof TokenDetails details && details.employeeId() != null) {
+            return details.employeeId();
+        }
+        
+        List<Long> ids = employeeRepository.findIdsByEmailAndUserId(authentication.getName().substring(2), TenantContext.getTenantId());
+        if (ids.isEmpty()) {
+            throw new ResourceNotFoundException("Employee not found with email: " + authentication.getName().substring(2));
+        }
+        return ids.get(0);
+    }
+    
     @Transactional(readOnly = true)
     public boolean isManager() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -324,8 +529,15 @@ public class AuthService implements UserDetailsService {
         return token;
     }
     
-    @Transactional
     public void activateEmployeeAccount(String token, String password) {
+        String shard = findShard("SELECT 1 FROM employees WHERE activation_token = ?", token);
+        inTransactionOn(shard, () -> {
+            doActivateEmployeeAccount(token, password);
+            return null;
+        });
+    }
+    
+    private void doActivateEmployeeAccount(String token, String password) {
         Employee employee = getEmployeeFromList(employeeRepository.findByActivationToken(token),
                 "Invalid activation token");
         
@@ -342,10 +554,16 @@ public class AuthService implements UserDetailsService {
         employee.addAuthRole(ROLE_EMPLOYEE);
         
         employeeRepository.save(employee);
+        aggregateVersionService.bumpEntity(employee.getUser().getId(), employee.getId(), Aggregate.EMPLOYEE);
     }
     
-    @Transactional
     public String generatePasswordResetToken(String email) {
+        List<LoginAccount> accounts = findLoginAccounts(email, shardDataSources.names());
+        String shard = accounts.isEmpty() ? ShardDataSources.PRIMARY : accounts.get(0).shard();
+        return inTransactionOn(shard, () -> doGeneratePasswordResetToken(email));
+    }
+    
+    private String doGeneratePasswordResetToken(String email) {
         // Check if it's a manager
         if (getBooleanResult(userRepository.existsByEmail(email))) {
             User user = getUserByEmail(email);
@@ -384,8 +602,16 @@ public class AuthService implements UserDetailsService {
         throw new ResourceNotFoundException("No account found with email: " + email);
     }
     
-    @Transactional
     public void resetPassword(String token, String password) {
+        String shard = findShard("SELECT 1 FROM users WHERE reset_token = ? UNION ALL SELECT 1 FROM employees WHERE reset_token = ?",
+                token, token);
+        inTransactionOn(shard, () -> {
+            doResetPassword(token, password);
+            return null;
+        });
+    }
+    
+    private void doResetPassword(String token, String password) {
         // Check if it's a manager token
         if (getBooleanResult(userRepository.existsByResetToken(token))) {
             User user = getUserFromList(userRepository.findByResetToken(token),
@@ -417,6 +643,7 @@ public class AuthService implements UserDetailsService {
             employee.setResetToken(null);
             employee.setResetTokenExpiry(null);
             employeeRepository.save(employee);
+            aggregateVersionService.bumpEntity(employee.getUser().getId(), employee.getId(), Aggregate.EMPLOYEE);
         } else {
             throw new BadRequestException("Invalid reset token");
         }
@@ -439,7 +666,7 @@ public class AuthService implements UserDetailsService {
         
         // Send the email
         try {
-            emailService.sendEmail(employee.getEmail(), subject, content);
+            emailService.getObject().sendEmail(employee.getEmail(), subject, content);
         } catch (Exception e) {
             throw new AuthenticationException("Failed to send activation email: " + e.getMessage());
         }
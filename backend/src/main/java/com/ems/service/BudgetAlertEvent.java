@@ -0,0 +1,18 @@
+package com.ems.service;
+
+import java.util.List;
+
+import com.ems.model.Department.BudgetType;
+
+/**
+ * Published when departments of a tenant crossed a budget threshold in the current period; the manager is notified
+ */
+public record BudgetAlertEvent(Long tenantId, String managerEmail, String managerName, List<Alert> alerts) {
+
+    /**
+     * One department and the threshold it crossed
+     */
+    public record Alert(Long departmentId, String departmentName, BudgetType budgetType,
+            double budget, double expenses, BudgetMonitorService.AlertLevel level) {
+    }
+}
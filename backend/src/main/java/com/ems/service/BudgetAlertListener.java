@@ -0,0 +1,61 @@
+package com.ems.service;
+
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import com.ems.service.BudgetAlertEvent.Alert;
+import com.ems.util.EmailUtilService;
+
+/**
+ * Emails managers about departments over or near their budget, asynchronously, one email per tenant and run
+ */
+@Component
+public class BudgetAlertListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(BudgetAlertListener.class);
+
+    private static final String FROM_ADDRESS = "noreply@ems.com";
+
+    // Looked up on the first alert, so the mail sender is not created at startup
+    @Autowired
+    private ObjectProvider<EmailUtilService> emailUtilService;
+
+    @Async
+    @EventListener
+    public void onBudgetAlert(BudgetAlertEvent event) {
+        if (event.managerEmail() == null || event.alerts().isEmpty()) {
+            return;
+        }
+        try {
+            emailUtilService.getObject().sendEmail(FROM_ADDRESS, event.managerEmail(), subject(event), content(event));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to send budget alert for tenant {} to {}: {}",
+                    event.tenantId(), event.managerEmail(), e.getMessage());
+        }
+    }
+
+    private String subject(BudgetAlertEvent event) {
+        boolean over = event.alerts().stream().anyMatch(alert -> alert.level() == BudgetMonitorService.AlertLevel.OVER_BUDGET);
+        return over ? "Departments over budget" : "Departments near their budget limit";
+    }
+
+    private String content(BudgetAlertEvent event) {
+        StringBuilder content = new StringBuilder("Hello " + event.managerName() + ",\n\n"
+                + "The payroll of these departments crossed a budget threshold in the current period:\n\n");
+        for (Alert alert : event.alerts()) {
+            content.append("- ").append(alert.departmentName()).append(": ")
+                    .append(String.format(Locale.ROOT, "%.2f of %.2f", alert.expenses(), alert.budget()))
+                    .append(" (").append(alert.budgetType().name().toLowerCase(Locale.ROOT)).append(" budget, ")
+                    .append(alert.level() == BudgetMonitorService.AlertLevel.OVER_BUDGET ? "over budget" : "near the limit")
+                    .append(")\n");
+        }
+        return content.toString();
+    }
+}
@@ -0,0 +1,230 @@
+package com.ems.service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ems.config.ShardDataSources;
+import com.ems.dto.DepartmentDto;
+import com.ems.model.Department.BudgetType;
+import com.ems.model.User;
+import com.ems.repository.DepartmentBudgetLedgerRepository;
+import com.ems.repository.DepartmentRepository;
+import com.ems.repository.UserRepository;
+import com.ems.service.AggregateVersionService.Aggregate;
+import com.ems.util.NativeRows;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Evaluates department budgets against the payroll of their current period: the current month
+ * for MONTHLY budgets, the current year for YEARLY ones.
+ *
+ * All departments of a tenant are evaluated with one aggregated query that only reads salaries
+ * of the current year, so the cost does not grow with payroll history. When
+ * ems.budget-alerts.enabled is set, a scheduled run emails managers whose departments crossed the
+ * near-limit ratio or their budget. Each threshold is reported once per department and period,
+ * recorded on the department_budget_ledger row, so every node can run the job.
+ */
+@Service
+public class BudgetMonitorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BudgetMonitorService.class);
+
+    private static final int YEARLY_PERIOD_MONTH = 0;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private DepartmentBudgetLedgerRepository ledgerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ems.budget.near-limit-ratio:0.9}")
+    private double nearLimitRatio;
+
+    @Value("${ems.budget-alerts.enabled:false}")
+    private boolean alertsEnabled;
+
+    /**
+     * Budget thresholds, in increasing order of severity
+     */
+    public enum AlertLevel {
+        NONE, NEAR_LIMIT, OVER_BUDGET
+    }
+
+    /**
+     * A department's budget and its payroll in the current period
+     */
+    public record BudgetStatus(Long departmentId, String name, double budget, BudgetType budgetType, LocalDateTime createdAt,
+            int employeeCount, int activeEmployeeCount, double expenses) {
+
+        public double usagePercentage() {
+            return budget > 0 ? (expenses / budget) * 100 : 0.0;
+        }
+
+        /**
+         * A department without budget is over it as soon as anything is paid
+         */
+        public boolean isOverBudget() {
+            return expenses > budget;
+        }
+
+        public boolean isNearLimit(double ratio) {
+            return budget > 0 ? expenses / budget > ratio : expenses > 0;
+        }
+    }
+
+    /**
+     * Budget status of all departments of the current manager
+     */
+    @Transactional(readOnly = true)
+    public List<BudgetStatus> getStatusForCurrentUser() {
+        return getStatus(authService.getCurrentUser());
+    }
+
+    /**
+     * Budget status of all departments of a manager
+     */
+    @Transactional(readOnly = true)
+    public List<BudgetStatus> getStatus(User user) {
+        YearMonth period = YearMonth.now();
+        return requestCoalescer.coalesce("budgetStatus", user.getId(), List.of(period.toString()),
+                () -> loadStatus(user.getId(), period), Aggregate.DEPARTMENT, Aggregate.EMPLOYEE, Aggregate.SALARY);
+    }
+
+    @Transactional(readOnly = true)
+    public List<DepartmentDto> getOverBudgetDepartments() {
+        return getStatusForCurrentUser().stream()
+                .filter(BudgetStatus::isOverBudget)
+                .map(this::toDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Departments above the near-limit ratio, including those over budget
+     */
+    @Transactional(readOnly = true)
+    public List<DepartmentDto> getNearLimitDepartments() {
+        return getStatusForCurrentUser().stream()
+                .filter(status -> status.isNearLimit(nearLimitRatio))
+                .map(this::toDto)
+                .collect(Collectors.toList());
+    }
+
+    public DepartmentDto toDto(BudgetStatus status) {
+        DepartmentDto dto = new DepartmentDto();
+        dto.setId(status.departmentId());
+        dto.setName(status.name());
+        dto.setBudget(status.budget());
+        dto.setBudgetType(status.budgetType());
+        dto.setCreatedAt(status.createdAt());
+        dto.setCurrentExpenses(status.expenses());
+        dto.setEmployeeCount(status.employeeCount());
+        dto.setActiveEmployeeCount(status.activeEmployeeCount());
+        dto.setBudgetUsagePercentage(status.usagePercentage());
+        dto.setIsBudgetOverrun(status.isOverBudget());
+        return dto;
+    }
+
+    /**
+     * Alert managers about budget thresholds crossed in the current period, on every shard
+     */
+    @Scheduled(cron = "${ems.budget-alerts.cron:0 20 * * * *}")
+    public void scheduledAlerts() {
+        if (!alertsEnabled) {
+            return;
+        }
+        YearMonth period = YearMonth.now();
+        shardDataSources.forEach(shard -> {
+            for (Long tenantId : departmentRepository.findTenantIdsWithBudgets()) {
+                if (!shardDirectory.isServedFrom(tenantId, shard)) {
+                    continue;
+                }
+                try {
+                    alertTenant(tenantId, period);
+                } catch (RuntimeException e) {
+                    logger.error("Budget alerts for tenant {} failed", tenantId, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Publish one alert event for the departments of a tenant that reached a new threshold in the period
+     */
+    public int alertTenant(Long tenantId, YearMonth period) {
+        List<BudgetAlertEvent.Alert> alerts = new ArrayList<>();
+        for (BudgetStatus status : loadStatus(tenantId, period)) {
+            AlertLevel level = status.isOverBudget() ? AlertLevel.OVER_BUDGET
+                    : status.isNearLimit(nearLimitRatio) ? AlertLevel.NEAR_LIMIT : AlertLevel.NONE;
+            if (level == AlertLevel.NONE) {
+                continue;
+            }
+
+            int month = status.budgetType() == BudgetType.YEARLY ? YEARLY_PERIOD_MONTH : period.getMonthValue();
+            ledgerRepository.initialize(status.departmentId(), period.getYear(), month);
+            // Only the node that raises the level sends the alert
+            if (ledgerRepository.raiseAlertLevel(status.departmentId(), period.getYear(), month, level.ordinal()) > 0) {
+                alerts.add(new BudgetAlertEvent.Alert(status.departmentId(), status.name(), status.budgetType(),
+                        status.budget(), status.expenses(), level));
+                meterRegistry.counter("ems.budget.alerts", "level", level.name()).increment();
+            }
+        }
+
+        if (!alerts.isEmpty()) {
+            User manager = userRepository.findById(tenantId).orElse(null);
+            if (manager != null) {
+                eventPublisher.publishEvent(new BudgetAlertEvent(tenantId, manager.getEmail(), manager.getFullName(), alerts));
+            }
+        }
+        return alerts.size();
+    }
+
+    private List<BudgetStatus> loadStatus(Long tenantId, YearMonth period) {
+        List<BudgetStatus> statuses = new ArrayList<>();
+        for (Object[] row : departmentRepository.findBudgetStatusByUser(tenantId, period.getYear(), period.getMonthValue())) {
+            statuses.add(new BudgetStatus(
+                    ((Number) row[0]).longValue(),
+                    (String) row[1],
+                    row[2] != null ? ((Number) row[2]).doubleValue() : 0.0,
+                    BudgetType.valueOf((String) row[3]),
+                    NativeRows.toDateTime(row[4]),
+                    ((Number) row[5]).intValue(),
+                    ((Number) row[6]).intValue(),
+                    ((Number) row[7]).doubleValue()));
+        }
+        return statuses;
+    }
+}
@@ -0,0 +1,201 @@
+package com.ems.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ems.model.Department;
+import com.ems.repository.DepartmentBudgetLedgerRepository;
+import com.ems.util.PayrollMath;
+
+/**
+ * Reserves department budget for salary writes without locking the department.
+ *
+ * Each (department, budget period) has an in-memory counter that is claimed with
+ * compare-and-set, so concurrent requests on this node never both pass the check.
+ * The claim is then confirmed by a conditional UPDATE on the ledger row inside the
+ * caller's transaction, which keeps the check correct across nodes and commits or
+ * rolls back with the salary write. The row stays locked until that transaction ends,
+ * so reservations of the same period queue behind each other; other periods and
+ * departments are not affected. The counter follows the outcome once the transaction
+ * has completed.
+ */
+@Service
+public class BudgetReservationService {
+
+    private static final int YEARLY_PERIOD_MONTH = 0;
+
+    @Autowired
+    private DepartmentBudgetLedgerRepository ledgerRepository;
+
+    // Last known committed cents per ledger row; a cache of the ledger, never the source of truth
+    private final Map<LedgerKey, AtomicLong> committed = new ConcurrentHashMap<>();
+
+    private record LedgerKey(Long departmentId, int year, int month) {
+    }
+
+    /**
+     * Reserve an increase of a department's payroll for a salary period.
+     * Returns false when the increase would exceed the department budget.
+     */
+    public boolean reserve(Department department, int salaryYear, int salaryMonth, double amount) {
+        long amountCents = PayrollMath.toCents(amount);
+        if (amountCents <= 0) {
+            release(department, salaryYear, salaryMonth, -amount);
+            return true;
+        }
+
+        LedgerKey key = keyFor(department, salaryYear, salaryMonth);
+        long budgetCents = PayrollMath.toCents(department.getBudget());
+        AtomicLong counter = counter(key);
+
+        if (!claim(counter, amountCents, budgetCents)) {
+            // The cached value may be stale if another node released budget; re-read once before refusing
+            counter.set(readCommitted(key));
+            if (!claim(counter, amountCents, budgetCents)) {
+                return false;
+            }
+        }
+
+        if (ledgerRepository.reserve(key.departmentId(), key.year(), key.month(), amountCents, budgetCents) == 0) {
+            // Over the budget, or the row is gone because the transaction that created it rolled back
+            counter.set(readCommitted(key));
+            if (!claim(counter, amountCents, budgetCents)) {
+                return false;
+            }
+            if (ledgerRepository.reserve(key.departmentId(), key.year(), key.month(), amountCents, budgetCents) == 0) {
+                counter.set(readCommitted(key));
+                return false;
+            }
+        }
+
+        registerRollbackCompensation(key, amountCents);
+        return true;
+    }
+
+    /**
+     * Move an employee's payroll of the current budget periods from one department to another: the
+     * current month's gross for MONTHLY budgets, the current year's for YEARLY ones. The new department
+     * is reserved first and the old one released once the transaction commits. Returns false, reserving
+     * nothing, when the new department's budget cannot take the payroll.
+     */
+    public boolean transfer(Department from, Department to, int year, int month, double monthGross, double yearGross) {
+        if (to != null && !reserve(to, year, month, periodGross(to, monthGross, yearGross))) {
+            return false;
+        }
+        if (from != null) {
+            release(from, year, month, periodGross(from, monthGross, yearGross));
+        }
+        return true;
+    }
+
+    /**
+     * Record payroll that is not subject to the budget check (e.g. generated salaries), so the ledger stays accurate
+     */
+    public void record(Department department, int salaryYear, int salaryMonth, double amount) {
+        long amountCents = PayrollMath.toCents(amount);
+        if (department == null || amountCents <= 0) {
+            return;
+        }
+
+        LedgerKey key = keyFor(department, salaryYear, salaryMonth);
+        counter(key).addAndGet(amountCents);
+        ledgerRepository.reserve(key.departmentId(), key.year(), key.month(), amountCents, Long.MAX_VALUE - amountCents);
+        registerRollbackCompensation(key, amountCents);
+    }
+
+    /**
+     * Release part of a department's payroll for a salary period. Other requests can use it once
+     * the current transaction commits.
+     */
+    public void release(Department department, int salaryYear, int salaryMonth, double amount) {
+        long amountCents = PayrollMath.toCents(amount);
+        if (department == null || amountCents <= 0) {
+            return;
+        }
+
+        LedgerKey key = keyFor(department, salaryYear, salaryMonth);
+        ledgerRepository.release(key.departmentId(), key.year(), key.month(), amountCents);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    giveBack(key, amountCents);
+                }
+            });
+        } else {
+            giveBack(key, amountCents);
+        }
+    }
+
+    // The rollback undoes the ledger UPDATE; only the counter has to follow
+    private void registerRollbackCompensation(LedgerKey key, long amountCents) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        giveBack(key, amountCents);
+                    }
+                }
+            });
+        }
+    }
+
+    private double periodGross(Department department, double monthGross, double yearGross) {
+        return department.getBudgetType() == Department.BudgetType.YEARLY ? yearGross : monthGross;
+    }
+
+    private boolean claim(AtomicLong counter, long amountCents, long budgetCents) {
+        while (true) {
+            long current = counter.get();
+            long next = current + amountCents;
+            if (next > budgetCents) {
+                return false;
+            }
+            if (counter.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    private void giveBack(LedgerKey key, long amountCents) {
+        AtomicLong counter = committed.get(key);
+        if (counter != null) {
+            counter.accumulateAndGet(amountCents, (current, amount) -> Math.max(current - amount, 0));
+        }
+    }
+
+    private AtomicLong counter(LedgerKey key) {
+        AtomicLong counter = committed.get(key);
+        if (counter == null) {
+            // Read outside of computeIfAbsent so the map is never blocked on the database
+            AtomicLong loaded = new AtomicLong(readCommitted(key));
+            counter = committed.putIfAbsent(key, loaded);
+            if (counter == null) {
+                counter = loaded;
+            }
+        }
+        return counter;
+    }
+
+    private long readCommitted(LedgerKey key) {
+        List<Long> values = ledgerRepository.findCommittedCents(key.departmentId(), key.year(), key.month());
+        if (values.isEmpty()) {
+            ledgerRepository.initialize(key.departmentId(), key.year(), key.month());
+            values = ledgerRepository.findCommittedCents(key.departmentId(), key.year(), key.month());
+        }
+        return values.isEmpty() ? 0L : values.get(0);
+    }
+
+    private LedgerKey keyFor(Department department, int salaryYear, int salaryMonth) {
+        int month = department.getBudgetType() == Department.BudgetType.YEARLY ? YEARLY_PERIOD_MONTH : salaryMonth;
+        return new LedgerKey(department.getId(), salaryYear, month);
+    }
+}
@@ -0,0 +1,320 @@
+package com.ems.service;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.ems.service.AggregateVersionService.Aggregate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pushes committed changes of a tenant's aggregates to its open server-sent event streams.
+ *
+ * Events only name the aggregates that changed and their new versions; clients refetch
+ * what they show, and the versions match the ETags of the read endpoints. Changes are
+ * coalesced per tenant over a short interval, so a burst of writes becomes one event.
+ * Idle streams hold no thread, and sending runs on virtual threads so a slow client
+ * never delays the others. Recent events are kept per tenant, so a client reconnecting
+ * with Last-Event-ID gets what it missed, or a reset event when that is no longer known.
+ */
+@Service
+public class ChangeStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeStreamService.class);
+
+    public static final String CHANGE_EVENT = "change";
+
+    public static final String RESET_EVENT = "reset";
+
+    /**
+     * Aggregates an employee's stream carries; the rest only concern managers
+     */
+    private static final int EMPLOYEE_MASK = mask(List.of(Aggregate.LEAVE, Aggregate.MESSAGE, Aggregate.SALARY));
+
+    private static final int ALL_MASK = (1 << Aggregate.values().length) - 1;
+
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ems.events.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${ems.events.history-size:256}")
+    private int historySize;
+
+    @Value("${ems.events.heartbeat-ms:25000}")
+    private long heartbeatMillis;
+
+    @Value("${ems.events.retention-ms:300000}")
+    private long retentionMillis;
+
+    // Event ids restart with the process, so they carry a per-process epoch like the ETags do
+    private final String epoch = HexFormat.of().toHexDigits(new SecureRandom().nextInt());
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<Long, Hub> hubs = new ConcurrentHashMap<>();
+
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    private volatile long lastHeartbeat = System.currentTimeMillis();
+
+    private record Subscriber(SseEmitter emitter, int mask) {
+    }
+
+    private record ChangeEvent(long sequence, int mask, Map<String, Long> versions) {
+    }
+
+    /**
+     * Open streams, pending changes and recent events of one tenant
+     */
+    private static final class Hub {
+        final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        final AtomicInteger pending = new AtomicInteger();
+        final AtomicBoolean sending = new AtomicBoolean();
+        // Guarded by the hub; evictedUpTo is the newest sequence no longer in history
+        final Deque<ChangeEvent> history = new ArrayDeque<>();
+        long evictedUpTo;
+        volatile long usedAt = System.currentTimeMillis();
+
+        // Events before the hub existed were never recorded, so a client resuming from them is reset
+        Hub(long createdAt) {
+            this.evictedUpTo = createdAt;
+        }
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("ems.events.subscribers", hubs,
+                map -> map.values().stream().mapToInt(hub -> hub.subscribers.size()).sum())
+                .description("Open server-sent event streams")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hubs.values().forEach(hub -> hub.subscribers.forEach(subscriber -> subscriber.emitter().complete()));
+        senders.shutdown();
+    }
+
+    /**
+     * Open a stream of a tenant's changes, replaying what was missed since lastEventId
+     */
+    public SseEmitter subscribe(Long tenantId, boolean manager, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, manager ? ALL_MASK : EMPLOYEE_MASK);
+        Hub hub = hubs.computeIfAbsent(tenantId, id -> new Hub(sequence.get()));
+
+        emitter.onCompletion(() -> hub.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> hub.subscribers.remove(subscriber));
+        emitter.onError(error -> hub.subscribers.remove(subscriber));
+
+        List<ChangeEvent> missed;
+        boolean reset;
+        synchronized (hub) {
+            hub.subscribers.add(subscriber);
+            hub.usedAt = System.currentTimeMillis();
+            long lastSequence = parseSequence(lastEventId);
+            reset = lastEventId != null && (lastSequence < 0 || lastSequence < hub.evictedUpTo);
+            missed = new ArrayList<>();
+            if (lastEventId != null && !reset) {
+                for (ChangeEvent event : hub.history) {
+                    if (event.sequence() > lastSequence) {
+                        missed.add(event);
+                    }
+                }
+            }
+        }
+
+        try {
+            if (reset) {
+                // The client missed events that are no longer known and must reload everything
+                emitter.send(SseEmitter.event().id(eventId(sequence.get())).name(RESET_EVENT).data(Map.of()));
+            }
+            for (ChangeEvent event : missed) {
+                send(subscriber, event);
+            }
+        } catch (IOException e) {
+            hub.subscribers.remove(subscriber);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    /**
+     * Record committed changes; they are sent with the next flush
+     */
+    @EventListener
+    public void onAggregateChanged(AggregateChangedEvent event) {
+        Hub hub = hubs.get(event.tenantId());
+        if (hub != null) {
+            int changed = mask(event.aggregates());
+            hub.pending.getAndUpdate(pending -> pending | changed);
+        } else {
+            // Nobody is listening; advancing the sequence makes a later resume get a reset instead
+            sequence.incrementAndGet();
+        }
+    }
+
+    /**
+     * Send the changes each tenant collected since the last flush, and keep idle streams alive
+     */
+    @Scheduled(fixedDelayString = "${ems.events.flush-interval-ms:250}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        boolean heartbeat = now - lastHeartbeat >= heartbeatMillis;
+        if (heartbeat) {
+            lastHeartbeat = now;
+        }
+
+        hubs.forEach((tenantId, hub) -> {
+            if (hub.subscribers.isEmpty() && hub.pending.get() == 0) {
+                // Keep history for a client that is about to reconnect; drop hubs nobody used recently
+                if (heartbeat && now - hub.usedAt > retentionMillis) {
+                    retire(tenantId, hub);
+                }
+                return;
+            }
+            if (hub.pending.get() == 0 && !heartbeat) {
+                return;
+            }
+            // One send at a time per tenant keeps its events in order; changes wait for the next flush
+            if (!hub.sending.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                senders.execute(() -> {
+                    try {
+                        deliver(tenantId, hub, heartbeat);
+                    } finally {
+                        hub.sending.set(false);
+                    }
+                });
+            } catch (RuntimeException e) {
+                hub.sending.set(false);
+                throw e;
+            }
+        });
+    }
+
+    private void deliver(Long tenantId, Hub hub, boolean heartbeat) {
+        int changed = hub.pending.getAndSet(0);
+        ChangeEvent event = null;
+        List<Subscriber> subscribers;
+        synchronized (hub) {
+            if (changed != 0) {
+                event = new ChangeEvent(sequence.incrementAndGet(), changed, versions(tenantId, changed));
+                hub.history.addLast(event);
+                while (hub.history.size() > historySize) {
+                    hub.evictedUpTo = hub.history.removeFirst().sequence();
+                }
+            }
+            subscribers = new ArrayList<>(hub.subscribers);
+            if (!subscribers.isEmpty()) {
+                hub.usedAt = System.currentTimeMillis();
+            }
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            try {
+                if (event != null && (event.mask() & subscriber.mask()) != 0) {
+                    send(subscriber, event);
+                } else if (heartbeat) {
+                    subscriber.emitter().send(SseEmitter.event().comment("keep-alive"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away; the container completes the emitter, we just stop sending to it
+                hub.subscribers.remove(subscriber);
+                logger.debug("Dropped event stream of tenant {}: {}", tenantId, e.getMessage());
+            }
+        }
+    }
+
+    private void send(Subscriber subscriber, ChangeEvent event) throws IOException {
+        if ((event.mask() & subscriber.mask()) == 0) {
+            return;
+        }
+        Map<String, Long> versions = new LinkedHashMap<>();
+        event.versions().forEach((name, version) -> {
+            if ((subscriber.mask() & (1 << Aggregate.valueOf(name).ordinal())) != 0) {
+                versions.put(name, version);
+            }
+        });
+        subscriber.emitter().send(SseEmitter.event()
+                .id(eventId(event.sequence()))
+                .name(CHANGE_EVENT)
+                .data(versions, MediaType.APPLICATION_JSON));
+    }
+
+    private void retire(Long tenantId, Hub hub) {
+        synchronized (hub) {
+            if (hub.subscribers.isEmpty() && hub.pending.get() == 0) {
+                hubs.remove(tenantId, hub);
+            }
+        }
+    }
+
+    private Map<String, Long> versions(Long tenantId, int changed) {
+        Map<String, Long> versions = new LinkedHashMap<>();
+        for (Aggregate aggregate : Aggregate.values()) {
+            if ((changed & (1 << aggregate.ordinal())) != 0) {
+                versions.put(aggregate.name(), aggregateVersionService.getVersion(tenantId, aggregate));
+            }
+        }
+        return versions;
+    }
+
+    private String eventId(long eventSequence) {
+        return epoch + "-" + eventSequence;
+    }
+
+    // -1 when the id is missing, malformed or from another process
+    private long parseSequence(String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(epoch + "-")) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private static int mask(List<Aggregate> aggregates) {
+        int mask = 0;
+        for (Aggregate aggregate : aggregates) {
+            mask |= 1 << aggregate.ordinal();
+        }
+        return mask;
+    }
+}
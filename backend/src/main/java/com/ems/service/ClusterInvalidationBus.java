@@ -0,0 +1,284 @@
+package com.ems.service;
+
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ems.config.ShardDataSources;
+import com.ems.service.AggregateVersionService.Aggregate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Carries (tenant, aggregate, id) invalidations between backend nodes over Postgres LISTEN/NOTIFY.
+ *
+ * Invalidations of one transaction are merged per tenant and sent with pg_notify inside that
+ * transaction, so Postgres delivers them only if it commits. Every node listens on every shard,
+ * as a notification goes out on the shard of the tenant that changed, with one connection per
+ * shard outside the pool, and turns what other nodes sent into ClusterInvalidationEvents,
+ * merging everything that arrived together so a storm of writes becomes one event per tenant.
+ * After the listen connection was lost, notifications sent meanwhile are gone, so the node
+ * treats everything as stale once it is back. Needs a direct connection; LISTEN does not
+ * work through a transaction-pooling proxy.
+ */
+@Service
+public class ClusterInvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterInvalidationBus.class);
+
+    public static final String CHANNEL = "ems_invalidation";
+
+    private static final Object PENDING_KEY = new Object();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ems.invalidation.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ems.invalidation.poll-ms:500}")
+    private int pollMillis;
+
+    @Value("${ems.invalidation.validate-ms:30000}")
+    private long validateMillis;
+
+    @Value("${ems.invalidation.max-backoff-ms:30000}")
+    private long maxBackoffMillis;
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    // Identifies this node's own notifications, which it has already applied locally
+    private final String nodeId = HexFormat.of().toHexDigits(new SecureRandom().nextInt());
+
+    private volatile boolean running;
+
+    private final Set<String> connectedShards = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
+    private final List<Thread> listeners = new ArrayList<>();
+
+    private record Target(Long tenantId, Long id) {
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        for (String shard : shardDataSources.names()) {
+            Gauge.builder("ems.invalidation.connected", this, bus -> bus.connectedShards.contains(shard) ? 1 : 0)
+                    .description("Whether this node listens for invalidations of other nodes")
+                    .tag("shard", shard)
+                    .register(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        for (String shard : shardDataSources.names()) {
+            listeners.add(Thread.ofPlatform().daemon().name("invalidation-listener-" + shard).start(() -> listen(shard)));
+        }
+        logger.info("Listening for invalidations on channel {} of shards {} as node {}", CHANNEL, shardDataSources.names(), nodeId);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        connections.values().forEach(ClusterInvalidationBus::closeQuietly);
+        listeners.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Tell the other nodes that aggregates of a tenant changed; id is null when the whole aggregate changed.
+     * Inside a transaction this is sent only if it commits.
+     */
+    public void publish(Long tenantId, Long id, Aggregate... aggregates) {
+        if (!enabled || tenantId == null || aggregates.length == 0) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Map<Target, Set<Aggregate>> single = new HashMap<>();
+            single.put(new Target(tenantId, id), EnumSet.of(aggregates[0], aggregates));
+            send(single);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<Target, Set<Aggregate>> pending = (Map<Target, Set<Aggregate>>) TransactionSynchronizationManager.getResource(PENDING_KEY);
+        if (pending == null) {
+            Map<Target, Set<Aggregate>> created = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(PENDING_KEY, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    send(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEY);
+                }
+            });
+            pending = created;
+        }
+        pending.computeIfAbsent(new Target(tenantId, id), target -> EnumSet.noneOf(Aggregate.class))
+                .addAll(List.of(aggregates));
+    }
+
+    private void send(Map<Target, Set<Aggregate>> invalidations) {
+        // One notification per tenant; ids of the same tenant and aggregates travel together
+        Map<Long, Set<Aggregate>> aggregatesByTenant = new HashMap<>();
+        Map<Long, Set<Long>> idsByTenant = new HashMap<>();
+        invalidations.forEach((target, aggregates) -> {
+            aggregatesByTenant.computeIfAbsent(target.tenantId(), tenant -> EnumSet.noneOf(Aggregate.class)).addAll(aggregates);
+            Set<Long> ids = idsByTenant.computeIfAbsent(target.tenantId(), tenant -> new LinkedHashSet<>());
+            ids.add(target.id());
+        });
+
+        aggregatesByTenant.forEach((tenantId, aggregates) -> {
+            Set<Long> ids = idsByTenant.get(tenantId);
+            // Any whole-aggregate change makes the ids meaningless
+            String idList = ids.contains(null) ? ""
+                    : ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+            String payload = nodeId + ";" + tenantId + ";"
+                    + aggregates.stream().map(Aggregate::name).collect(Collectors.joining(",")) + ";" + idList;
+            jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, CHANNEL, payload);
+            meterRegistry.counter("ems.invalidation.sent").increment();
+        });
+    }
+
+    private void listen(String shard) {
+        long backoff = 1000L;
+        boolean missed = false;
+        while (running) {
+            try (Connection listenConnection = shardDataSources.openDirectConnection(shard)) {
+                connections.put(shard, listenConnection);
+                try (Statement statement = listenConnection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                connectedShards.add(shard);
+                backoff = 1000L;
+                if (missed) {
+                    logger.info("Invalidation listener of shard {} reconnected, treating all cached reads as stale", shard);
+                    eventPublisher.publishEvent(ClusterInvalidationEvent.everything());
+                }
+
+                PGConnection pgConnection = listenConnection.unwrap(PGConnection.class);
+                long validatedAt = System.currentTimeMillis();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollMillis);
+                    if (notifications != null && notifications.length > 0) {
+                        apply(notifications);
+                    } else if (System.currentTimeMillis() - validatedAt > validateMillis) {
+                        // A half-open connection never errors on its own
+                        if (!listenConnection.isValid(5)) {
+                            throw new SQLException("Listen connection is no longer valid");
+                        }
+                        validatedAt = System.currentTimeMillis();
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Invalidation listener of shard {} has no connection, retrying in {} ms: {}",
+                        shard, backoff, e.getMessage());
+            } finally {
+                connectedShards.remove(shard);
+                connections.remove(shard);
+            }
+
+            missed = true;
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, maxBackoffMillis);
+        }
+    }
+
+    private void apply(PGNotification[] notifications) {
+        Map<Long, Set<Aggregate>> aggregatesByTenant = new HashMap<>();
+        Map<Long, Set<Long>> idsByTenant = new HashMap<>();
+        for (PGNotification notification : notifications) {
+            String[] parts = notification.getParameter().split(";", -1);
+            if (parts.length != 4 || parts[0].equals(nodeId)) {
+                continue;
+            }
+            try {
+                Long tenantId = Long.valueOf(parts[1]);
+                Set<Aggregate> aggregates = aggregatesByTenant.computeIfAbsent(tenantId, tenant -> EnumSet.noneOf(Aggregate.class));
+                for (String name : parts[2].split(",")) {
+                    aggregates.add(Aggregate.valueOf(name));
+                }
+                Set<Long> ids = idsByTenant.computeIfAbsent(tenantId, tenant -> new LinkedHashSet<>());
+                if (parts[3].isEmpty()) {
+                    ids.add(null);
+                } else {
+                    for (String id : parts[3].split(",")) {
+                        ids.add(Long.valueOf(id));
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring malformed invalidation {}", notification.getParameter());
+            }
+        }
+
+        meterRegistry.counter("ems.invalidation.received").increment(notifications.length);
+        aggregatesByTenant.forEach((tenantId, aggregates) -> {
+            Set<Long> ids = idsByTenant.get(tenantId);
+            List<Long> idList = ids.contains(null) ? List.of() : new ArrayList<>(ids);
+            eventPublisher.publishEvent(new ClusterInvalidationEvent(tenantId, List.copyOf(aggregates), idList));
+        });
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Closing only unblocks the listener
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.ems.service;
+
+import java.util.List;
+
+import com.ems.service.AggregateVersionService.Aggregate;
+
+/**
+ * Published when another node committed changes to a tenant's aggregates.
+ * A null tenant means invalidations may have been missed and everything is stale;
+ * ids are empty when the whole aggregate changed.
+ */
+public record ClusterInvalidationEvent(Long tenantId, List<Aggregate> aggregates, List<Long> ids) {
+
+    public static ClusterInvalidationEvent everything() {
+        return new ClusterInvalidationEvent(null, List.of(Aggregate.values()), List.of());
+    }
+}
@@ -0,0 +1,305 @@
+package com.ems.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ems.dto.SimulationRequestDto;
+import com.ems.dto.SimulationRequestDto.Rule;
+import com.ems.dto.SimulationResultDto;
+import com.ems.dto.SimulationResultDto.DepartmentResult;
+import com.ems.model.Deduction.DeductionType;
+import com.ems.model.Department.BudgetType;
+import com.ems.model.Employee.ContractType;
+import com.ems.model.User;
+import com.ems.repository.DeductionRepository;
+import com.ems.repository.DepartmentRepository;
+import com.ems.repository.SalaryRepository;
+import com.ems.util.PayrollMath;
+
+/**
+ * Service for what-if compensation simulations.
+ *
+ * A period is loaded once as scalar columns into primitive arrays (roles and
+ * departments dictionary-encoded), each rule is applied as a single pass over
+ * those arrays and deductions are recomputed with PayrollMath. No Salary entity
+ * is loaded and nothing is written.
+ */
+@Service
+public class CompensationSimulationService {
+
+    private static final int ANY = -1;
+
+    @Autowired
+    private SalaryRepository salaryRepository;
+
+    @Autowired
+    private DeductionRepository deductionRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private AuthService authService;
+
+    /**
+     * Simulate the given raise rules over a salary period of the current user's company
+     */
+    @Transactional(readOnly = true)
+    public SimulationResultDto simulate(SimulationRequestDto request) {
+        User currentUser = authService.getCurrentUser();
+        PeriodSnapshot snapshot = loadSnapshot(currentUser, request.getYear(), request.getMonth());
+
+        int count = snapshot.count;
+        long[] grossCents = snapshot.grossCents.clone();
+        boolean[] affected = new boolean[count];
+        for (Rule rule : request.getRules()) {
+            applyRule(snapshot, rule, grossCents, affected);
+        }
+
+        long[] taxCents = new long[count];
+        long[] insuranceCents = new long[count];
+        long[] otherCents = new long[count];
+        long[] netCents = new long[count];
+        PayrollMath.computePeriod(grossCents, snapshot.deductionStart, snapshot.deductionType,
+                snapshot.deductionValue, snapshot.deductionPercentage,
+                taxCents, insuranceCents, otherCents, netCents);
+
+        return summarize(request, snapshot, grossCents, netCents, affected);
+    }
+
+    private PeriodSnapshot loadSnapshot(User user, Integer year, Integer month) {
+        PeriodSnapshot snapshot = new PeriodSnapshot();
+
+        List<Object[]> departments = departmentRepository.findBudgetRowsByUser(user);
+        int departmentCount = departments.size();
+        snapshot.departmentIds = new Long[departmentCount];
+        snapshot.departmentNames = new String[departmentCount];
+        snapshot.budgetTypes = new BudgetType[departmentCount];
+        snapshot.budgetCents = new long[departmentCount];
+        for (int i = 0; i < departmentCount; i++) {
+            Object[] row = departments.get(i);
+            snapshot.departmentIds[i] = (Long) row[0];
+            snapshot.departmentNames[i] = (String) row[1];
+            snapshot.budgetCents[i] = PayrollMath.toCents((Double) row[2]);
+            snapshot.budgetTypes[i] = (BudgetType) row[3];
+            snapshot.departmentIndex.put(snapshot.departmentIds[i], i);
+        }
+
+        List<Object[]> salaries = salaryRepository.findSimulationRowsByUserAndYearAndMonth(user, year, month);
+        int count = salaries.size();
+        snapshot.count = count;
+        snapshot.salaryIds = new long[count];
+        snapshot.grossCents = new long[count];
+        snapshot.roleCode = new int[count];
+        snapshot.contractType = new byte[count];
+        snapshot.department = new int[count];
+        for (int i = 0; i < count; i++) {
+            Object[] row = salaries.get(i);
+            snapshot.salaryIds[i] = (Long) row[0];
+            snapshot.grossCents[i] = PayrollMath.toCents((Double) row[1]);
+
+            String role = (String) row[2];
+            snapshot.roleCode[i] = role == null ? ANY
+                    : snapshot.roleCodes.computeIfAbsent(role.toLowerCase(), key -> snapshot.roleCodes.size());
+
+            ContractType contractType = (ContractType) row[3];
+            snapshot.contractType[i] = contractType == null ? ANY : (byte) contractType.ordinal();
+
+            // Salaries of employees without a department go to a trailing "unassigned" bucket
+            Integer departmentIndex = row[4] == null ? null : snapshot.departmentIndex.get((Long) row[4]);
+            snapshot.department[i] = departmentIndex == null ? departmentCount : departmentIndex;
+        }
+
+        // Deduction rows come in salary id order, like the salary rows, so both are merged in one pass
+        List<Object[]> deductions = deductionRepository.findSimulationRowsByUserAndYearAndMonth(user, year, month);
+        int deductionCount = deductions.size();
+        snapshot.deductionStart = new int[count + 1];
+        snapshot.deductionType = new byte[deductionCount];
+        snapshot.deductionValue = new long[deductionCount];
+        snapshot.deductionPercentage = new boolean[deductionCount];
+
+        int row = 0;
+        int written = 0;
+        for (int i = 0; i < count; i++) {
+            long salaryId = snapshot.salaryIds[i];
+            while (row < deductionCount && (Long) deductions.get(row)[0] < salaryId) {
+                row++;
+            }
+            snapshot.deductionStart[i] = written;
+            while (row < deductionCount && (Long) deductions.get(row)[0] == salaryId) {
+                Object[] deduction = deductions.get(row++);
+                boolean percentage = (Boolean) deduction[3];
+                snapshot.deductionType[written] = typeCode((DeductionType) deduction[1]);
+                snapshot.deductionValue[written] = percentage
+                        ? PayrollMath.toRate((Double) deduction[2])
+                        : PayrollMath.toCents((Double) deduction[2]);
+                snapshot.deductionPercentage[written] = percentage;
+                written++;
+            }
+        }
+        snapshot.deductionStart[count] = written;
+
+        return snapshot;
+    }
+
+    private void applyRule(PeriodSnapshot snapshot, Rule rule, long[] grossCents, boolean[] affected) {
+        int role = ANY;
+        if (rule.getRole() != null) {
+            Integer code = snapshot.roleCodes.get(rule.getRole().toLowerCase());
+            if (code == null) {
+                return;
+            }
+            role = code;
+        }
+
+        int department = ANY;
+        if (rule.getDepartmentId() != null) {
+            Integer index = snapshot.departmentIndex.get(rule.getDepartmentId());
+            if (index == null) {
+                return;
+            }
+            department = index;
+        }
+
+        int contractType = rule.getContractType() == null ? ANY : rule.getContractType().ordinal();
+        long rate = PayrollMath.toRate(rule.getRaisePercentage());
+
+        int[] roleCode = snapshot.roleCode;
+        byte[] contractTypes = snapshot.contractType;
+        int[] departments = snapshot.department;
+        for (int i = 0, count = snapshot.count; i < count; i++) {
+            if ((role == ANY || roleCode[i] == role)
+                    && (contractType == ANY || contractTypes[i] == contractType)
+                    && (department == ANY || departments[i] == department)) {
+                grossCents[i] += PayrollMath.percentOf(grossCents[i], rate);
+                affected[i] = true;
+            }
+        }
+    }
+
+    private SimulationResultDto summarize(SimulationRequestDto request, PeriodSnapshot snapshot,
+            long[] grossCents, long[] netCents, boolean[] affected) {
+        int buckets = snapshot.departmentIds.length + 1;
+        long[] currentGross = new long[buckets];
+        long[] simulatedGross = new long[buckets];
+        long[] simulatedNet = new long[buckets];
+        int[] employees = new int[buckets];
+        int[] affectedEmployees = new int[buckets];
+
+        long currentTotal = 0L;
+        long simulatedTotal = 0L;
+        long netTotal = 0L;
+        int affectedTotal = 0;
+        for (int i = 0; i < snapshot.count; i++) {
+            int bucket = snapshot.department[i];
+            currentGross[bucket] += snapshot.grossCents[i];
+            simulatedGross[bucket] += grossCents[i];
+            simulatedNet[bucket] += netCents[i];
+            employees[bucket]++;
+            currentTotal += snapshot.grossCents[i];
+            simulatedTotal += grossCents[i];
+            netTotal += netCents[i];
+            if (affected[i]) {
+                affectedEmployees[bucket]++;
+                affectedTotal++;
+            }
+        }
+
+        SimulationResultDto result = new SimulationResultDto();
+        result.setMonth(request.getMonth());
+        result.setYear(request.getYear());
+        result.setEmployeeCount(snapshot.count);
+        result.setAffectedCount(affectedTotal);
+        result.setCurrentGrossTotal(PayrollMath.toAmount(currentTotal));
+        result.setSimulatedGrossTotal(PayrollMath.toAmount(simulatedTotal));
+        result.setSimulatedNetTotal(PayrollMath.toAmount(netTotal));
+
+        List<DepartmentResult> departments = new ArrayList<>();
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            boolean unassigned = bucket == buckets - 1;
+            if (unassigned && employees[bucket] == 0) {
+                continue;
+            }
+
+            DepartmentResult department = new DepartmentResult();
+            department.setEmployeeCount(employees[bucket]);
+            department.setAffectedCount(affectedEmployees[bucket]);
+            department.setCurrentGross(PayrollMath.toAmount(currentGross[bucket]));
+            department.setSimulatedGross(PayrollMath.toAmount(simulatedGross[bucket]));
+            department.setSimulatedNet(PayrollMath.toAmount(simulatedNet[bucket]));
+
+            if (unassigned) {
+                department.setDepartmentName("Unassigned");
+            } else {
+                BudgetType budgetType = snapshot.budgetTypes[bucket];
+                long budget = snapshot.budgetCents[bucket];
+                long comparableCurrent = annualize(currentGross[bucket], budgetType);
+                long comparableSimulated = annualize(simulatedGross[bucket], budgetType);
+
+                department.setDepartmentId(snapshot.departmentIds[bucket]);
+                department.setDepartmentName(snapshot.departmentNames[bucket]);
+                department.setBudgetType(budgetType);
+                department.setBudget(PayrollMath.toAmount(budget));
+                department.setCurrentBudgetUsage(usage(comparableCurrent, budget));
+                department.setSimulatedBudgetUsage(usage(comparableSimulated, budget));
+                department.setOverBudget(comparableSimulated > budget);
+            }
+            departments.add(department);
+        }
+        result.setDepartments(departments);
+
+        return result;
+    }
+
+    // Yearly budgets are compared with the period's gross as if it were paid every month
+    private long annualize(long periodCents, BudgetType budgetType) {
+        return budgetType == BudgetType.YEARLY ? periodCents * 12 : periodCents;
+    }
+
+    private Double usage(long cents, long budgetCents) {
+        if (budgetCents == 0) {
+            return null;
+        }
+        return Math.round(cents * 10_000.0 / budgetCents) / 10_000.0;
+    }
+
+    private byte typeCode(DeductionType type) {
+        if (type == DeductionType.TAX) {
+            return PayrollMath.TAX;
+        } else if (type == DeductionType.INSURANCE) {
+            return PayrollMath.INSURANCE;
+        }
+        return PayrollMath.CUSTOM;
+    }
+
+    /**
+     * Columnar, read-only view of one salary period
+     */
+    private static final class PeriodSnapshot {
+        int count;
+        long[] salaryIds;
+        long[] grossCents;
+        int[] roleCode;
+        byte[] contractType;
+        int[] department;
+
+        int[] deductionStart;
+        byte[] deductionType;
+        long[] deductionValue;
+        boolean[] deductionPercentage;
+
+        Long[] departmentIds;
+        String[] departmentNames;
+        BudgetType[] budgetTypes;
+        long[] budgetCents;
+
+        final Map<String, Integer> roleCodes = new HashMap<>();
+        final Map<Long, Integer> departmentIndex = new HashMap<>();
+    }
+}
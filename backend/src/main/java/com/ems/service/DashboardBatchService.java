@@ -0,0 +1,222 @@
+package com.ems.service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ems.dto.DashboardBatchRequestDto;
+import com.ems.dto.DashboardBatchRequestDto.SubRequest;
+import com.ems.dto.DashboardBatchResponseDto;
+import com.ems.dto.DashboardBatchResponseDto.Result;
+import com.ems.exception.AuthenticationException;
+import com.ems.exception.BadRequestException;
+import com.ems.exception.ResourceNotFoundException;
+import com.ems.model.User;
+import com.ems.security.TenantContext;
+import com.ems.service.HeadcountTimelineService.Granularity;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Serves several dashboard reads in one request.
+ *
+ * The manager is loaded once and shared with every sub-request. Independent sub-requests
+ * run concurrently on a small bounded pool, each in its own read-only transaction with a
+ * timeout, and a failing sub-request only fails its own entry in the combined response.
+ * Only the named reads registered here can be requested.
+ */
+@Service
+public class DashboardBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardBatchService.class);
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private DepartmentService departmentService;
+
+    @Autowired
+    private LeaveService leaveService;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private SalaryService salaryService;
+
+    @Autowired
+    private EmployeeInactivityService employeeInactivityService;
+
+    @Autowired
+    private AnalyticsServiceImpl analyticsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${ems.dashboard.batch.threads:4}")
+    private int threads;
+
+    @Value("${ems.dashboard.batch.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${ems.dashboard.batch.timeout-seconds:10}")
+    private int timeoutSeconds;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    private final Map<String, Function<ReadContext, Object>> reads = new HashMap<>();
+
+    private record ReadContext(User user, Map<String, String> params) {
+    }
+
+    @PostConstruct
+    void init() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("dashboard-batch-");
+        // When the pool is saturated the request thread runs the sub-request itself
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readOnlyTransaction.setTimeout(timeoutSeconds);
+
+        reads.put("employeeCountsByRole", context -> employeeService.getEmployeeCountsByRole());
+        reads.put("employeeCountsByContractType", context -> employeeService.getEmployeeCountsByContractType());
+        reads.put("employeeCountsByDepartment", context -> employeeService.getEmployeeCountsByDepartment());
+        reads.put("departmentStatistics", context -> departmentService.getDepartmentStatistics());
+        reads.put("leaveStatistics", context -> leaveService.getLeaveStatistics());
+        reads.put("messageStatistics", context -> messageService.getMessageStatistics());
+        reads.put("inactivityStatistics", context -> employeeInactivityService.getInactivityStatistics(context.user()));
+        reads.put("salaryPeriods", context -> salaryService.getSalaryPeriods());
+        reads.put("salaryTrends", context -> salaryService.getSalaryTrends());
+        reads.put("salaryStatsByDepartment", context -> salaryService.getSalaryStatsByDepartment());
+        reads.put("analytics", context -> analyticsService.getAnalyticsForCurrentUser());
+        reads.put("headcountTimeline", this::headcountTimeline);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Run the sub-requests of a batch for the current manager and combine their results
+     */
+    public DashboardBatchResponseDto execute(DashboardBatchRequestDto request) {
+        User user = authService.getCurrentUser();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Long tenantId = TenantContext.getTenantId();
+
+        Map<String, CompletableFuture<Object>> futures = new LinkedHashMap<>();
+        DashboardBatchResponseDto response = new DashboardBatchResponseDto();
+        for (SubRequest subRequest : request.getRequests()) {
+            if (futures.containsKey(subRequest.getId()) || response.getResults().containsKey(subRequest.getId())) {
+                throw new BadRequestException("Duplicate sub-request id: " + subRequest.getId());
+            }
+
+            Function<ReadContext, Object> read = reads.get(subRequest.getName());
+            if (read == null) {
+                response.getResults().put(subRequest.getId(), new Result(404, null, "Unknown read: " + subRequest.getName()));
+                continue;
+            }
+
+            ReadContext context = new ReadContext(user, subRequest.getParams() != null ? subRequest.getParams() : Map.of());
+            futures.put(subRequest.getId(), CompletableFuture.supplyAsync(
+                    () -> runAs(authentication, tenantId, user, () -> read.apply(context)), executor));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        futures.forEach((id, future) -> response.getResults().put(id, await(id, future, deadline)));
+        return response;
+    }
+
+    private Object runAs(Authentication authentication, Long tenantId, User user, Supplier<Object> read) {
+        // The request thread may run this itself when the pool is saturated, so restore rather than clear
+        SecurityContext previousContext = SecurityContextHolder.getContext();
+        Long previousTenantId = TenantContext.getTenantId();
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+        TenantContext.setTenantId(tenantId);
+        try {
+            return authService.withResolvedUser(user, () -> readOnlyTransaction.execute(status -> read.get()));
+        } finally {
+            SecurityContextHolder.setContext(previousContext);
+            TenantContext.setTenantId(previousTenantId);
+        }
+    }
+
+    private Result await(String id, CompletableFuture<Object> future, long deadline) {
+        try {
+            long remaining = Math.max(deadline - System.nanoTime(), 0L);
+            return new Result(200, future.get(remaining, TimeUnit.NANOSECONDS), null);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return new Result(504, null, "Timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(503, null, "Interrupted");
+        } catch (ExecutionException e) {
+            return failure(id, e.getCause());
+        }
+    }
+
+    private Result failure(String id, Throwable cause) {
+        if (cause instanceof BadRequestException) {
+            return new Result(400, null, cause.getMessage());
+        } else if (cause instanceof ResourceNotFoundException) {
+            return new Result(404, null, cause.getMessage());
+        } else if (cause instanceof AuthenticationException) {
+            return new Result(401, null, cause.getMessage());
+        }
+        logger.error("Dashboard batch sub-request {} failed", id, cause);
+        return new Result(500, null, "An unexpected error occurred");
+    }
+
+    private Object headcountTimeline(ReadContext context) {
+        Map<String, String> params = context.params();
+        try {
+            LocalDate to = params.containsKey("to") ? LocalDate.parse(params.get("to")) : LocalDate.now();
+            LocalDate from = params.containsKey("from") ? LocalDate.parse(params.get("from")) : to.minusMonths(11).withDayOfMonth(1);
+            Granularity granularity = params.containsKey("granularity")
+                    ? Granularity.valueOf(params.get("granularity").toUpperCase()) : Granularity.MONTH;
+            Long departmentId = params.containsKey("departmentId") ? Long.valueOf(params.get("departmentId")) : null;
+            return analyticsService.getHeadcountTimelineForCurrentUser(from, to, granularity, departmentId);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new BadRequestException("Invalid headcountTimeline parameters: " + e.getMessage());
+        }
+    }
+}
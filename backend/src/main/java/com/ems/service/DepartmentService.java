@@ -30,6 +30,7 @@ import com.ems.model.Employee.Status;
 import com.ems.repository.DepartmentRepository;
 import com.ems.repository.EmployeeRepository;
 import com.ems.repository.SalaryRepository;
+import com.ems.service.AggregateVersionService.Aggregate;
 
 /**
  * Service class for managing departments
@@ -52,6 +53,15 @@ public class DepartmentService {
     @Autowired
     private EmployeeService employeeService;
     
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
+    @Autowired
+    private BudgetMonitorService budgetMonitorService;
+    
     /**
      * Utility method to handle List<Boolean> return types from repository methods
      * @param booleanList The list returned from repository
@@ -155,37 +165,19 @@ public class DepartmentService {
     }
     
     /**
-     * Get departments that are over budget
+     * Get departments that are over budget in their current budget period
      */
     @Transactional(readOnly = true)
     public List<DepartmentDto> getOverBudgetDepartments() {
-        User currentUser = authService.getCurrentUser();
-        List<Department> overBudgetDepartments = departmentRepository.findOverBudgetDepartments(currentUser);
-        
-        return overBudgetDepartments.stream()
-                .map(department -> {
-                    DepartmentDto dto = convertToDto(department);
-                    dto.calculateBudgetUsage();
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return budgetMonitorService.getOverBudgetDepartments();
     }
     
     /**
-     * Get departments that are approaching their budget limit
+     * Get departments that are approaching their budget limit in their current budget period
      */
     @Transactional(readOnly = true)
     public List<DepartmentDto> getNearLimitDepartments() {
-        User currentUser = authService.getCurrentUser();
-        List<Department> nearLimitDepartments = departmentRepository.findNearBudgetLimitDepartments(currentUser);
-        
-        return nearLimitDepartments.stream()
-                .map(department -> {
-                    DepartmentDto dto = convertToDto(department);
-                    dto.calculateBudgetUsage();
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return budgetMonitorService.getNearLimitDepartments();
     }
     
     /**
@@ -207,6 +199,11 @@ public class DepartmentService {
     @Transactional(readOnly = true)
     public Map<String, Object> getDepartmentStatistics() {
         User currentUser = authService.getCurrentUser();
+        return requestCoalescer.coalesce("departmentStatistics", currentUser.getId(), List.of(),
+                () -> computeDepartmentStatistics(currentUser), Aggregate.DEPARTMENT, Aggregate.EMPLOYEE, Aggregate.SALARY);
+    }
+    
+    private Map<String, Object> computeDepartmentStatistics(User currentUser) {
         Map<String, Object> statistics = new HashMap<>();
         
         // Basic stats
@@ -243,23 +240,17 @@ public class DepartmentService {
         
         statistics.put("employeeDistribution", employeeDistribution);
         
-        // Budget analysis
-        List<Object[]> budgetReport = departmentRepository.getDepartmentBudgetReport(currentUser);
+        // Budget analysis, on the payroll of each department's current budget period
         List<Map<String, Object>> budgetAnalysis = new ArrayList<>();
         
-        for (Object[] report : budgetReport) {
+        for (BudgetMonitorService.BudgetStatus status : budgetMonitorService.getStatusForCurrentUser()) {
             Map<String, Object> entry = new HashMap<>();
-            entry.put("departmentName", report[0]);
-            entry.put("budgetType", report[1]);
-            entry.put("budget", report[2]);
-            entry.put("totalSalary", report[3] != null ? report[3] : 0.0);
-            
-            double budget = (Double) report[2];
-            double totalSalary = report[3] != null ? (Double) report[3] : 0.0;
-            double usagePercentage = budget > 0 ? (totalSalary / budget) * 100 : 0.0;
-            
-            entry.put("usagePercentage", usagePercentage);
-            entry.put("overBudget", usagePercentage > 100);
+            entry.put("departmentName", status.name());
+            entry.put("budgetType", status.budgetType());
+            entry.put("budget", status.budget());
+            entry.put("totalSalary", status.expenses());
+            entry.put("usagePercentage", status.usagePercentage());
+            entry.put("overBudget", status.isOverBudget());
             
             budgetAnalysis.add(entry);
         }
@@ -340,6 +331,7 @@ public class DepartmentService {
         department.setUser(currentUser);
         
         Department savedDepartment = departmentRepository.save(department);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.DEPARTMENT);
         return convertToDto(savedDepartment);
     }
 
@@ -369,6 +361,7 @@ public class DepartmentService {
         department.setBudgetType(departmentDto.getBudgetType());
         
         Department updatedDepartment = departmentRepository.save(department);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.DEPARTMENT);
         return convertToDto(updatedDepartment);
     }
 
@@ -388,6 +381,7 @@ public class DepartmentService {
         }
         
         departmentRepository.delete(department);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.DEPARTMENT);
     }
     
     /**
@@ -5,13 +5,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.ems.dto.EmployeeInactivityDto;
+import com.ems.dto.InactivityTypeTotals;
 import com.ems.exception.BadRequestException;
 import com.ems.exception.ResourceNotFoundException;
 import com.ems.model.Department;
@@ -21,15 +24,31 @@ import com.ems.model.User;
 import com.ems.model.EmployeeInactivity.InactivityType;
 import com.ems.repository.EmployeeInactivityRepository;
 import com.ems.repository.EmployeeRepository;
+import com.ems.service.AggregateVersionService.Aggregate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 @Service
 public class EmployeeInactivityService {
 
+    // Rows converted between two persistence context clears while streaming, in line with the fetch size
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     @Autowired
     private EmployeeInactivityRepository employeeInactivityRepository;
 
     @Autowired
     private EmployeeRepository employeeRepository;
+    
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Transactional(readOnly = true)
     public List<EmployeeInactivityDto> getAllInactivitiesByUser(User user) {
@@ -39,6 +58,29 @@ public class EmployeeInactivityService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Stream all inactivity records of a company to the consumer, with the employee and department
+     * columns read in the same row and the persistence context cleared after every chunk
+     */
+    @Transactional(readOnly = true)
+    public void streamInactivities(User user, Consumer<? super EmployeeInactivityDto> consumer) {
+        try (Stream<Object[]> rows = employeeInactivityRepository.streamListRowsByUser(user)) {
+            int[] converted = new int[1];
+            rows.forEach(row -> {
+                EmployeeInactivityDto dto = new EmployeeInactivityDto();
+                dto.setEmployeeId((Long) row[1]);
+                dto.setEmployeeName((String) row[2]);
+                dto.setEmployeeEmail((String) row[3]);
+                dto.setDepartmentName((String) row[4]);
+                copyInactivityFields((EmployeeInactivity) row[0], dto);
+                consumer.accept(dto);
+                if (++converted[0] % STREAM_CHUNK_SIZE == 0) {
+                    entityManager.clear();
+                }
+            });
+        }
+    }
+
     @Transactional(readOnly = true)
     public List<EmployeeInactivityDto> getInactivitiesByEmployee(Long employeeId, User user) {
         Employee employee = employeeRepository.findByIdAndUser(employeeId, user)
@@ -138,6 +180,7 @@ public class EmployeeInactivityService {
             employeeRepository.save(employee);
         }
         
+        aggregateVersionService.bump(user.getId(), Aggregate.INACTIVITY, Aggregate.EMPLOYEE);
         return convertToDto(savedInactivity);
     }
 
@@ -184,6 +227,7 @@ public class EmployeeInactivityService {
         // Check and update employee status if needed
         updateEmployeeStatus(inactivity.getEmployee());
         
+        aggregateVersionService.bump(user.getId(), Aggregate.INACTIVITY, Aggregate.EMPLOYEE);
         return convertToDto(updatedInactivity);
     }
 
@@ -202,6 +246,7 @@ public class EmployeeInactivityService {
         
         // Update employee status after deletion
         updateEmployeeStatus(employee);
+        aggregateVersionService.bump(user.getId(), Aggregate.INACTIVITY, Aggregate.EMPLOYEE);
     }
     
     @Transactional
@@ -232,6 +277,7 @@ public class EmployeeInactivityService {
         Employee employee = inactivity.getEmployee();
         updateEmployeeStatus(employee);
         
+        aggregateVersionService.bump(user.getId(), Aggregate.INACTIVITY, Aggregate.EMPLOYEE);
         return convertToDto(updatedInactivity);
     }
     
@@ -262,30 +308,43 @@ public class EmployeeInactivityService {
     
     @Transactional(readOnly = true)
     public Map<String, Object> getInactivityStatistics(User user) {
+        return requestCoalescer.coalesce("inactivityStatistics", user == null ? null : user.getId(), List.of(),
+                () -> computeInactivityStatistics(user), Aggregate.INACTIVITY, Aggregate.EMPLOYEE);
+    }
+    
+    private Map<String, Object> computeInactivityStatistics(User user) {
         Map<String, Object> statistics = new HashMap<>();
         
-        // Count by type
+        // Counts by type, current count and average duration come from one scan grouped by type
+        List<InactivityTypeTotals> typeTotals = employeeInactivityRepository.getInactivityTypeTotals(user, LocalDate.now());
+        
         Map<InactivityType, Long> countByType = new HashMap<>();
         for (InactivityType type : InactivityType.values()) {
-            List<Long> countList = employeeInactivityRepository.countByTypeAndUser(type, user);
-            long count = countList.isEmpty() ? 0L : countList.get(0);
-            countByType.put(type, count);
+            countByType.put(type, 0L);
         }
-        statistics.put("countByType", countByType);
         
-        // Current inactivities
-        LocalDate currentDate = LocalDate.now();
-        List<Long> currentCountList = employeeInactivityRepository.countCurrentInactivities(user, currentDate);
-        long currentCount = currentCountList.isEmpty() ? 0L : currentCountList.get(0);
+        long currentCount = 0L;
+        long endedCount = 0L;
+        double totalEndedDuration = 0.0;
+        for (InactivityTypeTotals totals : typeTotals) {
+            countByType.put(totals.type(), totals.total());
+            currentCount += totals.current() == null ? 0L : totals.current();
+            if (totals.ended() != null && totals.ended() > 0 && totals.averageDuration() != null) {
+                endedCount += totals.ended();
+                totalEndedDuration += totals.averageDuration() * totals.ended();
+            }
+        }
+        
+        statistics.put("countByType", countByType);
         statistics.put("currentCount", currentCount);
         
-        // Average duration (in days)
-        List<Double> averageDurations = employeeInactivityRepository.calculateAverageDuration(user);
-        Double averageDuration = averageDurations.isEmpty() ? 0.0 : averageDurations.get(0);
-        statistics.put("averageDuration", averageDuration);
+        // Average duration (in days) of the inactivities that have ended
+        statistics.put("averageDuration", endedCount == 0 ? 0.0 : totalEndedDuration / endedCount);
         
-        // Inactivities by month
-        List<Object[]> byMonth = employeeInactivityRepository.countInactivitiesByMonth(user);
+        // Inactivities by month, as [year, month, count]
+        List<List<Object>> byMonth = employeeInactivityRepository.countInactivitiesPerMonth(user).stream()
+                .map(count -> List.<Object>of(count.year(), count.month(), count.count()))
+                .collect(Collectors.toList());
         statistics.put("byMonth", byMonth);
         
         return statistics;
@@ -367,7 +426,6 @@ public class EmployeeInactivityService {
     // Convert Entity to DTO
     private EmployeeInactivityDto convertToDto(EmployeeInactivity inactivity) {
         EmployeeInactivityDto dto = new EmployeeInactivityDto();
-        dto.setId(inactivity.getId());
         dto.setEmployeeId(inactivity.getEmployee().getId());
         dto.setEmployeeName(inactivity.getEmployee().getName());
         
@@ -378,6 +436,13 @@ public class EmployeeInactivityService {
             dto.setDepartmentName(department.getName());
         }
         
+        copyInactivityFields(inactivity, dto);
+        return dto;
+    }
+    
+    private void copyInactivityFields(EmployeeInactivity inactivity, EmployeeInactivityDto dto) {
+        dto.setId(inactivity.getId());
+        
         // Set basic properties
         dto.setStartDate(inactivity.getStartDate());
         dto.setEndDate(inactivity.getEndDate());
@@ -392,7 +457,5 @@ public class EmployeeInactivityService {
         dto.setStartDate(inactivity.getStartDate()); 
         dto.setEndDate(inactivity.getEndDate());
         dto.setType(inactivity.getType());
-        
-        return dto;
     }
 }
\ No newline at end of file
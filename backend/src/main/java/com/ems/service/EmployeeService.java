@@ -1,13 +1,16 @@
 package com.ems.service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -37,6 +40,11 @@ import com.ems.repository.EmployeeInactivityRepository;
 import com.ems.repository.EmployeeRepository;
 import com.ems.repository.LeaveRepository;
 import com.ems.repository.SalaryRepository;
+import com.ems.service.AggregateVersionService.Aggregate;
+import com.ems.service.BudgetMonitorService.BudgetStatus;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 /**
  * Service for managing employees
@@ -44,6 +52,9 @@ import com.ems.repository.SalaryRepository;
 @Service
 public class EmployeeService {
 
+    // Rows converted between two persistence context clears while streaming, in line with the fetch size
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     @Autowired
     private EmployeeRepository employeeRepository;
     
@@ -70,6 +81,21 @@ public class EmployeeService {
     
     @Autowired
     private AuthService authService;
+    
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+
+    @Autowired
+    private HistoryArchiveService historyArchiveService;
+
+    @Autowired
+    private BudgetReservationService budgetReservationService;
+
+    @Autowired
+    private BudgetMonitorService budgetMonitorService;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
 
     /**
      * Get all employees for the current user's company
@@ -84,6 +110,105 @@ public class EmployeeService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Stream all employees of a company to the consumer. Rows come from one projection query with the
+     * latest salary, leave and message flags joined in; inactivity periods are loaded per chunk and
+     * department budget usage once per request, so nothing is lazily loaded per employee.
+     */
+    @Transactional(readOnly = true)
+    public void streamEmployees(User user, Consumer<? super EmployeeDto> consumer) {
+        Map<Long, Double> budgetUsage = new HashMap<>();
+        for (BudgetStatus status : budgetMonitorService.getStatus(user)) {
+            if (status.budget() > 0) {
+                budgetUsage.put(status.departmentId(), status.usagePercentage());
+            }
+        }
+
+        List<Object[]> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+        try (Stream<Object[]> rows = employeeRepository.streamListRowsByUser(user, LocalDate.now())) {
+            rows.forEach(row -> {
+                chunk.add(row);
+                if (chunk.size() == STREAM_CHUNK_SIZE) {
+                    emitChunk(chunk, budgetUsage, consumer);
+                }
+            });
+        }
+        emitChunk(chunk, budgetUsage, consumer);
+    }
+
+    private void emitChunk(List<Object[]> chunk, Map<Long, Double> budgetUsage, Consumer<? super EmployeeDto> consumer) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        // Only employees who are not active show an inactivity period
+        List<Long> inactiveIds = chunk.stream()
+                .filter(row -> row[10] != Status.ACTIVE)
+                .map(row -> (Long) row[0])
+                .collect(Collectors.toList());
+        Map<Long, List<EmployeeInactivity>> inactivities = new HashMap<>();
+        if (!inactiveIds.isEmpty()) {
+            for (Object[] row : inactivityRepository.findByEmployeeIds(inactiveIds)) {
+                inactivities.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((EmployeeInactivity) row[1]);
+            }
+        }
+
+        for (Object[] row : chunk) {
+            consumer.accept(convertListRowToDto(row, budgetUsage, inactivities.getOrDefault((Long) row[0], List.of())));
+        }
+        chunk.clear();
+        entityManager.clear();
+    }
+
+    /**
+     * Same fields as convertToDto, from a row of EmployeeRepository.streamListRowsByUser
+     */
+    private EmployeeDto convertListRowToDto(Object[] row, Map<Long, Double> budgetUsage, List<EmployeeInactivity> inactivityPeriods) {
+        EmployeeDto dto = new EmployeeDto();
+        dto.setId((Long) row[0]);
+        dto.setName((String) row[1]);
+        dto.setEmail((String) row[2]);
+        dto.setPhone((String) row[3]);
+        dto.setRole((String) row[4]);
+        dto.setCreatedAt((LocalDateTime) row[11]);
+
+        if (row[5] != null) {
+            dto.setDepartmentId((Long) row[5]);
+            dto.setDepartmentName((String) row[6]);
+            dto.setDepartmentBudgetUsagePercent(budgetUsage.get((Long) row[5]));
+        }
+
+        dto.setContractType((ContractType) row[7]);
+        dto.setStartDate((LocalDate) row[8]);
+        dto.setEndDate((LocalDate) row[9]);
+        Status status = (Status) row[10];
+        dto.setActive(status == Status.ACTIVE);
+        dto.setStatus(status);
+
+        if (row[8] != null) {
+            dto.setTenureDays((int) ChronoUnit.DAYS.between((LocalDate) row[8], LocalDate.now()));
+        }
+
+        EmployeeInactivity currentInactivity = status == Status.ACTIVE ? null : Employee.currentInactivityPeriod(inactivityPeriods);
+        if (currentInactivity != null) {
+            dto.setInactiveFrom(currentInactivity.getStartDate());
+            dto.setInactiveTo(currentInactivity.getEndDate());
+            dto.setInactivityReason(currentInactivity.getReason());
+            dto.setCurrentInactivityId(currentInactivity.getId());
+        }
+
+        if (row[12] != null) {
+            dto.setCurrentSalary(((Number) row[12]).doubleValue());
+            dto.setNetSalary(((Number) row[13]).doubleValue());
+        }
+
+        dto.setPendingLeaveRequests(((Number) row[14]).intValue());
+        dto.setOnLeave((Boolean) row[15]);
+        dto.setHasMessages((Boolean) row[16]);
+
+        return dto;
+    }
+    
     /**
      * Get active employees for the current user's company
      */
@@ -375,8 +500,7 @@ public class EmployeeService {
     @Transactional(readOnly = true)
     public List<EmployeeDto> getCurrentlyInactiveEmployees() {
         User currentUser = authService.getCurrentUser();
-        LocalDate currentDate = LocalDate.now();
-        List<Employee> employees = employeeRepository.findCurrentlyInactiveEmployees(currentUser, currentDate);
+        List<Employee> employees = employeeRepository.findCurrentlyInactiveEmployees(currentUser);
         
         return employees.stream()
                 .map(employee -> {
@@ -493,6 +617,7 @@ public class EmployeeService {
             inactivityRepository.save(inactivity);
         }
         
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.EMPLOYEE, Aggregate.INACTIVITY);
         return convertToDto(savedEmployee);
     }
 
@@ -554,6 +679,12 @@ public class EmployeeService {
             }
         }
         
+        // Move the current payroll to the new department's budget before the department changes
+        Department previousDepartment = employee.getDepartment();
+        if (previousDepartment == null || !previousDepartment.getId().equals(department.getId())) {
+            transferBudget(employee, previousDepartment, department);
+        }
+        
         // Update basic employee info
         employee.setName(employeeDto.getName());
         employee.setEmail(employeeDto.getEmail());
@@ -608,9 +739,29 @@ public class EmployeeService {
         }
         
         Employee updatedEmployee = employeeRepository.save(employee);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.EMPLOYEE, Aggregate.INACTIVITY);
         return convertToDto(updatedEmployee);
     }
 
+    private void transferBudget(Employee employee, Department from, Department to) {
+        LocalDate today = LocalDate.now();
+        double monthGross = 0.0;
+        double yearGross = 0.0;
+        for (Object[] row : salaryRepository.sumGrossByMonth(employee.getId(), today.getYear())) {
+            double gross = ((Number) row[1]).doubleValue();
+            yearGross += gross;
+            if (((Number) row[0]).intValue() == today.getMonthValue()) {
+                monthGross += gross;
+            }
+        }
+        
+        if (!budgetReservationService.transfer(from, to, today.getYear(), today.getMonthValue(), monthGross, yearGross)) {
+            throw new BadRequestException("Moving this employee would exceed the "
+                    + (to.getBudgetType() == Department.BudgetType.MONTHLY ? "monthly" : "yearly")
+                    + " budget for department: " + to.getName());
+        }
+    }
+
     /**
      * Update employee status and inactivity
      */
@@ -685,6 +836,7 @@ public class EmployeeService {
         }
         
         Employee updatedEmployee = employeeRepository.save(employee);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.EMPLOYEE, Aggregate.INACTIVITY);
         return convertToDto(updatedEmployee);
     }
 
@@ -713,7 +865,13 @@ public class EmployeeService {
                     "Please remove message records first or mark employee as inactive instead.");
         }
         
+        if (historyArchiveService.hasArchivedHistory(employee.getId())) {
+            throw new BadRequestException("Cannot delete employee with archived history. " +
+                    "Please mark employee as inactive instead.");
+        }
+        
         employeeRepository.delete(employee);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.EMPLOYEE);
     }
     
     /**
@@ -0,0 +1,115 @@
+package com.ems.service;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ems.config.ShardDataSources;
+import com.ems.repository.EmployeeRepository;
+import com.ems.service.AggregateVersionService.Aggregate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Keeps Employee.status in line with inactivity periods as dates pass.
+ *
+ * Inactivity writes update the status of the employee they touch, but nothing flips it
+ * when a period starts or ends on a later day. This job does, per tenant, with two
+ * set-based UPDATE statements in one short transaction, so read paths can trust the
+ * status column instead of evaluating inactivity intervals. Every shard is visited in turn.
+ */
+@Service
+public class EmployeeStatusReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmployeeStatusReconciliationService.class);
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    /**
+     * Outcome of one reconciliation run
+     */
+    public record Result(int tenants, int deactivated, int reactivated, long durationMillis) {
+    }
+
+    /**
+     * Reconcile every tenant on the configured schedule
+     */
+    @Scheduled(cron = "${ems.status-reconciliation.cron:0 5 * * * *}")
+    public void scheduledReconciliation() {
+        try {
+            reconcileAll();
+        } catch (RuntimeException e) {
+            logger.error("Employee status reconciliation failed", e);
+        }
+    }
+
+    /**
+     * Flip the status of employees whose inactivity started or ended, for all tenants
+     */
+    public Result reconcileAll() {
+        long started = System.nanoTime();
+        LocalDate today = LocalDate.now();
+
+        // tenants, deactivated, reactivated
+        int[] totals = new int[3];
+        shardDataSources.forEach(shard -> {
+            for (Long tenantId : employeeRepository.findTenantIdsWithInactivities()) {
+                // Left alone while it moves; the target shard picks it up next run
+                if (!shardDirectory.isServedFrom(tenantId, shard)) {
+                    continue;
+                }
+                int[] changed = transactionTemplate.execute(status -> reconcileTenant(tenantId, today));
+                totals[0]++;
+                totals[1] += changed[0];
+                totals[2] += changed[1];
+            }
+        });
+        int deactivated = totals[1];
+        int reactivated = totals[2];
+
+        long durationNanos = System.nanoTime() - started;
+        Timer.builder("ems.status.reconciliation")
+                .description("Duration of employee status reconciliation runs")
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("ems.status.reconciliation.changes", "change", "deactivated").increment(deactivated);
+        meterRegistry.counter("ems.status.reconciliation.changes", "change", "reactivated").increment(reactivated);
+
+        Result result = new Result(totals[0], deactivated, reactivated, TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        logger.info("Employee status reconciliation: {} tenants, {} deactivated, {} reactivated in {} ms",
+                result.tenants(), result.deactivated(), result.reactivated(), result.durationMillis());
+        return result;
+    }
+
+    private int[] reconcileTenant(Long tenantId, LocalDate today) {
+        int deactivated = employeeRepository.deactivateEmployeesWithStartedInactivity(tenantId, today);
+        int reactivated = employeeRepository.reactivateEmployeesWithEndedInactivity(tenantId, today);
+        if (deactivated + reactivated > 0) {
+            aggregateVersionService.bump(tenantId, Aggregate.EMPLOYEE);
+        }
+        return new int[] {deactivated, reactivated};
+    }
+}
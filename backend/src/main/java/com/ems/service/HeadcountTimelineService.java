@@ -0,0 +1,174 @@
+package com.ems.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ems.dto.EmployeeTimelineAnalytics;
+import com.ems.exception.BadRequestException;
+import com.ems.model.User;
+import com.ems.repository.EmployeeRepository;
+import com.ems.service.AggregateVersionService.Aggregate;
+
+/**
+ * Builds active and inactive headcount over time from employment and inactivity intervals.
+ *
+ * Every interval becomes a +1 event on its first day and a -1 event on the day after its
+ * last, packed into a long as (epoch day, kind) so the whole history sorts as a primitive
+ * array. One sweep over the sorted events then yields the headcount at the end of every
+ * bucket, regardless of how many buckets are requested.
+ */
+@Service
+public class HeadcountTimelineService {
+
+    public enum Granularity {
+        DAY, WEEK, MONTH
+    }
+
+    private static final int MAX_POINTS = 5000;
+
+    private static final int EMPLOYED_START = 0;
+    private static final int EMPLOYED_END = 1;
+    private static final int INACTIVE_START = 2;
+    private static final int INACTIVE_END = 3;
+
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("MMM yyyy");
+    private static final DateTimeFormatter DAY_LABEL = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    /**
+     * Headcount of a company (optionally one department) for each bucket between two dates.
+     * Each point counts the employees employed on the last day of its bucket, split by
+     * whether they were in an inactivity period that day.
+     */
+    @Transactional(readOnly = true)
+    public EmployeeTimelineAnalytics getTimeline(User user, LocalDate from, LocalDate to,
+            Granularity granularity, Long departmentId) {
+        if (from.isAfter(to)) {
+            throw new BadRequestException("Start date must be before end date");
+        }
+
+        LocalDate[] bucketStarts = bucketStarts(from, to, granularity);
+        return requestCoalescer.coalesce("headcountTimeline", user.getId(),
+                Arrays.asList(from, to, granularity, departmentId),
+                () -> computeTimeline(user, bucketStarts, to, granularity, departmentId),
+                Aggregate.EMPLOYEE, Aggregate.INACTIVITY);
+    }
+
+    /**
+     * Monthly headcount of a company for the last given number of months, up to today
+     */
+    @Transactional(readOnly = true)
+    public EmployeeTimelineAnalytics getRecentMonths(User user, int months) {
+        LocalDate today = LocalDate.now();
+        return getTimeline(user, today.minusMonths(months - 1L).withDayOfMonth(1), today, Granularity.MONTH, null);
+    }
+
+    private EmployeeTimelineAnalytics computeTimeline(User user, LocalDate[] bucketStarts, LocalDate to,
+            Granularity granularity, Long departmentId) {
+        long[] events = loadEvents(user, departmentId, bucketStarts[0], to);
+        Arrays.sort(events);
+
+        int points = bucketStarts.length;
+        List<String> labels = new ArrayList<>(points);
+        List<Integer> active = new ArrayList<>(points);
+        List<Integer> inactive = new ArrayList<>(points);
+
+        int employed = 0;
+        int inactiveCount = 0;
+        int next = 0;
+        for (int i = 0; i < points; i++) {
+            LocalDate sampleDay = i + 1 < points ? bucketStarts[i + 1].minusDays(1) : to;
+            long sampleEpochDay = sampleDay.toEpochDay();
+
+            // Apply every event up to and including the sample day
+            while (next < events.length && (events[next] >> 2) <= sampleEpochDay) {
+                switch ((int) (events[next] & 3)) {
+                    case EMPLOYED_START -> employed++;
+                    case EMPLOYED_END -> employed--;
+                    case INACTIVE_START -> inactiveCount++;
+                    default -> inactiveCount--;
+                }
+                next++;
+            }
+
+            labels.add(label(bucketStarts[i], granularity));
+            active.add(employed - inactiveCount);
+            inactive.add(inactiveCount);
+        }
+
+        EmployeeTimelineAnalytics timeline = new EmployeeTimelineAnalytics();
+        timeline.setMonths(labels);
+        timeline.setActive(active);
+        timeline.setInactive(inactive);
+        return timeline;
+    }
+
+    private long[] loadEvents(User user, Long departmentId, LocalDate from, LocalDate to) {
+        List<Object[]> intervals = employeeRepository.findHeadcountIntervals(user, departmentId, from, to);
+
+        long[] events = new long[intervals.size() * 2];
+        int count = 0;
+        for (Object[] interval : intervals) {
+            LocalDate start = (LocalDate) interval[0];
+            LocalDate end = (LocalDate) interval[1];
+            boolean inactivity = ((Number) interval[2]).intValue() == 1;
+            if (end != null && end.isBefore(start)) {
+                // Inactivity entirely outside the employment period
+                continue;
+            }
+
+            events[count++] = pack(start.toEpochDay(), inactivity ? INACTIVE_START : EMPLOYED_START);
+            if (end != null) {
+                events[count++] = pack(end.toEpochDay() + 1, inactivity ? INACTIVE_END : EMPLOYED_END);
+            }
+        }
+        return count == events.length ? events : Arrays.copyOf(events, count);
+    }
+
+    private long pack(long epochDay, int kind) {
+        return (epochDay << 2) | kind;
+    }
+
+    private LocalDate[] bucketStarts(LocalDate from, LocalDate to, Granularity granularity) {
+        LocalDate first = switch (granularity) {
+            case DAY -> from;
+            case WEEK -> from.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> from.withDayOfMonth(1);
+        };
+        ChronoUnit unit = switch (granularity) {
+            case DAY -> ChronoUnit.DAYS;
+            case WEEK -> ChronoUnit.WEEKS;
+            case MONTH -> ChronoUnit.MONTHS;
+        };
+
+        long points = unit.between(first, to) + 1;
+        if (points > MAX_POINTS) {
+            throw new BadRequestException("Timeline would have " + points + " points; the maximum is " + MAX_POINTS);
+        }
+
+        LocalDate[] starts = new LocalDate[(int) points];
+        for (int i = 0; i < points; i++) {
+            starts[i] = first.plus(i, unit);
+        }
+        return starts;
+    }
+
+    private String label(LocalDate bucketStart, Granularity granularity) {
+        return granularity == Granularity.MONTH ? bucketStart.format(MONTH_LABEL) : bucketStart.format(DAY_LABEL);
+    }
+}
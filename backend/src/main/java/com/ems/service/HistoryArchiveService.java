@@ -0,0 +1,328 @@
+package com.ems.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ems.config.ShardDataSources;
+import com.ems.exception.BadRequestException;
+import com.ems.model.Deduction;
+import com.ems.model.Employee;
+import com.ems.model.Leave;
+import com.ems.model.Message;
+import com.ems.model.Salary;
+import com.ems.model.User;
+import com.ems.repository.EmployeeRepository;
+import com.ems.repository.LeaveRepository;
+import com.ems.repository.MessageRepository;
+import com.ems.repository.SalaryRepository;
+import com.ems.repository.UserRepository;
+import com.ems.service.AggregateVersionService.Aggregate;
+import com.ems.util.NativeRows;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Moves payroll, leave and message history older than a tenant's archive horizon out of
+ * the hot tables, and reads it back for the history endpoints.
+ *
+ * Archive tables (see V4__history_archive_tables.sql) are append-only and have no foreign
+ * keys. Rows move in small batches, one transaction each: the batch is locked, copied into
+ * the archive tables, counted there and only then deleted from the hot tables, so a batch
+ * whose counts do not match is rolled back and stays where it was. The hot tables and the
+ * lazy collections on Employee only hold recent history. Pending
+ * leave requests are never archived. Salary period summaries keep their totals, so periods
+ * and trends still cover archived payroll.
+ */
+@Service
+public class HistoryArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryArchiveService.class);
+
+    @Autowired
+    private SalaryRepository salaryRepository;
+
+    @Autowired
+    private LeaveRepository leaveRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Value("${ems.archive.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${ems.archive.min-horizon-months:12}")
+    private int minHorizonMonths;
+
+    /**
+     * Rows moved to the archive for one tenant
+     */
+    public record Result(int salaries, int leaves, int messages) {
+
+        int total() {
+            return salaries + leaves + messages;
+        }
+    }
+
+    /**
+     * Archive every tenant that has a horizon, on the configured schedule
+     */
+    @Scheduled(cron = "${ems.archive.cron:0 0 3 * * *}")
+    public void scheduledArchival() {
+        shardDataSources.forEach(shard -> {
+            for (Object[] row : userRepository.findArchiveHorizons()) {
+                Long userId = (Long) row[0];
+                if (!shardDirectory.isServedFrom(userId, shard)) {
+                    continue;
+                }
+                try {
+                    archiveTenant(userId, (Integer) row[1]);
+                } catch (RuntimeException e) {
+                    logger.error("Archiving history of tenant {} failed", userId, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Set the archive horizon of the current manager; null or 0 stops archiving
+     */
+    @Transactional
+    public Integer setHorizonForCurrentUser(Integer months) {
+        if (months != null && months < 0) {
+            throw new BadRequestException("Archive horizon cannot be negative");
+        }
+        if (months != null && months != 0 && months < minHorizonMonths) {
+            throw new BadRequestException("Archive horizon must be 0 or at least " + minHorizonMonths + " months");
+        }
+
+        User currentUser = authService.getCurrentUser();
+        currentUser.setArchiveHorizonMonths(months == null || months == 0 ? null : months);
+        userRepository.save(currentUser);
+        return currentUser.getArchiveHorizonMonths();
+    }
+
+    /**
+     * Archive the current manager's history now instead of waiting for the schedule
+     */
+    public Result archiveForCurrentUser() {
+        User currentUser = authService.getCurrentUser();
+        if (currentUser.getArchiveHorizonMonths() == null) {
+            throw new BadRequestException("No archive horizon is set");
+        }
+        return archiveTenant(currentUser.getId(), currentUser.getArchiveHorizonMonths());
+    }
+
+    /**
+     * Move a tenant's history older than the horizon to the archive, one short transaction per batch
+     */
+    public Result archiveTenant(Long userId, int horizonMonths) {
+        YearMonth cutoff = YearMonth.now().minusMonths(horizonMonths);
+        int beforePeriod = cutoff.getYear() * 12 + cutoff.getMonthValue();
+        LocalDate beforeDate = cutoff.atDay(1);
+
+        int salaries = drain(() -> moveSalaries(salaryRepository.lockArchivableIds(userId, beforePeriod, batchSize)));
+        int leaves = drain(() -> moveLeaves(leaveRepository.lockArchivableIds(userId, beforeDate, batchSize)));
+        int messages = drain(() -> moveMessages(messageRepository.lockArchivableIds(userId, beforeDate.atStartOfDay(), batchSize)));
+
+        Result result = new Result(salaries, leaves, messages);
+        if (result.total() > 0) {
+            aggregateVersionService.bump(userId, Aggregate.SALARY, Aggregate.LEAVE, Aggregate.MESSAGE, Aggregate.EMPLOYEE);
+            meterRegistry.counter("ems.archive.rows", "type", "salary").increment(salaries);
+            meterRegistry.counter("ems.archive.rows", "type", "leave").increment(leaves);
+            meterRegistry.counter("ems.archive.rows", "type", "message").increment(messages);
+            logger.info("Archived history of tenant {} before {}: {} salaries, {} leaves, {} messages",
+                    userId, cutoff, salaries, leaves, messages);
+        }
+        return result;
+    }
+
+    /**
+     * Archived salaries of an employee with their deductions, newest first, as detached entities
+     */
+    public List<Salary> findArchivedSalaries(Employee employee) {
+        List<Object[]> rows = salaryRepository.findArchivedByEmployeeId(employee.getId());
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Salary> salariesById = new HashMap<>();
+        List<Salary> salaries = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Salary salary = new Salary();
+            salary.setId(((Number) row[0]).longValue());
+            salary.setEmployee(employee);
+            salary.setGrossSalary(NativeRows.toDouble(row[1]));
+            salary.setTaxDeduction(NativeRows.toDouble(row[2]));
+            salary.setInsuranceDeduction(NativeRows.toDouble(row[3]));
+            salary.setOtherDeductions(NativeRows.toDouble(row[4]));
+            salary.setNetSalary(NativeRows.toDouble(row[5]));
+            salary.setSalaryMonth(((Number) row[6]).intValue());
+            salary.setSalaryYear(((Number) row[7]).intValue());
+            salary.setCreatedAt(NativeRows.toDateTime(row[8]));
+            salariesById.put(salary.getId(), salary);
+            salaries.add(salary);
+        }
+
+        for (Object[] row : salaryRepository.findArchivedDeductionsBySalaryIds(new ArrayList<>(salariesById.keySet()))) {
+            Salary salary = salariesById.get(((Number) row[0]).longValue());
+            Deduction deduction = new Deduction();
+            deduction.setId(((Number) row[1]).longValue());
+            deduction.setType(Deduction.DeductionType.valueOf((String) row[2]));
+            deduction.setName((String) row[3]);
+            deduction.setValue(NativeRows.toDouble(row[4]));
+            deduction.setPercentage((Boolean) row[5]);
+            deduction.setSalary(salary);
+            salary.getDeductions().add(deduction);
+        }
+        return salaries;
+    }
+
+    /**
+     * Archived leave requests of an employee, newest first, as detached entities
+     */
+    public List<Leave> findArchivedLeaves(Employee employee) {
+        List<Leave> leaves = new ArrayList<>();
+        for (Object[] row : leaveRepository.findArchivedByEmployeeId(employee.getId())) {
+            Leave leave = new Leave();
+            leave.setId(((Number) row[0]).longValue());
+            leave.setEmployee(employee);
+            leave.setRequestDate(NativeRows.toDate(row[1]));
+            leave.setStartDate(NativeRows.toDate(row[2]));
+            leave.setEndDate(NativeRows.toDate(row[3]));
+            leave.setReason((String) row[4]);
+            leave.setStatus(Leave.Status.valueOf((String) row[5]));
+            leave.setDecisionDate(NativeRows.toDateTime(row[6]));
+            leaves.add(leave);
+        }
+        return leaves;
+    }
+
+    /**
+     * Archived messages to an employee, newest first, as detached entities
+     */
+    public List<Message> findArchivedMessages(Employee employee) {
+        List<Message> messages = new ArrayList<>();
+        for (Object[] row : messageRepository.findArchivedByEmployeeId(employee.getId())) {
+            Message message = new Message();
+            message.setId(((Number) row[0]).longValue());
+            // Messages are only ever sent by the employee's manager
+            message.setSender(employee.getUser());
+            message.setEmployee(employee);
+            message.setSubject((String) row[1]);
+            message.setContent((String) row[2]);
+            message.setSentAt(NativeRows.toDateTime(row[3]));
+            message.setRead((Boolean) row[4]);
+            message.setReadAt(NativeRows.toDateTime(row[5]));
+            message.setStatus(Message.Status.valueOf((String) row[6]));
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    /**
+     * Whether an employee has archived history, which keeps the employee from being deleted
+     */
+    public boolean hasArchivedHistory(Long employeeId) {
+        List<Boolean> result = employeeRepository.hasArchivedHistory(employeeId);
+        return !result.isEmpty() && Boolean.TRUE.equals(result.get(0));
+    }
+
+    private int moveSalaries(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int deductions = salaryRepository.copyDeductionsToArchive(ids);
+        salaryRepository.copyToArchive(ids);
+        checkCount("salary_deductions", "archived", deductions, salaryRepository.countArchivedDeductionsBySalaryIds(ids));
+        checkCount("salaries", "archived", ids.size(), salaryRepository.countArchivedByIds(ids));
+        checkCount("salary_deductions", "deleted", deductions, salaryRepository.deleteArchivedDeductions(ids));
+        checkCount("salaries", "deleted", ids.size(), salaryRepository.deleteArchived(ids));
+        return ids.size();
+    }
+
+    private int moveLeaves(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        leaveRepository.copyToArchive(ids);
+        checkCount("leave_requests", "archived", ids.size(), leaveRepository.countArchivedByIds(ids));
+        checkCount("leave_requests", "deleted", ids.size(), leaveRepository.deleteArchived(ids));
+        return ids.size();
+    }
+
+    private int moveMessages(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        messageRepository.copyToArchive(ids);
+        checkCount("messages", "archived", ids.size(), messageRepository.countArchivedByIds(ids));
+        checkCount("messages", "deleted", ids.size(), messageRepository.deleteArchived(ids));
+        return ids.size();
+    }
+
+    /**
+     * Fail the batch, which rolls it back, when fewer or more rows were archived or deleted than were locked
+     */
+    private static void checkCount(String table, String step, long expected, long actual) {
+        if (actual != expected) {
+            throw new IllegalStateException("Row counts of " + table + " differ: " + expected + " in the batch, "
+                    + actual + " " + step);
+        }
+    }
+
+    private int drain(BatchMove move) {
+        int total = 0;
+        while (true) {
+            Integer moved = transactionTemplate.execute(status -> move.run());
+            if (moved == null || moved == 0) {
+                return total;
+            }
+            total += moved;
+            if (moved < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchMove {
+        int run();
+    }
+}
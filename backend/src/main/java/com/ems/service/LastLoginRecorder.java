@@ -0,0 +1,106 @@
+package com.ems.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.ems.config.ShardDataSources;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Buffers last-login timestamps and writes them in batches, off the login request.
+ *
+ * Only the newest login per account is kept, so a burst of logins to one account is one
+ * update. A failed flush puts its timestamps back for the next one; what is still buffered
+ * when the node stops is flushed on shutdown. Accounts are written on the shard they logged in from.
+ */
+@Service
+public class LastLoginRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(LastLoginRecorder.class);
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ems.login.last-login.batch-size:500}")
+    private int batchSize;
+
+    private record Account(String shard, Long id) {
+    }
+
+    private final Map<Account, LocalDateTime> managers = new ConcurrentHashMap<>();
+
+    private final Map<Account, LocalDateTime> employees = new ConcurrentHashMap<>();
+
+    public void recordManagerLogin(String shard, Long userId) {
+        managers.put(new Account(shard, userId), LocalDateTime.now());
+    }
+
+    public void recordEmployeeLogin(String shard, Long employeeId) {
+        employees.put(new Account(shard, employeeId), LocalDateTime.now());
+    }
+
+    /**
+     * Write the buffered timestamps
+     */
+    @Scheduled(fixedDelayString = "${ems.login.last-login.flush-ms:5000}")
+    public void flush() {
+        flush("users", managers);
+        flush("employees", employees);
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private void flush(String table, Map<Account, LocalDateTime> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Object[]>> rowsByShard = new HashMap<>();
+        for (Account account : new ArrayList<>(pending.keySet())) {
+            LocalDateTime loginAt = pending.remove(account);
+            if (loginAt != null) {
+                rowsByShard.computeIfAbsent(account.shard(), shard -> new ArrayList<>())
+                        .add(new Object[] { Timestamp.valueOf(loginAt), account.id() });
+            }
+        }
+
+        rowsByShard.forEach((shard, rows) -> {
+            for (int from = 0; from < rows.size(); from += batchSize) {
+                List<Object[]> batch = rows.subList(from, Math.min(from + batchSize, rows.size()));
+                try {
+                    shardDataSources.jdbc(shard).getJdbcOperations()
+                            .batchUpdate("UPDATE " + table + " SET last_login = ? WHERE id = ?", batch);
+                    meterRegistry.counter("ems.login.last-login.writes", "table", table).increment(batch.size());
+                } catch (RuntimeException e) {
+                    // Retry with the next flush, unless the account logged in again meanwhile
+                    for (Object[] row : batch) {
+                        pending.merge(new Account(shard, (Long) row[1]), ((Timestamp) row[0]).toLocalDateTime(),
+                                (newer, failed) -> newer.isAfter(failed) ? newer : failed);
+                    }
+                    logger.warn("Writing {} last-login timestamps to {} on shard {} failed, retrying later",
+                            batch.size(), table, shard, e);
+                }
+            }
+        });
+    }
+}
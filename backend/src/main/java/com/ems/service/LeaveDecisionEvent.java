@@ -0,0 +1,19 @@
+package com.ems.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.ems.model.Leave.Status;
+
+/**
+ * Published when leave requests are approved or denied; employees are notified once the decision has committed
+ */
+public record LeaveDecisionEvent(Long tenantId, List<Decision> decisions) {
+
+    /**
+     * A decision on one leave request, with what is needed to notify the employee
+     */
+    public record Decision(Long leaveId, String employeeName, String employeeEmail,
+            Status status, LocalDate startDate, LocalDate endDate) {
+    }
+}
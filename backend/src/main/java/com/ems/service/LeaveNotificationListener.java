@@ -0,0 +1,62 @@
+package com.ems.service;
+
+import java.time.format.DateTimeFormatter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.ems.model.Leave.Status;
+import com.ems.service.LeaveDecisionEvent.Decision;
+import com.ems.util.EmailUtilService;
+
+/**
+ * Emails employees about leave decisions asynchronously, after the decision has committed,
+ * so approving or denying leave never waits on the mail server
+ */
+@Component
+public class LeaveNotificationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaveNotificationListener.class);
+
+    private static final String FROM_ADDRESS = "noreply@ems.com";
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMM d, yyyy");
+
+    // Looked up on the first decision email, so the mail sender is not created at startup
+    @Autowired
+    private ObjectProvider<EmailUtilService> emailUtilService;
+
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onLeaveDecision(LeaveDecisionEvent event) {
+        for (Decision decision : event.decisions()) {
+            if (decision.employeeEmail() == null) {
+                continue;
+            }
+            try {
+                emailUtilService.getObject().sendEmail(FROM_ADDRESS, decision.employeeEmail(), subject(decision), content(decision));
+            } catch (RuntimeException e) {
+                // One failed notification must not stop the rest of the batch
+                logger.warn("Failed to notify {} about leave request {}: {}",
+                        decision.employeeEmail(), decision.leaveId(), e.getMessage());
+            }
+        }
+    }
+
+    private String subject(Decision decision) {
+        return decision.status() == Status.APPROVED ? "Your leave request was approved" : "Your leave request was denied";
+    }
+
+    private String content(Decision decision) {
+        return "Hello " + decision.employeeName() + ",\n\n"
+                + "Your leave request from " + decision.startDate().format(DATE_FORMAT)
+                + " to " + decision.endDate().format(DATE_FORMAT) + " has been "
+                + decision.status().name().toLowerCase() + ".";
+    }
+}
@@ -1,15 +1,23 @@
 package com.ems.service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -17,7 +25,10 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.ems.dto.DepartmentMonthCount;
+import com.ems.dto.LeaveBatchResultDto;
 import com.ems.dto.LeaveDto;
+import com.ems.dto.LeaveTotals;
 import com.ems.exception.BadRequestException;
 import com.ems.exception.ResourceNotFoundException;
 import com.ems.model.Department;
@@ -28,6 +39,10 @@ import com.ems.model.Leave.Status;
 import com.ems.repository.DepartmentRepository;
 import com.ems.repository.EmployeeRepository;
 import com.ems.repository.LeaveRepository;
+import com.ems.service.AggregateVersionService.Aggregate;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 /**
  * Service for managing employee leave requests
@@ -35,6 +50,9 @@ import com.ems.repository.LeaveRepository;
 @Service
 public class LeaveService {
 
+    // Rows converted between two persistence context clears while streaming, in line with the fetch size
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     @Autowired
     private LeaveRepository leaveRepository;
     
@@ -56,6 +74,21 @@ public class LeaveService {
     @Autowired
     private AuthService authService;
     
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private HistoryArchiveService historyArchiveService;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
     /**
      * Get all leave requests for a user's company
      */
@@ -69,6 +102,31 @@ public class LeaveService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Stream all leave requests of a company to the consumer, with the employee and department
+     * columns read in the same row and the persistence context cleared after every chunk
+     */
+    @Transactional(readOnly = true)
+    public void streamLeaves(User user, Consumer<? super LeaveDto> consumer) {
+        try (Stream<Object[]> rows = leaveRepository.streamListRowsByUser(user)) {
+            int[] converted = new int[1];
+            rows.forEach(row -> {
+                LeaveDto dto = new LeaveDto();
+                dto.setEmployeeId((Long) row[1]);
+                dto.setEmployeeName((String) row[2]);
+                dto.setEmployeeEmail((String) row[3]);
+                dto.setEmployeeIsActive(row[4] == Employee.Status.ACTIVE);
+                dto.setDepartmentId((Long) row[5]);
+                dto.setDepartmentName((String) row[6]);
+                copyLeaveFields((Leave) row[0], dto);
+                consumer.accept(dto);
+                if (++converted[0] % STREAM_CHUNK_SIZE == 0) {
+                    entityManager.clear();
+                }
+            });
+        }
+    }
+    
     /**
      * Get leave requests by status
      */
@@ -117,7 +175,8 @@ public class LeaveService {
         Employee employee = employeeRepository.findByIdAndUser(employeeId, currentUser)
                 .orElseThrow(() -> new ResourceNotFoundException("Employee not found with id: " + employeeId));
         
-        List<Leave> leaves = leaveRepository.findByEmployeeOrderByRequestDateDesc(employee);
+        List<Leave> leaves = new ArrayList<>(leaveRepository.findByEmployeeOrderByRequestDateDesc(employee));
+        leaves.addAll(historyArchiveService.findArchivedLeaves(employee));
         
         return leaves.stream()
                 .map(this::convertToDto)
@@ -269,70 +328,69 @@ public class LeaveService {
     @Transactional(readOnly = true)
     public Map<String, Object> getLeaveStatistics() {
         User currentUser = authService.getCurrentUser();
+        return requestCoalescer.coalesce("leaveStatistics", currentUser.getId(), List.of(),
+                () -> computeLeaveStatistics(currentUser), Aggregate.LEAVE, Aggregate.EMPLOYEE, Aggregate.DEPARTMENT);
+    }
+    
+    private Map<String, Object> computeLeaveStatistics(User currentUser) {
         Map<String, Object> statistics = new HashMap<>();
         
-        // Count leaves by status
-        List<Object[]> statusCounts = leaveRepository.countLeavesByStatus(currentUser);
-        Map<String, Long> countsByStatus = new HashMap<>();
-        long totalLeaves = 0;
+        // Status counts, current and pending leaves come from a single scan
+        LocalDate currentDate = LocalDate.now();
+        LeaveTotals totals = leaveRepository.getLeaveTotals(currentUser, Status.PENDING, Status.APPROVED, Status.DENIED, currentDate);
         
-        for (Object[] result : statusCounts) {
-            Status status = (Status) result[0];
-            Long count = (Long) result[1];
-            totalLeaves += count;
-            countsByStatus.put(status.toString(), count);
-        }
+        Map<String, Long> countsByStatus = new HashMap<>();
+        countsByStatus.put(Status.PENDING.toString(), valueOf(totals.pending()));
+        countsByStatus.put(Status.APPROVED.toString(), valueOf(totals.approved()));
+        countsByStatus.put(Status.DENIED.toString(), valueOf(totals.denied()));
         
-        statistics.put("totalLeaves", totalLeaves);
+        statistics.put("totalLeaves", valueOf(totals.total()));
         statistics.put("countsByStatus", countsByStatus);
         
-        // Count leaves by department
-        List<Object[]> departmentCounts = leaveRepository.countLeavesByDepartmentAndStatus(
-                currentUser, Status.APPROVED);
+        // Approved leaves per department and per month are rolled up from one grouped scan
+        List<DepartmentMonthCount> approvedCounts = leaveRepository.countLeavesByDepartmentAndMonth(currentUser, Status.APPROVED);
+        Map<String, Long> countsByDepartment = new TreeMap<>();
+        Map<YearMonth, Long> countsByMonth = new TreeMap<>(Comparator.reverseOrder());
+        
+        for (DepartmentMonthCount count : approvedCounts) {
+            if (count.departmentName() != null) {
+                countsByDepartment.merge(count.departmentName(), count.count(), Long::sum);
+            }
+            countsByMonth.merge(YearMonth.of(count.year(), count.month()), count.count(), Long::sum);
+        }
         
         List<Map<String, Object>> departmentStats = new ArrayList<>();
-        for (Object[] result : departmentCounts) {
+        for (Map.Entry<String, Long> entry : countsByDepartment.entrySet()) {
             Map<String, Object> departmentData = new HashMap<>();
-            departmentData.put("departmentName", result[0]);
-            departmentData.put("approvedLeaveCount", result[1]);
+            departmentData.put("departmentName", entry.getKey());
+            departmentData.put("approvedLeaveCount", entry.getValue());
             departmentStats.add(departmentData);
         }
         
         statistics.put("departmentStats", departmentStats);
         
-        // Get leave trends by month
-        List<Object[]> monthlyTrends = leaveRepository.getLeaveTrendsByMonth(currentUser, Status.APPROVED);
         List<Map<String, Object>> trendData = new ArrayList<>();
-        
         DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("MMM yyyy");
         
-        for (Object[] result : monthlyTrends) {
+        for (Map.Entry<YearMonth, Long> entry : countsByMonth.entrySet()) {
             Map<String, Object> monthData = new HashMap<>();
-            int year = ((Number) result[0]).intValue();
-            int month = ((Number) result[1]).intValue();
-            Long count = (Long) result[2];
-            
-            String monthName = LocalDate.of(year, month, 1).format(monthFormatter);
-            
-            monthData.put("month", monthName);
-            monthData.put("count", count);
+            monthData.put("month", entry.getKey().atDay(1).format(monthFormatter));
+            monthData.put("count", entry.getValue());
             trendData.add(monthData);
         }
         
         statistics.put("monthlyTrends", trendData);
-        
-        // Get current statistics
-        LocalDate currentDate = LocalDate.now();
-        long currentOnLeave = leaveRepository.findCurrentLeavesByUser(currentUser, Status.APPROVED, currentDate).size();
-        List<Long> pendingRequestsList = leaveRepository.countByUserAndStatus(currentUser, Status.PENDING);
-        long pendingRequests = pendingRequestsList.isEmpty() ? 0L : pendingRequestsList.get(0);
-        
-        statistics.put("currentOnLeave", currentOnLeave);
-        statistics.put("pendingRequests", pendingRequests);
+        statistics.put("currentOnLeave", valueOf(totals.currentlyOnLeave()));
+        statistics.put("pendingRequests", valueOf(totals.pending()));
         
         return statistics;
     }
     
+    // SUM over no rows is null
+    private long valueOf(Long count) {
+        return count == null ? 0L : count;
+    }
+    
     /**
      * Create a new leave request
      */
@@ -368,6 +426,7 @@ public class LeaveService {
         leave.setStatus(Status.PENDING);
         
         Leave savedLeave = leaveRepository.save(leave);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.LEAVE);
         return convertToDto(savedLeave);
     }
     
@@ -403,6 +462,7 @@ public class LeaveService {
         leave.setReason(leaveDto.getReason());
         
         Leave updatedLeave = leaveRepository.save(leave);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.LEAVE);
         return convertToDto(updatedLeave);
     }
     
@@ -430,6 +490,8 @@ public class LeaveService {
         
         leave.setStatus(Status.APPROVED);
         Leave updatedLeave = leaveRepository.save(leave);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.LEAVE);
+        publishDecisions(currentUser, List.of(decisionFor(updatedLeave, Status.APPROVED)));
         return convertToDto(updatedLeave);
     }
     
@@ -449,9 +511,140 @@ public class LeaveService {
         
         leave.setStatus(Status.DENIED);
         Leave updatedLeave = leaveRepository.save(leave);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.LEAVE);
+        publishDecisions(currentUser, List.of(decisionFor(updatedLeave, Status.DENIED)));
         return convertToDto(updatedLeave);
     }
     
+    /**
+     * Approve several pending leave requests at once. Overlaps with approved leave, including
+     * leave approved earlier in the same batch, are checked against the intervals loaded by a
+     * single query; requests that cannot be approved are reported and left unchanged.
+     */
+    @Transactional
+    public LeaveBatchResultDto approveLeaves(List<Long> ids) {
+        User currentUser = authService.getCurrentUser();
+        Map<Long, Leave> leaves = lockBatch(ids, currentUser);
+        Map<Long, LeaveBatchResultDto.Result> results = new HashMap<>();
+        
+        List<Leave> pending = pendingLeaves(leaves, results, "approved");
+        Map<Long, TreeMap<LocalDate, LocalDate>> approvedByEmployee = loadApprovedIntervals(pending);
+        
+        // Leaves come in start date order, so earlier requests win when two in the batch overlap
+        List<Leave> approved = new ArrayList<>();
+        for (Leave leave : pending) {
+            TreeMap<LocalDate, LocalDate> approvedIntervals =
+                    approvedByEmployee.computeIfAbsent(leave.getEmployee().getId(), id -> new TreeMap<>());
+            if (overlaps(approvedIntervals, leave.getStartDate(), leave.getEndDate())) {
+                results.put(leave.getId(), new LeaveBatchResultDto.Result(leave.getId(), false, leave.getStatus(),
+                        "Employee already has approved leave during this period"));
+            } else {
+                approvedIntervals.put(leave.getStartDate(), leave.getEndDate());
+                approved.add(leave);
+            }
+        }
+        
+        return applyDecision(ids, approved, Status.APPROVED, results, currentUser);
+    }
+    
+    /**
+     * Deny several pending leave requests at once; requests that are not pending are reported and left unchanged
+     */
+    @Transactional
+    public LeaveBatchResultDto denyLeaves(List<Long> ids) {
+        User currentUser = authService.getCurrentUser();
+        Map<Long, Leave> leaves = lockBatch(ids, currentUser);
+        Map<Long, LeaveBatchResultDto.Result> results = new HashMap<>();
+        
+        List<Leave> pending = pendingLeaves(leaves, results, "denied");
+        return applyDecision(ids, pending, Status.DENIED, results, currentUser);
+    }
+    
+    private Map<Long, Leave> lockBatch(List<Long> ids, User user) {
+        List<Long> distinctIds = ids.stream().distinct().collect(Collectors.toList());
+        Map<Long, Leave> leaves = new LinkedHashMap<>();
+        for (Leave leave : leaveRepository.findByIdsAndUserForUpdate(distinctIds, user)) {
+            leaves.put(leave.getId(), leave);
+        }
+        return leaves;
+    }
+    
+    // Pending leaves of the batch, in start date order; every other leave gets its failure result
+    private List<Leave> pendingLeaves(Map<Long, Leave> leaves, Map<Long, LeaveBatchResultDto.Result> results, String action) {
+        List<Leave> pending = new ArrayList<>();
+        for (Leave leave : leaves.values()) {
+            if (leave.getStatus() == Status.PENDING) {
+                pending.add(leave);
+            } else {
+                results.put(leave.getId(), new LeaveBatchResultDto.Result(leave.getId(), false, leave.getStatus(),
+                        "Only pending leave requests can be " + action));
+            }
+        }
+        return pending;
+    }
+    
+    private Map<Long, TreeMap<LocalDate, LocalDate>> loadApprovedIntervals(List<Leave> leaves) {
+        Map<Long, TreeMap<LocalDate, LocalDate>> intervals = new HashMap<>();
+        if (leaves.isEmpty()) {
+            return intervals;
+        }
+        
+        List<Long> employeeIds = leaves.stream().map(l -> l.getEmployee().getId()).distinct().collect(Collectors.toList());
+        LocalDate from = leaves.stream().map(Leave::getStartDate).min(Comparator.naturalOrder()).get();
+        LocalDate to = leaves.stream().map(Leave::getEndDate).max(Comparator.naturalOrder()).get();
+        
+        for (Object[] row : leaveRepository.findApprovedIntervalsForEmployees(employeeIds, from, to)) {
+            intervals.computeIfAbsent((Long) row[0], id -> new TreeMap<>()).put((LocalDate) row[1], (LocalDate) row[2]);
+        }
+        return intervals;
+    }
+    
+    // Approved intervals of an employee never overlap, so the one starting last on or before the end is the only candidate
+    private boolean overlaps(TreeMap<LocalDate, LocalDate> intervals, LocalDate start, LocalDate end) {
+        Map.Entry<LocalDate, LocalDate> candidate = intervals.floorEntry(end);
+        return candidate != null && !candidate.getValue().isBefore(start);
+    }
+    
+    private LeaveBatchResultDto applyDecision(List<Long> requestedIds, List<Leave> decided, Status status,
+            Map<Long, LeaveBatchResultDto.Result> results, User currentUser) {
+        if (!decided.isEmpty()) {
+            List<Long> decidedIds = decided.stream().map(Leave::getId).collect(Collectors.toList());
+            leaveRepository.updateStatusForPendingLeaves(decidedIds, status, LocalDateTime.now());
+            
+            List<LeaveDecisionEvent.Decision> decisions = new ArrayList<>();
+            for (Leave leave : decided) {
+                results.put(leave.getId(), new LeaveBatchResultDto.Result(leave.getId(), true, status, null));
+                decisions.add(decisionFor(leave, status));
+            }
+            aggregateVersionService.bump(currentUser.getId(), Aggregate.LEAVE);
+            publishDecisions(currentUser, decisions);
+        }
+        
+        // One result per requested id, in request order
+        LeaveBatchResultDto batchResult = new LeaveBatchResultDto();
+        for (Long id : requestedIds.stream().distinct().collect(Collectors.toList())) {
+            LeaveBatchResultDto.Result result = results.getOrDefault(id,
+                    new LeaveBatchResultDto.Result(id, false, null, "Leave request not found with id: " + id));
+            batchResult.getResults().add(result);
+            if (result.isSuccess()) {
+                batchResult.setProcessed(batchResult.getProcessed() + 1);
+            } else {
+                batchResult.setFailed(batchResult.getFailed() + 1);
+            }
+        }
+        return batchResult;
+    }
+    
+    private LeaveDecisionEvent.Decision decisionFor(Leave leave, Status status) {
+        Employee employee = leave.getEmployee();
+        return new LeaveDecisionEvent.Decision(leave.getId(), employee.getName(), employee.getEmail(),
+                status, leave.getStartDate(), leave.getEndDate());
+    }
+    
+    private void publishDecisions(User currentUser, List<LeaveDecisionEvent.Decision> decisions) {
+        eventPublisher.publishEvent(new LeaveDecisionEvent(currentUser.getId(), decisions));
+    }
+    
     /**
      * Cancel a leave request (delete it)
      */
@@ -467,6 +660,7 @@ public class LeaveService {
         }
         
         leaveRepository.delete(leave);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.LEAVE);
     }
     
     /**
@@ -521,7 +715,6 @@ public class LeaveService {
      */
     public LeaveDto convertToDto(Leave leave) {
         LeaveDto dto = new LeaveDto();
-        dto.setId(leave.getId());
         dto.setEmployeeId(leave.getEmployee().getId());
         dto.setEmployeeName(leave.getEmployee().getName());
         dto.setEmployeeEmail(leave.getEmployee().getEmail());
@@ -532,6 +725,12 @@ public class LeaveService {
             dto.setDepartmentName(leave.getEmployee().getDepartment().getName());
         }
         
+        copyLeaveFields(leave, dto);
+        return dto;
+    }
+    
+    private void copyLeaveFields(Leave leave, LeaveDto dto) {
+        dto.setId(leave.getId());
         dto.setStartDate(leave.getStartDate());
         dto.setEndDate(leave.getEndDate());
         dto.setReason(leave.getReason());
@@ -554,7 +753,5 @@ public class LeaveService {
         } else if (leave.getStatus() == Status.APPROVED && today.isBefore(leave.getStartDate())) {
             dto.setDaysUntilStart((int) ChronoUnit.DAYS.between(today, leave.getStartDate()));
         }
-        
-        return dto;
     }
 }
\ No newline at end of file
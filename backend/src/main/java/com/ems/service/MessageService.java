@@ -1,15 +1,18 @@
 package com.ems.service;
 
-import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -18,7 +21,9 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.ems.dto.DepartmentMonthCount;
 import com.ems.dto.MessageDto;
+import com.ems.dto.MessageTotals;
 import com.ems.exception.EmailException;
 import com.ems.exception.ResourceNotFoundException;
 import com.ems.model.Employee;
@@ -27,6 +32,7 @@ import com.ems.model.User;
 import com.ems.model.Message.Status;
 import com.ems.repository.EmployeeRepository;
 import com.ems.repository.MessageRepository;
+import com.ems.service.AggregateVersionService.Aggregate;
 
 /**
  * Service for message operations
@@ -45,8 +51,18 @@ public class MessageService {
     @Autowired
     private AuthService authService;
     
+    // Looked up once a message is actually emailed, so the mail setup waits until then
     @Autowired
-    private EmailService emailService;
+    private ObjectProvider<EmailService> emailService;
+    
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Autowired
+    private HistoryArchiveService historyArchiveService;
     
     /**
      * Get all messages sent by the current user
@@ -96,7 +112,8 @@ public class MessageService {
         Employee employee = employeeRepository.findByIdAndUser(employeeId, currentUser)
                 .orElseThrow(() -> new ResourceNotFoundException("Employee not found with id: " + employeeId));
         
-        List<Message> messages = messageRepository.findByEmployeeOrderBySentAtDesc(employee);
+        List<Message> messages = new ArrayList<>(messageRepository.findByEmployeeOrderBySentAtDesc(employee));
+        messages.addAll(historyArchiveService.findArchivedMessages(employee));
         
         return messages.stream()
                 .map(this::convertToDto)
@@ -161,79 +178,71 @@ public class MessageService {
     @Transactional(readOnly = true)
     public Map<String, Object> getMessageStatistics() {
         User currentUser = authService.getCurrentUser();
+        return requestCoalescer.coalesce("messageStatistics", currentUser.getId(), List.of(),
+                () -> computeMessageStatistics(currentUser), Aggregate.MESSAGE);
+    }
+    
+    private Map<String, Object> computeMessageStatistics(User currentUser) {
         Map<String, Object> statistics = new HashMap<>();
         
-        // Count messages by status
-        List<Long> sentCountList = messageRepository.countBySenderAndStatus(currentUser, Status.SENT);
-        long sentCount = sentCountList.isEmpty() ? 0L : sentCountList.get(0);
-        
-        List<Long> deliveredCountList = messageRepository.countBySenderAndStatus(currentUser, Status.DELIVERED);
-        long deliveredCount = deliveredCountList.isEmpty() ? 0L : deliveredCountList.get(0);
-        
-        List<Long> failedCountList = messageRepository.countBySenderAndStatus(currentUser, Status.FAILED);
-        long failedCount = failedCountList.isEmpty() ? 0L : failedCountList.get(0);
+        // Status counts and the read count come from a single scan
+        MessageTotals totals = messageRepository.getMessageTotals(currentUser, Status.SENT, Status.DELIVERED, Status.FAILED);
+        long totalCount = valueOf(totals.total());
+        long readCount = valueOf(totals.read());
         
         Map<String, Long> statusCounts = new HashMap<>();
-        statusCounts.put("sent", sentCount);
-        statusCounts.put("delivered", deliveredCount);
-        statusCounts.put("failed", failedCount);
+        statusCounts.put("sent", valueOf(totals.sent()));
+        statusCounts.put("delivered", valueOf(totals.delivered()));
+        statusCounts.put("failed", valueOf(totals.failed()));
         
         statistics.put("messagesByStatus", statusCounts);
-        statistics.put("totalMessages", sentCount + deliveredCount + failedCount);
+        statistics.put("totalMessages", totalCount);
         
-        // Monthly statistics
-        List<Object[]> monthlyStats = messageRepository.getMessageStatsByMonth(currentUser);
-        List<Map<String, Object>> monthlyData = new ArrayList<>();
+        // Monthly and department counts are rolled up from one grouped scan
+        List<DepartmentMonthCount> counts = messageRepository.countMessagesByDepartmentAndMonth(currentUser);
+        Map<YearMonth, Long> countsByMonth = new TreeMap<>(Comparator.reverseOrder());
+        Map<String, Long> countsByDepartment = new TreeMap<>();
+        
+        for (DepartmentMonthCount count : counts) {
+            countsByMonth.merge(YearMonth.of(count.year(), count.month()), count.count(), Long::sum);
+            if (count.departmentName() != null) {
+                countsByDepartment.merge(count.departmentName(), count.count(), Long::sum);
+            }
+        }
         
+        List<Map<String, Object>> monthlyData = new ArrayList<>();
         DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("MMM yyyy");
         
-        for (Object[] result : monthlyStats) {
+        for (Map.Entry<YearMonth, Long> entry : countsByMonth.entrySet()) {
             Map<String, Object> monthData = new HashMap<>();
-            int year = ((Number) result[0]).intValue();
-            int month = ((Number) result[1]).intValue();
-            Long count = (Long) result[2];
-            
-            String monthName = LocalDateTime.of(year, month, 1, 0, 0).format(monthFormatter);
-            
-            monthData.put("month", monthName);
-            monthData.put("count", count);
+            monthData.put("month", entry.getKey().atDay(1).format(monthFormatter));
+            monthData.put("count", entry.getValue());
             monthlyData.add(monthData);
         }
         
         statistics.put("monthlyStats", monthlyData);
         
-        // Department statistics
-        List<Object[]> departmentStats = messageRepository.getMessageCountsByDepartment(currentUser);
         List<Map<String, Object>> departmentData = new ArrayList<>();
-        
-        for (Object[] result : departmentStats) {
+        for (Map.Entry<String, Long> entry : countsByDepartment.entrySet()) {
             Map<String, Object> deptData = new HashMap<>();
-            deptData.put("department", result[0]);
-            deptData.put("count", result[1]);
+            deptData.put("department", entry.getKey());
+            deptData.put("count", entry.getValue());
             departmentData.add(deptData);
         }
         
         statistics.put("departmentStats", departmentData);
         
-        // Read rate
-        List<Object[]> readRateDataList = messageRepository.getMessagesReadRate(currentUser);
-        long readCount = 0;
-        long totalCount = 0;
-        
-        if (readRateDataList != null && !readRateDataList.isEmpty()) {
-            Object[] readRateData = readRateDataList.get(0);
-            if (readRateData != null && readRateData.length == 2) {
-                readCount = readRateData[0] != null ? ((Number) readRateData[0]).longValue() : 0;
-                totalCount = readRateData[1] != null ? ((Number) readRateData[1]).longValue() : 0;
-            }
-        }
-        
         double readRate = totalCount > 0 ? (double) readCount / totalCount * 100 : 0;
         statistics.put("readRate", readRate);
         
         return statistics;
     }
     
+    // SUM over no rows is null
+    private long valueOf(Long count) {
+        return count == null ? 0L : count;
+    }
+    
     /**
      * Send a message to an employee
      */
@@ -254,6 +263,7 @@ public class MessageService {
         message.setStatus(Status.SENT);
         
         Message savedMessage = messageRepository.save(message);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.MESSAGE);
         MessageDto resultDto = convertToDto(savedMessage);
         
         // Send email if enabled
@@ -261,11 +271,11 @@ public class MessageService {
             try {
                 // Generate HTML email content if not provided
                 if (messageDto.getEmailBody() == null || messageDto.getEmailBody().isEmpty()) {
-                    String emailContent = emailService.generateHtmlEmailContent("message", messageDto);
+                    String emailContent = emailService.getObject().generateHtmlEmailContent("message", messageDto);
                     messageDto.setEmailBody(emailContent);
                 }
                 
-                boolean emailSent = emailService.sendEmail(messageDto, employee.getEmail());
+                boolean emailSent = emailService.getObject().sendEmail(messageDto, employee.getEmail());
                 
                 if (emailSent) {
                     // Update message status to DELIVERED
@@ -294,6 +304,7 @@ public class MessageService {
         if (!message.isRead()) {
             message.markAsRead();
             messageRepository.save(message);
+            aggregateVersionService.bump(message.getSender().getId(), Aggregate.MESSAGE);
         }
         
         return convertToDto(message);
@@ -0,0 +1,110 @@
+package com.ems.service;
+
+import java.time.Year;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ems.config.ShardDataSources;
+
+/**
+ * Keeps salaries and messages range partitioned by year.
+ *
+ * On startup the tables are converted once (see V3__year_partitioning_functions.sql and
+ * V11__partitioning_keeps_foreign_keys.sql; a table still referenced by foreign keys is left as it is),
+ * and every day the partitions for the coming years are created ahead of time, so rows
+ * never pile up in the default partition. Payroll queries filter on salary_year and
+ * message queries on sent_at, which lets the planner skip the partitions of other years.
+ * Each shard is converted and maintained on its own.
+ *
+ * The enabled flag is checked at runtime rather than with a bean condition, because AOT
+ * processing (the fast-startup build) fixes bean conditions at build time.
+ */
+@Service
+public class PartitionMaintenanceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    @Value("${ems.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ems.partitioning.years-ahead:1}")
+    private int yearsAhead;
+
+    /**
+     * Convert the tables if needed once Hibernate has created or updated the schema
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void convertOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        shardDataSources.forEach(this::convert);
+        createUpcomingPartitions();
+    }
+
+    private void convert(String shard) {
+        try {
+            Boolean salaries = transactionTemplate.execute(status ->
+                    jdbcTemplate.queryForObject("SELECT ems_partition_salaries(?)", Boolean.class, yearsAhead));
+            Boolean messages = transactionTemplate.execute(status ->
+                    jdbcTemplate.queryForObject("SELECT ems_partition_messages(?)", Boolean.class, yearsAhead));
+            if (Boolean.TRUE.equals(salaries) || Boolean.TRUE.equals(messages)) {
+                logger.info("Partitioned tables of shard {} by year: salaries={}, messages={}", shard, salaries, messages);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Converting tables of shard {} to yearly partitions failed", shard, e);
+        }
+    }
+
+    /**
+     * Create the partitions of the current and coming years
+     */
+    @Scheduled(cron = "${ems.partitioning.cron:0 30 2 * * *}")
+    public void createUpcomingPartitions() {
+        if (!enabled) {
+            return;
+        }
+        int currentYear = Year.now().getValue();
+        shardDataSources.forEach(shard -> {
+            try {
+                Integer created = transactionTemplate.execute(status ->
+                        ensure("salaries", "salary_year", false, currentYear) + ensure("messages", "sent_at", true, currentYear));
+                if (created != null && created > 0) {
+                    logger.info("Created {} yearly partitions on shard {}", created, shard);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Creating yearly partitions on shard {} failed", shard, e);
+            }
+        });
+    }
+
+    private int ensure(String table, String column, boolean timestamp, int currentYear) {
+        // Nothing to maintain until the table has been converted
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))", Boolean.class, table);
+        if (!Boolean.TRUE.equals(partitioned)) {
+            return 0;
+        }
+        Integer created = jdbcTemplate.queryForObject("SELECT ems_ensure_year_partitions(?, ?, ?, ?, ?)", Integer.class,
+                table, column, timestamp, currentYear, currentYear + yearsAhead);
+        return created != null ? created : 0;
+    }
+}
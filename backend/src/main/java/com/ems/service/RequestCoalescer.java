@@ -0,0 +1,140 @@
+package com.ems.service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.ems.service.AggregateVersionService.Aggregate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Single-flight coalescing with short memoization for expensive read computations.
+ *
+ * Concurrent calls with the same name, tenant and arguments share one in-flight
+ * computation, and a completed result is reused for a short time. The versions of
+ * the aggregates a result depends on are part of the key, so any committed write
+ * makes the next call compute afresh. Results are shared between callers and must
+ * be treated as read-only.
+ */
+@Service
+public class RequestCoalescer {
+
+    private static final int PURGE_THRESHOLD = 10_000;
+
+    private static final long PURGE_INTERVAL_MILLIS = 1000;
+
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ems.coalescing.ttl-ms:2000}")
+    private long ttlMillis;
+
+    private final Map<List<Object>, Slot> slots = new ConcurrentHashMap<>();
+
+    private volatile long lastPurge;
+
+    private static final class Slot {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        final long ttlMillis;
+        volatile long completedAt = Long.MAX_VALUE;
+
+        Slot(long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+        }
+
+        boolean isExpired(long now) {
+            return completedAt != Long.MAX_VALUE && now - completedAt > ttlMillis;
+        }
+    }
+
+    /**
+     * Compute a value once for all concurrent identical calls of a tenant.
+     * Without a tenant the loader simply runs.
+     */
+    public <T> T coalesce(String name, Long tenantId, List<?> arguments, Supplier<T> loader, Aggregate... dependsOn) {
+        return coalesce(name, tenantId, arguments, ttlMillis, loader, dependsOn);
+    }
+
+    /**
+     * Like {@link #coalesce(String, Long, List, Supplier, Aggregate...)}, but the result is reused for
+     * the given time. For results that only change through writes to the aggregates they depend on.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T coalesce(String name, Long tenantId, List<?> arguments, long ttlMillis, Supplier<T> loader,
+            Aggregate... dependsOn) {
+        if (tenantId == null) {
+            return loader.get();
+        }
+
+        long[] versions = new long[dependsOn.length];
+        for (int i = 0; i < dependsOn.length; i++) {
+            versions[i] = aggregateVersionService.getVersion(tenantId, dependsOn[i]);
+        }
+        // Today's date is part of the key because several statistics are relative to it
+        List<Object> key = List.of(name, tenantId, arguments, Arrays.toString(versions), LocalDate.now());
+
+        long now = System.currentTimeMillis();
+        Slot fresh = new Slot(ttlMillis);
+        Slot slot = slots.compute(key, (k, existing) -> existing == null || existing.isExpired(now) ? fresh : existing);
+
+        if (slot != fresh) {
+            record(name, slot.result.isDone() ? "memoized" : "joined");
+            return (T) join(slot);
+        }
+
+        record(name, "computed");
+        try {
+            T value = loader.get();
+            slot.completedAt = System.currentTimeMillis();
+            slot.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            // Failures are shared with the callers already waiting but never memoized
+            slots.remove(key, slot);
+            slot.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            // Long-lived results can keep the map above the threshold, so scan it at most once per interval
+            if (slots.size() > PURGE_THRESHOLD && System.currentTimeMillis() - lastPurge > PURGE_INTERVAL_MILLIS) {
+                purgeExpired();
+            }
+        }
+    }
+
+    private Object join(Slot slot) {
+        try {
+            return slot.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        lastPurge = now;
+        slots.values().removeIf(slot -> slot.isExpired(now));
+    }
+
+    private void record(String name, String outcome) {
+        meterRegistry.counter("ems.coalescer.calls", "name", name, "outcome", outcome).increment();
+    }
+}
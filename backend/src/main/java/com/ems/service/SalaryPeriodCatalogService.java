@@ -0,0 +1,141 @@
+package com.ems.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ems.model.Salary;
+import com.ems.model.SalaryPeriodSummary;
+import com.ems.model.User;
+import com.ems.repository.SalaryPeriodSummaryRepository;
+import com.ems.util.PayrollMath;
+
+/**
+ * Keeps the salary period catalog (one summary row per company and salary period) in step with salary writes.
+ *
+ * Changes are collected as deltas per period for the duration of the transaction and
+ * written just before it commits, one upsert per touched period, so generating a whole
+ * month of salaries costs a single catalog write. Deltas are added in the database, so
+ * concurrent transactions touching the same period never lose each other's changes.
+ */
+@Service
+public class SalaryPeriodCatalogService {
+
+    @Autowired
+    private SalaryPeriodSummaryRepository summaryRepository;
+
+    private record PeriodKey(Long userId, int year, int month) implements Comparable<PeriodKey> {
+        @Override
+        public int compareTo(PeriodKey other) {
+            int result = userId.compareTo(other.userId);
+            if (result == 0) {
+                result = Integer.compare(year, other.year);
+            }
+            return result != 0 ? result : Integer.compare(month, other.month);
+        }
+    }
+
+    private static final class Delta {
+        int headcount;
+        long grossCents;
+        long netCents;
+        long taxCents;
+        long insuranceCents;
+        long otherCents;
+
+        void add(Salary salary, int sign) {
+            headcount += sign;
+            grossCents += sign * PayrollMath.toCents(salary.getGrossSalary());
+            netCents += sign * PayrollMath.toCents(salary.getNetSalary());
+            taxCents += sign * PayrollMath.toCents(salary.getTaxDeduction());
+            insuranceCents += sign * PayrollMath.toCents(salary.getInsuranceDeduction());
+            otherCents += sign * PayrollMath.toCents(salary.getOtherDeductions());
+        }
+
+        boolean isEmpty() {
+            return headcount == 0 && grossCents == 0 && netCents == 0
+                    && taxCents == 0 && insuranceCents == 0 && otherCents == 0;
+        }
+    }
+
+    /**
+     * Periods of a company that have salaries, newest first
+     */
+    public List<SalaryPeriodSummary> getPeriods(User user) {
+        return summaryRepository.findActivePeriodsByUser(user);
+    }
+
+    /**
+     * Periods of a company that have salaries, oldest first
+     */
+    public List<SalaryPeriodSummary> getTrend(User user) {
+        return summaryRepository.findActivePeriodsByUserChronological(user);
+    }
+
+    /**
+     * Count a salary, with its current amounts, in its period
+     */
+    public void salaryAdded(User user, Salary salary) {
+        apply(user, salary, 1);
+    }
+
+    /**
+     * Take a salary, with its current amounts, out of its period. Call before the salary is changed or deleted.
+     */
+    public void salaryRemoved(User user, Salary salary) {
+        apply(user, salary, -1);
+    }
+
+    private void apply(User user, Salary salary, int sign) {
+        PeriodKey key = new PeriodKey(user.getId(), salary.getSalaryYear(), salary.getSalaryMonth());
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Delta delta = new Delta();
+            delta.add(salary, sign);
+            write(key, delta);
+            return;
+        }
+
+        pendingDeltas().computeIfAbsent(key, k -> new Delta()).add(salary, sign);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<PeriodKey, Delta> pendingDeltas() {
+        Map<PeriodKey, Delta> deltas = (Map<PeriodKey, Delta>) TransactionSynchronizationManager.getResource(this);
+        if (deltas != null) {
+            return deltas;
+        }
+
+        // Sorted, so concurrent transactions lock the catalog rows in the same order
+        Map<PeriodKey, Delta> created = new TreeMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                created.forEach((key, delta) -> {
+                    if (!delta.isEmpty()) {
+                        write(key, delta);
+                    }
+                });
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(SalaryPeriodCatalogService.this);
+            }
+        });
+        return created;
+    }
+
+    private void write(PeriodKey key, Delta delta) {
+        summaryRepository.applyDelta(key.userId(), key.year(), key.month(), delta.headcount,
+                PayrollMath.toDecimal(delta.grossCents), PayrollMath.toDecimal(delta.netCents),
+                PayrollMath.toDecimal(delta.taxCents), PayrollMath.toDecimal(delta.insuranceCents),
+                PayrollMath.toDecimal(delta.otherCents));
+    }
+}
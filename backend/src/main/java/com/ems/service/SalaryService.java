@@ -1,14 +1,19 @@
 package com.ems.service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.Month;
 import java.time.Year;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
@@ -17,6 +22,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.ems.dto.DeductionDto;
+import com.ems.dto.DeductionRuleDto;
 import com.ems.dto.SalaryDto;
 import com.ems.exception.BadRequestException;
 import com.ems.exception.ResourceNotFoundException;
@@ -25,6 +31,7 @@ import com.ems.model.Department;
 import com.ems.model.Employee;
 import com.ems.model.EmployeeInactivity;
 import com.ems.model.Salary;
+import com.ems.model.SalaryPeriodSummary;
 import com.ems.model.User;
 import com.ems.model.Employee.Status;
 import com.ems.model.EmployeeInactivity.InactivityType;
@@ -33,6 +40,11 @@ import com.ems.repository.DepartmentRepository;
 import com.ems.repository.EmployeeInactivityRepository;
 import com.ems.repository.EmployeeRepository;
 import com.ems.repository.SalaryRepository;
+import com.ems.service.AggregateVersionService.Aggregate;
+import com.ems.util.PayrollMath;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 /**
  * Service class for managing salary records and payroll processing
@@ -40,6 +52,9 @@ import com.ems.repository.SalaryRepository;
 @Service
 public class SalaryService {
 
+    // Rows converted between two persistence context clears while streaming, in line with the fetch size
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     @Autowired
     private SalaryRepository salaryRepository;
     
@@ -57,6 +72,21 @@ public class SalaryService {
     
     @Autowired
     private AuthService authService;
+    
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+    
+    @Autowired
+    private BudgetReservationService budgetReservationService;
+
+    @Autowired
+    private SalaryPeriodCatalogService salaryPeriodCatalogService;
+
+    @Autowired
+    private HistoryArchiveService historyArchiveService;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
 
     /**
      * Get all salaries for the current user's company
@@ -71,6 +101,77 @@ public class SalaryService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Stream all salaries of a company to the consumer. Rows come from one projection query with the
+     * employee and department joined in, and the deductions of each chunk are loaded in one query.
+     */
+    @Transactional(readOnly = true)
+    public void streamSalaries(User user, Consumer<? super SalaryDto> consumer) {
+        List<Object[]> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+        try (Stream<Object[]> rows = salaryRepository.streamListRowsByUser(user)) {
+            rows.forEach(row -> {
+                chunk.add(row);
+                if (chunk.size() == STREAM_CHUNK_SIZE) {
+                    emitChunk(chunk, consumer);
+                }
+            });
+        }
+        emitChunk(chunk, consumer);
+    }
+
+    private void emitChunk(List<Object[]> chunk, Consumer<? super SalaryDto> consumer) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<Deduction>> deductions = new HashMap<>();
+        List<Long> salaryIds = chunk.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+        for (Object[] row : deductionRepository.findBySalaryIds(salaryIds)) {
+            deductions.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Deduction) row[1]);
+        }
+
+        for (Object[] row : chunk) {
+            consumer.accept(convertListRowToDto(row, deductions.getOrDefault((Long) row[0], List.of())));
+        }
+        chunk.clear();
+        entityManager.clear();
+    }
+
+    /**
+     * Same fields as convertToDto, from a row of SalaryRepository.streamListRowsByUser
+     */
+    private SalaryDto convertListRowToDto(Object[] row, List<Deduction> deductions) {
+        SalaryDto dto = new SalaryDto();
+        dto.setId((Long) row[0]);
+        dto.setEmployeeId((Long) row[1]);
+        dto.setEmployeeName((String) row[2]);
+        dto.setEmployeeEmail((String) row[3]);
+        dto.setEmployeeRole((String) row[4]);
+        dto.setDepartmentName((String) row[5]);
+
+        Double grossSalary = (Double) row[6];
+        dto.setGrossSalary(grossSalary);
+        dto.setNetSalary((Double) row[7]);
+        dto.setTaxDeduction((Double) row[8]);
+        dto.setInsuranceDeduction((Double) row[9]);
+        dto.setOtherDeductions((Double) row[10]);
+
+        Integer month = (Integer) row[11];
+        Integer year = (Integer) row[12];
+        dto.setSalaryMonth(month);
+        dto.setSalaryYear(year);
+        dto.setCreatedAt((LocalDateTime) row[13]);
+
+        LocalDate now = LocalDate.now();
+        dto.setIsCurrent(month == now.getMonthValue() && year == now.getYear());
+
+        dto.setDeductions(deductions.stream()
+                .map(deduction -> convertToDeductionDto(deduction, grossSalary))
+                .collect(Collectors.toList()));
+
+        return dto;
+    }
+    
     /**
      * Get all salaries for a specific month and year
      */
@@ -107,13 +208,13 @@ public class SalaryService {
     @Transactional(readOnly = true)
     public List<Map<String, Object>> getSalaryPeriods() {
         User currentUser = authService.getCurrentUser();
-        List<Object[]> periods = salaryRepository.findDistinctSalaryMonthsAndYears(currentUser);
+        List<SalaryPeriodSummary> periods = salaryPeriodCatalogService.getPeriods(currentUser);
         
         List<Map<String, Object>> result = new ArrayList<>();
-        for (Object[] period : periods) {
+        for (SalaryPeriodSummary period : periods) {
             Map<String, Object> periodMap = new HashMap<>();
-            Integer year = (Integer) period[0];
-            Integer month = (Integer) period[1];
+            Integer year = period.getPeriodYear();
+            Integer month = period.getPeriodMonth();
             periodMap.put("year", year);
             periodMap.put("month", month);
             
@@ -121,9 +222,9 @@ public class SalaryService {
             String monthName = Month.of(month).toString();
             periodMap.put("monthName", monthName.substring(0, 1) + monthName.substring(1).toLowerCase());
             
-            // Count salaries in this period
-            List<Salary> salaries = salaryRepository.findByUserAndYearAndMonth(currentUser, year, month);
-            periodMap.put("count", salaries.size());
+            periodMap.put("count", period.getHeadcount());
+            periodMap.put("grossTotal", period.getGrossTotal());
+            periodMap.put("netTotal", period.getNetTotal());
             
             result.add(periodMap);
         }
@@ -174,7 +275,9 @@ public class SalaryService {
         Employee employee = employeeRepository.findByIdAndUser(employeeId, currentUser)
                 .orElseThrow(() -> new ResourceNotFoundException("Employee not found with id: " + employeeId));
         
-        List<Salary> salaries = salaryRepository.findByEmployeeIdAndUser(employeeId, currentUser);
+        List<Salary> salaries = new ArrayList<>(salaryRepository.findByEmployeeIdAndUser(employeeId, currentUser));
+        // Archived periods are all older than the hot ones
+        salaries.addAll(historyArchiveService.findArchivedSalaries(employee));
         return salaries.stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
@@ -281,16 +384,6 @@ public class SalaryService {
             throw new BadRequestException("Employee must be assigned to a department");
         }
         
-        double currentExpenses = department.calculateCurrentExpenses();
-        
-        if (currentExpenses + salaryDto.getGrossSalary() > department.getBudget()) {
-            if (department.getBudgetType() == Department.BudgetType.MONTHLY) {
-                throw new BadRequestException("Adding this salary would exceed the monthly budget for department: " + department.getName());
-            } else {
-                throw new BadRequestException("Adding this salary would exceed the yearly budget for department: " + department.getName());
-            }
-        }
-        
         // Check for employee inactivities that affect salary
         List<EmployeeInactivity> inactivities = inactivityRepository.findByEmployee(employee);
         boolean hasUnpaidInactivity = inactivities.stream()
@@ -301,6 +394,15 @@ public class SalaryService {
             throw new BadRequestException("Employee has unpaid leave or suspension in this period. Salary should be reduced or set to zero.");
         }
         
+        // Reserve the budget last, so a rejected request does not hold it
+        if (!budgetReservationService.reserve(department, salaryYear, salaryMonth, salaryDto.getGrossSalary())) {
+            if (department.getBudgetType() == Department.BudgetType.MONTHLY) {
+                throw new BadRequestException("Adding this salary would exceed the monthly budget for department: " + department.getName());
+            } else {
+                throw new BadRequestException("Adding this salary would exceed the yearly budget for department: " + department.getName());
+            }
+        }
+        
         // Create the salary record
         Salary salary = new Salary();
         salary.setEmployee(employee);
@@ -319,6 +421,8 @@ public class SalaryService {
         salary.calculateNetSalary();
         
         Salary savedSalary = salaryRepository.save(salary);
+        salaryPeriodCatalogService.salaryAdded(currentUser, savedSalary);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.SALARY);
         return convertToDto(savedSalary);
     }
 
@@ -341,24 +445,38 @@ public class SalaryService {
             throw new BadRequestException("Cannot change the employee for an existing salary");
         }
         
-        // Validate budget if gross salary increases
-        if (salaryDto.getGrossSalary() > salary.getGrossSalary()) {
-            Department department = salary.getEmployee().getDepartment();
-            if (department == null) {
+        // Validate budget: reserve the difference within the same budget period, or the full amount when the period changes
+        Department department = salary.getEmployee().getDepartment();
+        int newMonth = salaryDto.getSalaryMonth() != null ? salaryDto.getSalaryMonth() : salary.getSalaryMonth();
+        int newYear = salaryDto.getSalaryYear() != null ? salaryDto.getSalaryYear() : salary.getSalaryYear();
+        
+        if (department == null) {
+            if (salaryDto.getGrossSalary() > salary.getGrossSalary()) {
                 throw new BadRequestException("Employee must be assigned to a department");
             }
+        } else {
+            boolean sameBudgetPeriod = newYear == salary.getSalaryYear()
+                    && (newMonth == salary.getSalaryMonth() || department.getBudgetType() == Department.BudgetType.YEARLY);
+            boolean reserved = sameBudgetPeriod
+                    ? budgetReservationService.reserve(department, newYear, newMonth, salaryDto.getGrossSalary() - salary.getGrossSalary())
+                    : budgetReservationService.reserve(department, newYear, newMonth, salaryDto.getGrossSalary());
             
-            double currentExpenses = department.calculateCurrentExpenses() - salary.getGrossSalary();
-            
-            if (currentExpenses + salaryDto.getGrossSalary() > department.getBudget()) {
+            if (!reserved) {
                 if (department.getBudgetType() == Department.BudgetType.MONTHLY) {
                     throw new BadRequestException("Updating this salary would exceed the monthly budget for department: " + department.getName());
                 } else {
                     throw new BadRequestException("Updating this salary would exceed the yearly budget for department: " + department.getName());
                 }
             }
+            
+            if (!sameBudgetPeriod) {
+                budgetReservationService.release(department, salary.getSalaryYear(), salary.getSalaryMonth(), salary.getGrossSalary());
+            }
         }
         
+        // Take the old amounts out of the catalog before they change
+        salaryPeriodCatalogService.salaryRemoved(currentUser, salary);
+        
         // Update salary details
         salary.setGrossSalary(salaryDto.getGrossSalary());
         
@@ -371,18 +489,15 @@ public class SalaryService {
             salary.setSalaryYear(salaryDto.getSalaryYear());
         }
         
-        // Update deductions
-        salary.clearDeductions();
-        for (DeductionDto deductionDto : salaryDto.getDeductions()) {
-            Deduction deduction = convertToDeductionEntity(deductionDto);
-            deduction.setSalary(salary);
-            salary.getDeductions().add(deduction);
-        }
+        // Update deductions, touching only the rows that actually changed
+        reconcileDeductions(salary, salaryDto.getDeductions());
         
         // Calculate net salary
         salary.calculateNetSalary();
         
         Salary updatedSalary = salaryRepository.save(salary);
+        salaryPeriodCatalogService.salaryAdded(currentUser, updatedSalary);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.SALARY);
         return convertToDto(updatedSalary);
     }
     
@@ -400,11 +515,40 @@ public class SalaryService {
         
         Salary salary = salaries.get(0);
         
+        budgetReservationService.release(salary.getEmployee().getDepartment(),
+                salary.getSalaryYear(), salary.getSalaryMonth(), salary.getGrossSalary());
+        
         // Delete associated deductions first
         deductionRepository.deleteBySalary(salary);
         
         // Delete the salary record
+        salaryPeriodCatalogService.salaryRemoved(currentUser, salary);
         salaryRepository.delete(salary);
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.SALARY);
+    }
+    
+    /**
+     * Apply one deduction value to every matching deduction of a salary period and recalculate the affected salaries
+     */
+    @Transactional
+    public int applyDeductionRule(DeductionRuleDto rule) {
+        User currentUser = authService.getCurrentUser();
+        String type = rule.getType().name();
+        String name = rule.getName() == null || rule.getName().isBlank() ? null : rule.getName().trim();
+        
+        // Lock the affected salaries first, so concurrent edits of the same salaries wait for the rule
+        List<Long> salaryIds = salaryRepository.lockSalaryIdsForDeductionRule(
+                currentUser.getId(), rule.getYear(), rule.getMonth(), type, name);
+        if (salaryIds.isEmpty()) {
+            return 0;
+        }
+        
+        deductionRepository.applyRuleToPeriod(currentUser.getId(), rule.getYear(), rule.getMonth(),
+                type, name, rule.getValue(), rule.isPercentage());
+        salaryRepository.recalculateTotalsForDeductionRule(currentUser.getId(), rule.getYear(), rule.getMonth(), type, name);
+        
+        aggregateVersionService.bump(currentUser.getId(), Aggregate.SALARY);
+        return salaryIds.size();
     }
     
     /**
@@ -451,6 +595,8 @@ public class SalaryService {
                 
                 // Save
                 Salary savedSalary = salaryRepository.save(newSalary);
+                salaryPeriodCatalogService.salaryAdded(currentUser, savedSalary);
+                budgetReservationService.record(employee.getDepartment(), currentYear, currentMonth, newSalary.getGrossSalary());
                 generatedSalaries.add(convertToDto(savedSalary));
             } else {
                 // No template available, create minimal salary
@@ -465,10 +611,14 @@ public class SalaryService {
                 
                 // Save
                 Salary savedSalary = salaryRepository.save(newSalary);
+                salaryPeriodCatalogService.salaryAdded(currentUser, savedSalary);
                 generatedSalaries.add(convertToDto(savedSalary));
             }
         }
         
+        if (!generatedSalaries.isEmpty()) {
+            aggregateVersionService.bump(currentUser.getId(), Aggregate.SALARY);
+        }
         return generatedSalaries;
     }
     
@@ -504,18 +654,20 @@ public class SalaryService {
     public List<Map<String, Object>> getSalaryTrends() {
         User currentUser = authService.getCurrentUser();
         
-        List<Object[]> trends = salaryRepository.getSalaryTrendByMonth(currentUser);
+        List<SalaryPeriodSummary> trends = salaryPeriodCatalogService.getTrend(currentUser);
         
         List<Map<String, Object>> result = new ArrayList<>();
-        for (Object[] trend : trends) {
+        for (SalaryPeriodSummary trend : trends) {
             Map<String, Object> trendPoint = new HashMap<>();
-            int year = (int) trend[0];
-            int month = (int) trend[1];
-            double totalSalary = ((Number) trend[2]).doubleValue();
+            int year = trend.getPeriodYear();
+            int month = trend.getPeriodMonth();
             
             trendPoint.put("year", year);
             trendPoint.put("month", month);
-            trendPoint.put("totalSalary", totalSalary);
+            trendPoint.put("totalSalary", trend.getGrossTotal());
+            trendPoint.put("netSalary", trend.getNetTotal());
+            trendPoint.put("totalDeductions", trend.getTaxTotal() + trend.getInsuranceTotal() + trend.getOtherDeductionsTotal());
+            trendPoint.put("headcount", trend.getHeadcount());
             
             // Add formatted month name
             String monthName = Month.of(month).toString();
@@ -560,7 +712,7 @@ public class SalaryService {
         
         // Convert deductions
         List<DeductionDto> deductionDtos = salary.getDeductions().stream()
-                .map(this::convertToDeductionDto)
+                .map(deduction -> convertToDeductionDto(deduction, salary.getGrossSalary()))
                 .collect(Collectors.toList());
         dto.setDeductions(deductionDtos);
         
@@ -570,7 +722,7 @@ public class SalaryService {
     /**
      * Helper method to convert Deduction Entity to DTO with calculated amounts
      */
-    private DeductionDto convertToDeductionDto(Deduction deduction) {
+    private DeductionDto convertToDeductionDto(Deduction deduction, Double grossSalary) {
         DeductionDto dto = new DeductionDto();
         dto.setId(deduction.getId());
         dto.setType(deduction.getType());
@@ -579,14 +731,71 @@ public class SalaryService {
         dto.setPercentage(deduction.isPercentage());
         
         // Calculate actual deduction amount if salary exists
-        if (deduction.getSalary() != null) {
-            double amount = deduction.calculateAmount(deduction.getSalary().getGrossSalary());
+        if (grossSalary != null) {
+            double amount = deduction.calculateAmount(grossSalary);
             dto.setCalculatedAmount(amount);
         }
         
         return dto;
     }
     
+    /**
+     * Bring a salary's deductions in line with the given DTOs. DTOs are matched to existing deductions
+     * by id, or by type and name when they carry no id; matched rows are updated in place, unmatched
+     * DTOs are inserted and deductions left without a DTO are removed.
+     */
+    private void reconcileDeductions(Salary salary, List<DeductionDto> deductionDtos) {
+        Map<Long, Deduction> unmatched = new LinkedHashMap<>();
+        for (Deduction deduction : salary.getDeductions()) {
+            unmatched.put(deduction.getId(), deduction);
+        }
+        
+        List<DeductionDto> withoutMatch = new ArrayList<>();
+        for (DeductionDto dto : deductionDtos) {
+            Deduction existing = dto.getId() != null ? unmatched.remove(dto.getId()) : null;
+            if (existing != null) {
+                applyDeductionChanges(existing, dto);
+            } else {
+                withoutMatch.add(dto);
+            }
+        }
+        
+        for (DeductionDto dto : withoutMatch) {
+            Deduction existing = unmatched.values().stream()
+                    .filter(d -> d.getType() == dto.getType() && d.getName().equalsIgnoreCase(dto.getName()))
+                    .findFirst()
+                    .orElse(null);
+            if (existing != null) {
+                unmatched.remove(existing.getId());
+                applyDeductionChanges(existing, dto);
+            } else {
+                Deduction deduction = convertToDeductionEntity(dto);
+                deduction.setId(null);
+                salary.addDeduction(deduction);
+            }
+        }
+        
+        for (Deduction removed : unmatched.values()) {
+            salary.removeDeduction(removed);
+        }
+    }
+    
+    // Only assign changed values, so an unchanged deduction stays clean and is not updated
+    private void applyDeductionChanges(Deduction deduction, DeductionDto dto) {
+        if (deduction.getType() != dto.getType()) {
+            deduction.setType(dto.getType());
+        }
+        if (!Objects.equals(deduction.getName(), dto.getName())) {
+            deduction.setName(dto.getName());
+        }
+        if (PayrollMath.toRate(deduction.getValue()) != PayrollMath.toRate(dto.getValue())) {
+            deduction.setValue(dto.getValue());
+        }
+        if (deduction.isPercentage() != dto.isPercentage()) {
+            deduction.setPercentage(dto.isPercentage());
+        }
+    }
+    
     /**
      * Helper method to convert Deduction DTO to Entity
      */
@@ -0,0 +1,91 @@
+package com.ems.service;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.ems.config.ShardDataSources;
+
+/**
+ * Creates the indexes the entity mappings cannot declare, such as partial indexes, on every shard.
+ *
+ * Plain indexes are declared with @Table(indexes = ...) and created by ddl-auto. A migration
+ * cannot create these ones on a brand-new database, because Flyway runs before Hibernate has
+ * created the tables, so they are created here once the schema exists. Every statement is
+ * idempotent and skips tables that do not exist yet. Databases without partial indexes, such
+ * as H2 in tests, get the same index without its predicate.
+ */
+@Service
+public class SchemaIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaIndexService.class);
+
+    /**
+     * An index, the table it is created on, and the index without its predicate
+     */
+    private record TableIndex(String table, String definition, String withoutPredicate) {
+    }
+
+    private static final List<TableIndex> INDEXES = List.of(
+            // Also created by V9__self_service_indexes.sql on databases that had the table: unread
+            // messages by recipient, without visiting the read ones
+            new TableIndex("messages",
+                    "CREATE INDEX IF NOT EXISTS idx_messages_recipient_unread ON messages (recipient_id, sent_at) WHERE NOT is_read",
+                    "CREATE INDEX IF NOT EXISTS idx_messages_recipient_unread ON messages (recipient_id, sent_at)"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    @Value("${ems.schema-indexes.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Create missing indexes once Hibernate has created or updated the schema
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        shardDataSources.forEach(shard -> {
+            for (TableIndex index : INDEXES) {
+                try {
+                    String definition = jdbcTemplate.execute((ConnectionCallback<String>) connection -> definitionFor(connection, index));
+                    if (definition != null) {
+                        jdbcTemplate.execute(definition);
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Creating an index on {} of shard {} failed", index.table(), shard, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * The statement that creates the index on this database, or null when its table does not exist yet
+     */
+    private static String definitionFor(Connection connection, TableIndex index) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet tables = metaData.getTables(connection.getCatalog(), connection.getSchema(), index.table(), null)) {
+            if (!tables.next()) {
+                return null;
+            }
+        }
+        return "PostgreSQL".equals(metaData.getDatabaseProductName()) ? index.definition() : index.withoutPredicate();
+    }
+}
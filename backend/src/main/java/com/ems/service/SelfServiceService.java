@@ -0,0 +1,197 @@
+package com.ems.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ems.dto.SelfServiceInbox;
+import com.ems.dto.SelfServiceLeave;
+import com.ems.dto.SelfServiceLeaveSummary;
+import com.ems.dto.SelfServiceMessage;
+import com.ems.dto.SelfServiceProfile;
+import com.ems.dto.SelfServiceSalary;
+import com.ems.exception.ResourceNotFoundException;
+import com.ems.model.Employee.ContractType;
+import com.ems.model.Employee.Status;
+import com.ems.model.Leave;
+import com.ems.repository.EmployeeRepository;
+import com.ems.repository.LeaveRepository;
+import com.ems.repository.MessageRepository;
+import com.ems.repository.SalaryRepository;
+import com.ems.security.TenantContext;
+import com.ems.service.AggregateVersionService.Aggregate;
+import com.ems.util.NativeRows;
+
+/**
+ * Read model for the employee self-service pages: profile, salary history, leave balance and
+ * history, and unread messages of the signed-in employee.
+ *
+ * The employee and tenant come from the token, and each view is one native query over compact
+ * columns of the employee's rows, archived history included. Views are cached per employee
+ * through the RequestCoalescer for ems.self-service.cache-ttl-ms and keyed by the versions of
+ * the aggregates they show, so a write in the tenant shows up on the next read while the burst
+ * of employees opening their payslips at the start of a month costs one query per employee and view.
+ */
+@Service
+public class SelfServiceService {
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private SalaryRepository salaryRepository;
+
+    @Autowired
+    private LeaveRepository leaveRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+
+    @Value("${ems.self-service.cache-ttl-ms:300000}")
+    private long cacheTtlMillis;
+
+    @Value("${ems.self-service.leave-allowance-days:20}")
+    private int leaveAllowanceDays;
+
+    @Value("${ems.self-service.unread-limit:50}")
+    private int unreadLimit;
+
+    @Transactional(readOnly = true)
+    public SelfServiceProfile getProfile() {
+        Long employeeId = authService.getCurrentEmployeeId();
+        Long tenantId = TenantContext.getTenantId();
+        return requestCoalescer.coalesce("selfServiceProfile", tenantId, List.of(employeeId), cacheTtlMillis,
+                () -> loadProfile(employeeId, tenantId), Aggregate.EMPLOYEE, Aggregate.DEPARTMENT);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SelfServiceSalary> getSalaries() {
+        Long employeeId = authService.getCurrentEmployeeId();
+        Long tenantId = TenantContext.getTenantId();
+        return requestCoalescer.coalesce("selfServiceSalaries", tenantId, List.of(employeeId), cacheTtlMillis,
+                () -> loadSalaries(employeeId, tenantId), Aggregate.SALARY);
+    }
+
+    /**
+     * Leave balance of the current year and the leave history
+     */
+    @Transactional(readOnly = true)
+    public SelfServiceLeaveSummary getLeaves() {
+        Long employeeId = authService.getCurrentEmployeeId();
+        Long tenantId = TenantContext.getTenantId();
+        // The coalescer key includes today's date, so the balance moves to the new year on its own
+        return requestCoalescer.coalesce("selfServiceLeaves", tenantId, List.of(employeeId), cacheTtlMillis,
+                () -> summarize(loadLeaves(employeeId, tenantId), LocalDate.now().getYear()), Aggregate.LEAVE);
+    }
+
+    @Transactional(readOnly = true)
+    public SelfServiceInbox getUnreadMessages() {
+        Long employeeId = authService.getCurrentEmployeeId();
+        Long tenantId = TenantContext.getTenantId();
+        return requestCoalescer.coalesce("selfServiceUnread", tenantId, List.of(employeeId), cacheTtlMillis,
+                () -> loadUnread(employeeId, tenantId), Aggregate.MESSAGE);
+    }
+
+    private SelfServiceProfile loadProfile(Long employeeId, Long tenantId) {
+        List<Object[]> rows = employeeRepository.findSelfServiceProfile(employeeId, tenantId);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Employee not found with id: " + employeeId);
+        }
+        Object[] row = rows.get(0);
+        return new SelfServiceProfile(
+                ((Number) row[0]).longValue(),
+                (String) row[1],
+                (String) row[2],
+                (String) row[3],
+                (String) row[4],
+                (String) row[5],
+                ContractType.valueOf((String) row[6]),
+                NativeRows.toDate(row[7]),
+                NativeRows.toDate(row[8]),
+                Status.valueOf((String) row[9]),
+                (String) row[10]);
+    }
+
+    private List<SelfServiceSalary> loadSalaries(Long employeeId, Long tenantId) {
+        List<SelfServiceSalary> salaries = new ArrayList<>();
+        for (Object[] row : salaryRepository.findSelfServiceHistory(employeeId, tenantId)) {
+            salaries.add(new SelfServiceSalary(
+                    ((Number) row[0]).longValue(),
+                    ((Number) row[1]).intValue(),
+                    ((Number) row[2]).intValue(),
+                    NativeRows.toDouble(row[3]),
+                    NativeRows.toDouble(row[4]),
+                    NativeRows.toDouble(row[5]),
+                    NativeRows.toDouble(row[6]),
+                    NativeRows.toDouble(row[7]),
+                    (Boolean) row[8]));
+        }
+        return salaries;
+    }
+
+    private List<SelfServiceLeave> loadLeaves(Long employeeId, Long tenantId) {
+        List<SelfServiceLeave> leaves = new ArrayList<>();
+        for (Object[] row : leaveRepository.findSelfServiceHistory(employeeId, tenantId)) {
+            leaves.add(new SelfServiceLeave(
+                    ((Number) row[0]).longValue(),
+                    NativeRows.toDate(row[1]),
+                    NativeRows.toDate(row[2]),
+                    NativeRows.toDate(row[3]),
+                    (String) row[4],
+                    Leave.Status.valueOf((String) row[5]),
+                    NativeRows.toDateTime(row[6]),
+                    (Boolean) row[7]));
+        }
+        return leaves;
+    }
+
+    private SelfServiceInbox loadUnread(Long employeeId, Long tenantId) {
+        List<SelfServiceMessage> messages = new ArrayList<>();
+        long unreadCount = 0;
+        for (Object[] row : messageRepository.findSelfServiceUnread(employeeId, tenantId, unreadLimit)) {
+            messages.add(new SelfServiceMessage(
+                    ((Number) row[0]).longValue(),
+                    (String) row[1],
+                    (String) row[2],
+                    (String) row[3],
+                    NativeRows.toDateTime(row[4])));
+            unreadCount = ((Number) row[5]).longValue();
+        }
+        return new SelfServiceInbox(unreadCount, messages);
+    }
+
+    /**
+     * Approved and pending leave days falling in the year, counted in calendar days
+     */
+    private SelfServiceLeaveSummary summarize(List<SelfServiceLeave> history, int year) {
+        int usedDays = 0;
+        int pendingDays = 0;
+        for (SelfServiceLeave leave : history) {
+            if (leave.status() == Leave.Status.APPROVED) {
+                usedDays += daysInYear(leave, year);
+            } else if (leave.status() == Leave.Status.PENDING) {
+                pendingDays += daysInYear(leave, year);
+            }
+        }
+        return new SelfServiceLeaveSummary(year, leaveAllowanceDays, usedDays, pendingDays,
+                Math.max(0, leaveAllowanceDays - usedDays), history);
+    }
+
+    private static int daysInYear(SelfServiceLeave leave, int year) {
+        LocalDate from = leave.startDate().isBefore(LocalDate.of(year, 1, 1)) ? LocalDate.of(year, 1, 1) : leave.startDate();
+        LocalDate to = leave.endDate().isAfter(LocalDate.of(year, 12, 31)) ? LocalDate.of(year, 12, 31) : leave.endDate();
+        return to.isBefore(from) ? 0 : (int) ChronoUnit.DAYS.between(from, to) + 1;
+    }
+}
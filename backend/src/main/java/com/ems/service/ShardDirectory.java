@@ -0,0 +1,175 @@
+package com.ems.service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Service;
+
+import com.ems.config.ShardDataSources;
+import com.ems.util.NativeRows;
+
+/**
+ * Which shard holds a tenant, from the tenant_shards table on the primary
+ * (see V7__tenant_shards.sql). Tenants without a row live on the primary.
+ *
+ * Lookups are cached for ems.sharding.directory-ttl-ms, so a tenant move waits at least that
+ * long after marking the tenant as moving before it copies anything: by then every node has
+ * seen the mark and stopped serving the tenant. Without other shards nothing is looked up.
+ */
+@Service
+public class ShardDirectory {
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    @Value("${ems.sharding.directory-ttl-ms:5000}")
+    private long ttlMillis;
+
+    private record Entry(String shard, boolean moving, long loadedAt) {
+    }
+
+    private final Map<Long, Entry> cache = new ConcurrentHashMap<>();
+
+    public enum MoveOutcome {
+        MOVING, MOVED, FAILED
+    }
+
+    /**
+     * Where a tenant lives and how its latest move went; outcome is null for tenants never moved
+     */
+    public record MoveStatus(Long tenantId, String shard, boolean moving, String target, LocalDateTime startedAt,
+            LocalDateTime finishedAt, MoveOutcome outcome, String detail) {
+    }
+
+    public String shardFor(Long tenantId) {
+        return entry(tenantId).shard();
+    }
+
+    /**
+     * Whether the tenant is being moved to another shard and must not be served meanwhile
+     */
+    public boolean isMoving(Long tenantId) {
+        return entry(tenantId).moving();
+    }
+
+    /**
+     * Whether work found on this shard for the tenant should be done: the tenant lives there and is not moving
+     */
+    public boolean isServedFrom(Long tenantId, String shard) {
+        Entry entry = entry(tenantId);
+        return !entry.moving() && entry.shard().equals(shard);
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * The tenant's shard as currently recorded, bypassing the cache
+     */
+    public String currentShard(Long tenantId) {
+        return load(tenantId).shard();
+    }
+
+    /**
+     * Record the tenant's shard and whether it is being moved; other nodes see it within the cache TTL
+     */
+    public void record(Long tenantId, String shard, boolean moving) {
+        shardDataSources.jdbc(ShardDataSources.PRIMARY).update(
+                "INSERT INTO tenant_shards (tenant_id, shard, moving, updated_at) VALUES (:tenantId, :shard, :moving, now()) " +
+                "ON CONFLICT (tenant_id) DO UPDATE SET shard = EXCLUDED.shard, moving = EXCLUDED.moving, updated_at = now()",
+                new MapSqlParameterSource("tenantId", tenantId).addValue("shard", shard).addValue("moving", moving));
+        cache.remove(tenantId);
+    }
+
+    /**
+     * Mark the tenant as moving from source to target unless a move of it is under way already, on this node or
+     * any other. The conditional write is the move's lock: only the node whose write succeeds moves the tenant.
+     */
+    public boolean startMove(Long tenantId, String source, String target) {
+        int claimed = shardDataSources.jdbc(ShardDataSources.PRIMARY).update(
+                "INSERT INTO tenant_shards (tenant_id, shard, moving, updated_at, move_target, move_started_at, move_outcome) " +
+                "VALUES (:tenantId, :source, TRUE, now(), :target, now(), :outcome) " +
+                "ON CONFLICT (tenant_id) DO UPDATE SET moving = TRUE, updated_at = now(), move_target = EXCLUDED.move_target, " +
+                "move_started_at = now(), move_finished_at = NULL, move_outcome = EXCLUDED.move_outcome, move_detail = NULL " +
+                "WHERE NOT tenant_shards.moving AND tenant_shards.shard = EXCLUDED.shard",
+                new MapSqlParameterSource("tenantId", tenantId).addValue("source", source).addValue("target", target)
+                        .addValue("outcome", MoveOutcome.MOVING.name()));
+        cache.remove(tenantId);
+        return claimed == 1;
+    }
+
+    /**
+     * Release the mark of a move, recording the shard the tenant lives on now and how the move ended
+     */
+    public void finishMove(Long tenantId, String shard, MoveOutcome outcome, String detail) {
+        shardDataSources.jdbc(ShardDataSources.PRIMARY).update(
+                "UPDATE tenant_shards SET shard = :shard, moving = FALSE, updated_at = now(), move_finished_at = now(), " +
+                "move_outcome = :outcome, move_detail = :detail WHERE tenant_id = :tenantId",
+                new MapSqlParameterSource("tenantId", tenantId).addValue("shard", shard)
+                        .addValue("outcome", outcome.name()).addValue("detail", detail));
+        cache.remove(tenantId);
+    }
+
+    public MoveStatus moveStatus(Long tenantId) {
+        List<MoveStatus> rows = shardDataSources.jdbc(ShardDataSources.PRIMARY).query(
+                "SELECT shard, moving, move_target, move_started_at, move_finished_at, move_outcome, move_detail " +
+                "FROM tenant_shards WHERE tenant_id = :tenantId",
+                new MapSqlParameterSource("tenantId", tenantId),
+                (rs, rowNum) -> new MoveStatus(tenantId, rs.getString(1), rs.getBoolean(2), rs.getString(3),
+                        NativeRows.toDateTime(rs.getTimestamp(4)), NativeRows.toDateTime(rs.getTimestamp(5)),
+                        rs.getString(6) != null ? MoveOutcome.valueOf(rs.getString(6)) : null, rs.getString(7)));
+        return rows.isEmpty() ? new MoveStatus(tenantId, ShardDataSources.PRIMARY, false, null, null, null, null, null) : rows.get(0);
+    }
+
+    /**
+     * Number of tenants recorded per shard; tenants never moved off the primary have no row
+     */
+    public Map<String, Long> countTenantsByShard() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        if (!shardDataSources.isSharded()) {
+            return counts;
+        }
+        shardDataSources.jdbc(ShardDataSources.PRIMARY).query(
+                "SELECT shard, COUNT(*) FROM tenant_shards GROUP BY shard ORDER BY shard",
+                rs -> {
+                    counts.put(rs.getString(1), rs.getLong(2));
+                });
+        return counts;
+    }
+
+    public List<Long> findMovingTenants() {
+        if (!shardDataSources.isSharded()) {
+            return List.of();
+        }
+        return shardDataSources.jdbc(ShardDataSources.PRIMARY).getJdbcOperations().queryForList(
+                "SELECT tenant_id FROM tenant_shards WHERE moving ORDER BY tenant_id", Long.class);
+    }
+
+    private Entry entry(Long tenantId) {
+        if (!shardDataSources.isSharded()) {
+            return new Entry(ShardDataSources.PRIMARY, false, 0L);
+        }
+        Entry cached = cache.get(tenantId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() < ttlMillis) {
+            return cached;
+        }
+        Entry loaded = load(tenantId);
+        cache.put(tenantId, loaded);
+        return loaded;
+    }
+
+    private Entry load(Long tenantId) {
+        List<Entry> rows = shardDataSources.jdbc(ShardDataSources.PRIMARY).query(
+                "SELECT shard, moving FROM tenant_shards WHERE tenant_id = :tenantId",
+                new MapSqlParameterSource("tenantId", tenantId),
+                (rs, rowNum) -> new Entry(rs.getString(1), rs.getBoolean(2), System.currentTimeMillis()));
+        return rows.isEmpty() ? new Entry(ShardDataSources.PRIMARY, false, System.currentTimeMillis()) : rows.get(0);
+    }
+}
@@ -0,0 +1,332 @@
+package com.ems.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.ems.config.ShardDataSources;
+import com.ems.exception.BadRequestException;
+import com.ems.service.AggregateVersionService.Aggregate;
+import com.ems.service.ShardDirectory.MoveOutcome;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps shard id ranges apart and moves tenants between shards while the application runs.
+ *
+ * A move marks the tenant as moving in tenant_shards with a conditional write, which also keeps
+ * every other node from starting a move of the same tenant. While marked, every node answers
+ * the tenant's requests with 503. The rest runs in the background: it waits until all nodes
+ * have seen the mark and in-flight requests are done, then copies the tenant's rows parent
+ * tables first from one consistent snapshot of the source into one transaction on the target,
+ * checks the row counts, points the directory at the target and only then deletes the rows
+ * from the source. Rows keep their ids, which the per-shard id offsets keep unique. Until the
+ * directory is switched a failure leaves the tenant where it was; a node that dies mid-move
+ * leaves the mark in place, with the move's start time, for an operator to look at.
+ */
+@Service
+public class TenantShardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantShardService.class);
+
+    private static final String TENANT_EMPLOYEES = "(SELECT id FROM employees WHERE user_id = ?)";
+
+    /**
+     * A table holding tenant rows and how to find them; ? is the tenant id
+     */
+    private record TenantTable(String name, String where) {
+
+        int parameterCount() {
+            return (int) where.chars().filter(c -> c == '?').count();
+        }
+    }
+
+    // Parents before children; deleted in reverse
+    private static final List<TenantTable> TENANT_TABLES = List.of(
+            new TenantTable("users", "id = ?"),
+            new TenantTable("user_roles", "user_id = ?"),
+            new TenantTable("departments", "user_id = ?"),
+            new TenantTable("employees", "user_id = ?"),
+            new TenantTable("employee_roles", "employee_id IN " + TENANT_EMPLOYEES),
+            new TenantTable("employee_inactivity_periods", "employee_id IN " + TENANT_EMPLOYEES),
+            new TenantTable("leave_requests", "employee_id IN " + TENANT_EMPLOYEES),
+            new TenantTable("salaries", "employee_id IN " + TENANT_EMPLOYEES),
+            new TenantTable("salary_deductions",
+                    "salary_id IN (SELECT id FROM salaries WHERE employee_id IN " + TENANT_EMPLOYEES + ")"),
+            new TenantTable("messages", "sender_id = ?"),
+            new TenantTable("salary_period_summaries", "user_id = ?"),
+            new TenantTable("department_budget_ledger", "department_id IN (SELECT id FROM departments WHERE user_id = ?)"),
+            new TenantTable("salaries_archive", "employee_id IN " + TENANT_EMPLOYEES),
+            new TenantTable("salary_deductions_archive",
+                    "salary_id IN (SELECT id FROM salaries_archive WHERE employee_id IN " + TENANT_EMPLOYEES + ")"),
+            new TenantTable("leave_requests_archive", "employee_id IN " + TENANT_EMPLOYEES),
+            new TenantTable("messages_archive", "sender_id = ?"));
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    @Autowired
+    private ShardDirectory shardDirectory;
+
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ems.sharding.move.drain-ms:10000}")
+    private long drainMillis;
+
+    @Value("${ems.sharding.move.batch-size:1000}")
+    private int batchSize;
+
+    private final ExecutorService moves = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Raise the id sequences of every shard but the primary to its offset, once the schema exists
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIdRanges() {
+        for (String shard : shardDataSources.names()) {
+            if (ShardDataSources.PRIMARY.equals(shard)) {
+                continue;
+            }
+            try {
+                ensureIdRange(shard);
+            } catch (RuntimeException e) {
+                logger.error("Raising id sequences of shard {} failed; moves to it are refused until this works", shard, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Moves still waiting for the other nodes give up and release their tenants
+        moves.shutdownNow();
+    }
+
+    /**
+     * Start moving a tenant with all its data to another shard. The move runs in the background;
+     * its progress is in the returned status and in {@link ShardDirectory#moveStatus(Long)} on any node.
+     */
+    public ShardDirectory.MoveStatus move(Long tenantId, String target) {
+        if (!shardDataSources.contains(target)) {
+            throw new BadRequestException("Unknown shard: " + target);
+        }
+        String source = shardDirectory.currentShard(tenantId);
+        if (source.equals(target)) {
+            throw new BadRequestException("Tenant " + tenantId + " already lives on shard " + target);
+        }
+        Integer owners = shardDataSources.jdbc(source).getJdbcOperations()
+                .queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, tenantId);
+        if (owners == null || owners == 0) {
+            throw new BadRequestException("Tenant " + tenantId + " not found on shard " + source);
+        }
+        if (!ShardDataSources.PRIMARY.equals(target)) {
+            ensureIdRange(target);
+        }
+        if (!shardDirectory.startMove(tenantId, source, target)) {
+            throw new BadRequestException("Tenant " + tenantId + " is already being moved");
+        }
+
+        logger.info("Moving tenant {} from shard {} to {}", tenantId, source, target);
+        try {
+            moves.execute(() -> runMove(tenantId, source, target));
+        } catch (RejectedExecutionException e) {
+            shardDirectory.finishMove(tenantId, source, MoveOutcome.FAILED, "Shutting down");
+            throw new IllegalStateException("Moving tenant " + tenantId + " was refused during shutdown", e);
+        }
+        return shardDirectory.moveStatus(tenantId);
+    }
+
+    private void runMove(Long tenantId, String source, String target) {
+        long started = System.nanoTime();
+        Map<String, Integer> rows;
+        try {
+            // Every node sees the mark within the directory TTL; then in-flight requests get time to finish
+            Thread.sleep(shardDirectory.getTtlMillis() + drainMillis);
+            rows = copy(tenantId, source, target);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            shardDirectory.finishMove(tenantId, source, MoveOutcome.FAILED, "Interrupted before copying");
+            logger.warn("Moving tenant {} to shard {} was interrupted before copying", tenantId, target);
+            return;
+        } catch (SQLException | RuntimeException e) {
+            shardDirectory.finishMove(tenantId, source, MoveOutcome.FAILED, e.getMessage());
+            meterRegistry.counter("ems.sharding.moves", "outcome", "failed").increment();
+            logger.error("Moving tenant {} to shard {} failed; it stays on shard {}", tenantId, target, source, e);
+            return;
+        }
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        shardDirectory.finishMove(tenantId, target, MoveOutcome.MOVED, "Copied in " + durationMillis + " ms: " + rows);
+
+        try {
+            delete(tenantId, source);
+        } catch (SQLException | RuntimeException e) {
+            // The tenant is served from the target already; the leftovers are ignored by jobs and logins
+            logger.error("Tenant {} moved to shard {}, but deleting its rows from shard {} failed", tenantId, target, source, e);
+        }
+
+        // Nothing changed, but caches of other nodes may hold reads keyed to the old placement
+        aggregateVersionService.bump(tenantId, Aggregate.values());
+        meterRegistry.counter("ems.sharding.moves", "outcome", "moved").increment();
+        logger.info("Moved tenant {} from shard {} to {} in {} ms: {}", tenantId, source, target, durationMillis, rows);
+    }
+
+    private void ensureIdRange(String shard) {
+        Integer raised = shardDataSources.jdbc(shard).getJdbcOperations()
+                .queryForObject("SELECT ems_ensure_id_floor(?)", Integer.class, shardDataSources.idOffset(shard));
+        if (raised != null && raised > 0) {
+            logger.info("Raised {} id sequences of shard {} to {}", raised, shard, shardDataSources.idOffset(shard));
+        }
+    }
+
+    private Map<String, Integer> copy(Long tenantId, String source, String target) throws SQLException {
+        Map<String, Integer> rows = new LinkedHashMap<>();
+        try (Connection from = shardDataSources.dataSource(source).getConnection();
+             Connection to = shardDataSources.dataSource(target).getConnection()) {
+            // One snapshot of the source for all tables, read with a cursor
+            from.setAutoCommit(false);
+            from.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            from.setReadOnly(true);
+            to.setAutoCommit(false);
+            try {
+                for (TenantTable table : TENANT_TABLES) {
+                    if (!exists(from, table.name())) {
+                        continue;
+                    }
+                    if (!exists(to, table.name())) {
+                        throw new IllegalStateException("Shard " + target + " has no table " + table.name());
+                    }
+                    int copied = copyTable(table, tenantId, from, to);
+                    int expected = count(from, table, tenantId);
+                    int arrived = count(to, table, tenantId);
+                    if (copied != expected || arrived != expected) {
+                        throw new IllegalStateException("Row counts of " + table.name() + " differ: " + expected
+                                + " on " + source + ", " + copied + " copied, " + arrived + " on " + target);
+                    }
+                    rows.put(table.name(), copied);
+                }
+                to.commit();
+            } catch (SQLException | RuntimeException e) {
+                to.rollback();
+                throw e;
+            } finally {
+                from.rollback();
+                from.setReadOnly(false);
+                from.setAutoCommit(true);
+                to.setAutoCommit(true);
+            }
+        }
+        return rows;
+    }
+
+    private int copyTable(TenantTable table, Long tenantId, Connection from, Connection to) throws SQLException {
+        try (PreparedStatement select = from.prepareStatement("SELECT * FROM " + table.name() + " WHERE " + table.where())) {
+            bind(select, table, tenantId);
+            select.setFetchSize(batchSize);
+            try (ResultSet rs = select.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columns = meta.getColumnCount();
+                StringJoiner names = new StringJoiner(", ");
+                StringJoiner placeholders = new StringJoiner(", ");
+                for (int i = 1; i <= columns; i++) {
+                    names.add(meta.getColumnName(i));
+                    placeholders.add("?");
+                }
+
+                int copied = 0;
+                try (PreparedStatement insert = to.prepareStatement(
+                        "INSERT INTO " + table.name() + " (" + names + ") VALUES (" + placeholders + ")")) {
+                    while (rs.next()) {
+                        for (int i = 1; i <= columns; i++) {
+                            insert.setObject(i, rs.getObject(i));
+                        }
+                        insert.addBatch();
+                        if (++copied % batchSize == 0) {
+                            insert.executeBatch();
+                        }
+                    }
+                    if (copied % batchSize != 0) {
+                        insert.executeBatch();
+                    }
+                }
+                return copied;
+            }
+        }
+    }
+
+    private void delete(Long tenantId, String source) throws SQLException {
+        List<TenantTable> children = new ArrayList<>(TENANT_TABLES);
+        Collections.reverse(children);
+        try (Connection connection = shardDataSources.dataSource(source).getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (TenantTable table : children) {
+                    if (!exists(connection, table.name())) {
+                        continue;
+                    }
+                    try (PreparedStatement delete = connection.prepareStatement(
+                            "DELETE FROM " + table.name() + " WHERE " + table.where())) {
+                        bind(delete, table, tenantId);
+                        delete.executeUpdate();
+                    }
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static int count(Connection connection, TenantTable table, Long tenantId) throws SQLException {
+        try (PreparedStatement count = connection.prepareStatement(
+                "SELECT COUNT(*) FROM " + table.name() + " WHERE " + table.where())) {
+            bind(count, table, tenantId);
+            try (ResultSet rs = count.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static boolean exists(Connection connection, String table) throws SQLException {
+        try (PreparedStatement check = connection.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            check.setString(1, table);
+            try (ResultSet rs = check.executeQuery()) {
+                rs.next();
+                return rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement statement, TenantTable table, Long tenantId) throws SQLException {
+        for (int i = 1; i <= table.parameterCount(); i++) {
+            statement.setLong(i, tenantId);
+        }
+    }
+}
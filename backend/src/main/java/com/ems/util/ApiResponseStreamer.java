@@ -0,0 +1,138 @@
+package com.ems.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Writes list responses in the ApiResponse envelope one element at a time, so
+ * large lists are never held in memory as a whole. success is written after the
+ * data: a listing that fails part way ends with success false instead of passing
+ * for a complete list.
+ */
+@Component
+public class ApiResponseStreamer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiResponseStreamer.class);
+
+    public static final String INCOMPLETE_LIST = "INCOMPLETE_LIST";
+
+    private static final int FLUSH_EVERY = 200;
+    private static final int GZIP_BUFFER_SIZE = 8192;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Source of the elements to stream; runs on the async request thread
+     */
+    @FunctionalInterface
+    public interface ElementSource<T> {
+        void forEach(Consumer<T> consumer);
+    }
+
+    /**
+     * Build a streaming response for the given elements, gzip-encoded when the client accepts it
+     */
+    public <T> ResponseEntity<StreamingResponseBody> stream(HttpServletRequest request, String message,
+            ElementSource<T> source) {
+        boolean gzip = acceptsGzip(request);
+        ObjectWriter elementWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = outputStream -> {
+            GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE, true) : null;
+            // Nothing is closed for us: a failed listing must not look like a complete one
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(gzipStream != null ? gzipStream : outputStream)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("data");
+            JsonStreamContext data = generator.getOutputContext();
+
+            int[] written = {0};
+            try {
+                source.forEach(element -> {
+                    try {
+                        elementWriter.writeValue(generator, element);
+                        // Push a chunk to the client regularly instead of buffering the whole body
+                        if (++written[0] % FLUSH_EVERY == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // The 200 status is sent already. Between elements the envelope is ended with success false;
+                // in the middle of one it is left unfinished, without the gzip trailer, and the request fails
+                if (generator.getOutputContext() != data) {
+                    throw e;
+                }
+                logger.error("Streaming failed after {} elements; ending the response as incomplete", written[0], e);
+                try {
+                    finish(generator, gzipStream, false, "The list could not be read completely; " + written[0]
+                            + " elements were sent", INCOMPLETE_LIST);
+                } catch (IOException writeFailure) {
+                    e.addSuppressed(writeFailure);
+                    throw e;
+                }
+                return;
+            }
+            finish(generator, gzipStream, true, message, null);
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * End the data array and the envelope. The outcome comes after the data, as it is only known there.
+     */
+    private void finish(JsonGenerator generator, GZIPOutputStream gzipStream, boolean success, String message,
+            String errorCode) throws IOException {
+        generator.writeEndArray();
+        generator.writeBooleanField("success", success);
+        generator.writeStringField("message", message);
+        if (errorCode != null) {
+            generator.writeStringField("errorCode", errorCode);
+        }
+        generator.writeStringField("timestamp", LocalDateTime.now().format(TIMESTAMP_FORMAT));
+        generator.writeEndObject();
+        generator.close();
+        if (gzipStream != null) {
+            gzipStream.finish();
+        }
+    }
+
+    private boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+}
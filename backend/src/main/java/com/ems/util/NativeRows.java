@@ -0,0 +1,34 @@
+package com.ems.util;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Column values of native query rows, which come back as JDBC types (java.sql.Date, Timestamp,
+ * BigDecimal) instead of the java.time and Double types the entities and DTOs use.
+ */
+public final class NativeRows {
+
+    private NativeRows() {
+    }
+
+    public static Double toDouble(Object value) {
+        return value == null ? null : ((Number) value).doubleValue();
+    }
+
+    public static LocalDate toDate(Object value) {
+        if (value instanceof Date date) {
+            return date.toLocalDate();
+        }
+        return (LocalDate) value;
+    }
+
+    public static LocalDateTime toDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+}
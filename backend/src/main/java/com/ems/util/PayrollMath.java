@@ -0,0 +1,136 @@
+package com.ems.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point payroll arithmetic.
+ *
+ * Amounts are long minor units (cents, scale 2) and percentage rates are long
+ * ten-thousandths of a percent, i.e. a rate of 12.5% is 125_000 (scale 4, matching
+ * the deduction_value column). Every division rounds
+ * HALF_UP, exactly like BigDecimal.setScale(2, RoundingMode.HALF_UP) on the
+ * decimal result. Nothing on the calculation path allocates; conversion from and
+ * to Double only happens at the entity/DTO boundary.
+ */
+public final class PayrollMath {
+
+    public static final int MONEY_SCALE = 2;
+
+    public static final int RATE_SCALE = 4;
+
+    /**
+     * Deduction type codes used by the batch calculation
+     */
+    public static final byte TAX = 0;
+    public static final byte INSURANCE = 1;
+    public static final byte CUSTOM = 2;
+
+    // percent (1/100) with RATE_SCALE decimals
+    private static final long RATE_DIVISOR = 100L * 10_000L;
+
+    private PayrollMath() {
+    }
+
+    /**
+     * Convert a decimal amount to cents, rounding HALF_UP on its decimal representation
+     */
+    public static long toCents(Double amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return BigDecimal.valueOf(amount).setScale(MONEY_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convert a percentage (e.g. 12.5 for 12.5%) to its fixed-point rate
+     */
+    public static long toRate(Double percentage) {
+        if (percentage == null) {
+            return 0L;
+        }
+        return BigDecimal.valueOf(percentage).setScale(RATE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convert cents back to a decimal amount
+     */
+    public static double toAmount(long cents) {
+        return BigDecimal.valueOf(cents, MONEY_SCALE).doubleValue();
+    }
+
+    /**
+     * Convert cents to an exact decimal amount, for binding to NUMERIC columns
+     */
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, MONEY_SCALE);
+    }
+
+    /**
+     * Apply a percentage rate to an amount in cents
+     */
+    public static long percentOf(long cents, long rate) {
+        return divideHalfUp(Math.multiplyExact(cents, rate), RATE_DIVISOR);
+    }
+
+    /**
+     * Amount of a single deduction, either a fixed amount in cents or a rate applied to gross
+     */
+    public static long deductionCents(long grossCents, long value, boolean percentage) {
+        return percentage ? percentOf(grossCents, value) : value;
+    }
+
+    /**
+     * Net pay, clamped at zero
+     */
+    public static long netCents(long grossCents, long taxCents, long insuranceCents, long otherCents) {
+        long net = grossCents - taxCents - insuranceCents - otherCents;
+        return net < 0 ? 0L : net;
+    }
+
+    /**
+     * Integer division rounding half away from zero
+     */
+    public static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+
+    /**
+     * Compute deductions and net pay for a whole period in one pass.
+     *
+     * Salary i owns deductions deductionStart[i] (inclusive) to deductionStart[i + 1]
+     * (exclusive) of the deduction arrays; deductionValue holds cents for fixed
+     * deductions and rates for percentage ones. Results are written into the tax,
+     * insurance, other and net arrays, which must be at least grossCents.length long.
+     */
+    public static void computePeriod(long[] grossCents, int[] deductionStart, byte[] deductionType,
+            long[] deductionValue, boolean[] deductionPercentage,
+            long[] taxCents, long[] insuranceCents, long[] otherCents, long[] netCents) {
+        int count = grossCents.length;
+        for (int i = 0; i < count; i++) {
+            long gross = grossCents[i];
+            long tax = 0L;
+            long insurance = 0L;
+            long other = 0L;
+
+            for (int d = deductionStart[i], end = deductionStart[i + 1]; d < end; d++) {
+                long amount = deductionCents(gross, deductionValue[d], deductionPercentage[d]);
+                switch (deductionType[d]) {
+                    case TAX -> tax += amount;
+                    case INSURANCE -> insurance += amount;
+                    default -> other += amount;
+                }
+            }
+
+            taxCents[i] = tax;
+            insuranceCents[i] = insurance;
+            otherCents[i] = other;
+            netCents[i] = netCents(gross, tax, insurance, other);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+-- Progress of each tenant's latest move (see TenantShardService), so any node can report it while
+-- the move runs in the background of the node that started it
+ALTER TABLE tenant_shards ADD COLUMN IF NOT EXISTS move_target VARCHAR(64);
+ALTER TABLE tenant_shards ADD COLUMN IF NOT EXISTS move_started_at TIMESTAMP;
+ALTER TABLE tenant_shards ADD COLUMN IF NOT EXISTS move_finished_at TIMESTAMP;
+ALTER TABLE tenant_shards ADD COLUMN IF NOT EXISTS move_outcome VARCHAR(16);
+ALTER TABLE tenant_shards ADD COLUMN IF NOT EXISTS move_detail TEXT;
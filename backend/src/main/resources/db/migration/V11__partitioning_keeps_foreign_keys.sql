@@ -0,0 +1,102 @@
+-- Partitioning no longer drops foreign keys silently. ems_partition_by_year refuses to convert a table
+-- that other tables still reference, and ems_partition_salaries removes the one reference it knows
+-- about, salary_deductions.salary_id, itself. Tables that stay unpartitioned keep that foreign key.
+
+CREATE OR REPLACE FUNCTION ems_partition_by_year(p_table TEXT, p_column TEXT, p_timestamp BOOLEAN, p_years_ahead INTEGER)
+RETURNS BOOLEAN
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    old_name TEXT := p_table || '_unpartitioned';
+    serial_sequence TEXT;
+    identity_column BOOLEAN;
+    first_year INTEGER;
+    current_year INTEGER := EXTRACT(YEAR FROM CURRENT_DATE)::INTEGER;
+    referencing TEXT;
+BEGIN
+    IF to_regclass(p_table) IS NULL
+       OR EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(p_table)) THEN
+        RETURN FALSE;
+    END IF;
+
+    -- The primary key becomes (id, p_column), which a foreign key on id alone cannot reference
+    SELECT string_agg(conrelid::regclass || '.' || conname, ', ') INTO referencing
+    FROM pg_constraint WHERE contype = 'f' AND confrelid = to_regclass(p_table);
+    IF referencing IS NOT NULL THEN
+        RAISE EXCEPTION 'Cannot partition %: foreign keys reference it (%)', p_table, referencing;
+    END IF;
+
+    EXECUTE format('LOCK TABLE %I IN ACCESS EXCLUSIVE MODE', p_table);
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', p_table, old_name);
+
+    SELECT attidentity <> '' INTO identity_column
+    FROM pg_attribute WHERE attrelid = to_regclass(old_name) AND attname = 'id';
+    serial_sequence := pg_get_serial_sequence(old_name, 'id');
+
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING IDENTITY INCLUDING CONSTRAINTS) PARTITION BY RANGE (%I)',
+                   p_table, old_name, p_column);
+    EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (id, %I)', p_table, p_column);
+
+    -- A serial default keeps using the old sequence, which must outlive the old table
+    IF NOT identity_column AND serial_sequence IS NOT NULL THEN
+        EXECUTE format('ALTER SEQUENCE %s OWNED BY %I.id', serial_sequence, p_table);
+    END IF;
+
+    IF p_timestamp THEN
+        EXECUTE format('SELECT EXTRACT(YEAR FROM MIN(%I))::INTEGER FROM %I', p_column, old_name) INTO first_year;
+    ELSE
+        EXECUTE format('SELECT MIN(%I) FROM %I', p_column, old_name) INTO first_year;
+    END IF;
+    PERFORM ems_ensure_year_partitions(p_table, p_column, p_timestamp,
+                                       LEAST(COALESCE(first_year, current_year), current_year), current_year + p_years_ahead);
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', p_table || '_default', p_table);
+
+    EXECUTE format('INSERT INTO %I SELECT * FROM %I', p_table, old_name);
+    EXECUTE format('SELECT setval(%L, (SELECT COALESCE(MAX(id), 0) + 1 FROM %I), false)',
+                   pg_get_serial_sequence(p_table, 'id'), p_table);
+    -- No CASCADE: anything else still depending on the old table makes the conversion fail and roll back
+    EXECUTE format('DROP TABLE %I', old_name);
+    RETURN TRUE;
+END $$;
+
+CREATE OR REPLACE FUNCTION ems_partition_salaries(p_years_ahead INTEGER)
+RETURNS BOOLEAN
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    fk RECORD;
+BEGIN
+    IF to_regclass('salaries') IS NULL
+       OR EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('salaries')) THEN
+        RETURN FALSE;
+    END IF;
+
+    -- salary_deductions.salary_id cannot reference salaries(id) alone once the key includes salary_year.
+    -- Deductions are only written through the Salary aggregate, which owns and removes them.
+    FOR fk IN SELECT conname FROM pg_constraint
+              WHERE contype = 'f' AND conrelid = to_regclass('salary_deductions') AND confrelid = to_regclass('salaries') LOOP
+        EXECUTE format('ALTER TABLE salary_deductions DROP CONSTRAINT %I', fk.conname);
+    END LOOP;
+
+    IF NOT ems_partition_by_year('salaries', 'salary_year', FALSE, p_years_ahead) THEN
+        RETURN FALSE;
+    END IF;
+    -- LIKE copies check constraints only, so the reference to employees is added back
+    ALTER TABLE salaries ADD CONSTRAINT fk_salaries_employee FOREIGN KEY (employee_id) REFERENCES employees (id);
+    CREATE INDEX IF NOT EXISTS idx_salaries_employee_period ON salaries (employee_id, salary_year, salary_month);
+    CREATE INDEX IF NOT EXISTS idx_salary_deductions_salary ON salary_deductions (salary_id);
+    RETURN TRUE;
+END $$;
+
+-- Databases created while the mapping asked for no constraint: give unpartitioned salaries their
+-- deductions' foreign key back. NOT VALID skips checking existing rows, so orphans cannot block startup.
+DO $$
+BEGIN
+    IF to_regclass('salary_deductions') IS NOT NULL AND to_regclass('salaries') IS NOT NULL
+       AND NOT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('salaries'))
+       AND NOT EXISTS (SELECT 1 FROM pg_constraint WHERE contype = 'f'
+                       AND conrelid = to_regclass('salary_deductions') AND confrelid = to_regclass('salaries')) THEN
+        ALTER TABLE salary_deductions ADD CONSTRAINT fk_salary_deductions_salary
+            FOREIGN KEY (salary_id) REFERENCES salaries (id) NOT VALID;
+    END IF;
+END $$;
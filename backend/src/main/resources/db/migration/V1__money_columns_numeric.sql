@@ -0,0 +1,18 @@
+-- Money columns were created as double precision; store them as exact decimals.
+-- Guarded so it is a no-op on a fresh database, where Hibernate creates the tables afterwards.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = 'salaries') THEN
+        ALTER TABLE salaries
+            ALTER COLUMN gross_salary TYPE NUMERIC(19, 2) USING ROUND(gross_salary::numeric, 2),
+            ALTER COLUMN tax_deduction TYPE NUMERIC(19, 2) USING ROUND(tax_deduction::numeric, 2),
+            ALTER COLUMN insurance_deduction TYPE NUMERIC(19, 2) USING ROUND(insurance_deduction::numeric, 2),
+            ALTER COLUMN other_deductions TYPE NUMERIC(19, 2) USING ROUND(other_deductions::numeric, 2),
+            ALTER COLUMN net_salary TYPE NUMERIC(19, 2) USING ROUND(net_salary::numeric, 2);
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = 'salary_deductions') THEN
+        ALTER TABLE salary_deductions
+            ALTER COLUMN deduction_value TYPE NUMERIC(19, 4) USING ROUND(deduction_value::numeric, 4);
+    END IF;
+END $$;
@@ -0,0 +1,32 @@
+-- Salary period catalog: one row per company and salary period, maintained by salary writes.
+-- Created here rather than by Hibernate so the unique key used by the upsert exists from the start.
+CREATE TABLE IF NOT EXISTS salary_period_summaries (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    period_year INTEGER NOT NULL,
+    period_month INTEGER NOT NULL,
+    headcount INTEGER NOT NULL DEFAULT 0,
+    gross_total NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    net_total NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    tax_total NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    insurance_total NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    other_deductions_total NUMERIC(19, 2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT now(),
+    CONSTRAINT uk_salary_period_summaries_period UNIQUE (user_id, period_year, period_month)
+);
+
+-- Backfill from existing salaries; a no-op on a fresh database
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = 'salaries')
+       AND EXISTS (SELECT 1 FROM information_schema.tables WHERE table_name = 'employees') THEN
+        INSERT INTO salary_period_summaries (user_id, period_year, period_month, headcount, gross_total,
+                                             net_total, tax_total, insurance_total, other_deductions_total, updated_at)
+        SELECT e.user_id, s.salary_year, s.salary_month, COUNT(*), SUM(s.gross_salary), SUM(s.net_salary),
+               SUM(s.tax_deduction), SUM(s.insurance_deduction), SUM(s.other_deductions), now()
+        FROM salaries s
+        JOIN employees e ON e.id = s.employee_id
+        GROUP BY e.user_id, s.salary_year, s.salary_month
+        ON CONFLICT (user_id, period_year, period_month) DO NOTHING;
+    END IF;
+END $$;
@@ -0,0 +1,127 @@
+-- Functions for yearly range partitioning of salaries (salary_year) and messages (sent_at).
+-- Only definitions live here; PartitionMaintenanceService calls them when ems.partitioning.enabled
+-- is set, converting the tables once and creating next year's partitions ahead of time.
+
+-- Make sure one yearly partition per year in [p_from, p_to] exists. Rows that already landed in
+-- the default partition for such a year are moved into the new partition. Returns how many were created.
+CREATE OR REPLACE FUNCTION ems_ensure_year_partitions(p_table TEXT, p_column TEXT, p_timestamp BOOLEAN,
+                                                      p_from INTEGER, p_to INTEGER)
+RETURNS INTEGER
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    y INTEGER;
+    partition_name TEXT;
+    default_name TEXT := p_table || '_default';
+    lower_bound TEXT;
+    upper_bound TEXT;
+    created INTEGER := 0;
+BEGIN
+    FOR y IN p_from..p_to LOOP
+        partition_name := p_table || '_' || y;
+        CONTINUE WHEN to_regclass(partition_name) IS NOT NULL;
+
+        IF p_timestamp THEN
+            lower_bound := quote_literal(make_date(y, 1, 1)::text);
+            upper_bound := quote_literal(make_date(y + 1, 1, 1)::text);
+        ELSE
+            lower_bound := y::text;
+            upper_bound := (y + 1)::text;
+        END IF;
+
+        IF to_regclass(default_name) IS NOT NULL THEN
+            -- A partition cannot be added while the default partition holds rows of its range
+            EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name, p_table);
+            EXECUTE format('WITH moved AS (DELETE FROM %I WHERE %I >= %s AND %I < %s RETURNING *) INSERT INTO %I SELECT * FROM moved',
+                           default_name, p_column, lower_bound, p_column, upper_bound, partition_name);
+            EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%s) TO (%s)',
+                           p_table, partition_name, lower_bound, upper_bound);
+        ELSE
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%s) TO (%s)',
+                           partition_name, p_table, lower_bound, upper_bound);
+        END IF;
+        created := created + 1;
+    END LOOP;
+    RETURN created;
+END $$;
+
+-- Convert a plain table with a bigint id into one range partitioned by year on p_column.
+-- The primary key becomes (id, p_column), as Postgres requires the partition key in unique keys,
+-- so foreign keys pointing at the table are dropped. Returns false when there was nothing to do.
+CREATE OR REPLACE FUNCTION ems_partition_by_year(p_table TEXT, p_column TEXT, p_timestamp BOOLEAN, p_years_ahead INTEGER)
+RETURNS BOOLEAN
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    old_name TEXT := p_table || '_unpartitioned';
+    serial_sequence TEXT;
+    identity_column BOOLEAN;
+    first_year INTEGER;
+    current_year INTEGER := EXTRACT(YEAR FROM CURRENT_DATE)::INTEGER;
+BEGIN
+    IF to_regclass(p_table) IS NULL
+       OR EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(p_table)) THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('LOCK TABLE %I IN ACCESS EXCLUSIVE MODE', p_table);
+    EXECUTE format('ALTER TABLE %I RENAME TO %I', p_table, old_name);
+
+    SELECT attidentity <> '' INTO identity_column
+    FROM pg_attribute WHERE attrelid = to_regclass(old_name) AND attname = 'id';
+    serial_sequence := pg_get_serial_sequence(old_name, 'id');
+
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING IDENTITY INCLUDING CONSTRAINTS) PARTITION BY RANGE (%I)',
+                   p_table, old_name, p_column);
+    EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (id, %I)', p_table, p_column);
+
+    -- A serial default keeps using the old sequence, which must outlive the old table
+    IF NOT identity_column AND serial_sequence IS NOT NULL THEN
+        EXECUTE format('ALTER SEQUENCE %s OWNED BY %I.id', serial_sequence, p_table);
+    END IF;
+
+    IF p_timestamp THEN
+        EXECUTE format('SELECT EXTRACT(YEAR FROM MIN(%I))::INTEGER FROM %I', p_column, old_name) INTO first_year;
+    ELSE
+        EXECUTE format('SELECT MIN(%I) FROM %I', p_column, old_name) INTO first_year;
+    END IF;
+    PERFORM ems_ensure_year_partitions(p_table, p_column, p_timestamp,
+                                       LEAST(COALESCE(first_year, current_year), current_year), current_year + p_years_ahead);
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', p_table || '_default', p_table);
+
+    EXECUTE format('INSERT INTO %I SELECT * FROM %I', p_table, old_name);
+    EXECUTE format('SELECT setval(%L, (SELECT COALESCE(MAX(id), 0) + 1 FROM %I), false)',
+                   pg_get_serial_sequence(p_table, 'id'), p_table);
+    EXECUTE format('DROP TABLE %I CASCADE', old_name);
+    RETURN TRUE;
+END $$;
+
+CREATE OR REPLACE FUNCTION ems_partition_salaries(p_years_ahead INTEGER)
+RETURNS BOOLEAN
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF NOT ems_partition_by_year('salaries', 'salary_year', FALSE, p_years_ahead) THEN
+        RETURN FALSE;
+    END IF;
+    -- Dropped with the old table: salary_deductions.salary_id can no longer reference salaries(id) alone
+    ALTER TABLE salaries ADD CONSTRAINT fk_salaries_employee FOREIGN KEY (employee_id) REFERENCES employees (id);
+    CREATE INDEX IF NOT EXISTS idx_salaries_employee_period ON salaries (employee_id, salary_year, salary_month);
+    CREATE INDEX IF NOT EXISTS idx_salary_deductions_salary ON salary_deductions (salary_id);
+    RETURN TRUE;
+END $$;
+
+CREATE OR REPLACE FUNCTION ems_partition_messages(p_years_ahead INTEGER)
+RETURNS BOOLEAN
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF NOT ems_partition_by_year('messages', 'sent_at', TRUE, p_years_ahead) THEN
+        RETURN FALSE;
+    END IF;
+    ALTER TABLE messages ADD CONSTRAINT fk_messages_sender FOREIGN KEY (sender_id) REFERENCES users (id);
+    ALTER TABLE messages ADD CONSTRAINT fk_messages_recipient FOREIGN KEY (recipient_id) REFERENCES employees (id);
+    CREATE INDEX IF NOT EXISTS idx_messages_sender_sent_at ON messages (sender_id, sent_at);
+    CREATE INDEX IF NOT EXISTS idx_messages_recipient_sent_at ON messages (recipient_id, sent_at);
+    RETURN TRUE;
+END $$;
@@ -0,0 +1,65 @@
+-- Archive tables for payroll, leave and message history older than a tenant's archive horizon.
+-- Rows are moved here by HistoryArchiveService and are never updated, so pages are packed full.
+-- No foreign keys: an archived row keeps its ids, and archived history blocks deleting its employee.
+CREATE TABLE IF NOT EXISTS salaries_archive (
+    id BIGINT PRIMARY KEY,
+    employee_id BIGINT NOT NULL,
+    gross_salary NUMERIC(19, 2) NOT NULL,
+    tax_deduction NUMERIC(19, 2) NOT NULL,
+    insurance_deduction NUMERIC(19, 2) NOT NULL,
+    other_deductions NUMERIC(19, 2) NOT NULL,
+    net_salary NUMERIC(19, 2) NOT NULL,
+    salary_month INTEGER NOT NULL,
+    salary_year INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT now()
+) WITH (fillfactor = 100);
+CREATE INDEX IF NOT EXISTS idx_salaries_archive_employee ON salaries_archive (employee_id, salary_year, salary_month);
+
+CREATE TABLE IF NOT EXISTS salary_deductions_archive (
+    id BIGINT PRIMARY KEY,
+    salary_id BIGINT NOT NULL,
+    deduction_type VARCHAR(255) NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    deduction_value NUMERIC(19, 4) NOT NULL,
+    is_percentage BOOLEAN NOT NULL
+) WITH (fillfactor = 100);
+CREATE INDEX IF NOT EXISTS idx_salary_deductions_archive_salary ON salary_deductions_archive (salary_id);
+
+CREATE TABLE IF NOT EXISTS leave_requests_archive (
+    id BIGINT PRIMARY KEY,
+    employee_id BIGINT NOT NULL,
+    request_date DATE NOT NULL,
+    leave_start DATE NOT NULL,
+    leave_end DATE NOT NULL,
+    reason VARCHAR(1000),
+    status VARCHAR(255) NOT NULL,
+    decision_date TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL DEFAULT now()
+) WITH (fillfactor = 100);
+CREATE INDEX IF NOT EXISTS idx_leave_requests_archive_employee ON leave_requests_archive (employee_id, leave_start);
+
+CREATE TABLE IF NOT EXISTS messages_archive (
+    id BIGINT PRIMARY KEY,
+    sender_id BIGINT NOT NULL,
+    recipient_id BIGINT NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    content VARCHAR(5000) NOT NULL,
+    sent_at TIMESTAMP NOT NULL,
+    is_read BOOLEAN NOT NULL,
+    read_at TIMESTAMP,
+    status VARCHAR(255) NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT now()
+) WITH (fillfactor = 100);
+CREATE INDEX IF NOT EXISTS idx_messages_archive_recipient ON messages_archive (recipient_id, sent_at);
+
+-- Message bodies are most of the archive; compress them harder where the server supports lz4
+DO $$
+BEGIN
+    IF current_setting('server_version_num')::INTEGER >= 140000 THEN
+        ALTER TABLE messages_archive ALTER COLUMN content SET COMPRESSION lz4;
+        ALTER TABLE messages_archive SET (toast_tuple_target = 256);
+    END IF;
+EXCEPTION WHEN OTHERS THEN
+    RAISE NOTICE 'Keeping default compression for messages_archive: %', SQLERRM;
+END $$;
@@ -0,0 +1,21 @@
+-- Schema changes that were so far left to Hibernate's ddl-auto=update. The prod profile turns
+-- ddl-auto off for faster startup, so existing databases get them here. A brand-new database has
+-- no tables yet at this point and is created by the first start without the prod profile.
+DO $$
+BEGIN
+    IF to_regclass('users') IS NULL THEN
+        RETURN;
+    END IF;
+
+    ALTER TABLE users ADD COLUMN IF NOT EXISTS archive_horizon_months INTEGER;
+
+    CREATE TABLE IF NOT EXISTS department_budget_ledger (
+        id BIGSERIAL PRIMARY KEY,
+        department_id BIGINT NOT NULL REFERENCES departments (id),
+        period_year INTEGER NOT NULL,
+        period_month INTEGER NOT NULL,
+        committed_cents BIGINT NOT NULL DEFAULT 0,
+        updated_at TIMESTAMP NOT NULL DEFAULT now(),
+        CONSTRAINT uk_department_budget_ledger_period UNIQUE (department_id, period_year, period_month)
+    );
+END $$;
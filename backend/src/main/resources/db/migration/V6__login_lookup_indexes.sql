@@ -0,0 +1,14 @@
+-- Indexes for the single-query login lookup (UserRepository.findLoginAccounts): employees are
+-- found by email, and the roles of both kinds of account by owner id.
+DO $$
+BEGIN
+    IF to_regclass('employees') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_employees_email ON employees (email);
+    END IF;
+    IF to_regclass('employee_roles') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_employee_roles_employee ON employee_roles (employee_id);
+    END IF;
+    IF to_regclass('user_roles') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_user_roles_user ON user_roles (user_id);
+    END IF;
+END $$;
@@ -0,0 +1,39 @@
+-- Tenant directory for sharding (see ShardDirectory). Only the primary's copy is read; tenants
+-- without a row live on the primary. No foreign key: the tenant's users row may be on another shard.
+CREATE TABLE IF NOT EXISTS tenant_shards (
+    tenant_id BIGINT PRIMARY KEY,
+    shard VARCHAR(64) NOT NULL,
+    moving BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- Make every id sequence of the current schema start at p_floor or later, so ids generated on
+-- a shard never collide with those of another and rows keep their ids when a tenant moves.
+-- Returns how many sequences were raised.
+CREATE OR REPLACE FUNCTION ems_ensure_id_floor(p_floor BIGINT)
+RETURNS INTEGER
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    t RECORD;
+    id_sequence TEXT;
+    current_value BIGINT;
+    raised INTEGER := 0;
+BEGIN
+    FOR t IN SELECT c.relname
+             FROM pg_class c
+             JOIN pg_namespace n ON n.oid = c.relnamespace
+             JOIN pg_attribute a ON a.attrelid = c.oid AND a.attname = 'id' AND NOT a.attisdropped
+             WHERE n.nspname = current_schema() AND c.relkind IN ('r', 'p') AND NOT c.relispartition
+    LOOP
+        id_sequence := pg_get_serial_sequence(quote_ident(t.relname), 'id');
+        CONTINUE WHEN id_sequence IS NULL;
+
+        EXECUTE format('SELECT last_value FROM %s', id_sequence) INTO current_value;
+        IF current_value < p_floor THEN
+            PERFORM setval(id_sequence, p_floor, false);
+            raised := raised + 1;
+        END IF;
+    END LOOP;
+    RETURN raised;
+END $$;
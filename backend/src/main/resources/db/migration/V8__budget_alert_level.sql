@@ -0,0 +1,8 @@
+-- Highest budget alert sent per department and budget period (see BudgetMonitorService), so
+-- every node can run the alert job and each threshold is reported once per period.
+DO $$
+BEGIN
+    IF to_regclass('department_budget_ledger') IS NOT NULL THEN
+        ALTER TABLE department_budget_ledger ADD COLUMN IF NOT EXISTS alert_level INTEGER NOT NULL DEFAULT 0;
+    END IF;
+END $$;
@@ -0,0 +1,11 @@
+-- Indexes for the employee self-service read model (SelfServiceService): leave history by employee,
+-- and unread messages by recipient without visiting the read ones.
+DO $$
+BEGIN
+    IF to_regclass('leave_requests') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_leave_requests_employee_start ON leave_requests (employee_id, leave_start);
+    END IF;
+    IF to_regclass('messages') IS NOT NULL THEN
+        CREATE INDEX IF NOT EXISTS idx_messages_recipient_unread ON messages (recipient_id, sent_at) WHERE NOT is_read;
+    END IF;
+END $$;
@@ -0,0 +1,65 @@
+package com.ems.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.ems.Application;
+import com.ems.security.JwtTokenProvider;
+
+/**
+ * Who may use the actuator endpoints. They are served on the application port here, so MockMvc reaches them.
+ */
+@SpringBootTest(classes = Application.class, properties = {
+        "management.server.port=",
+        "ems.management.password=operator-secret"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ActuatorSecurityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Test
+    void healthAndInfoAreOpen() throws Exception {
+        mockMvc.perform(get("/actuator/info")).andExpect(status().isOk());
+        int health = mockMvc.perform(get("/actuator/health")).andReturn().getResponse().getStatus();
+        // 503 when a health indicator such as the mail server is down, but never an authentication failure
+        assertThat(health).isIn(200, 503);
+    }
+
+    @Test
+    void otherEndpointsNeedTheOperatorAccount() throws Exception {
+        mockMvc.perform(get("/actuator/metrics")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/sqlinspection")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/metrics").with(httpBasic("operator", "wrong"))).andExpect(status().isUnauthorized());
+
+        mockMvc.perform(get("/actuator/metrics").with(httpBasic("operator", "operator-secret"))).andExpect(status().isOk());
+    }
+
+    @Test
+    void tenantTokensDoNotOpenTheActuator() throws Exception {
+        String token = jwtTokenProvider.createToken("M_actuator@example.com", "ROLE_MANAGER", 1L);
+
+        mockMvc.perform(get("/actuator/metrics").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/actuator/tenantshards").header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"tenantId\":1,\"target\":\"primary\"}"))
+                .andExpect(status().isUnauthorized());
+    }
+}
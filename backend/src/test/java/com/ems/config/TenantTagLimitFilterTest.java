@@ -0,0 +1,44 @@
+package com.ems.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Series per tenant stay bounded however many tenants send requests
+ */
+class TenantTagLimitFilterTest {
+
+    @Test
+    void tenantsPastTheLimitShareOneSeries() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(new TenantTagLimitFilter(3));
+
+        for (int tenant = 1; tenant <= 100; tenant++) {
+            registry.counter("ems.http.sql.statements", "uri", "/api/employees", MetricsConfig.TENANT_TAG, Integer.toString(tenant))
+                    .increment();
+        }
+        registry.counter("ems.http.sql.statements", "uri", "/api/employees", MetricsConfig.TENANT_TAG, "2").increment();
+        registry.counter("ems.http.sql.statements", "uri", "/api/auth/login", MetricsConfig.TENANT_TAG, MetricsConfig.NO_TENANT)
+                .increment();
+
+        assertThat(registry.find("ems.http.sql.statements").counters())
+                .extracting(counter -> counter.getId().getTag(MetricsConfig.TENANT_TAG))
+                .containsExactlyInAnyOrder("1", "2", "3", TenantTagLimitFilter.OTHER_TENANTS, MetricsConfig.NO_TENANT);
+        assertThat(registry.get("ems.http.sql.statements").tag(MetricsConfig.TENANT_TAG, "2").counter().count()).isEqualTo(2.0);
+        assertThat(registry.get("ems.http.sql.statements").tag(MetricsConfig.TENANT_TAG, TenantTagLimitFilter.OTHER_TENANTS)
+                .counter().count()).isEqualTo(97.0);
+    }
+
+    @Test
+    void metersWithoutTenantAreUntouched() {
+        Meter.Id id = new Meter.Id("jvm.threads.live", Tags.empty(), null, null, Meter.Type.GAUGE);
+
+        assertThat(new TenantTagLimitFilter(0).map(id)).isSameAs(id);
+    }
+}
@@ -0,0 +1,48 @@
+package com.ems.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.ems.Application;
+
+/**
+ * Indexes a brand-new database gets from the entity mappings and SchemaIndexService. Flyway runs
+ * before the tables exist there, so the index migrations cannot create them.
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+class SchemaIndexesTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void loginLookupIndexesAreCreatedWithTheSchema() {
+        assertThat(indexColumns("employees", "idx_employees_email")).containsExactly("email");
+        assertThat(indexColumns("employee_roles", "idx_employee_roles_employee")).containsExactly("employee_id");
+        assertThat(indexColumns("user_roles", "idx_user_roles_user")).containsExactly("user_id");
+    }
+
+    @Test
+    void selfServiceLeaveIndexIsCreatedWithTheSchema() {
+        assertThat(indexColumns("leave_requests", "idx_leave_requests_employee_start")).containsExactly("employee_id", "leave_start");
+    }
+
+    @Test
+    void selfServiceUnreadIndexIsCreatedAtStartup() {
+        // SchemaIndexService creates it once the tables exist; H2 has no partial indexes, so it covers read messages too
+        assertThat(indexColumns("messages", "idx_messages_recipient_unread")).containsExactly("recipient_id", "sent_at");
+    }
+
+    private List<String> indexColumns(String table, String index) {
+        return jdbcTemplate.queryForList("SELECT LOWER(COLUMN_NAME) FROM INFORMATION_SCHEMA.INDEX_COLUMNS " +
+                "WHERE LOWER(TABLE_NAME) = ? AND LOWER(INDEX_NAME) = ? ORDER BY ORDINAL_POSITION", String.class, table, index);
+    }
+}
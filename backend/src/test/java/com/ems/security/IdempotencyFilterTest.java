@@ -0,0 +1,272 @@
+package com.ems.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Replays, waits and refusals of POST requests carrying an Idempotency-Key
+ */
+class IdempotencyFilterTest {
+
+    private static final Long TENANT_ID = 7L;
+
+    private static final int MAX_BYTES = 1024;
+
+    private final IdempotencyStore store = new IdempotencyStore();
+
+    private final IdempotencyFilter filter = new IdempotencyFilter(store);
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    {
+        ReflectionTestUtils.setField(store, "ttlSeconds", 3600L);
+        ReflectionTestUtils.setField(store, "maxEntriesPerTenant", 100);
+        ReflectionTestUtils.setField(store, "maxResponseBytes", MAX_BYTES);
+        ReflectionTestUtils.setField(store, "maxRequestBytes", MAX_BYTES);
+        ReflectionTestUtils.setField(store, "waitTimeoutSeconds", 10L);
+        ReflectionTestUtils.setField(store, "paths", new String[] {"/api/salaries"});
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+        TenantContext.clear();
+    }
+
+    @Test
+    void repeatIsReplayedWithoutRunningAgain() throws Exception {
+        MockHttpServletResponse first = post("key-1", "{\"amount\":100}", created());
+        MockHttpServletResponse repeat = post("key-1", "{\"amount\":100}", created());
+
+        assertThat(executions).hasValue(1);
+        assertThat(first.getStatus()).isEqualTo(201);
+        assertThat(first.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        assertThat(repeat.getStatus()).isEqualTo(201);
+        assertThat(repeat.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(repeat.getHeader(HttpHeaders.LOCATION)).isEqualTo(first.getHeader(HttpHeaders.LOCATION));
+        assertThat(repeat.getContentAsString()).isEqualTo(first.getContentAsString());
+    }
+
+    @Test
+    void keyReusedForAnotherRequestIsRejected() throws Exception {
+        post("key-1", "{\"amount\":100}", created());
+        MockHttpServletResponse reused = post("key-1", "{\"amount\":200}", created());
+
+        assertThat(executions).hasValue(1);
+        assertThat(reused.getStatus()).isEqualTo(422);
+    }
+
+    @Test
+    void keysAreScopedToThePrincipal() throws Exception {
+        post("key-1", "{\"amount\":100}", created());
+        MockHttpServletResponse other = post("M_other@example.com", "key-1", "{\"amount\":200}", created());
+
+        assertThat(executions).hasValue(2);
+        assertThat(other.getStatus()).isEqualTo(201);
+    }
+
+    @Test
+    void repeatWaitsForTheRequestInFlight() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (request, response) -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            created().doFilter(request, response);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(
+                    () -> postQuietly("key-1", "{\"amount\":100}", slow), executor);
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<MockHttpServletResponse> repeat = CompletableFuture.supplyAsync(
+                    () -> postQuietly("key-1", "{\"amount\":100}", created()), executor);
+
+            Thread.sleep(200);
+            assertThat(repeat).isNotDone();
+            release.countDown();
+
+            MockHttpServletResponse firstResponse = first.get(10, TimeUnit.SECONDS);
+            MockHttpServletResponse repeatResponse = repeat.get(10, TimeUnit.SECONDS);
+            assertThat(executions).hasValue(1);
+            assertThat(repeatResponse.getStatus()).isEqualTo(201);
+            assertThat(repeatResponse.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+            assertThat(repeatResponse.getContentAsString()).isEqualTo(firstResponse.getContentAsString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void serverErrorFreesTheKeyForARetry() throws Exception {
+        MockHttpServletResponse failed = post("key-1", "{\"amount\":100}", (request, response) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(503);
+        });
+        MockHttpServletResponse retried = post("key-1", "{\"amount\":100}", created());
+
+        assertThat(failed.getStatus()).isEqualTo(503);
+        assertThat(retried.getStatus()).isEqualTo(201);
+        assertThat(retried.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void responseTooLargeToKeepStillIsNotRunTwice() throws Exception {
+        FilterChain large = (request, response) -> {
+            executions.incrementAndGet();
+            HttpServletResponse http = (HttpServletResponse) response;
+            http.setStatus(201);
+            http.setHeader(HttpHeaders.LOCATION, "/api/salaries/1");
+            http.getOutputStream().write(new byte[MAX_BYTES * 2]);
+        };
+
+        MockHttpServletResponse first = post("key-1", "{\"amount\":100}", large);
+        MockHttpServletResponse repeat = post("key-1", "{\"amount\":100}", large);
+
+        assertThat(executions).hasValue(1);
+        assertThat(first.getContentAsByteArray()).hasSize(MAX_BYTES * 2);
+        assertThat(repeat.getStatus()).isEqualTo(201);
+        assertThat(repeat.getHeader(HttpHeaders.LOCATION)).isEqualTo("/api/salaries/1");
+        assertThat(repeat.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(repeat.getContentAsString()).contains("too large");
+    }
+
+    @Test
+    void oversizedBodyIsRefused() throws Exception {
+        String body = "x".repeat(MAX_BYTES + 1);
+
+        MockHttpServletResponse declared = post("key-1", body, created());
+        // A chunked body declares no length and is cut off while reading
+        MockHttpServletRequest undeclared = new MockHttpServletRequest() {
+            {
+                setMethod("POST");
+                setContextPath("/api");
+                setRequestURI("/api/api/salaries");
+                addHeader(IdempotencyFilter.HEADER, "key-2");
+                setContent(body.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        MockHttpServletResponse cutOff = new MockHttpServletResponse();
+        authenticate("M_manager@example.com");
+        filter.doFilter(undeclared, cutOff, created());
+
+        assertThat(declared.getStatus()).isEqualTo(413);
+        assertThat(cutOff.getStatus()).isEqualTo(413);
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    void bufferedBodyCanBeReadAsynchronously() throws Exception {
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        boolean[] allRead = {false};
+        post("key-1", "{\"amount\":100}", (request, response) -> {
+            ServletInputStream input = request.getInputStream();
+            input.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[4];
+                    int read;
+                    while (input.isReady() && (read = input.read(buffer)) != -1) {
+                        received.write(buffer, 0, read);
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allRead[0] = true;
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    throw new AssertionError(error);
+                }
+            });
+            created().doFilter(request, response);
+        });
+
+        assertThat(received.toString(StandardCharsets.UTF_8)).isEqualTo("{\"amount\":100}");
+        assertThat(allRead[0]).isTrue();
+    }
+
+    private FilterChain created() {
+        return (request, response) -> {
+            int id = executions.incrementAndGet();
+            HttpServletResponse http = (HttpServletResponse) response;
+            http.setStatus(201);
+            http.setContentType("application/json");
+            http.setHeader(HttpHeaders.LOCATION, "/api/salaries/" + id);
+            http.getOutputStream().write(("{\"id\":" + id + "}").getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    private MockHttpServletResponse post(String key, String body, FilterChain chain) throws Exception {
+        return post("M_manager@example.com", key, body, chain);
+    }
+
+    private MockHttpServletResponse post(String principal, String key, String body, FilterChain chain) throws Exception {
+        authenticate(principal);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(key, body), response, chain);
+        return response;
+    }
+
+    private MockHttpServletResponse postQuietly(String key, String body, FilterChain chain) {
+        try {
+            return post(key, body, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            clearContext();
+        }
+    }
+
+    private void authenticate(String principal) {
+        TenantContext.setTenantId(TENANT_ID);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    private static MockHttpServletRequest request(String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/api/salaries");
+        request.setContextPath("/api");
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
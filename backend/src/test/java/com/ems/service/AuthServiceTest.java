@@ -0,0 +1,45 @@
+package com.ems.service;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.ems.Application;
+import com.ems.dto.LoginRequestDto;
+import com.ems.exception.AuthenticationException;
+
+/**
+ * Failed logins do the same password work whether or not the account exists
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+class AuthServiceTest {
+
+    @Autowired
+    private AuthService authService;
+
+    @Test
+    void unknownEmailStillChecksAPassword() {
+        PasswordEncoder encoder = (PasswordEncoder) ReflectionTestUtils.getField(authService, "passwordEncoder");
+        PasswordEncoder counting = spy(encoder);
+        ReflectionTestUtils.setField(authService, "passwordEncoder", counting);
+        try {
+            assertThatThrownBy(() -> authService.login(new LoginRequestDto("nobody-" + System.nanoTime() + "@example.com", "secret-pass")))
+                    .isInstanceOf(AuthenticationException.class)
+                    .hasMessage("Invalid email/password");
+
+            verify(counting).matches(eq("secret-pass"), anyString());
+        } finally {
+            ReflectionTestUtils.setField(authService, "passwordEncoder", encoder);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.ems.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import com.ems.Application;
+import com.ems.model.Department;
+import com.ems.model.Department.BudgetType;
+import com.ems.model.Employee;
+import com.ems.model.Employee.ContractType;
+import com.ems.model.Salary;
+import com.ems.model.User;
+import com.ems.repository.DepartmentRepository;
+import com.ems.repository.EmployeeRepository;
+import com.ems.repository.SalaryRepository;
+import com.ems.repository.UserRepository;
+import com.ems.service.BudgetMonitorService.AlertLevel;
+
+/**
+ * Budget alerts: thresholds come from the department's budget_amount, and each threshold is
+ * reported once per department and budget period
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+@RecordApplicationEvents
+class BudgetMonitorServiceTest {
+
+    private static final YearMonth MARCH = YearMonth.of(2024, 3);
+
+    private static final YearMonth APRIL = YearMonth.of(2024, 4);
+
+    @Autowired
+    private BudgetMonitorService budgetMonitorService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private SalaryRepository salaryRepository;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Test
+    void thresholdsAreMeasuredAgainstTheBudgetAmount() {
+        User manager = manager();
+        Employee below = employee(department(manager, "Below", 1_000.0, BudgetType.MONTHLY));
+        Employee near = employee(department(manager, "Near", 1_000.0, BudgetType.MONTHLY));
+        Employee over = employee(department(manager, "Over", 1_000.0, BudgetType.MONTHLY));
+        salary(below, MARCH, 850.0);
+        salary(near, MARCH, 950.0);
+        salary(over, MARCH, 1_000.01);
+
+        assertThat(budgetMonitorService.alertTenant(manager.getId(), MARCH)).isEqualTo(2);
+
+        List<BudgetAlertEvent.Alert> alerts = alerts(manager);
+        assertThat(alerts).extracting(BudgetAlertEvent.Alert::departmentName).containsExactly("Near", "Over");
+        assertThat(alerts).extracting(BudgetAlertEvent.Alert::level).containsExactly(AlertLevel.NEAR_LIMIT, AlertLevel.OVER_BUDGET);
+        assertThat(alerts).extracting(BudgetAlertEvent.Alert::budget).containsOnly(1_000.0);
+        assertThat(alerts).extracting(BudgetAlertEvent.Alert::expenses).containsExactly(950.0, 1_000.01);
+    }
+
+    @Test
+    void eachThresholdIsAlertedOncePerDepartmentAndPeriod() {
+        User manager = manager();
+        Employee monthly = employee(department(manager, "Monthly", 1_000.0, BudgetType.MONTHLY));
+        Employee yearly = employee(department(manager, "Yearly", 1_000.0, BudgetType.YEARLY));
+        salary(monthly, MARCH, 950.0);
+        salary(yearly, MARCH, 1_500.0);
+
+        assertThat(budgetMonitorService.alertTenant(manager.getId(), MARCH)).isEqualTo(2);
+        // Another run, as on a second node, finds both thresholds already reported
+        assertThat(budgetMonitorService.alertTenant(manager.getId(), MARCH)).isZero();
+        assertThat(events.stream(BudgetAlertEvent.class).filter(event -> event.tenantId().equals(manager.getId()))).hasSize(1);
+
+        // Going over budget is a new threshold for the month
+        salary(monthly, MARCH, 100.0);
+        assertThat(budgetMonitorService.alertTenant(manager.getId(), MARCH)).isEqualTo(1);
+        assertThat(alerts(manager)).last()
+                .extracting(BudgetAlertEvent.Alert::departmentName, BudgetAlertEvent.Alert::level)
+                .containsExactly("Monthly", AlertLevel.OVER_BUDGET);
+        assertThat(budgetMonitorService.alertTenant(manager.getId(), MARCH)).isZero();
+
+        // A new month is a new period for the monthly budget only; the yearly one was already alerted this year
+        salary(monthly, APRIL, 950.0);
+        assertThat(budgetMonitorService.alertTenant(manager.getId(), APRIL)).isEqualTo(1);
+        assertThat(alerts(manager)).last()
+                .extracting(BudgetAlertEvent.Alert::departmentName, BudgetAlertEvent.Alert::level)
+                .containsExactly("Monthly", AlertLevel.NEAR_LIMIT);
+        assertThat(budgetMonitorService.alertTenant(manager.getId(), APRIL)).isZero();
+    }
+
+    private List<BudgetAlertEvent.Alert> alerts(User manager) {
+        return events.stream(BudgetAlertEvent.class)
+                .filter(event -> event.tenantId().equals(manager.getId()))
+                .flatMap(event -> event.alerts().stream())
+                .toList();
+    }
+
+    private User manager() {
+        User manager = new User();
+        manager.setFullName("Budget Manager");
+        manager.setEmail("budget-" + System.nanoTime() + "@example.com");
+        manager.setCompanyName("Budget Company");
+        manager.setPassword("not-used");
+        manager.addRole("ROLE_MANAGER");
+        return userRepository.save(manager);
+    }
+
+    private Department department(User manager, String name, double budget, BudgetType budgetType) {
+        Department department = new Department();
+        department.setUser(manager);
+        department.setName(name);
+        department.setBudget(budget);
+        department.setBudgetType(budgetType);
+        return departmentRepository.save(department);
+    }
+
+    private Employee employee(Department department) {
+        Employee employee = new Employee();
+        employee.setUser(department.getUser());
+        employee.setDepartment(department);
+        employee.setName(department.getName() + " Employee");
+        employee.setEmail(department.getName().toLowerCase() + "-" + department.getUser().getEmail());
+        employee.setRole("Engineer");
+        employee.setContractType(ContractType.FULL_TIME);
+        employee.setStartDate(LocalDate.of(2023, 1, 1));
+        return employeeRepository.save(employee);
+    }
+
+    private void salary(Employee employee, YearMonth period, double gross) {
+        Salary salary = new Salary();
+        salary.setEmployee(employee);
+        salary.setGrossSalary(gross);
+        salary.setSalaryYear(period.getYear());
+        salary.setSalaryMonth(period.getMonthValue());
+        salaryRepository.save(salary);
+    }
+}
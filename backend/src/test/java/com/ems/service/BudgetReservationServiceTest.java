@@ -0,0 +1,217 @@
+package com.ems.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ems.Application;
+import com.ems.model.Department;
+import com.ems.model.Department.BudgetType;
+import com.ems.model.User;
+import com.ems.repository.DepartmentBudgetLedgerRepository;
+import com.ems.repository.DepartmentRepository;
+import com.ems.repository.UserRepository;
+import com.ems.util.PayrollMath;
+
+/**
+ * Concurrent budget reservations from several nodes against one department_budget_ledger. Every
+ * attempt runs in its own transaction, like the salary writes that make them.
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+class BudgetReservationServiceTest {
+
+    private static final int NODES = 2;
+
+    private static final int THREADS_PER_NODE = 4;
+
+    private static final int ATTEMPTS_PER_THREAD = 100;
+
+    private static final int YEAR = 2024;
+
+    private static final int MONTH = 3;
+
+    @Autowired
+    private DepartmentBudgetLedgerRepository ledgerRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(NODES * THREADS_PER_NODE);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentReservationsNeverExceedTheBudget() throws Exception {
+        Department department = department(20_000.0, BudgetType.MONTHLY);
+        List<BudgetReservationService> nodes = nodes();
+
+        List<Long> reserved = runConcurrently(nodes, (node, random) -> {
+            double amount = 10 + random.nextInt(2_000_00) / 100.0;
+            return node.reserve(department, YEAR, MONTH, amount) ? PayrollMath.toCents(amount) : 0L;
+        });
+
+        long committed = ledger(department);
+        assertThat(committed).isLessThanOrEqualTo(PayrollMath.toCents(department.getBudget()));
+        assertThat(committed).isEqualTo(reserved.stream().mapToLong(Long::longValue).sum());
+        // Far more was requested than fits, so the budget ends up nearly used
+        assertThat(committed).isGreaterThan(PayrollMath.toCents(department.getBudget()) - PayrollMath.toCents(2_010.0));
+    }
+
+    @Test
+    void releasesMakeRoomForLaterReservationsWithoutOvershooting() throws Exception {
+        Department department = department(10_000.0, BudgetType.YEARLY);
+        List<BudgetReservationService> nodes = nodes();
+
+        List<Long> net = runConcurrently(nodes, (node, random) -> {
+            double amount = 10 + random.nextInt(1_000_00) / 100.0;
+            int month = 1 + random.nextInt(12);
+            if (!node.reserve(department, YEAR, month, amount)) {
+                return 0L;
+            }
+            if (random.nextBoolean()) {
+                node.release(department, YEAR, month, amount);
+                return 0L;
+            }
+            return PayrollMath.toCents(amount);
+        });
+
+        long committed = ledger(department);
+        assertThat(committed).isLessThanOrEqualTo(PayrollMath.toCents(department.getBudget()));
+        assertThat(committed).isEqualTo(net.stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void transferMovesPayrollBetweenDepartmentBudgets() {
+        Department from = department(10_000.0, BudgetType.MONTHLY);
+        Department to = department(30_000.0, BudgetType.YEARLY);
+        BudgetReservationService service = nodes().get(0);
+
+        assertThat(inTransaction(() -> service.reserve(from, YEAR, MONTH, 4_000.0))).isTrue();
+        assertThat(inTransaction(() -> service.reserve(to, YEAR, 1, 27_000.0))).isTrue();
+
+        // The yearly budget takes the whole year's payroll: 27,000 + 5,000 is over it
+        assertThat(inTransaction(() -> service.transfer(from, to, YEAR, MONTH, 4_000.0, 5_000.0))).isFalse();
+        assertThat(ledger(from)).isEqualTo(PayrollMath.toCents(4_000.0));
+        assertThat(ledger(to)).isEqualTo(PayrollMath.toCents(27_000.0));
+
+        assertThat(inTransaction(() -> service.transfer(from, to, YEAR, MONTH, 4_000.0, 3_000.0))).isTrue();
+        assertThat(ledger(from)).isZero();
+        assertThat(ledger(to)).isEqualTo(PayrollMath.toCents(30_000.0));
+    }
+
+    @Test
+    void reservationRollsBackWithTheSalaryWrite() {
+        Department department = department(5_000.0, BudgetType.MONTHLY);
+        BudgetReservationService service = nodes().get(0);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(service.reserve(department, YEAR, MONTH, 4_000.0)).isTrue();
+            // The salary insert fails after the reservation
+            status.setRollbackOnly();
+        });
+
+        assertThat(ledger(department)).isZero();
+        assertThat(inTransaction(() -> service.reserve(department, YEAR, MONTH, 5_000.0))).isTrue();
+        assertThat(ledger(department)).isEqualTo(PayrollMath.toCents(5_000.0));
+    }
+
+    @FunctionalInterface
+    private interface Attempt {
+        long run(BudgetReservationService node, Random random);
+    }
+
+    /**
+     * Run every attempt on all threads of all nodes at once and collect the results
+     */
+    private List<Long> runConcurrently(List<BudgetReservationService> nodes, Attempt attempt) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int n = 0; n < NODES; n++) {
+            BudgetReservationService node = nodes.get(n);
+            for (int t = 0; t < THREADS_PER_NODE; t++) {
+                Random random = new Random(n * 1_000L + t);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long total = 0;
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        total += transactionTemplate.execute(status -> attempt.run(node, random));
+                    }
+                    return total;
+                }));
+            }
+        }
+        start.countDown();
+
+        List<Long> results = new ArrayList<>();
+        for (Future<Long> future : futures) {
+            results.add(future.get(60, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    /**
+     * Services with their own in-memory counters sharing one ledger, like application nodes sharing a database
+     */
+    private List<BudgetReservationService> nodes() {
+        List<BudgetReservationService> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            BudgetReservationService node = new BudgetReservationService();
+            ReflectionTestUtils.setField(node, "ledgerRepository", ledgerRepository);
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private boolean inTransaction(BooleanSupplier work) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> work.getAsBoolean()));
+    }
+
+    private long ledger(Department department) {
+        int month = department.getBudgetType() == BudgetType.YEARLY ? 0 : MONTH;
+        List<Long> committed = ledgerRepository.findCommittedCents(department.getId(), YEAR, month);
+        return committed.isEmpty() ? 0L : committed.get(0);
+    }
+
+    private Department department(double budget, BudgetType budgetType) {
+        User manager = new User();
+        manager.setFullName("Budget Manager");
+        manager.setEmail("budget-" + System.nanoTime() + "@example.com");
+        manager.setCompanyName("Budget Company");
+        manager.setPassword("not-used");
+        manager.addRole("ROLE_MANAGER");
+        manager = userRepository.save(manager);
+
+        Department department = new Department();
+        department.setName("Budget");
+        department.setBudget(budget);
+        department.setBudgetType(budgetType);
+        department.setUser(manager);
+        return departmentRepository.save(department);
+    }
+}
@@ -0,0 +1,212 @@
+package com.ems.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.ems.Application;
+import com.ems.model.Employee;
+import com.ems.model.Employee.ContractType;
+import com.ems.model.User;
+import com.ems.repository.EmployeeRepository;
+import com.ems.repository.UserRepository;
+import com.ems.security.JwtTokenProvider;
+import com.ems.service.AggregateVersionService.Aggregate;
+
+/**
+ * Change streams as clients see them: which streams an event reaches, and what a client
+ * reconnecting with Last-Event-ID gets
+ */
+@SpringBootTest(classes = Application.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ChangeStreamServiceTest {
+
+    private static final Pattern EVENT_ID = Pattern.compile("^id:(\\S+)$", Pattern.MULTILINE);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ChangeStreamService changeStreamService;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Test
+    void eventsOnlyReachTheirTenantAndRole() throws Exception {
+        User manager = manager();
+        User otherManager = manager();
+        Employee employee = employee(manager);
+
+        MvcResult managerStream = open(managerToken(manager), null);
+        MvcResult employeeStream = open(employeeToken(employee), null);
+        MvcResult otherStream = open(managerToken(otherManager), null);
+
+        change(manager, Aggregate.EMPLOYEE, Aggregate.LEAVE);
+        awaitEvents(managerStream, 1);
+        awaitEvents(employeeStream, 1);
+        assertThat(content(managerStream)).contains("\"EMPLOYEE\"", "\"LEAVE\"");
+        // Employees get the aggregates that concern them, without the others' versions
+        assertThat(content(employeeStream)).contains("\"LEAVE\"").doesNotContain("EMPLOYEE");
+
+        // Only managers see department changes; the leave change after it shows the employee's stream is up to date
+        change(manager, Aggregate.DEPARTMENT);
+        awaitEvents(managerStream, 2);
+        change(manager, Aggregate.LEAVE);
+        awaitEvents(employeeStream, 2);
+        assertThat(content(employeeStream)).doesNotContain("DEPARTMENT");
+
+        change(otherManager, Aggregate.SALARY);
+        awaitEvents(otherStream, 1);
+        assertThat(content(otherStream)).contains("\"SALARY\"").doesNotContain("LEAVE", "EMPLOYEE", "DEPARTMENT");
+        assertThat(content(managerStream)).doesNotContain("SALARY");
+    }
+
+    @Test
+    void resumingReplaysTheEventsAfterLastEventId() throws Exception {
+        User manager = manager();
+        MvcResult stream = open(managerToken(manager), null);
+        change(manager, Aggregate.EMPLOYEE);
+        awaitEvents(stream, 1);
+        change(manager, Aggregate.LEAVE);
+        awaitEvents(stream, 2);
+        change(manager, Aggregate.SALARY);
+        List<String> ids = awaitEvents(stream, 3);
+
+        MvcResult resumed = open(managerToken(manager), ids.get(0));
+
+        assertThat(eventIds(resumed)).containsExactly(ids.get(1), ids.get(2));
+        assertThat(content(resumed)).contains("\"LEAVE\"", "\"SALARY\"").doesNotContain("EMPLOYEE", "event:reset");
+    }
+
+    @Test
+    void resumingFromBeforeTheKeptEventsResets() throws Exception {
+        Object historySize = ReflectionTestUtils.getField(changeStreamService, "historySize");
+        ReflectionTestUtils.setField(changeStreamService, "historySize", 2);
+        try {
+            User manager = manager();
+            MvcResult stream = open(managerToken(manager), null);
+            for (int i = 1; i <= 4; i++) {
+                change(manager, Aggregate.MESSAGE);
+                awaitEvents(stream, i);
+            }
+            List<String> ids = eventIds(stream);
+
+            // The first two events are no longer kept
+            MvcResult tooOld = open(managerToken(manager), ids.get(0));
+            assertThat(content(tooOld)).contains("event:reset").doesNotContain("event:change");
+
+            MvcResult kept = open(managerToken(manager), ids.get(1));
+            assertThat(eventIds(kept)).containsExactly(ids.get(2), ids.get(3));
+            assertThat(content(kept)).doesNotContain("event:reset");
+
+            // An id from another process cannot be resumed either
+            MvcResult otherProcess = open(managerToken(manager), "0-1");
+            assertThat(content(otherProcess)).contains("event:reset");
+        } finally {
+            ReflectionTestUtils.setField(changeStreamService, "historySize", historySize);
+        }
+    }
+
+    private MvcResult open(String token, String lastEventId) throws Exception {
+        MockHttpServletRequestBuilder stream = get("/api/events").header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        if (lastEventId != null) {
+            stream.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(stream).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private void change(User manager, Aggregate... aggregates) {
+        changeStreamService.onAggregateChanged(new AggregateChangedEvent(manager.getId(), List.of(aggregates)));
+        changeStreamService.flush();
+    }
+
+    /**
+     * Wait until the stream has received the given number of events and return their ids
+     */
+    private List<String> awaitEvents(MvcResult stream, int count) throws Exception {
+        awaitContent(stream, content -> eventIds(content).size() >= count);
+        return eventIds(stream);
+    }
+
+    private void awaitContent(MvcResult stream, Predicate<String> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.test(content(stream))) {
+            assertThat(System.currentTimeMillis()).as("waiting for events, got: %s", content(stream)).isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private static String content(MvcResult stream) throws Exception {
+        return stream.getResponse().getContentAsString();
+    }
+
+    private static List<String> eventIds(MvcResult stream) throws Exception {
+        return eventIds(content(stream));
+    }
+
+    private static List<String> eventIds(String content) {
+        List<String> ids = new ArrayList<>();
+        Matcher matcher = EVENT_ID.matcher(content);
+        while (matcher.find()) {
+            ids.add(matcher.group(1));
+        }
+        return ids;
+    }
+
+    private String managerToken(User manager) {
+        return jwtTokenProvider.createToken("M_" + manager.getEmail(), "ROLE_MANAGER", manager.getId());
+    }
+
+    private String employeeToken(Employee employee) {
+        return jwtTokenProvider.createToken("E_" + employee.getEmail(), "ROLE_EMPLOYEE", employee.getUser().getId(), employee.getId());
+    }
+
+    private User manager() {
+        User manager = new User();
+        manager.setFullName("Stream Manager");
+        manager.setEmail("stream-" + System.nanoTime() + "@example.com");
+        manager.setCompanyName("Stream Company");
+        manager.setPassword("not-used");
+        manager.addRole("ROLE_MANAGER");
+        return userRepository.save(manager);
+    }
+
+    private Employee employee(User manager) {
+        Employee employee = new Employee();
+        employee.setUser(manager);
+        employee.setName("Stream Employee");
+        employee.setEmail("employee-" + manager.getEmail());
+        employee.setRole("Engineer");
+        employee.setContractType(ContractType.FULL_TIME);
+        employee.setStartDate(LocalDate.now().minusYears(1));
+        employee.setAccountActivated(true);
+        employee.setPasswordHash("not-used");
+        return employeeRepository.save(employee);
+    }
+}
@@ -0,0 +1,193 @@
+package com.ems.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ems.config.ShardDataSources;
+import com.ems.service.AggregateVersionService.Aggregate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Invalidation payloads from one node as another node's listener decodes them, the node's own
+ * notifications, and what a listener does after losing its connection. Postgres is replaced by
+ * mocked connections.
+ */
+class ClusterInvalidationBusTest {
+
+    private static final String SHARD = ShardDataSources.PRIMARY;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final ShardDataSources shardDataSources = mock(ShardDataSources.class);
+
+    private final ClusterInvalidationBus bus = bus(jdbcTemplate);
+
+    ClusterInvalidationBusTest() {
+        when(shardDataSources.names()).thenReturn(List.of(SHARD));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bus.stop();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void transactionSendsOneNotificationPerTenantBeforeCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        bus.publish(7L, 1L, Aggregate.EMPLOYEE);
+        bus.publish(7L, 2L, Aggregate.SALARY, Aggregate.EMPLOYEE);
+        bus.publish(8L, 3L, Aggregate.DEPARTMENT);
+        bus.publish(8L, null, Aggregate.DEPARTMENT);
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Object.class), any(), any());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+        }
+
+        List<String> payloads = sentPayloads(jdbcTemplate, 2);
+        String nodeId = payloads.get(0).split(";")[0];
+        assertThat(payloads).containsExactlyInAnyOrder(
+                nodeId + ";7;EMPLOYEE,SALARY;1,2",
+                // A whole-aggregate change drops the ids
+                nodeId + ";8;DEPARTMENT;");
+    }
+
+    @Test
+    void otherNodesNotificationsArePublishedMergedPerTenant() throws Exception {
+        JdbcTemplate otherJdbc = mock(JdbcTemplate.class);
+        ClusterInvalidationBus otherNode = bus(otherJdbc);
+        otherNode.publish(7L, 1L, Aggregate.EMPLOYEE);
+        otherNode.publish(7L, 2L, Aggregate.SALARY);
+        otherNode.publish(8L, null, Aggregate.DEPARTMENT);
+        List<String> received = new ArrayList<>(sentPayloads(otherJdbc, 3));
+
+        bus.publish(9L, 4L, Aggregate.LEAVE);
+        received.addAll(sentPayloads(jdbcTemplate, 1));
+        received.add("not;an;invalidation");
+
+        PGConnection pgConnection = listenConnection(received);
+        bus.start();
+
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, timeout(5_000).times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues()).containsExactlyInAnyOrder(
+                new ClusterInvalidationEvent(7L, List.of(Aggregate.EMPLOYEE, Aggregate.SALARY), List.of(1L, 2L)),
+                new ClusterInvalidationEvent(8L, List.of(Aggregate.DEPARTMENT), List.of()));
+        verify(pgConnection, atLeast(2)).getNotifications(anyInt());
+    }
+
+    @Test
+    void reconnectedListenerTreatsEverythingAsStale() throws Exception {
+        AtomicBoolean failed = new AtomicBoolean();
+        Connection connection = connection(List.of());
+        when(shardDataSources.openDirectConnection(SHARD)).thenAnswer(call -> {
+            if (failed.compareAndSet(false, true)) {
+                throw new SQLException("Connection refused");
+            }
+            return connection;
+        });
+
+        bus.start();
+
+        verify(eventPublisher, timeout(5_000)).publishEvent(ClusterInvalidationEvent.everything());
+        verify(shardDataSources, times(2)).openDirectConnection(SHARD);
+    }
+
+    @Test
+    void firstConnectionIsNotAReconnect() throws Exception {
+        PGConnection pgConnection = listenConnection(List.of());
+
+        bus.start();
+
+        verify(pgConnection, timeout(5_000).atLeast(3)).getNotifications(anyInt());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    private ClusterInvalidationBus bus(JdbcTemplate template) {
+        ClusterInvalidationBus node = new ClusterInvalidationBus();
+        ReflectionTestUtils.setField(node, "jdbcTemplate", template);
+        ReflectionTestUtils.setField(node, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(node, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(node, "shardDataSources", shardDataSources);
+        ReflectionTestUtils.setField(node, "enabled", true);
+        ReflectionTestUtils.setField(node, "pollMillis", 10);
+        ReflectionTestUtils.setField(node, "validateMillis", 30_000L);
+        ReflectionTestUtils.setField(node, "maxBackoffMillis", 1_000L);
+        return node;
+    }
+
+    private static List<String> sentPayloads(JdbcTemplate template, int count) {
+        ArgumentCaptor<Object> payloads = ArgumentCaptor.forClass(Object.class);
+        verify(template, times(count)).queryForObject(eq("SELECT pg_notify(?, ?)"), eq(Object.class),
+                eq(ClusterInvalidationBus.CHANNEL), payloads.capture());
+        return payloads.getAllValues().stream().map(String::valueOf).toList();
+    }
+
+    private PGConnection listenConnection(List<String> payloads) throws SQLException {
+        Connection connection = connection(payloads);
+        when(shardDataSources.openDirectConnection(SHARD)).thenReturn(connection);
+        return connection.unwrap(PGConnection.class);
+    }
+
+    /**
+     * A listen connection that delivers the payloads in one batch, then stays quiet
+     */
+    private static Connection connection(List<String> payloads) throws SQLException {
+        PGNotification[] batch = payloads.stream().map(payload -> {
+            PGNotification notification = mock(PGNotification.class);
+            when(notification.getName()).thenReturn(ClusterInvalidationBus.CHANNEL);
+            when(notification.getParameter()).thenReturn(payload);
+            return notification;
+        }).toArray(PGNotification[]::new);
+
+        AtomicBoolean delivered = new AtomicBoolean();
+        PGConnection pgConnection = mock(PGConnection.class);
+        when(pgConnection.getNotifications(anyInt())).thenAnswer(call -> {
+            if (batch.length > 0 && delivered.compareAndSet(false, true)) {
+                return batch;
+            }
+            Thread.sleep(call.<Integer>getArgument(0));
+            return new PGNotification[0];
+        });
+
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(mock(Statement.class));
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        return connection;
+    }
+}
@@ -0,0 +1,177 @@
+package com.ems.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mockingDetails;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.ems.Application;
+import com.ems.model.Department;
+import com.ems.model.Employee;
+import com.ems.model.Employee.ContractType;
+import com.ems.model.User;
+import com.ems.repository.DepartmentRepository;
+import com.ems.repository.EmployeeRepository;
+import com.ems.repository.UserRepository;
+import com.ems.security.JwtTokenProvider;
+import com.ems.service.AggregateVersionService.Aggregate;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Statements and authentication work of one dashboard batch against the same reads as individual GETs
+ */
+@SpringBootTest(classes = Application.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DashboardBatchServiceTest {
+
+    // Batch read name and the GET endpoint serving the same read
+    private static final Map<String, String> READS = new LinkedHashMap<>();
+
+    static {
+        READS.put("employeeCountsByRole", "/api/employees/counts/by-role");
+        READS.put("employeeCountsByContractType", "/api/employees/counts/by-contract-type");
+        READS.put("employeeCountsByDepartment", "/api/employees/counts/by-department");
+        READS.put("departmentStatistics", "/api/departments/statistics");
+        READS.put("leaveStatistics", "/api/leaves/statistics");
+        READS.put("messageStatistics", "/api/messages/statistics");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @SpyBean
+    private JwtTokenProvider jwtTokenProvider;
+
+    private User manager;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        String email = "batch-" + System.nanoTime() + "@example.com";
+        manager = new User();
+        manager.setFullName("Batch Manager");
+        manager.setEmail(email);
+        manager.setCompanyName("Batch Company");
+        manager.setPassword("not-used");
+        manager.addRole("ROLE_MANAGER");
+        manager = userRepository.save(manager);
+
+        Department department = new Department();
+        department.setName("Engineering");
+        department.setBudget(100_000.0);
+        department.setBudgetType(Department.BudgetType.MONTHLY);
+        department.setUser(manager);
+        department = departmentRepository.save(department);
+
+        for (int i = 0; i < 5; i++) {
+            Employee employee = new Employee();
+            employee.setUser(manager);
+            employee.setDepartment(department);
+            employee.setName("Employee " + i);
+            employee.setEmail("employee-" + i + "-" + email);
+            employee.setRole(i % 2 == 0 ? "Developer" : "Tester");
+            employee.setContractType(i % 2 == 0 ? ContractType.FULL_TIME : ContractType.PART_TIME);
+            employee.setStartDate(LocalDate.now().minusYears(1));
+            employeeRepository.save(employee);
+        }
+
+        token = jwtTokenProvider.createToken("M_" + email, "ROLE_MANAGER", manager.getId());
+    }
+
+    @Test
+    void batchAuthenticatesOnceAndLoadsTheManagerOnce() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Work individual = measure(statistics, () -> {
+            for (String path : READS.values()) {
+                mockMvc.perform(get(path).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                        .andExpect(status().isOk());
+            }
+        });
+
+        Work batch = measure(statistics, () -> {
+            StringBuilder body = new StringBuilder("{\"requests\":[");
+            READS.keySet().forEach(name -> body.append("{\"id\":\"").append(name).append("\",\"name\":\"").append(name).append("\"},"));
+            body.setCharAt(body.length() - 1, ']');
+            body.append('}');
+            mockMvc.perform(post("/api/dashboard/batch").header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON).content(body.toString()))
+                    .andExpect(status().isOk());
+        });
+
+        System.out.printf("%d dashboard reads: individual GETs %s; one batch %s%n", READS.size(), individual, batch);
+
+        assertThat(individual.authentications()).isEqualTo(READS.size());
+        assertThat(individual.managerLoads()).isEqualTo(READS.size());
+        assertThat(batch.authentications()).isEqualTo(1);
+        assertThat(batch.managerLoads()).isEqualTo(1);
+        // Each skipped manager lookup saves its user and role queries at least
+        assertThat(batch.statements()).isLessThanOrEqualTo(individual.statements() - 2L * (READS.size() - 1));
+    }
+
+    private record Work(long statements, long managerLoads, long authentications) {
+
+        @Override
+        public String toString() {
+            return statements + " statements, " + managerLoads + " manager loads, " + authentications + " token authentications";
+        }
+    }
+
+    @FunctionalInterface
+    private interface Requests {
+        void run() throws Exception;
+    }
+
+    private Work measure(Statistics statistics, Requests requests) throws Exception {
+        // Start from a cold cache, so neither run reuses results the other one computed
+        aggregateVersionService.bump(manager.getId(), Aggregate.values());
+        statistics.clear();
+        clearInvocations(jwtTokenProvider);
+
+        requests.run();
+
+        long authentications = mockingDetails(jwtTokenProvider).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("getAuthentication"))
+                .count();
+        return new Work(statistics.getPrepareStatementCount(),
+                statistics.getEntityStatistics(User.class.getName()).getLoadCount(),
+                authentications);
+    }
+}
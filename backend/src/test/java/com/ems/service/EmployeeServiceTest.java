@@ -0,0 +1,207 @@
+package com.ems.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ems.Application;
+import com.ems.dto.EmployeeDto;
+import com.ems.model.Department;
+import com.ems.model.Employee;
+import com.ems.model.Employee.ContractType;
+import com.ems.model.Employee.Status;
+import com.ems.model.EmployeeInactivity;
+import com.ems.model.Leave;
+import com.ems.model.Message;
+import com.ems.model.Salary;
+import com.ems.model.User;
+import com.ems.repository.DepartmentRepository;
+import com.ems.repository.EmployeeInactivityRepository;
+import com.ems.repository.EmployeeRepository;
+import com.ems.repository.LeaveRepository;
+import com.ems.repository.MessageRepository;
+import com.ems.repository.SalaryRepository;
+import com.ems.repository.UserRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Streamed employee list against the entity conversion it replaces, and the statements it takes
+ * as the company grows
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+class EmployeeServiceTest {
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private SalaryRepository salaryRepository;
+
+    @Autowired
+    private LeaveRepository leaveRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private EmployeeInactivityRepository inactivityRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void streamedEmployeesMatchTheEntityConversion() {
+        User manager = company(12);
+        List<EmployeeDto> streamed = stream(manager);
+
+        assertThat(streamed).hasSize(12);
+        transactionTemplate.executeWithoutResult(tx -> {
+            for (EmployeeDto dto : streamed) {
+                EmployeeDto expected = employeeService.convertToDto(employeeRepository.findById(dto.getId()).orElseThrow());
+                // Budget usage comes from the current-period budget status instead of the latest salaries
+                assertThat(dto).usingRecursiveComparison()
+                        .ignoringFields("departmentBudgetUsagePercent")
+                        .isEqualTo(expected);
+            }
+        });
+        assertThat(streamed).filteredOn(EmployeeDto::isOnLeave).isNotEmpty();
+        assertThat(streamed).filteredOn(dto -> dto.getCurrentInactivityId() != null).isNotEmpty();
+        assertThat(streamed).filteredOn(dto -> dto.getPendingLeaveRequests() > 0).isNotEmpty();
+        assertThat(streamed).allSatisfy(dto -> assertThat(dto.getDepartmentBudgetUsagePercent()).isNotNull());
+    }
+
+    @Test
+    void streamStatementsDoNotGrowWithEmployees() {
+        long small = statementsToStream(company(5));
+        long large = statementsToStream(company(60));
+
+        assertThat(large).isEqualTo(small);
+    }
+
+    private long statementsToStream(User manager) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        stream(manager);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<EmployeeDto> stream(User manager) {
+        List<EmployeeDto> streamed = new ArrayList<>();
+        employeeService.streamEmployees(manager, streamed::add);
+        return streamed;
+    }
+
+    /**
+     * A company with two departments, where employees have two salaries each and some of them have
+     * leaves, messages or an inactivity period
+     */
+    private User company(int employees) {
+        String email = "stream-" + System.nanoTime() + "@example.com";
+        User manager = new User();
+        manager.setFullName("Stream Manager");
+        manager.setEmail(email);
+        manager.setCompanyName("Stream Company");
+        manager.setPassword("not-used");
+        manager.addRole("ROLE_MANAGER");
+        manager = userRepository.save(manager);
+
+        List<Department> departments = new ArrayList<>();
+        for (Department.BudgetType budgetType : List.of(Department.BudgetType.MONTHLY, Department.BudgetType.YEARLY)) {
+            Department department = new Department();
+            department.setName("Department " + budgetType);
+            department.setBudget(50_000.0);
+            department.setBudgetType(budgetType);
+            department.setUser(manager);
+            departments.add(departmentRepository.save(department));
+        }
+
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < employees; i++) {
+            Employee employee = new Employee();
+            employee.setUser(manager);
+            employee.setDepartment(departments.get(i % 2));
+            employee.setName("Employee " + i);
+            employee.setEmail("employee-" + i + "-" + email);
+            employee.setRole("Developer");
+            employee.setContractType(ContractType.FULL_TIME);
+            employee.setStartDate(today.minusYears(2));
+            employee.setStatus(i % 4 == 3 ? Status.INACTIVE : Status.ACTIVE);
+            employee = employeeRepository.save(employee);
+
+            for (int back = 1; back >= 0; back--) {
+                LocalDate period = today.minusMonths(back);
+                Salary salary = new Salary();
+                salary.setEmployee(employee);
+                salary.setGrossSalary(3_000.0 + 100 * i + back);
+                salary.setTaxDeduction(300.0);
+                salary.setInsuranceDeduction(100.0);
+                salary.setOtherDeductions(0.0);
+                salary.setNetSalary(2_600.0 + 100 * i + back);
+                salary.setSalaryMonth(period.getMonthValue());
+                salary.setSalaryYear(period.getYear());
+                salaryRepository.save(salary);
+            }
+
+            if (i % 3 == 0) {
+                leaveRepository.save(leave(employee, today.minusDays(1), today.plusDays(1), Leave.Status.APPROVED));
+                leaveRepository.save(leave(employee, today.plusDays(10), today.plusDays(12), Leave.Status.PENDING));
+            }
+            if (i % 2 == 0) {
+                Message message = new Message();
+                message.setSender(manager);
+                message.setEmployee(employee);
+                message.setSubject("Welcome");
+                message.setContent("Welcome aboard");
+                messageRepository.save(message);
+            }
+            if (i % 4 == 3) {
+                inactivityRepository.save(inactivity(employee, today.minusMonths(6), today.minusMonths(5)));
+                inactivityRepository.save(inactivity(employee, today.minusDays(3), null));
+            }
+        }
+        return manager;
+    }
+
+    private Leave leave(Employee employee, LocalDate start, LocalDate end, Leave.Status status) {
+        Leave leave = new Leave();
+        leave.setEmployee(employee);
+        leave.setStartDate(start);
+        leave.setEndDate(end);
+        leave.setReason("Time off");
+        leave.setStatus(status);
+        return leave;
+    }
+
+    private EmployeeInactivity inactivity(Employee employee, LocalDate start, LocalDate end) {
+        EmployeeInactivity inactivity = new EmployeeInactivity();
+        inactivity.setEmployee(employee);
+        inactivity.setStartDate(start);
+        inactivity.setEndDate(end);
+        inactivity.setReason("Sabbatical");
+        return inactivity;
+    }
+}
@@ -0,0 +1,133 @@
+package com.ems.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.ems.dto.EmployeeTimelineAnalytics;
+import com.ems.model.User;
+import com.ems.repository.EmployeeRepository;
+import com.ems.service.HeadcountTimelineService.Granularity;
+
+/**
+ * Headcount timeline sweep at the target scale (10 years of monthly points for 50k employees),
+ * fed with generated intervals instead of a database. The timing check is a benchmark and only
+ * runs with -Pbenchmarks.
+ */
+class HeadcountTimelineServiceTest {
+
+    private static final int EMPLOYEES = 50_000;
+
+    private static final LocalDate FROM = LocalDate.of(2015, 1, 1);
+
+    private static final LocalDate TO = LocalDate.of(2024, 12, 31);
+
+    private static final long TARGET_MILLIS = 100;
+
+    private final HeadcountTimelineService service = new HeadcountTimelineService();
+
+    private final EmployeeRepository employeeRepository = mock(EmployeeRepository.class);
+
+    // A user without id is not coalesced, so every call runs the sweep
+    private final User user = new User();
+
+    private List<Object[]> intervals;
+
+    @BeforeEach
+    void setUp() {
+        intervals = generateIntervals(new Random(42L));
+        when(employeeRepository.findHeadcountIntervals(any(User.class), isNull(), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(intervals);
+        ReflectionTestUtils.setField(service, "employeeRepository", employeeRepository);
+        ReflectionTestUtils.setField(service, "requestCoalescer", new RequestCoalescer());
+    }
+
+    @Test
+    void sweepMatchesPerPointCounts() {
+        EmployeeTimelineAnalytics timeline = service.getTimeline(user, FROM, TO, Granularity.MONTH, null);
+
+        assertThat(timeline.getMonths()).hasSize(120);
+        for (int i = 0; i < 120; i++) {
+            LocalDate sampleDay = FROM.plusMonths(i + 1L).minusDays(1);
+            int[] expected = countOn(sampleDay);
+            assertThat(timeline.getActive().get(i)).as("active on %s", sampleDay).isEqualTo(expected[0] - expected[1]);
+            assertThat(timeline.getInactive().get(i)).as("inactive on %s", sampleDay).isEqualTo(expected[1]);
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void tenYearsOfMonthlyPointsForFiftyThousandEmployeesStayUnderTarget() {
+        for (int i = 0; i < 20; i++) {
+            service.getTimeline(user, FROM, TO, Granularity.MONTH, null);
+        }
+
+        long[] nanos = new long[21];
+        for (int i = 0; i < nanos.length; i++) {
+            long start = System.nanoTime();
+            service.getTimeline(user, FROM, TO, Granularity.MONTH, null);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double medianMillis = nanos[nanos.length / 2] / 1_000_000.0;
+
+        System.out.printf("Headcount timeline: %d intervals, 120 monthly points, median %.2f ms%n", intervals.size(), medianMillis);
+        assertThat(medianMillis).isLessThan(TARGET_MILLIS);
+    }
+
+    /**
+     * Employment intervals for all employees, about a third of them open-ended, and one inactivity
+     * interval clipped to employment for every third employee, as the repository query returns them
+     */
+    private List<Object[]> generateIntervals(Random random) {
+        List<Object[]> rows = new ArrayList<>();
+        long fromDay = FROM.minusYears(5).toEpochDay();
+        long span = TO.toEpochDay() - fromDay;
+        for (int i = 0; i < EMPLOYEES; i++) {
+            LocalDate start = LocalDate.ofEpochDay(fromDay + random.nextLong(span));
+            LocalDate end = random.nextInt(3) == 0 ? null : start.plusDays(30 + random.nextInt(3000));
+            rows.add(new Object[] { start, end, 0 });
+
+            if (i % 3 == 0) {
+                LocalDate inactiveStart = start.plusDays(random.nextInt(400));
+                LocalDate inactiveEnd = random.nextInt(10) == 0 ? end : inactiveStart.plusDays(1 + random.nextInt(120));
+                if (end != null && inactiveEnd != null && inactiveEnd.isAfter(end)) {
+                    inactiveEnd = end;
+                }
+                rows.add(new Object[] { inactiveStart, inactiveEnd, 1 });
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Employed and inactive counts on a day, by checking every interval
+     */
+    private int[] countOn(LocalDate day) {
+        int[] counts = new int[2];
+        for (Object[] row : intervals) {
+            LocalDate start = (LocalDate) row[0];
+            LocalDate end = (LocalDate) row[1];
+            if (end != null && end.isBefore(start)) {
+                continue;
+            }
+            if (!start.isAfter(day) && (end == null || !end.isBefore(day))) {
+                counts[(Integer) row[2]]++;
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,249 @@
+package com.ems.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.ems.Application;
+import com.ems.dto.LeaveDto;
+import com.ems.dto.SalaryDto;
+import com.ems.model.Deduction;
+import com.ems.model.Deduction.DeductionType;
+import com.ems.model.Employee;
+import com.ems.model.Employee.ContractType;
+import com.ems.model.Leave;
+import com.ems.model.Message;
+import com.ems.model.Salary;
+import com.ems.model.User;
+import com.ems.repository.EmployeeRepository;
+import com.ems.repository.LeaveRepository;
+import com.ems.repository.MessageRepository;
+import com.ems.repository.SalaryRepository;
+import com.ems.repository.UserRepository;
+
+/**
+ * Moving old history to the archive tables batch by batch, copy and count before delete, and
+ * reading hot and archived history back together
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+@Sql("/history-archive-tables.sql")
+class HistoryArchiveServiceTest {
+
+    private static final YearMonth OLD = YearMonth.now().minusYears(3);
+
+    @Autowired
+    private HistoryArchiveService historyArchiveService;
+
+    @Autowired
+    private SalaryService salaryService;
+
+    @Autowired
+    private LeaveService leaveService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private SalaryRepository salaryRepository;
+
+    @Autowired
+    private LeaveRepository leaveRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void restore() {
+        ReflectionTestUtils.setField(historyArchiveService, "salaryRepository", salaryRepository);
+        ReflectionTestUtils.setField(historyArchiveService, "batchSize", 1000);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void oldHistoryMovesAndIsReadBackOnce() {
+        User manager = manager();
+        Employee alice = employee(manager);
+        Salary january = salary(alice, OLD.withMonth(1));
+        Salary february = salary(alice, OLD.withMonth(2));
+        Salary current = salary(alice, YearMonth.now());
+        Leave oldApproved = leave(alice, OLD.atDay(3), Leave.Status.APPROVED);
+        Leave oldPending = leave(alice, OLD.atDay(10), Leave.Status.PENDING);
+        Leave upcoming = leave(alice, LocalDate.now().plusDays(7), Leave.Status.APPROVED);
+        Message oldMessage = message(manager, alice, OLD.atDay(5).atStartOfDay());
+        Message newMessage = message(manager, alice, LocalDateTime.now());
+
+        // One row per batch, so every table takes several transactions
+        ReflectionTestUtils.setField(historyArchiveService, "batchSize", 1);
+        HistoryArchiveService.Result result = historyArchiveService.archiveTenant(manager.getId(), 12);
+
+        assertThat(result).isEqualTo(new HistoryArchiveService.Result(2, 1, 1));
+        assertThat(salaryRepository.findByEmployeeIdOrderByYearDescMonthDesc(alice.getId()))
+                .extracting(Salary::getId).containsExactly(current.getId());
+        assertThat(count("salary_deductions", "salary_id", january.getId(), february.getId())).isZero();
+        assertThat(count("salary_deductions_archive", "salary_id", january.getId(), february.getId())).isEqualTo(4);
+        assertThat(count("salaries_archive", "id", january.getId(), february.getId(), current.getId())).isEqualTo(2);
+        assertThat(leaveRepository.findById(oldApproved.getId())).isEmpty();
+        assertThat(leaveRepository.findById(oldPending.getId())).isPresent();
+        assertThat(count("leave_requests_archive", "id", oldApproved.getId(), oldPending.getId(), upcoming.getId())).isEqualTo(1);
+        assertThat(messageRepository.findById(oldMessage.getId())).isEmpty();
+        assertThat(count("messages_archive", "id", oldMessage.getId(), newMessage.getId())).isEqualTo(1);
+
+        // Nothing is left to move, and a second run neither copies nor deletes anything again
+        assertThat(historyArchiveService.archiveTenant(manager.getId(), 12)).isEqualTo(new HistoryArchiveService.Result(0, 0, 0));
+
+        authenticate(manager);
+        List<SalaryDto> salaries = salaryService.getSalaryHistoryByEmployeeId(alice.getId());
+        assertThat(salaries).extracting(SalaryDto::getId)
+                .containsExactly(current.getId(), february.getId(), january.getId());
+        assertThat(salaries.get(2).getDeductions()).hasSize(2);
+        assertThat(salaries.get(2).getNetSalary()).isEqualTo(january.getNetSalary());
+
+        assertThat(leaveService.getLeavesByEmployee(alice.getId())).extracting(LeaveDto::getId)
+                .containsExactlyInAnyOrder(oldApproved.getId(), oldPending.getId(), upcoming.getId());
+
+        List<Object[]> selfService = salaryRepository.findSelfServiceHistory(alice.getId(), manager.getId());
+        assertThat(selfService).extracting(row -> ((Number) row[0]).longValue())
+                .containsExactly(current.getId(), february.getId(), january.getId());
+        assertThat(selfService).extracting(row -> row[8]).containsExactly(false, true, true);
+    }
+
+    @Test
+    void batchIsCopiedAndCountedBeforeItIsDeleted() {
+        User manager = manager();
+        Employee bob = employee(manager);
+        Salary old = salary(bob, OLD);
+
+        // The archive reports a missing row: the batch is rolled back and stays in the hot tables
+        SalaryRepository shortArchive = mock(SalaryRepository.class, AdditionalAnswers.delegatesTo(salaryRepository));
+        doReturn(0L).when(shortArchive).countArchivedByIds(anyList());
+        ReflectionTestUtils.setField(historyArchiveService, "salaryRepository", shortArchive);
+
+        assertThatThrownBy(() -> historyArchiveService.archiveTenant(manager.getId(), 12))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("salaries");
+        InOrder failed = inOrder(shortArchive);
+        failed.verify(shortArchive).lockArchivableIds(manager.getId(), periodOf(YearMonth.now().minusMonths(12)), 1000);
+        failed.verify(shortArchive).copyDeductionsToArchive(List.of(old.getId()));
+        failed.verify(shortArchive).copyToArchive(List.of(old.getId()));
+        failed.verify(shortArchive).countArchivedByIds(List.of(old.getId()));
+        failed.verify(shortArchive, never()).deleteArchivedDeductions(anyList());
+        failed.verify(shortArchive, never()).deleteArchived(anyList());
+        assertThat(salaryRepository.findById(old.getId())).isPresent();
+        assertThat(count("salary_deductions", "salary_id", old.getId())).isEqualTo(2);
+        assertThat(count("salaries_archive", "id", old.getId())).isZero();
+        assertThat(count("salary_deductions_archive", "salary_id", old.getId())).isZero();
+
+        // With matching counts the same batch moves, and is deleted only after it was counted
+        SalaryRepository archive = mock(SalaryRepository.class, AdditionalAnswers.delegatesTo(salaryRepository));
+        ReflectionTestUtils.setField(historyArchiveService, "salaryRepository", archive);
+
+        assertThat(historyArchiveService.archiveTenant(manager.getId(), 12).salaries()).isEqualTo(1);
+        InOrder moved = inOrder(archive);
+        moved.verify(archive).copyToArchive(List.of(old.getId()));
+        moved.verify(archive).countArchivedByIds(List.of(old.getId()));
+        moved.verify(archive).deleteArchivedDeductions(List.of(old.getId()));
+        moved.verify(archive).deleteArchived(List.of(old.getId()));
+        assertThat(salaryRepository.findById(old.getId())).isEmpty();
+        assertThat(count("salaries_archive", "id", old.getId())).isEqualTo(1);
+    }
+
+    private static int periodOf(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue();
+    }
+
+    private long count(String table, String column, Long... ids) {
+        String placeholders = String.join(", ", Collections.nCopies(ids.length, "?"));
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE " + column + " IN (" + placeholders + ")",
+                Long.class, (Object[]) ids);
+    }
+
+    private void authenticate(User manager) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "M_" + manager.getEmail(), null, List.of(new SimpleGrantedAuthority("ROLE_MANAGER"))));
+    }
+
+    private User manager() {
+        User manager = new User();
+        manager.setFullName("Archive Manager");
+        manager.setEmail("archive-" + System.nanoTime() + "@example.com");
+        manager.setCompanyName("Archive Company");
+        manager.setPassword("not-used");
+        manager.addRole("ROLE_MANAGER");
+        return userRepository.save(manager);
+    }
+
+    private Employee employee(User manager) {
+        Employee employee = new Employee();
+        employee.setUser(manager);
+        employee.setName("Archived Employee");
+        employee.setEmail("employee-" + manager.getEmail());
+        employee.setRole("Engineer");
+        employee.setContractType(ContractType.FULL_TIME);
+        employee.setStartDate(OLD.atDay(1).minusYears(1));
+        return employeeRepository.save(employee);
+    }
+
+    private Salary salary(Employee employee, YearMonth period) {
+        Salary salary = new Salary();
+        salary.setEmployee(employee);
+        salary.setGrossSalary(4000.0);
+        salary.setSalaryYear(period.getYear());
+        salary.setSalaryMonth(period.getMonthValue());
+        salary.addDeduction(new Deduction(DeductionType.TAX, "Income tax", 20.0, true));
+        salary.addDeduction(new Deduction(DeductionType.INSURANCE, "Health", 150.0, false));
+        return salaryRepository.save(salary);
+    }
+
+    private Leave leave(Employee employee, LocalDate start, Leave.Status status) {
+        Leave leave = new Leave();
+        leave.setEmployee(employee);
+        leave.setStartDate(start);
+        leave.setEndDate(start.plusDays(2));
+        leave.setReason("Holiday");
+        leave.setStatus(status);
+        return leaveRepository.save(leave);
+    }
+
+    private Message message(User manager, Employee employee, LocalDateTime sentAt) {
+        Message message = new Message();
+        message.setSender(manager);
+        message.setEmployee(employee);
+        message.setSubject("Payslip");
+        message.setContent("Your payslip is ready");
+        message = messageRepository.save(message);
+        // The send time is set on insert
+        jdbcTemplate.update("UPDATE messages SET sent_at = ? WHERE id = ?", sentAt, message.getId());
+        return message;
+    }
+}
@@ -0,0 +1,155 @@
+package com.ems.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.ems.Application;
+import com.ems.dto.LeaveBatchResultDto;
+import com.ems.model.Employee;
+import com.ems.model.Employee.ContractType;
+import com.ems.model.Leave;
+import com.ems.model.Leave.Status;
+import com.ems.model.User;
+import com.ems.repository.EmployeeRepository;
+import com.ems.repository.LeaveRepository;
+import com.ems.repository.UserRepository;
+
+/**
+ * Batch approval and denial: overlaps inside the batch and with approved leave, and batches
+ * where only some requests can be decided
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+class LeaveServiceTest {
+
+    private static final LocalDate START = LocalDate.now().plusMonths(1).withDayOfMonth(1);
+
+    @Autowired
+    private LeaveService leaveService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private LeaveRepository leaveRepository;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void batchApprovalSkipsOverlapsAndReportsEachRequest() {
+        User manager = manager();
+        Employee alice = employee(manager, "alice");
+        Employee bob = employee(manager, "bob");
+        leave(alice, 0, 4, Status.APPROVED);
+
+        Leave overlapsApproved = leave(alice, 3, 5, Status.PENDING);
+        Leave first = leave(alice, 10, 14, Status.PENDING);
+        Leave overlapsFirst = leave(alice, 12, 20, Status.PENDING);
+        Leave otherEmployee = leave(bob, 10, 14, Status.PENDING);
+        Leave alreadyDenied = leave(alice, 30, 31, Status.DENIED);
+        Leave otherCompany = leave(employee(manager(), "carol"), 10, 14, Status.PENDING);
+
+        authenticate(manager);
+        // The later, overlapping request comes first and one id is repeated: start dates decide, and each id is reported once
+        LeaveBatchResultDto result = leaveService.approveLeaves(List.of(overlapsFirst.getId(), overlapsApproved.getId(),
+                first.getId(), otherEmployee.getId(), alreadyDenied.getId(), otherCompany.getId(), first.getId()));
+
+        assertThat(result.getProcessed()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(4);
+        assertThat(result.getResults()).extracting(LeaveBatchResultDto.Result::getLeaveId).containsExactly(
+                overlapsFirst.getId(), overlapsApproved.getId(), first.getId(), otherEmployee.getId(),
+                alreadyDenied.getId(), otherCompany.getId());
+
+        Map<Long, LeaveBatchResultDto.Result> byId = result.getResults().stream()
+                .collect(Collectors.toMap(LeaveBatchResultDto.Result::getLeaveId, r -> r));
+        assertThat(byId.get(first.getId()).isSuccess()).isTrue();
+        assertThat(byId.get(otherEmployee.getId()).isSuccess()).isTrue();
+        assertThat(byId.get(overlapsFirst.getId()).getMessage()).isEqualTo("Employee already has approved leave during this period");
+        assertThat(byId.get(overlapsApproved.getId()).getMessage()).isEqualTo("Employee already has approved leave during this period");
+        assertThat(byId.get(alreadyDenied.getId()).getMessage()).isEqualTo("Only pending leave requests can be approved");
+        assertThat(byId.get(otherCompany.getId()).getMessage()).startsWith("Leave request not found");
+
+        assertThat(status(first)).isEqualTo(Status.APPROVED);
+        assertThat(status(otherEmployee)).isEqualTo(Status.APPROVED);
+        assertThat(status(overlapsFirst)).isEqualTo(Status.PENDING);
+        assertThat(status(overlapsApproved)).isEqualTo(Status.PENDING);
+        assertThat(status(alreadyDenied)).isEqualTo(Status.DENIED);
+        assertThat(status(otherCompany)).isEqualTo(Status.PENDING);
+    }
+
+    @Test
+    void batchDenialOnlyDecidesPendingRequests() {
+        User manager = manager();
+        Employee alice = employee(manager, "alice");
+        Leave pending = leave(alice, 0, 2, Status.PENDING);
+        Leave approved = leave(alice, 5, 6, Status.APPROVED);
+
+        authenticate(manager);
+        LeaveBatchResultDto result = leaveService.denyLeaves(List.of(pending.getId(), approved.getId()));
+
+        assertThat(result.getProcessed()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getResults().get(1).getMessage()).isEqualTo("Only pending leave requests can be denied");
+        assertThat(status(pending)).isEqualTo(Status.DENIED);
+        assertThat(status(approved)).isEqualTo(Status.APPROVED);
+    }
+
+    private Status status(Leave leave) {
+        return leaveRepository.findById(leave.getId()).orElseThrow().getStatus();
+    }
+
+    private void authenticate(User manager) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "M_" + manager.getEmail(), null, List.of(new SimpleGrantedAuthority("ROLE_MANAGER"))));
+    }
+
+    private User manager() {
+        User manager = new User();
+        manager.setFullName("Leave Manager");
+        manager.setEmail("leaves-" + System.nanoTime() + "@example.com");
+        manager.setCompanyName("Leave Company");
+        manager.setPassword("not-used");
+        manager.addRole("ROLE_MANAGER");
+        return userRepository.save(manager);
+    }
+
+    private Employee employee(User manager, String name) {
+        Employee employee = new Employee();
+        employee.setUser(manager);
+        employee.setName(name);
+        employee.setEmail(name + "-" + manager.getEmail());
+        employee.setRole("Engineer");
+        employee.setContractType(ContractType.FULL_TIME);
+        employee.setStartDate(LocalDate.now().minusYears(1));
+        return employeeRepository.save(employee);
+    }
+
+    private Leave leave(Employee employee, int fromDay, int toDay, Status status) {
+        Leave leave = new Leave();
+        leave.setEmployee(employee);
+        leave.setStartDate(START.plusDays(fromDay));
+        leave.setEndDate(START.plusDays(toDay));
+        leave.setReason("Holiday");
+        leave.setStatus(status);
+        return leaveRepository.save(leave);
+    }
+}
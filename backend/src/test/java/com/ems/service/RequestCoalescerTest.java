@@ -0,0 +1,181 @@
+package com.ems.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.ems.service.AggregateVersionService.Aggregate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Single-flight loads shared by concurrent callers, failures that are not memoized, and the
+ * TTL and aggregate versions that decide when a memoized result is reused
+ */
+class RequestCoalescerTest {
+
+    private static final Long TENANT = 7L;
+
+    private static final int CALLERS = 8;
+
+    private final AggregateVersionService aggregateVersionService = mock(AggregateVersionService.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(coalescer, "aggregateVersionService", aggregateVersionService);
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(coalescer, "ttlMillis", 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<List<String>> loader = () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return List.of("report");
+        };
+
+        List<Future<List<String>>> results = new ArrayList<>();
+        results.add(executor.submit(() -> coalescer.coalesce("report", TENANT, List.of(2024), loader, Aggregate.SALARY)));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(executor.submit(() -> coalescer.coalesce("report", TENANT, List.of(2024), loader, Aggregate.SALARY)));
+        }
+        // Release the load only once every other caller waits on it
+        awaitCount("report", "joined", CALLERS - 1);
+        release.countDown();
+
+        List<String> first = results.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<List<String>> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(count("report", "computed")).isEqualTo(1.0);
+
+        assertThat(coalescer.coalesce("report", TENANT, List.of(2024), loader, Aggregate.SALARY)).isSameAs(first);
+        assertThat(loads).hasValue(1);
+        assertThat(count("report", "memoized")).isEqualTo(1.0);
+    }
+
+    @Test
+    void failedLoadIsSharedButNotMemoized() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<String> failing = () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            throw new IllegalStateException("database unavailable");
+        };
+
+        Future<String> loader = executor.submit(() -> coalescer.coalesce("stats", TENANT, List.of(), failing));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> joiner = executor.submit(() -> coalescer.coalesce("stats", TENANT, List.of(), failing));
+        awaitCount("stats", "joined", 1);
+        release.countDown();
+
+        for (Future<String> result : List.of(loader, joiner)) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .cause().isInstanceOf(IllegalStateException.class).hasMessage("database unavailable");
+        }
+        assertThat(loads).hasValue(1);
+
+        // The next call loads again instead of getting the failure
+        assertThat(coalescer.coalesce("stats", TENANT, List.of(), () -> "recovered")).isEqualTo("recovered");
+        assertThat(count("stats", "computed")).isEqualTo(2.0);
+    }
+
+    @Test
+    void resultIsReusedUntilItsTtlExpires() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Integer> loader = loads::incrementAndGet;
+
+        assertThat(coalescer.coalesce("dashboard", TENANT, List.of(), 50, loader)).isEqualTo(1);
+        assertThat(coalescer.coalesce("dashboard", TENANT, List.of(), 50, loader)).isEqualTo(1);
+
+        Thread.sleep(100);
+        assertThat(coalescer.coalesce("dashboard", TENANT, List.of(), 50, loader)).isEqualTo(2);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void keyIncludesVersionsTenantAndArguments() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Integer> loader = loads::incrementAndGet;
+        when(aggregateVersionService.getVersion(TENANT, Aggregate.SALARY)).thenReturn(1L);
+
+        assertThat(coalescer.coalesce("payroll", TENANT, List.of(3), loader, Aggregate.SALARY)).isEqualTo(1);
+        assertThat(coalescer.coalesce("payroll", TENANT, List.of(3), loader, Aggregate.SALARY)).isEqualTo(1);
+
+        // A committed write bumps the version, and the next call computes afresh
+        when(aggregateVersionService.getVersion(TENANT, Aggregate.SALARY)).thenReturn(2L);
+        assertThat(coalescer.coalesce("payroll", TENANT, List.of(3), loader, Aggregate.SALARY)).isEqualTo(2);
+        assertThat(coalescer.coalesce("payroll", TENANT, List.of(3), loader, Aggregate.SALARY)).isEqualTo(2);
+
+        assertThat(coalescer.coalesce("payroll", TENANT, List.of(4), loader, Aggregate.SALARY)).isEqualTo(3);
+        assertThat(coalescer.coalesce("payroll", 8L, List.of(3), loader, Aggregate.SALARY)).isEqualTo(4);
+        assertThat(coalescer.coalesce("headcount", TENANT, List.of(3), loader, Aggregate.SALARY)).isEqualTo(5);
+
+        // Without a tenant nothing is shared
+        assertThat(coalescer.coalesce("payroll", null, List.of(3), loader, Aggregate.SALARY)).isEqualTo(6);
+        assertThat(coalescer.coalesce("payroll", null, List.of(3), loader, Aggregate.SALARY)).isEqualTo(7);
+    }
+
+    private double count(String name, String outcome) {
+        return meterRegistry.counter("ems.coalescer.calls", "name", name, "outcome", outcome).count();
+    }
+
+    private void awaitCount(String name, String outcome, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count(name, outcome) < expected) {
+            assertThat(System.nanoTime()).as("callers joining").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Load was never released");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.ems.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.ems.Application;
+import com.ems.dto.DeductionDto;
+import com.ems.dto.SalaryDto;
+import com.ems.model.Deduction;
+import com.ems.model.Deduction.DeductionType;
+import com.ems.model.Department;
+import com.ems.model.Employee;
+import com.ems.model.Employee.ContractType;
+import com.ems.model.Salary;
+import com.ems.model.User;
+import com.ems.repository.DepartmentRepository;
+import com.ems.repository.EmployeeRepository;
+import com.ems.repository.SalaryRepository;
+import com.ems.repository.UserRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Streamed salary list with its deductions, and the statements it takes as payroll grows
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles("test")
+class SalaryServiceTest {
+
+    @Autowired
+    private SalaryService salaryService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private SalaryRepository salaryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void streamedSalariesCarryTheirDeductionsAndDepartment() {
+        List<SalaryDto> streamed = stream(company(4));
+
+        assertThat(streamed).hasSize(8);
+        for (SalaryDto salary : streamed) {
+            assertThat(salary.getDepartmentName()).isEqualTo("Payroll");
+            assertThat(salary.getDeductions()).extracting(DeductionDto::getType)
+                    .containsExactlyInAnyOrder(DeductionType.TAX, DeductionType.INSURANCE);
+            DeductionDto tax = salary.getDeductions().stream()
+                    .filter(deduction -> deduction.getType() == DeductionType.TAX)
+                    .findFirst().orElseThrow();
+            assertThat(tax.getCalculatedAmount()).isEqualTo(salary.getGrossSalary() * 0.1, within(0.005));
+        }
+    }
+
+    @Test
+    void streamStatementsDoNotGrowWithSalaries() {
+        long small = statementsToStream(company(3));
+        long large = statementsToStream(company(50));
+
+        assertThat(large).isEqualTo(small);
+    }
+
+    private long statementsToStream(User manager) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        stream(manager);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<SalaryDto> stream(User manager) {
+        List<SalaryDto> streamed = new ArrayList<>();
+        salaryService.streamSalaries(manager, streamed::add);
+        return streamed;
+    }
+
+    /**
+     * A company in one department, where employees have two salaries with a tax and an insurance deduction each
+     */
+    private User company(int employees) {
+        String email = "payroll-" + System.nanoTime() + "@example.com";
+        User manager = new User();
+        manager.setFullName("Payroll Manager");
+        manager.setEmail(email);
+        manager.setCompanyName("Payroll Company");
+        manager.setPassword("not-used");
+        manager.addRole("ROLE_MANAGER");
+        manager = userRepository.save(manager);
+
+        Department department = new Department();
+        department.setName("Payroll");
+        department.setBudget(500_000.0);
+        department.setBudgetType(Department.BudgetType.YEARLY);
+        department.setUser(manager);
+        department = departmentRepository.save(department);
+
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < employees; i++) {
+            Employee employee = new Employee();
+            employee.setUser(manager);
+            employee.setDepartment(department);
+            employee.setName("Employee " + i);
+            employee.setEmail("employee-" + i + "-" + email);
+            employee.setRole("Accountant");
+            employee.setContractType(ContractType.FULL_TIME);
+            employee.setStartDate(today.minusYears(1));
+            employee = employeeRepository.save(employee);
+
+            for (int back = 1; back >= 0; back--) {
+                LocalDate period = today.minusMonths(back);
+                double gross = 4_000.0 + 10 * i + back;
+                Salary salary = new Salary();
+                salary.setEmployee(employee);
+                salary.setGrossSalary(gross);
+                salary.setTaxDeduction(gross * 0.1);
+                salary.setInsuranceDeduction(50.0);
+                salary.setOtherDeductions(0.0);
+                salary.setNetSalary(gross * 0.9 - 50.0);
+                salary.setSalaryMonth(period.getMonthValue());
+                salary.setSalaryYear(period.getYear());
+                for (Deduction deduction : List.of(new Deduction(DeductionType.TAX, "Income tax", 10.0, true),
+                        new Deduction(DeductionType.INSURANCE, "Health", 50.0, false))) {
+                    deduction.setSalary(salary);
+                    salary.getDeductions().add(deduction);
+                }
+                salaryRepository.save(salary);
+            }
+        }
+        return manager;
+    }
+}
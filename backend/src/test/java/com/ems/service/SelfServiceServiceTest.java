@@ -0,0 +1,180 @@
+package com.ems.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.ems.Application;
+import com.ems.model.Employee;
+import com.ems.model.Employee.ContractType;
+import com.ems.model.Leave;
+import com.ems.model.Message;
+import com.ems.model.Salary;
+import com.ems.model.User;
+import com.ems.repository.EmployeeRepository;
+import com.ems.repository.LeaveRepository;
+import com.ems.repository.MessageRepository;
+import com.ems.repository.SalaryRepository;
+import com.ems.repository.UserRepository;
+import com.ems.security.JwtTokenProvider;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The self-service endpoints return the signed-in employee's own rows, and nothing of colleagues
+ * or other companies
+ */
+@SpringBootTest(classes = Application.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Sql("/history-archive-tables.sql")
+class SelfServiceServiceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private SalaryRepository salaryRepository;
+
+    @Autowired
+    private LeaveRepository leaveRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Test
+    void employeeSeesOnlyTheirOwnRows() throws Exception {
+        User manager = manager();
+        Employee alice = employee(manager, "alice");
+        Employee bob = employee(manager, "bob");
+        Employee carol = employee(manager(), "carol");
+
+        Salary aliceMarch = salary(alice, YearMonth.of(2024, 3));
+        Salary aliceApril = salary(alice, YearMonth.of(2024, 4));
+        salary(bob, YearMonth.of(2024, 4));
+        salary(carol, YearMonth.of(2024, 4));
+        Leave aliceLeave = leave(alice);
+        leave(bob);
+        leave(carol);
+        Message aliceUnread = message(alice, false);
+        message(alice, true);
+        message(bob, false);
+        message(carol, false);
+
+        JsonNode salaries = read("/api/employee/me/salaries", alice);
+        assertThat(salaries.findValuesAsText("id")).containsExactly(aliceApril.getId().toString(), aliceMarch.getId().toString());
+
+        JsonNode leaves = read("/api/employee/me/leaves", alice).get("history");
+        assertThat(leaves.findValuesAsText("id")).containsExactly(aliceLeave.getId().toString());
+
+        JsonNode inbox = read("/api/employee/me/messages/unread", alice);
+        assertThat(inbox.get("unreadCount").asLong()).isEqualTo(1);
+        assertThat(inbox.get("messages").findValuesAsText("id")).containsExactly(aliceUnread.getId().toString());
+
+        assertThat(read("/api/employee/me", alice).get("id").asLong()).isEqualTo(alice.getId());
+    }
+
+    @Test
+    void employeeOfAnotherCompanyIsNotShown() throws Exception {
+        Employee carol = employee(manager(), "carol");
+        salary(carol, YearMonth.of(2024, 4));
+        User otherManager = manager();
+
+        // A token that names another company's employee finds nothing in the token's company
+        String token = jwtTokenProvider.createToken("E_" + carol.getEmail(), "ROLE_EMPLOYEE", otherManager.getId(), carol.getId());
+        assertThat(read("/api/employee/me/salaries", token)).isEmpty();
+        mockMvc.perform(get("/api/employee/me").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isNotFound());
+    }
+
+    private JsonNode read(String path, Employee employee) throws Exception {
+        return read(path, token(employee));
+    }
+
+    private JsonNode read(String path, String token) throws Exception {
+        String body = mockMvc.perform(get(path).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private String token(Employee employee) {
+        return jwtTokenProvider.createToken("E_" + employee.getEmail(), "ROLE_EMPLOYEE", employee.getUser().getId(), employee.getId());
+    }
+
+    private User manager() {
+        User manager = new User();
+        manager.setFullName("Self-Service Manager");
+        manager.setEmail("self-" + System.nanoTime() + "@example.com");
+        manager.setCompanyName("Self-Service Company");
+        manager.setPassword("not-used");
+        manager.addRole("ROLE_MANAGER");
+        return userRepository.save(manager);
+    }
+
+    private Employee employee(User manager, String name) {
+        Employee employee = new Employee();
+        employee.setUser(manager);
+        employee.setName(name);
+        employee.setEmail(name + "-" + manager.getEmail());
+        employee.setRole("Engineer");
+        employee.setContractType(ContractType.FULL_TIME);
+        employee.setStartDate(LocalDate.of(2023, 1, 1));
+        employee.setAccountActivated(true);
+        employee.setPasswordHash("not-used");
+        return employeeRepository.save(employee);
+    }
+
+    private Salary salary(Employee employee, YearMonth period) {
+        Salary salary = new Salary();
+        salary.setEmployee(employee);
+        salary.setGrossSalary(3000.0);
+        salary.setSalaryYear(period.getYear());
+        salary.setSalaryMonth(period.getMonthValue());
+        return salaryRepository.save(salary);
+    }
+
+    private Leave leave(Employee employee) {
+        Leave leave = new Leave();
+        leave.setEmployee(employee);
+        leave.setStartDate(LocalDate.now().plusDays(10));
+        leave.setEndDate(LocalDate.now().plusDays(12));
+        leave.setReason("Holiday");
+        leave.setStatus(Leave.Status.PENDING);
+        return leaveRepository.save(leave);
+    }
+
+    private Message message(Employee employee, boolean read) {
+        Message message = new Message();
+        message.setSender(employee.getUser());
+        message.setEmployee(employee);
+        message.setSubject("Payslip");
+        message.setContent("Your payslip is ready");
+        message.setRead(read);
+        return messageRepository.save(message);
+    }
+}
@@ -0,0 +1,127 @@
+package com.ems.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Envelope of streamed lists, and what a client receives when the listing fails part way
+ */
+class ApiResponseStreamerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ApiResponseStreamer streamer = new ApiResponseStreamer();
+
+    {
+        ReflectionTestUtils.setField(streamer, "objectMapper", objectMapper);
+    }
+
+    public record Row(int id, String name) {
+    }
+
+    /**
+     * Fails to serialize, after the start of its JSON object is written
+     */
+    public record BrokenRow(int id) {
+        public String getName() {
+            throw new IllegalStateException("Broken row " + id);
+        }
+    }
+
+    @Test
+    void completeListEndsWithSuccess() throws IOException {
+        for (boolean gzip : List.of(false, true)) {
+            JsonNode response = objectMapper.readTree(read(write(gzip, consumer -> {
+                for (int i = 0; i < 450; i++) {
+                    consumer.accept(new Row(i, "Row " + i));
+                }
+            }), gzip));
+
+            assertThat(response.get("success").asBoolean()).isTrue();
+            assertThat(response.get("message").asText()).isEqualTo("Rows");
+            assertThat(response.get("data")).hasSize(450);
+            assertThat(response.has("errorCode")).isFalse();
+        }
+    }
+
+    @Test
+    void failureBetweenElementsEndsWithSuccessFalse() throws IOException {
+        for (boolean gzip : List.of(false, true)) {
+            JsonNode response = objectMapper.readTree(read(write(gzip, consumer -> {
+                for (int i = 0; i < 250; i++) {
+                    consumer.accept(new Row(i, "Row " + i));
+                }
+                throw new IllegalStateException("Connection lost");
+            }), gzip));
+
+            assertThat(response.get("success").asBoolean()).isFalse();
+            assertThat(response.get("errorCode").asText()).isEqualTo(ApiResponseStreamer.INCOMPLETE_LIST);
+            assertThat(response.get("message").asText()).contains("250");
+            assertThat(response.get("data")).hasSize(250);
+        }
+    }
+
+    @Test
+    void failureInsideAnElementLeavesTheResponseUnfinished() {
+        for (boolean gzip : List.of(false, true)) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            // Past the first flush, so the client has received part of the list
+            StreamingResponseBody streaming = body(gzip, consumer -> {
+                for (int i = 0; i < 300; i++) {
+                    consumer.accept(new Row(i, "Row " + i));
+                }
+                consumer.accept(new BrokenRow(300));
+            });
+
+            assertThatThrownBy(() -> streaming.writeTo(body)).isInstanceOf(RuntimeException.class);
+            assertThat(body.size()).isPositive();
+            if (gzip) {
+                // Without the gzip trailer the client cannot even decompress it as a whole
+                assertThatThrownBy(() -> read(body.toByteArray(), true)).isInstanceOf(IOException.class);
+            } else {
+                assertThatThrownBy(() -> objectMapper.readTree(body.toByteArray()))
+                        .isInstanceOf(JsonProcessingException.class);
+            }
+        }
+    }
+
+    private byte[] write(boolean gzip, ApiResponseStreamer.ElementSource<Object> source) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body(gzip, source).writeTo(body);
+        return body.toByteArray();
+    }
+
+    private StreamingResponseBody body(boolean gzip, ApiResponseStreamer.ElementSource<Object> source) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (gzip) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        }
+        return streamer.stream(request, "Rows", source).getBody();
+    }
+
+    private static byte[] read(byte[] body, boolean gzip) throws IOException {
+        if (!gzip) {
+            return body;
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.ems.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Property checks of the fixed-point payroll arithmetic against BigDecimal, over seeded random samples
+ */
+class PayrollMathTest {
+
+    private static final int SAMPLES = 100_000;
+
+    private final Random random = new Random(20240301L);
+
+    @Test
+    void centsRoundTripThroughAmounts() {
+        for (int i = 0; i < SAMPLES; i++) {
+            long cents = random.nextLong(-1_000_000_000_00L, 1_000_000_000_00L);
+            assertThat(PayrollMath.toCents(PayrollMath.toAmount(cents))).as("cents %d", cents).isEqualTo(cents);
+            assertThat(PayrollMath.toDecimal(cents)).isEqualByComparingTo(BigDecimal.valueOf(cents, 2));
+        }
+    }
+
+    @Test
+    void toCentsRoundsHalfUpOnTheDecimalValue() {
+        assertThat(PayrollMath.toCents(0.005)).isEqualTo(1L);
+        assertThat(PayrollMath.toCents(1.005)).isEqualTo(101L);
+        assertThat(PayrollMath.toCents(2.675)).isEqualTo(268L);
+        assertThat(PayrollMath.toCents(-0.005)).isEqualTo(-1L);
+        assertThat(PayrollMath.toCents(null)).isZero();
+
+        for (int i = 0; i < SAMPLES; i++) {
+            // Three decimals, so half the samples sit exactly on a rounding boundary
+            double amount = random.nextLong(0, 100_000_000_000L) / 1000.0;
+            long expected = BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            assertThat(PayrollMath.toCents(amount)).as("amount %s", amount).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void percentageDeductionsRoundHalfUpLikeBigDecimal() {
+        // 12.5% of 0.04 is 0.005, which rounds up to one cent
+        assertThat(PayrollMath.percentOf(4L, PayrollMath.toRate(12.5))).isEqualTo(1L);
+        // 0.0001% of 5000.00 is exactly half a cent
+        assertThat(PayrollMath.percentOf(500_000L, PayrollMath.toRate(0.0001))).isEqualTo(1L);
+        assertThat(PayrollMath.percentOf(499_999L, PayrollMath.toRate(0.0001))).isZero();
+
+        for (int i = 0; i < SAMPLES; i++) {
+            long grossCents = random.nextLong(0, 10_000_000_00L);
+            double percentage = random.nextInt(0, 1_000_000) / 10_000.0;
+            long rate = PayrollMath.toRate(percentage);
+
+            BigDecimal expected = BigDecimal.valueOf(grossCents, 2)
+                    .multiply(BigDecimal.valueOf(percentage))
+                    .divide(BigDecimal.valueOf(100))
+                    .setScale(2, RoundingMode.HALF_UP);
+            assertThat(PayrollMath.toDecimal(PayrollMath.percentOf(grossCents, rate)))
+                    .as("%s%% of %d cents", percentage, grossCents)
+                    .isEqualByComparingTo(expected);
+        }
+    }
+
+    @Test
+    void divideHalfUpRoundsHalfAwayFromZero() {
+        assertThat(PayrollMath.divideHalfUp(5, 2)).isEqualTo(3L);
+        assertThat(PayrollMath.divideHalfUp(-5, 2)).isEqualTo(-3L);
+        assertThat(PayrollMath.divideHalfUp(4, 3)).isEqualTo(1L);
+        assertThat(PayrollMath.divideHalfUp(-4, 3)).isEqualTo(-1L);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            long dividend = random.nextLong(-1_000_000_000_000L, 1_000_000_000_000L);
+            long divisor = random.nextLong(1, 10_000_000L) * (random.nextBoolean() ? 1 : -1);
+            long expected = BigDecimal.valueOf(dividend).divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP).longValueExact();
+            assertThat(PayrollMath.divideHalfUp(dividend, divisor)).as("%d / %d", dividend, divisor).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void computePeriodMatchesBigDecimalPayroll() {
+        int salaries = 1_000;
+        long[] gross = new long[salaries];
+        int[] start = new int[salaries + 1];
+        byte[] type = new byte[salaries * 3];
+        long[] value = new long[salaries * 3];
+        boolean[] percentage = new boolean[salaries * 3];
+        // What the deduction rule holds: a percentage, or a fixed amount
+        BigDecimal[] ruleValue = new BigDecimal[salaries * 3];
+
+        int d = 0;
+        for (int i = 0; i < salaries; i++) {
+            gross[i] = random.nextLong(0, 2_000_000_00L);
+            start[i] = d;
+            for (int k = random.nextInt(0, 4); k > 0; k--, d++) {
+                type[d] = (byte) random.nextInt(0, 3);
+                percentage[d] = random.nextBoolean();
+                if (percentage[d]) {
+                    ruleValue[d] = BigDecimal.valueOf(random.nextInt(0, 500_000), 4);
+                    value[d] = PayrollMath.toRate(ruleValue[d].doubleValue());
+                } else {
+                    value[d] = random.nextLong(0, 50_000_00L);
+                    ruleValue[d] = BigDecimal.valueOf(value[d], 2);
+                }
+            }
+        }
+        start[salaries] = d;
+
+        long[] tax = new long[salaries];
+        long[] insurance = new long[salaries];
+        long[] other = new long[salaries];
+        long[] net = new long[salaries];
+        PayrollMath.computePeriod(gross, start, type, value, percentage, tax, insurance, other, net);
+
+        for (int i = 0; i < salaries; i++) {
+            BigDecimal grossAmount = BigDecimal.valueOf(gross[i], 2);
+            BigDecimal[] totals = { BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO };
+            for (int k = start[i]; k < start[i + 1]; k++) {
+                BigDecimal deduction = percentage[k]
+                        ? grossAmount.multiply(ruleValue[k]).divide(BigDecimal.valueOf(100)).setScale(2, RoundingMode.HALF_UP)
+                        : ruleValue[k];
+                totals[type[k]] = totals[type[k]].add(deduction);
+            }
+            BigDecimal expectedNet = grossAmount.subtract(totals[0]).subtract(totals[1]).subtract(totals[2]).max(BigDecimal.ZERO);
+
+            assertThat(PayrollMath.toDecimal(tax[i])).as("tax of salary %d", i).isEqualByComparingTo(totals[0]);
+            assertThat(PayrollMath.toDecimal(insurance[i])).as("insurance of salary %d", i).isEqualByComparingTo(totals[1]);
+            assertThat(PayrollMath.toDecimal(other[i])).as("other deductions of salary %d", i).isEqualByComparingTo(totals[2]);
+            assertThat(PayrollMath.toDecimal(net[i])).as("net of salary %d", i).isEqualByComparingTo(expectedNet);
+        }
+    }
+}
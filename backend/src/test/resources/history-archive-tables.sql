@@ -0,0 +1,55 @@
+-- The archive tables of V4__history_archive_tables.sql for the in-memory database, which has no Flyway migrations.
+-- They are recreated empty for each test: the database outlives Spring contexts, and a new context restarts the
+-- ids of the hot tables, so rows archived by an earlier test could match the ids of new ones.
+DROP TABLE IF EXISTS salaries_archive;
+DROP TABLE IF EXISTS salary_deductions_archive;
+DROP TABLE IF EXISTS leave_requests_archive;
+DROP TABLE IF EXISTS messages_archive;
+
+CREATE TABLE salaries_archive (
+    id BIGINT PRIMARY KEY,
+    employee_id BIGINT NOT NULL,
+    gross_salary NUMERIC(19, 2) NOT NULL,
+    tax_deduction NUMERIC(19, 2) NOT NULL,
+    insurance_deduction NUMERIC(19, 2) NOT NULL,
+    other_deductions NUMERIC(19, 2) NOT NULL,
+    net_salary NUMERIC(19, 2) NOT NULL,
+    salary_month INTEGER NOT NULL,
+    salary_year INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE TABLE salary_deductions_archive (
+    id BIGINT PRIMARY KEY,
+    salary_id BIGINT NOT NULL,
+    deduction_type VARCHAR(255) NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    deduction_value NUMERIC(19, 4) NOT NULL,
+    is_percentage BOOLEAN NOT NULL
+);
+
+CREATE TABLE leave_requests_archive (
+    id BIGINT PRIMARY KEY,
+    employee_id BIGINT NOT NULL,
+    request_date DATE NOT NULL,
+    leave_start DATE NOT NULL,
+    leave_end DATE NOT NULL,
+    reason VARCHAR(1000),
+    status VARCHAR(255) NOT NULL,
+    decision_date TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE TABLE messages_archive (
+    id BIGINT PRIMARY KEY,
+    sender_id BIGINT NOT NULL,
+    recipient_id BIGINT NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    content VARCHAR(5000) NOT NULL,
+    sent_at TIMESTAMP NOT NULL,
+    is_read BOOLEAN NOT NULL,
+    read_at TIMESTAMP,
+    status VARCHAR(255) NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT now()
+);